@@ -16,21 +16,39 @@ package org.openmrs.module.appointments;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.BaseModuleActivator;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.DaemonTokenAware;
+import org.openmrs.module.appointments.cache.ReferenceDataCacheStatistics;
+import org.openmrs.module.appointments.service.impl.NotificationOutboxDispatcher;
 
 /**
  * This class contains the logic that is run every time this module is either started or shutdown
  */
-public class AppointmentsActivator extends BaseModuleActivator {
+public class AppointmentsActivator extends BaseModuleActivator implements DaemonTokenAware {
 	
 	private Log log = LogFactory.getLog(this.getClass());
 	
+	private DaemonToken daemonToken;
+	
 	public void startup() {
 		log.info("Starting Appointments Module");
 	}
 	
+	@Override
+	public void started() {
+		Context.getRegisteredComponents(NotificationOutboxDispatcher.class).forEach(dispatcher -> dispatcher.start(daemonToken));
+	}
+	
+	@Override
+	public void setDaemonToken(DaemonToken daemonToken) {
+		this.daemonToken = daemonToken;
+	}
+	
 	public void shutdown() {
 		log.info("Shutting down Appointments Module");
+		Context.getRegisteredComponents(ReferenceDataCacheStatistics.class).forEach(ReferenceDataCacheStatistics::logStatistics);
 	}
 	
 }
@@ -7,24 +7,37 @@ import org.ict4h.atomfeed.server.service.EventServiceImpl;
 import org.ict4h.atomfeed.transaction.AFTransactionWorkWithoutResult;
 import org.joda.time.DateTime;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.config.AppointmentsConfiguration;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
+import org.openmrs.module.appointments.events.AppointmentChangeBroadcaster;
+import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.atomfeed.transaction.support.AtomFeedSpringTransactionManager;
 import org.springframework.aop.AfterReturningAdvice;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 public abstract class AbstractBaseAdvice implements AfterReturningAdvice {
 
     private EventServiceImpl eventService;
     private AtomFeedSpringTransactionManager atomFeedSpringTransactionManager;
-
+    private AppointmentChangeBroadcaster appointmentChangeBroadcaster;
+    private AppointmentsConfigurationProvider configurationProvider;
 
     public AbstractBaseAdvice() {
         atomFeedSpringTransactionManager = new AtomFeedSpringTransactionManager(getSpringPlatformTransactionManager());
         AllEventRecordsQueue allEventRecordsQueue = new AllEventRecordsQueueJdbcImpl(atomFeedSpringTransactionManager);
         this.eventService = new EventServiceImpl(allEventRecordsQueue);
+        List<AppointmentChangeBroadcaster> broadcasters = Context.getRegisteredComponents(AppointmentChangeBroadcaster.class);
+        this.appointmentChangeBroadcaster = broadcasters.isEmpty() ? null : broadcasters.get(0);
+        this.configurationProvider = Context.getRegisteredComponents(AppointmentsConfigurationProvider.class).get(0);
     }
 
     protected PlatformTransactionManager getSpringPlatformTransactionManager() {
@@ -32,8 +45,29 @@ public abstract class AbstractBaseAdvice implements AfterReturningAdvice {
     }
 
 
-    private void raiseEvent(String contents, String title, String category) {
-        final Event event = new Event(UUID.randomUUID().toString(), title, DateTime.now(), (URI) null, contents, category);
+    /**
+     * Raises one event per contents. Within a transaction the events are collected and written together just before
+     * it commits, see {@link TransactionEventBuffer}; otherwise they are written right away in a single atom feed
+     * transaction.
+     */
+    protected void raiseEvents(List<String> contentsList) {
+        String title = getTitle();
+        String category = getCategory();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionEventBuffer buffer = TransactionEventBuffer.forCurrentTransaction(this, this::writeEvents);
+            for (String contents : contentsList) {
+                buffer.add(title, category, contents, () -> newEvent(contents, title, category));
+            }
+            return;
+        }
+        writeEvents(contentsList.stream().map(contents -> newEvent(contents, title, category)).collect(Collectors.toList()));
+    }
+
+    private Event newEvent(String contents, String title, String category) {
+        return new Event(UUID.randomUUID().toString(), title, DateTime.now(), (URI) null, contents, category);
+    }
+
+    private void writeEvents(final List<Event> events) {
         atomFeedSpringTransactionManager.executeWithTransaction(
                 new AFTransactionWorkWithoutResult() {
                     @Override
@@ -43,7 +77,9 @@ public abstract class AbstractBaseAdvice implements AfterReturningAdvice {
 
                     @Override
                     protected void doInTransaction() {
-                        eventService.notify(event);
+                        for (Event event : events) {
+                            eventService.notify(event);
+                        }
                     }
                 }
         );
@@ -52,11 +88,27 @@ public abstract class AbstractBaseAdvice implements AfterReturningAdvice {
     @Override
     public void afterReturning(Object returnValue, Method method, Object[] arguments, Object target) throws Throwable {
         if (shouldRaiseEvent() && shouldRaiseEventForMethod(method.getName()))
-            raiseEvent(getContents(returnValue), getTitle(), getCategory());
+            raiseEvents(Collections.singletonList(getContents(returnValue)));
+    }
+
+    /**
+     * Pushes the changed appointments to the clients subscribed to appointment changes. Unlike atom feed events, this
+     * does not depend on the raise event global property.
+     */
+    protected void broadcastChanges(Collection<Appointment> appointments) {
+        if (appointmentChangeBroadcaster != null) {
+            appointmentChangeBroadcaster.publishAfterCommit(appointments);
+        }
+    }
+
+    protected void broadcastChangedUuids(Collection<String> appointmentUuids) {
+        if (appointmentChangeBroadcaster != null) {
+            appointmentChangeBroadcaster.publishUuidsAfterCommit(appointmentUuids);
+        }
     }
 
-    protected String getUrlPattern(String urlPatternGlobalProperty, String defaultValue) {
-        return Context.getAdministrationService().getGlobalProperty(urlPatternGlobalProperty, defaultValue);
+    protected AppointmentsConfiguration getConfiguration() {
+        return configurationProvider.get();
     }
 
     protected abstract String getContents(Object returnValue);
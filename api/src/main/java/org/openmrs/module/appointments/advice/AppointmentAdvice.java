@@ -1,39 +1,54 @@
 package org.openmrs.module.appointments.advice;
 
-import org.openmrs.api.context.Context;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBulkStatusChangeResult;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static java.util.Objects.isNull;
 import static org.openmrs.module.appointments.constants.AppointmentsEventRecordsConstants.CATEGORY;
-import static org.openmrs.module.appointments.constants.AppointmentsEventRecordsConstants.RAISE_EVENT_GLOBAL_PROPERTY;
 
 public class AppointmentAdvice extends AbstractBaseAdvice {
 
     private static final String TITLE = "Appointment";
     private static final ArrayList<String> METHOD_NAMES = new ArrayList<>(Arrays.asList("validateAndSave", "changeStatus", "undoStatusChange"));
     private static final ArrayList<String> VOIDED_METHOD_NAMES = new ArrayList<>(Arrays.asList("changeStatus", "undoStatusChange"));
-    private static final String URL_PATTERN_GLOBAL_PROPERTY = "atomfeed.event.urlPatternForAppointments";
-    private static final String DEFAULT_URL_PATTERN = "/openmrs/ws/rest/v1/appointment?uuid={uuid}";
+    // each chunk of changeStatusInBulk is committed, and its events raised, on its own
+    private static final String CHANGE_STATUS_IN_BULK = "changeStatusInBulkAfter";
 
 
     @Override
     protected String getContents(Object returnValue) {
-        return getUrlPattern(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN)
+        return getConfiguration().getAppointmentUrlPattern()
                 .replace("{uuid}", ((Appointment) returnValue).getUuid());
     }
 
     @Override
     public void afterReturning(Object returnValue, Method method, Object[] arguments, Object target) throws Throwable {
+        if (CHANGE_STATUS_IN_BULK.equals(method.getName())) {
+            List<String> changedAppointmentUuids = ((AppointmentBulkStatusChangeResult) returnValue).getChangedAppointmentUuids();
+            broadcastChangedUuids(changedAppointmentUuids);
+            if (!changedAppointmentUuids.isEmpty() && shouldRaiseEvent()) {
+                String urlPattern = getConfiguration().getAppointmentUrlPattern();
+                raiseEvents(changedAppointmentUuids.stream().map(uuid -> urlPattern.replace("{uuid}", uuid)).collect(Collectors.toList()));
+            }
+            return;
+        }
+
         // Hacky fix for void method
         Object processedReturnValue = returnValue;
 
         if (VOIDED_METHOD_NAMES.contains(method.getName()) && !isNull(arguments))
             processedReturnValue = arguments[0];
 
+        if (METHOD_NAMES.contains(method.getName()) && processedReturnValue instanceof Appointment)
+            broadcastChanges(Collections.singletonList((Appointment) processedReturnValue));
+
         super.afterReturning(processedReturnValue, method, arguments, target);
     }
 
@@ -54,6 +69,6 @@ public class AppointmentAdvice extends AbstractBaseAdvice {
 
     @Override
     protected boolean shouldRaiseEvent() {
-        return Boolean.valueOf(Context.getAdministrationService().getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY));
+        return getConfiguration().shouldRaiseAppointmentEvents();
     }
 }
@@ -1,6 +1,5 @@
 package org.openmrs.module.appointments.advice;
 
-import org.openmrs.api.context.Context;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 
 import java.util.ArrayList;
@@ -11,13 +10,10 @@ public class AppointmentServiceDefinitionAdvice extends AbstractBaseAdvice {
     private static final String TITLE = "Appointment Service";
     private static final String CATEGORY = "appointmentservice";
     private static final ArrayList<String> METHOD_NAMES = new ArrayList<>(Arrays.asList("save", "voidAppointmentService"));
-    private static final String DEFAULT_URL_PATTERN = "/openmrs/ws/rest/v1/appointmentService?uuid={uuid}";
-    private static final String RAISE_EVENT_GLOBAL_PROPERTY = "atomfeed.publish.eventsForAppointmentService";
-    private static final String URL_PATTERN_GLOBAL_PROPERTY = "atomfeed.event.urlPatternForAppointmentService";
 
     @Override
     protected String getContents(Object returnValue) {
-        return getUrlPattern(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN)
+        return getConfiguration().getAppointmentServiceUrlPattern()
                 .replace("{uuid}", ((AppointmentServiceDefinition) returnValue).getUuid());
     }
 
@@ -38,6 +34,6 @@ public class AppointmentServiceDefinitionAdvice extends AbstractBaseAdvice {
 
     @Override
     protected boolean shouldRaiseEvent() {
-        return Boolean.valueOf(Context.getAdministrationService().getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY));
+        return getConfiguration().shouldRaiseAppointmentServiceEvents();
     }
 }
@@ -1,6 +1,5 @@
 package org.openmrs.module.appointments.advice;
 
-import org.openmrs.api.context.Context;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentRecurringPattern;
 
@@ -8,9 +7,9 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.openmrs.module.appointments.constants.AppointmentsEventRecordsConstants.CATEGORY;
-import static org.openmrs.module.appointments.constants.AppointmentsEventRecordsConstants.RAISE_EVENT_GLOBAL_PROPERTY;
 
 public class RecurringAppointmentsAdvice extends AbstractBaseAdvice {
 
@@ -19,8 +18,6 @@ public class RecurringAppointmentsAdvice extends AbstractBaseAdvice {
     private static final String UPDATE = "update";
     private static final String CHANGE_STATUS = "changeStatus";
     private static final List<String> METHOD_NAMES = Arrays.asList(VALIDATE_AND_SAVE, UPDATE, CHANGE_STATUS);
-    private static final String URL_PATTERN_GLOBAL_PROPERTY = "atomfeed.event.urlPatternForRecurringAppointments";
-    private static final String DEFAULT_URL_PATTERN = "/openmrs/ws/rest/v1/recurring-appointments?uuid={uuid}";
 
     @Override
     public void afterReturning(Object returnValue, Method method, Object[] arguments, Object target) throws Throwable {
@@ -33,13 +30,12 @@ public class RecurringAppointmentsAdvice extends AbstractBaseAdvice {
         } else if (CHANGE_STATUS.equals(method.getName())) {
             updatedAppointments = (List<Appointment>) returnValue;
         }
-        raiseEventsForAppointments(method, arguments, target, updatedAppointments);
-    }
-
-    private void raiseEventsForAppointments(Method method, Object[] arguments, Object target,
-                                            List<Appointment> appointments) throws Throwable {
-        for (Appointment appointment : appointments) {
-            super.afterReturning(appointment, method, arguments, target);
+        broadcastChanges(updatedAppointments);
+        if (!updatedAppointments.isEmpty() && shouldRaiseEventForMethod(method.getName()) && shouldRaiseEvent()) {
+            String urlPattern = getConfiguration().getRecurringAppointmentUrlPattern();
+            raiseEvents(updatedAppointments.stream()
+                    .map(appointment -> urlPattern.replace("{uuid}", appointment.getUuid()))
+                    .collect(Collectors.toList()));
         }
     }
 
@@ -53,7 +49,7 @@ public class RecurringAppointmentsAdvice extends AbstractBaseAdvice {
 
     @Override
     protected String getContents(Object returnValue) {
-        return getUrlPattern(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN)
+        return getConfiguration().getRecurringAppointmentUrlPattern()
                 .replace("{uuid}", ((Appointment) returnValue).getUuid());
     }
 
@@ -74,6 +70,6 @@ public class RecurringAppointmentsAdvice extends AbstractBaseAdvice {
 
     @Override
     protected boolean shouldRaiseEvent() {
-        return Boolean.valueOf(Context.getAdministrationService().getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY));
+        return getConfiguration().shouldRaiseAppointmentEvents();
     }
 }
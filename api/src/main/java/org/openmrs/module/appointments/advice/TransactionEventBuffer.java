@@ -0,0 +1,66 @@
+package org.openmrs.module.appointments.advice;
+
+import org.ict4h.atomfeed.server.service.Event;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Collects the atom feed events raised during a transaction and writes them all at once just before it commits,
+ * still inside it, so events are only recorded together with the changes they announce. An event with the same
+ * title, category and contents as one already collected is dropped, as consumers read the current state of the
+ * resource anyway.
+ * <p>
+ * Each buffer is only registered as a synchronization of its transaction, so a transaction started with
+ * REQUIRES_NEW collects into a buffer of its own while the outer one is suspended, and each advice flushes only the
+ * events it raised.
+ */
+class TransactionEventBuffer extends TransactionSynchronizationAdapter {
+
+    private final Map<String, Event> events = new LinkedHashMap<>();
+    private final Object owner;
+    private final Consumer<List<Event>> writer;
+
+    private TransactionEventBuffer(Object owner, Consumer<List<Event>> writer) {
+        this.owner = owner;
+        this.writer = writer;
+    }
+
+    /**
+     * Returns the buffer of the given owner in the current transaction, registering one that flushes with the given
+     * writer if there is none yet. Must only be called while transaction synchronization is active.
+     */
+    static TransactionEventBuffer forCurrentTransaction(Object owner, Consumer<List<Event>> writer) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof TransactionEventBuffer && ((TransactionEventBuffer) synchronization).owner == owner) {
+                return (TransactionEventBuffer) synchronization;
+            }
+        }
+        TransactionEventBuffer buffer = new TransactionEventBuffer(owner, writer);
+        TransactionSynchronizationManager.registerSynchronization(buffer);
+        return buffer;
+    }
+
+    void add(String title, String category, String contents, Supplier<Event> event) {
+        events.computeIfAbsent(title + "|" + category + "|" + contents, key -> event.get());
+    }
+
+    int size() {
+        return events.size();
+    }
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+        if (!events.isEmpty()) {
+            writer.accept(new ArrayList<>(events.values()));
+            events.clear();
+        }
+    }
+}
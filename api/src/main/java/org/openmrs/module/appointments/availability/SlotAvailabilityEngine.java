@@ -0,0 +1,139 @@
+package org.openmrs.module.appointments.availability;
+
+import org.openmrs.module.appointments.cache.ServiceAvailabilityCalendar;
+import org.openmrs.module.appointments.model.AppointmentServiceBooking;
+import org.openmrs.module.appointments.model.AppointmentSlot;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Finds the free slots of a service in a range of dates. The bookings of the range are laid out minute by minute
+ * over all of its days, once, into a bitmap of the minutes at which the service is booked to capacity and a running
+ * count of the bookings started. Slots are then stepped through each available range of the service's weekly
+ * calendar, each one checked against the bitmap with a single scan, so the work is linear in the size of the range
+ * and the number of bookings rather than their product.
+ * <p>
+ * Times are compared at minute precision in local time of the given zone, like the weekly calendar.
+ */
+public class SlotAvailabilityEngine {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int LAST_SECOND_OF_DAY = LocalTime.MAX.toSecondOfDay();
+
+    private final ZoneId zone;
+
+    public SlotAvailabilityEngine(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * @param appointmentServiceUuid service the slots are of
+     * @param calendar               weekly calendar of the service
+     * @param slotMinutes            length of a slot
+     * @param capacity               number of overlapping bookings a slot can take
+     * @param startDateTime          slots start at or after this time
+     * @param endDateTime            slots end at or before this time
+     * @param now                    slots start at or after this time
+     * @param bookings               bookings of the service overlapping the range, in any order
+     * @return the free slots, in order of start time
+     */
+    public List<AppointmentSlot> findAvailableSlots(String appointmentServiceUuid, ServiceAvailabilityCalendar calendar,
+                                                    int slotMinutes, int capacity, Date startDateTime, Date endDateTime,
+                                                    Date now, List<AppointmentServiceBooking> bookings) {
+        List<AppointmentSlot> slots = new ArrayList<>();
+        LocalDate firstDay = toLocalDateTime(startDateTime).toLocalDate();
+        int days = (int) ChronoUnit.DAYS.between(firstDay, toLocalDateTime(endDateTime).toLocalDate()) + 1;
+        if (days <= 0 || slotMinutes <= 0) {
+            return slots;
+        }
+        int windowMinutes = days * MINUTES_PER_DAY;
+        int[] occupancyChanges = new int[windowMinutes + 1];
+        int[] startedBefore = new int[windowMinutes + 1];
+        for (AppointmentServiceBooking booking : bookings) {
+            int start = clamp(toWindowMinute(firstDay, booking.getStartDateTime(), false), windowMinutes);
+            int end = clamp(toWindowMinute(firstDay, booking.getEndDateTime(), true), windowMinutes);
+            if (start < end) {
+                occupancyChanges[start]++;
+                occupancyChanges[end]--;
+            }
+            int startedAt = toWindowMinute(firstDay, booking.getStartDateTime(), false);
+            if (startedAt >= 0 && startedAt < windowMinutes) {
+                startedBefore[startedAt + 1]++;
+            }
+        }
+        BitSet bookedToCapacity = new BitSet(windowMinutes);
+        int occupancy = 0;
+        for (int minute = 0; minute < windowMinutes; minute++) {
+            occupancy += occupancyChanges[minute];
+            if (occupancy >= capacity) {
+                bookedToCapacity.set(minute);
+            }
+            startedBefore[minute + 1] += startedBefore[minute];
+        }
+
+        int earliestStart = Math.max(toWindowMinute(firstDay, startDateTime, true), toWindowMinute(firstDay, now, true));
+        int latestEnd = Math.min(toWindowMinute(firstDay, endDateTime, false), windowMinutes);
+        for (int day = 0; day < days; day++) {
+            LocalDate date = firstDay.plusDays(day);
+            int dayStart = day * MINUTES_PER_DAY;
+            int[] ranges = calendar.getRanges(date.getDayOfWeek());
+            for (int range = 0; range < ranges.length / 2; range++) {
+                int rangeStart = dayStart + toMinuteOfDay(ranges[2 * range], true);
+                int rangeEnd = dayStart + toMinuteOfDay(ranges[2 * range + 1], false);
+                int limit = calendar.getLimit(date.getDayOfWeek(), range);
+                if (limit != ServiceAvailabilityCalendar.NO_LIMIT
+                        && startedBefore[rangeEnd] - startedBefore[rangeStart] >= limit) {
+                    continue;
+                }
+                for (int slotStart = rangeStart; slotStart + slotMinutes <= rangeEnd; slotStart += slotMinutes) {
+                    int slotEnd = slotStart + slotMinutes;
+                    if (slotStart < earliestStart || slotEnd > latestEnd) {
+                        continue;
+                    }
+                    int booked = bookedToCapacity.nextSetBit(slotStart);
+                    if (booked == -1 || booked >= slotEnd) {
+                        slots.add(new AppointmentSlot(appointmentServiceUuid, toDate(firstDay, slotStart), toDate(firstDay, slotEnd)));
+                    }
+                }
+            }
+        }
+        return slots;
+    }
+
+    private LocalDateTime toLocalDateTime(Date date) {
+        return date.toInstant().atZone(zone).toLocalDateTime();
+    }
+
+    private int toWindowMinute(LocalDate firstDay, Date date, boolean roundUp) {
+        LocalDateTime dateTime = toLocalDateTime(date);
+        long minute = ChronoUnit.DAYS.between(firstDay, dateTime.toLocalDate()) * MINUTES_PER_DAY
+                + dateTime.getHour() * 60 + dateTime.getMinute();
+        if (roundUp && (dateTime.getSecond() > 0 || dateTime.getNano() > 0)) {
+            minute++;
+        }
+        return (int) Math.max(Integer.MIN_VALUE / 2, Math.min(Integer.MAX_VALUE / 2, minute));
+    }
+
+    private Date toDate(LocalDate firstDay, int windowMinute) {
+        return Date.from(firstDay.atStartOfDay().plusMinutes(windowMinute).atZone(zone).toInstant());
+    }
+
+    private static int toMinuteOfDay(int secondOfDay, boolean roundUp) {
+        if (secondOfDay >= LAST_SECOND_OF_DAY) {
+            return MINUTES_PER_DAY;
+        }
+        return roundUp ? (secondOfDay + 59) / 60 : secondOfDay / 60;
+    }
+
+    private static int clamp(int minute, int windowMinutes) {
+        return Math.max(0, Math.min(windowMinutes, minute));
+    }
+}
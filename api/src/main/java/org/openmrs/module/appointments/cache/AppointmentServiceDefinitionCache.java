@@ -0,0 +1,73 @@
+package org.openmrs.module.appointments.cache;
+
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Read through cache of service definition ids keyed by uuid. Only ids are kept, callers load the definition in
+ * their own session, so no entity is shared between threads or sessions. Every eviction moves the cache to a new
+ * version, an id looked up while the version changed is returned but not kept, as it may already be stale.
+ */
+public class AppointmentServiceDefinitionCache {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public Integer getId(String uuid, Function<String, Integer> loader) {
+        if (uuid == null) {
+            return loader.apply(null);
+        }
+        Integer appointmentServiceId = ids.get(uuid);
+        if (appointmentServiceId != null) {
+            hits.increment();
+            return appointmentServiceId;
+        }
+        misses.increment();
+        long versionBeforeLoad = version.get();
+        appointmentServiceId = loader.apply(uuid);
+        if (appointmentServiceId != null && versionBeforeLoad == version.get()) {
+            ids.putIfAbsent(uuid, appointmentServiceId);
+            if (versionBeforeLoad != version.get()) {
+                ids.remove(uuid, appointmentServiceId);
+            }
+        }
+        return appointmentServiceId;
+    }
+
+    public void evict(AppointmentServiceDefinition appointmentServiceDefinition) {
+        if (appointmentServiceDefinition == null || appointmentServiceDefinition.getUuid() == null) {
+            evictAll();
+            return;
+        }
+        version.incrementAndGet();
+        ids.remove(appointmentServiceDefinition.getUuid());
+    }
+
+    public void evictAll() {
+        version.incrementAndGet();
+        ids.clear();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int getSize() {
+        return ids.size();
+    }
+}
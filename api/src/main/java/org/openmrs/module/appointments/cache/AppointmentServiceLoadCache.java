@@ -0,0 +1,127 @@
+package org.openmrs.module.appointments.cache;
+
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Short lived cache of appointment counts keyed by service, time window and statuses.
+ * Entries expire after the time to live, writes going through AppointmentsService evict the affected entries earlier.
+ */
+public class AppointmentServiceLoadCache {
+
+    private static final long DEFAULT_TIME_TO_LIVE_MILLIS = 30 * 1000;
+    private static final int MAX_ENTRIES = 10000;
+
+    private final Map<LoadKey, CachedLoad> loads = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+    private long timeToLiveMillis = DEFAULT_TIME_TO_LIVE_MILLIS;
+
+    public void setTimeToLiveMillis(long timeToLiveMillis) {
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    public Integer get(AppointmentServiceDefinition appointmentServiceDefinition, Date startDateTime, Date endDateTime,
+                       List<AppointmentStatus> appointmentStatusList, Supplier<Integer> loader) {
+        if (appointmentServiceDefinition.getUuid() == null) {
+            return loader.get();
+        }
+        LoadKey key = new LoadKey(appointmentServiceDefinition.getUuid(), startDateTime, endDateTime, appointmentStatusList);
+        long now = System.currentTimeMillis();
+        CachedLoad cachedLoad = loads.get(key);
+        if (cachedLoad != null && cachedLoad.expiresAt > now) {
+            return cachedLoad.load;
+        }
+        long evictionsBeforeLoad = evictions.get();
+        Integer load = loader.get();
+        keep(key, load, now, evictionsBeforeLoad);
+        return load;
+    }
+
+    /**
+     * An eviction while loading means the count may already be stale, so it is returned but not kept. Checking and
+     * putting under the lock the evictions take keeps an eviction from slipping in between.
+     */
+    private synchronized void keep(LoadKey key, Integer load, long now, long evictionsBeforeLoad) {
+        if (evictionsBeforeLoad != evictions.get()) {
+            return;
+        }
+        if (loads.size() >= MAX_ENTRIES) {
+            loads.values().removeIf(entry -> entry.expiresAt <= now);
+        }
+        if (loads.size() < MAX_ENTRIES) {
+            loads.put(key, new CachedLoad(load, now + timeToLiveMillis));
+        }
+    }
+
+    /**
+     * Evicts the loads of the service whose window contains the given time.
+     */
+    public synchronized void evict(AppointmentServiceDefinition appointmentServiceDefinition, Date startDateTime) {
+        if (appointmentServiceDefinition == null || appointmentServiceDefinition.getUuid() == null || startDateTime == null) {
+            evictAll();
+            return;
+        }
+        evictions.incrementAndGet();
+        String serviceUuid = appointmentServiceDefinition.getUuid();
+        loads.keySet().removeIf(key -> key.serviceUuid.equals(serviceUuid) && key.contains(startDateTime));
+    }
+
+    public synchronized void evictAll() {
+        evictions.incrementAndGet();
+        loads.clear();
+    }
+
+    private static class LoadKey {
+        private final String serviceUuid;
+        private final Long start;
+        private final Long end;
+        private final Set<AppointmentStatus> statuses;
+
+        LoadKey(String serviceUuid, Date startDateTime, Date endDateTime, List<AppointmentStatus> appointmentStatusList) {
+            this.serviceUuid = serviceUuid;
+            this.start = startDateTime != null ? startDateTime.getTime() : null;
+            this.end = endDateTime != null ? endDateTime.getTime() : null;
+            this.statuses = appointmentStatusList == null || appointmentStatusList.isEmpty()
+                    ? EnumSet.noneOf(AppointmentStatus.class) : EnumSet.copyOf(appointmentStatusList);
+        }
+
+        boolean contains(Date dateTime) {
+            long time = dateTime.getTime();
+            return (start == null || start <= time) && (end == null || time <= end);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            LoadKey loadKey = (LoadKey) o;
+            return serviceUuid.equals(loadKey.serviceUuid) && Objects.equals(start, loadKey.start)
+                    && Objects.equals(end, loadKey.end) && statuses.equals(loadKey.statuses);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(serviceUuid, start, end, statuses);
+        }
+    }
+
+    private static class CachedLoad {
+        private final Integer load;
+        private final long expiresAt;
+
+        CachedLoad(Integer load, long expiresAt) {
+            this.load = load;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
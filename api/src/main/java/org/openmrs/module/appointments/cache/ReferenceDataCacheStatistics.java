@@ -0,0 +1,70 @@
+package org.openmrs.module.appointments.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+import org.openmrs.module.appointments.model.AppointmentServiceType;
+import org.openmrs.module.appointments.model.ServiceWeeklyAvailability;
+import org.openmrs.module.appointments.model.Speciality;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports the hibernate second level cache regions of the appointment reference data, and the in-process service
+ * definition cache. Hibernate only collects region statistics while statistics are enabled on the session factory.
+ */
+public class ReferenceDataCacheStatistics {
+
+    static final String[] REGIONS = {
+            AppointmentServiceDefinition.class.getName(),
+            AppointmentServiceDefinition.class.getName() + ".weeklyAvailability",
+            AppointmentServiceDefinition.class.getName() + ".serviceTypes",
+            AppointmentServiceType.class.getName(),
+            ServiceWeeklyAvailability.class.getName(),
+            Speciality.class.getName()
+    };
+
+    private Log log = LogFactory.getLog(this.getClass());
+
+    private SessionFactory sessionFactory;
+
+    private AppointmentServiceDefinitionCache appointmentServiceDefinitionCache;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public void setAppointmentServiceDefinitionCache(AppointmentServiceDefinitionCache appointmentServiceDefinitionCache) {
+        this.appointmentServiceDefinitionCache = appointmentServiceDefinitionCache;
+    }
+
+    public Map<String, SecondLevelCacheStatistics> getRegionStatistics() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, SecondLevelCacheStatistics> regionStatistics = new LinkedHashMap<>();
+        for (String region : REGIONS) {
+            SecondLevelCacheStatistics cacheStatistics = statistics.getSecondLevelCacheStatistics(region);
+            if (cacheStatistics != null) {
+                regionStatistics.put(region, cacheStatistics);
+            }
+        }
+        return regionStatistics;
+    }
+
+    public void logStatistics() {
+        log.info(String.format("Service definition cache: %d hits, %d misses, %d elements, version %d",
+                appointmentServiceDefinitionCache.getHitCount(), appointmentServiceDefinitionCache.getMissCount(),
+                appointmentServiceDefinitionCache.getSize(), appointmentServiceDefinitionCache.getVersion()));
+        if (!sessionFactory.getStatistics().isStatisticsEnabled()) {
+            log.info("Hibernate statistics are disabled, appointment reference data cache statistics are not collected");
+            return;
+        }
+        getRegionStatistics().forEach((region, statistics) -> log.info(String.format(
+                "Second level cache %s: %d hits, %d misses, %d puts, %d elements in memory", region,
+                statistics.getHitCount(), statistics.getMissCount(), statistics.getPutCount(),
+                statistics.getElementCountInMemory())));
+    }
+}
@@ -0,0 +1,108 @@
+package org.openmrs.module.appointments.cache;
+
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+import org.openmrs.module.appointments.model.ServiceWeeklyAvailability;
+
+import java.sql.Time;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable weekly calendar of a service, holding the available ranges of each day of the week
+ * as second of day pairs, with the maximum number of appointments of each range. A service without
+ * weekly availability is available on every day between its start and end time, up to its own limit.
+ */
+public final class ServiceAvailabilityCalendar {
+
+    public static final int NO_LIMIT = -1;
+
+    private static final int START_OF_DAY = 0;
+    private static final int END_OF_DAY = LocalTime.MAX.toSecondOfDay();
+    private static final int[] NO_RANGES = new int[0];
+
+    private final int[][] rangesByDay = new int[DayOfWeek.values().length][];
+    private final int[][] limitsByDay = new int[DayOfWeek.values().length][];
+
+    private ServiceAvailabilityCalendar() {
+    }
+
+    public static ServiceAvailabilityCalendar compile(AppointmentServiceDefinition appointmentServiceDefinition) {
+        ServiceAvailabilityCalendar calendar = new ServiceAvailabilityCalendar();
+        Set<ServiceWeeklyAvailability> weeklyAvailability = appointmentServiceDefinition.getWeeklyAvailability();
+        if (weeklyAvailability == null || weeklyAvailability.isEmpty()) {
+            int[] serviceRange = {toSecondOfDay(appointmentServiceDefinition.getStartTime(), START_OF_DAY),
+                    toSecondOfDay(appointmentServiceDefinition.getEndTime(), END_OF_DAY)};
+            int[] serviceLimit = {toLimit(appointmentServiceDefinition.getMaxAppointmentsLimit())};
+            for (DayOfWeek day : DayOfWeek.values()) {
+                calendar.rangesByDay[day.ordinal()] = serviceRange;
+                calendar.limitsByDay[day.ordinal()] = serviceLimit;
+            }
+            return calendar;
+        }
+        List<List<ServiceWeeklyAvailability>> availabilitiesByDay = new ArrayList<>();
+        for (DayOfWeek ignored : DayOfWeek.values()) {
+            availabilitiesByDay.add(new ArrayList<>());
+        }
+        weeklyAvailability.forEach(availability -> availabilitiesByDay.get(availability.getDayOfWeek().ordinal()).add(availability));
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<ServiceWeeklyAvailability> dayAvailabilities = availabilitiesByDay.get(day.ordinal());
+            int[] ranges = dayAvailabilities.isEmpty() ? NO_RANGES : new int[dayAvailabilities.size() * 2];
+            int[] limits = new int[dayAvailabilities.size()];
+            for (int i = 0; i < dayAvailabilities.size(); i++) {
+                ranges[2 * i] = toSecondOfDay(dayAvailabilities.get(i).getStartTime(), START_OF_DAY);
+                ranges[2 * i + 1] = toSecondOfDay(dayAvailabilities.get(i).getEndTime(), END_OF_DAY);
+                limits[i] = toLimit(dayAvailabilities.get(i).getMaxAppointmentsLimit());
+            }
+            calendar.rangesByDay[day.ordinal()] = ranges;
+            calendar.limitsByDay[day.ordinal()] = limits;
+        }
+        return calendar;
+    }
+
+    /**
+     * An appointment is available when its times of day fall within one of the ranges of the day it starts on.
+     */
+    public boolean isAvailable(Date startDateTime, Date endDateTime, ZoneId zone) {
+        ZonedDateTime start = startDateTime.toInstant().atZone(zone);
+        int startSecond = start.toLocalTime().toSecondOfDay();
+        int endSecond = endDateTime.toInstant().atZone(zone).toLocalTime().toSecondOfDay();
+        if (startSecond >= endSecond) {
+            return false;
+        }
+        int[] ranges = rangesByDay[start.getDayOfWeek().ordinal()];
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (startSecond >= ranges[i] && endSecond <= ranges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the available ranges of the day as start and end second of day pairs, shared and not to be modified
+     */
+    public int[] getRanges(DayOfWeek day) {
+        return rangesByDay[day.ordinal()];
+    }
+
+    /**
+     * @return the maximum number of appointments of each range of the day, or {@link #NO_LIMIT}
+     */
+    public int getLimit(DayOfWeek day, int rangeIndex) {
+        return limitsByDay[day.ordinal()][rangeIndex];
+    }
+
+    private static int toLimit(Integer maxAppointmentsLimit) {
+        return maxAppointmentsLimit != null ? maxAppointmentsLimit : NO_LIMIT;
+    }
+
+    private static int toSecondOfDay(Time time, int defaultSecondOfDay) {
+        return time != null ? time.toLocalTime().toSecondOfDay() : defaultSecondOfDay;
+    }
+}
@@ -0,0 +1,61 @@
+package org.openmrs.module.appointments.cache;
+
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled availability calendars keyed by service uuid. Saving or voiding a service through
+ * AppointmentServiceDefinitionService evicts its calendar and moves its dateChanged. A calendar is only reused for a
+ * definition changed at the same time as the one it was compiled from, so a calendar compiled from a definition read
+ * before a change, and kept after the eviction, is compiled again for the changed definition. A calendar never
+ * replaces one compiled from a later change.
+ */
+public class ServiceAvailabilityCalendarCache {
+
+    private final Map<String, VersionedCalendar> calendars = new ConcurrentHashMap<>();
+
+    public ServiceAvailabilityCalendar get(AppointmentServiceDefinition appointmentServiceDefinition) {
+        String serviceUuid = appointmentServiceDefinition.getUuid();
+        if (serviceUuid == null) {
+            return ServiceAvailabilityCalendar.compile(appointmentServiceDefinition);
+        }
+        long version = getVersion(appointmentServiceDefinition);
+        VersionedCalendar cached = calendars.get(serviceUuid);
+        if (cached != null && cached.version == version) {
+            return cached.calendar;
+        }
+        VersionedCalendar compiled = new VersionedCalendar(version, ServiceAvailabilityCalendar.compile(appointmentServiceDefinition));
+        calendars.merge(serviceUuid, compiled, (current, candidate) -> candidate.version >= current.version ? candidate : current);
+        return compiled.calendar;
+    }
+
+    public void evict(AppointmentServiceDefinition appointmentServiceDefinition) {
+        if (appointmentServiceDefinition == null || appointmentServiceDefinition.getUuid() == null) {
+            evictAll();
+            return;
+        }
+        calendars.remove(appointmentServiceDefinition.getUuid());
+    }
+
+    public void evictAll() {
+        calendars.clear();
+    }
+
+    private static long getVersion(AppointmentServiceDefinition appointmentServiceDefinition) {
+        return appointmentServiceDefinition.getDateChanged() != null
+                ? appointmentServiceDefinition.getDateChanged().getTime() : Long.MIN_VALUE;
+    }
+
+    private static class VersionedCalendar {
+
+        private final long version;
+        private final ServiceAvailabilityCalendar calendar;
+
+        private VersionedCalendar(long version, ServiceAvailabilityCalendar calendar) {
+            this.version = version;
+            this.calendar = calendar;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.openmrs.module.appointments.config;
+
+import org.openmrs.api.AdministrationService;
+import org.openmrs.module.appointments.constants.AppointmentsEventRecordsConstants;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the global properties the appointments module reads. Values are parsed and message
+ * templates compiled once, when the snapshot is built, so reading them costs no query. MessageFormat is not thread
+ * safe, so every format call works on a copy of the compiled template.
+ */
+public class AppointmentsConfiguration {
+
+    public static final String RAISE_APPOINTMENT_EVENTS = AppointmentsEventRecordsConstants.RAISE_EVENT_GLOBAL_PROPERTY;
+    public static final String RAISE_APPOINTMENT_SERVICE_EVENTS = "atomfeed.publish.eventsForAppointmentService";
+    public static final String APPOINTMENT_URL_PATTERN = "atomfeed.event.urlPatternForAppointments";
+    public static final String RECURRING_APPOINTMENT_URL_PATTERN = "atomfeed.event.urlPatternForRecurringAppointments";
+    public static final String APPOINTMENT_SERVICE_URL_PATTERN = "atomfeed.event.urlPatternForAppointmentService";
+    public static final String DISABLE_DEFAULT_VALIDATIONS = "disableDefaultAppointmentValidations";
+    public static final String TELECONSULTATION_SERVER_URL_PATTERN = "bahmni.appointment.teleConsultation.serverUrlPattern";
+    public static final String SEND_TELECONSULTATION_EMAIL = "bahmni.appointment.teleConsultation.sendEmail";
+    public static final String PATIENT_EMAIL_SUBJECT = "bahmni.appointment.teleConsultation.patientEmailNotificationSubject";
+    public static final String PATIENT_EMAIL_TEMPLATE = "bahmni.appointment.teleConsultation.patientEmailNotificationTemplate";
+    public static final String SCHEDULER_MARKS_COMPLETE = "SchedulerMarksComplete";
+    public static final String SCHEDULER_MARKS_MISSED = "SchedulerMarksMissed";
+    public static final String APPOINTMENT_NUMBER_PREFIX = "bahmni.appointment.appointmentNumberPrefix";
+    public static final String ENFORCE_MAX_APPOINTMENTS_LIMIT = "bahmni.appointment.enforceMaxAppointmentsLimit";
+
+    public static final List<String> PROPERTY_NAMES = Collections.unmodifiableList(Arrays.asList(
+            RAISE_APPOINTMENT_EVENTS, RAISE_APPOINTMENT_SERVICE_EVENTS, APPOINTMENT_URL_PATTERN,
+            RECURRING_APPOINTMENT_URL_PATTERN, APPOINTMENT_SERVICE_URL_PATTERN, DISABLE_DEFAULT_VALIDATIONS,
+            TELECONSULTATION_SERVER_URL_PATTERN, SEND_TELECONSULTATION_EMAIL, PATIENT_EMAIL_SUBJECT,
+            PATIENT_EMAIL_TEMPLATE, SCHEDULER_MARKS_COMPLETE, SCHEDULER_MARKS_MISSED, APPOINTMENT_NUMBER_PREFIX,
+            ENFORCE_MAX_APPOINTMENTS_LIMIT));
+
+    private static final String DEFAULT_APPOINTMENT_URL_PATTERN = "/openmrs/ws/rest/v1/appointment?uuid={uuid}";
+    private static final String DEFAULT_RECURRING_APPOINTMENT_URL_PATTERN = "/openmrs/ws/rest/v1/recurring-appointments?uuid={uuid}";
+    private static final String DEFAULT_APPOINTMENT_SERVICE_URL_PATTERN = "/openmrs/ws/rest/v1/appointmentService?uuid={uuid}";
+    private static final String DEFAULT_TELECONSULTATION_SERVER_URL_PATTERN = "https://meet.jit.si/{0}";
+    private static final String DEFAULT_APPOINTMENT_NUMBER_PREFIX = "none";
+
+    private final Map<String, String> values;
+    private final boolean raiseAppointmentEvents;
+    private final boolean raiseAppointmentServiceEvents;
+    private final String appointmentUrlPattern;
+    private final String recurringAppointmentUrlPattern;
+    private final String appointmentServiceUrlPattern;
+    private final boolean defaultValidationsDisabled;
+    private final MessageFormat teleconsultationLinkFormat;
+    private final boolean sendTeleconsultationEmail;
+    private final String patientEmailSubject;
+    private final MessageFormat patientEmailFormat;
+    private final boolean schedulerMarksComplete;
+    private final boolean schedulerMarksMissed;
+    private final String appointmentNumberPrefix;
+    private final boolean maxAppointmentsLimitEnforced;
+
+    public AppointmentsConfiguration(Map<String, String> values) {
+        this.values = Collections.unmodifiableMap(new HashMap<>(values));
+        raiseAppointmentEvents = Boolean.valueOf(values.get(RAISE_APPOINTMENT_EVENTS));
+        raiseAppointmentServiceEvents = Boolean.valueOf(values.get(RAISE_APPOINTMENT_SERVICE_EVENTS));
+        appointmentUrlPattern = valueOrDefault(APPOINTMENT_URL_PATTERN, DEFAULT_APPOINTMENT_URL_PATTERN);
+        recurringAppointmentUrlPattern = valueOrDefault(RECURRING_APPOINTMENT_URL_PATTERN, DEFAULT_RECURRING_APPOINTMENT_URL_PATTERN);
+        appointmentServiceUrlPattern = valueOrDefault(APPOINTMENT_SERVICE_URL_PATTERN, DEFAULT_APPOINTMENT_SERVICE_URL_PATTERN);
+        defaultValidationsDisabled = Boolean.valueOf(values.get(DISABLE_DEFAULT_VALIDATIONS));
+        teleconsultationLinkFormat = new MessageFormat(valueOrDefault(TELECONSULTATION_SERVER_URL_PATTERN,
+                DEFAULT_TELECONSULTATION_SERVER_URL_PATTERN));
+        sendTeleconsultationEmail = Boolean.valueOf(values.get(SEND_TELECONSULTATION_EMAIL));
+        patientEmailSubject = valueOrDefault(PATIENT_EMAIL_SUBJECT, null);
+        String patientEmailTemplate = valueOrDefault(PATIENT_EMAIL_TEMPLATE, null);
+        patientEmailFormat = patientEmailTemplate == null ? null : new MessageFormat(patientEmailTemplate);
+        schedulerMarksComplete = Boolean.valueOf(values.get(SCHEDULER_MARKS_COMPLETE));
+        schedulerMarksMissed = Boolean.valueOf(values.get(SCHEDULER_MARKS_MISSED));
+        appointmentNumberPrefix = valueOrDefault(APPOINTMENT_NUMBER_PREFIX, DEFAULT_APPOINTMENT_NUMBER_PREFIX).trim().toLowerCase();
+        maxAppointmentsLimitEnforced = Boolean.valueOf(valueOrDefault(ENFORCE_MAX_APPOINTMENTS_LIMIT, "true").trim());
+    }
+
+    public static AppointmentsConfiguration load(AdministrationService administrationService) {
+        Map<String, String> values = new HashMap<>();
+        for (String propertyName : PROPERTY_NAMES) {
+            values.put(propertyName, administrationService.getGlobalProperty(propertyName));
+        }
+        return new AppointmentsConfiguration(values);
+    }
+
+    /**
+     * Returns a snapshot with the given property changed, leaving this one as it is.
+     */
+    public AppointmentsConfiguration with(String propertyName, String value) {
+        Map<String, String> changedValues = new HashMap<>(values);
+        changedValues.put(propertyName, value);
+        return new AppointmentsConfiguration(changedValues);
+    }
+
+    private String valueOrDefault(String propertyName, String defaultValue) {
+        String value = values.get(propertyName);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    public boolean shouldRaiseAppointmentEvents() {
+        return raiseAppointmentEvents;
+    }
+
+    public boolean shouldRaiseAppointmentServiceEvents() {
+        return raiseAppointmentServiceEvents;
+    }
+
+    public String getAppointmentUrlPattern() {
+        return appointmentUrlPattern;
+    }
+
+    public String getRecurringAppointmentUrlPattern() {
+        return recurringAppointmentUrlPattern;
+    }
+
+    public String getAppointmentServiceUrlPattern() {
+        return appointmentServiceUrlPattern;
+    }
+
+    public boolean areDefaultValidationsDisabled() {
+        return defaultValidationsDisabled;
+    }
+
+    public String formatTeleconsultationLink(String appointmentUuid) {
+        return ((MessageFormat) teleconsultationLinkFormat.clone()).format(new Object[]{appointmentUuid});
+    }
+
+    public boolean shouldSendTeleconsultationEmail() {
+        return sendTeleconsultationEmail;
+    }
+
+    /**
+     * @return the configured subject of the patient email, or null when the default message should be used
+     */
+    public String getPatientEmailSubject() {
+        return patientEmailSubject;
+    }
+
+    public boolean hasPatientEmailTemplate() {
+        return patientEmailFormat != null;
+    }
+
+    public String formatPatientEmail(Object[] arguments) {
+        return ((MessageFormat) patientEmailFormat.clone()).format(arguments);
+    }
+
+    public boolean schedulerMarksComplete() {
+        return schedulerMarksComplete;
+    }
+
+    public boolean schedulerMarksMissed() {
+        return schedulerMarksMissed;
+    }
+
+    /**
+     * @return what appointment numbers are prefixed with: "none", "service" or "day"
+     */
+    public String getAppointmentNumberPrefix() {
+        return appointmentNumberPrefix;
+    }
+
+    /**
+     * @return whether bookings beyond the maxAppointmentsLimit of a service on a day are refused, true by default
+     */
+    public boolean isMaxAppointmentsLimitEnforced() {
+        return maxAppointmentsLimitEnforced;
+    }
+}
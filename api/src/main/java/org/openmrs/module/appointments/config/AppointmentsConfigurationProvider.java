@@ -0,0 +1,70 @@
+package org.openmrs.module.appointments.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.context.Context;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Holds the current {@link AppointmentsConfiguration}. The snapshot is loaded on first use; from then on this
+ * listens to global property changes and swaps in a new snapshot for each change, so readers never take a lock or
+ * query the database.
+ */
+public class AppointmentsConfigurationProvider implements GlobalPropertyListener, DisposableBean {
+
+    private Log log = LogFactory.getLog(this.getClass());
+
+    private volatile AppointmentsConfiguration configuration;
+
+    public AppointmentsConfiguration get() {
+        AppointmentsConfiguration current = configuration;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (configuration == null) {
+                AdministrationService administrationService = Context.getAdministrationService();
+                administrationService.addGlobalPropertyListener(this);
+                configuration = AppointmentsConfiguration.load(administrationService);
+            }
+            return configuration;
+        }
+    }
+
+    @Override
+    public boolean supportsPropertyName(String propertyName) {
+        return AppointmentsConfiguration.PROPERTY_NAMES.contains(propertyName);
+    }
+
+    @Override
+    public void globalPropertyChanged(GlobalProperty newValue) {
+        update(newValue.getProperty(), newValue.getPropertyValue());
+    }
+
+    @Override
+    public void globalPropertyDeleted(String propertyName) {
+        update(propertyName, null);
+    }
+
+    private synchronized void update(String propertyName, String value) {
+        if (configuration != null) {
+            configuration = configuration.with(propertyName, value);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (configuration == null) {
+            return;
+        }
+        try {
+            Context.getAdministrationService().removeGlobalPropertyListener(this);
+        } catch (Exception e) {
+            log.warn("Could not remove appointments configuration listener", e);
+        }
+        configuration = null;
+    }
+}
@@ -11,4 +11,12 @@ public interface AppointmentConflict {
     AppointmentConflictType getType();
 
     List<Appointment> getConflicts(List<Appointment> appointment);
+
+    /**
+     * Conflicts of the appointments of one patient, checked against the existing future appointments of that patient
+     * fetched up front. Implementations not looking at existing appointments need not override this.
+     */
+    default List<Appointment> getConflicts(List<Appointment> appointments, List<Appointment> patientAppointments) {
+        return getConflicts(appointments);
+    }
 }
@@ -0,0 +1,91 @@
+package org.openmrs.module.appointments.conflicts.impl;
+
+import org.openmrs.module.appointments.model.Appointment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Appointments sorted by start time with the running maximum of their end times, so the appointments overlapping
+ * a time range are found with two binary searches instead of a scan over all of them.
+ * Overlapping appointments are returned in the order they were given.
+ */
+class PatientAppointmentIntervalIndex {
+
+    private final Appointment[] appointments;
+    private final int[] positions;
+    private final long[] startTimes;
+    private final long[] maxEndTimes;
+
+    PatientAppointmentIntervalIndex(List<Appointment> patientAppointments) {
+        int size = patientAppointments.size();
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> patientAppointments.get(i).getStartDateTime().getTime()));
+
+        appointments = new Appointment[size];
+        positions = new int[size];
+        startTimes = new long[size];
+        maxEndTimes = new long[size];
+        long maxEndTime = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            Appointment appointment = patientAppointments.get(order[i]);
+            appointments[i] = appointment;
+            positions[i] = order[i];
+            startTimes[i] = appointment.getStartDateTime().getTime();
+            maxEndTime = Math.max(maxEndTime, appointment.getEndDateTime().getTime());
+            maxEndTimes[i] = maxEndTime;
+        }
+    }
+
+    List<Appointment> getOverlapping(Date startDateTime, Date endDateTime) {
+        long start = startDateTime.getTime();
+        long end = endDateTime.getTime();
+        // appointments from the first one that may still be running at start, up to the last one starting before end
+        int from = firstIndexWithMaxEndAfter(start);
+        int to = firstIndexWithStartAtOrAfter(end);
+        List<Integer> overlapping = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            if (appointments[i].getEndDateTime().getTime() > start) {
+                overlapping.add(i);
+            }
+        }
+        overlapping.sort(Comparator.comparingInt(i -> positions[i]));
+        List<Appointment> overlappingAppointments = new ArrayList<>(overlapping.size());
+        for (Integer i : overlapping) {
+            overlappingAppointments.add(appointments[i]);
+        }
+        return overlappingAppointments;
+    }
+
+    private int firstIndexWithMaxEndAfter(long time) {
+        int low = 0, high = maxEndTimes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (maxEndTimes[mid] > time) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int firstIndexWithStartAtOrAfter(long time) {
+        int low = 0, high = startTimes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startTimes[mid] >= time) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
@@ -8,7 +8,6 @@ import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -29,36 +28,37 @@ public class PatientDoubleBookingConflict implements AppointmentConflict {
 
     @Override
     public List<Appointment> getConflicts(List<Appointment> appointments) {
+        if(CollectionUtils.isEmpty(appointments)) {
+            return new ArrayList<>();
+        }
+        return getConflicts(appointments, getPatientAppointments(appointments.get(0).getPatient().getPatientId()));
+    }
+
+    @Override
+    public List<Appointment> getConflicts(List<Appointment> appointments, List<Appointment> patientAppointments) {
         List<Appointment> conflictingAppointments = new ArrayList<>();
         if(CollectionUtils.isNotEmpty(appointments)) {
-            List<Appointment> patientAppointments = getPatientAppointments(appointments.get(0).getPatient().getPatientId());
+            PatientAppointmentIntervalIndex patientAppointmentIndex = new PatientAppointmentIntervalIndex(
+                    patientAppointments.stream().filter(this::isBooked).collect(Collectors.toList()));
             for (Appointment appointment : appointments) {
-                conflictingAppointments.addAll(getConflictingAppointments(appointment, patientAppointments));
+                conflictingAppointments.addAll(getConflictingAppointments(appointment, patientAppointmentIndex));
             }
         }
         return conflictingAppointments;
     }
 
-    private List<Appointment> getConflictingAppointments(Appointment appointment, List<Appointment> patientAppointments) {
-        return patientAppointments.stream()
-                .filter(patientAppointment -> isConflicting(appointment, patientAppointment))
+    private List<Appointment> getConflictingAppointments(Appointment appointment, PatientAppointmentIntervalIndex patientAppointmentIndex) {
+        return patientAppointmentIndex.getOverlapping(appointment.getStartDateTime(), appointment.getEndDateTime()).stream()
+                .filter(patientAppointment -> !patientAppointment.isSameAppointment(appointment))
                 .collect(Collectors.toList());
     }
 
-    private boolean isConflicting(Appointment appointment, Appointment patientAppointment) {
-        return !patientAppointment.isSameAppointment(appointment)
-                && !patientAppointment.getVoided()
+    private boolean isBooked(Appointment patientAppointment) {
+        return !patientAppointment.getVoided()
                 && patientAppointment.isFutureAppointment()
-                && isAppointmentOverlapping(patientAppointment, appointment)
                 && patientAppointment.getStatus() != AppointmentStatus.Cancelled;
     }
 
-    private boolean isAppointmentOverlapping(Appointment patientAppointment, Appointment appointment) {
-        Date startTime = patientAppointment.getStartDateTime();
-        Date endTime = patientAppointment.getEndDateTime();
-        return appointment.getStartDateTime().before(endTime) && appointment.getEndDateTime().after(startTime);
-    }
-
     private List<Appointment> getPatientAppointments(Integer patientId) {
         return appointmentDao.getAppointmentsForPatient(patientId);
     }
@@ -12,4 +12,9 @@ public interface AppointmentAuditDao {
 	List<AppointmentAudit> getAppointmentHistoryForAppointment(Appointment appointment);
 
 	AppointmentAudit getPriorStatusChangeEvent(Appointment appointment);
+
+	/**
+	 * Inserts the audits with a single JDBC batch, bypassing the session. Creator and date created must be set.
+	 */
+	void saveInBatch(List<AppointmentAudit> appointmentAuditEvents);
 }
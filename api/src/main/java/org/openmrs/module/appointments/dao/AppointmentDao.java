@@ -1,22 +1,35 @@
 package org.openmrs.module.appointments.dao;
 
 import java.util.Date;
+import org.openmrs.User;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentFilter;
 import org.openmrs.module.appointments.model.AppointmentSearchRequest;
+import org.openmrs.module.appointments.model.AppointmentServiceBooking;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.DailyAppointmentServiceCount;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface AppointmentDao {
     List<Appointment> getAllAppointments(Date forDate);
 
+    /**
+     * Appointments created, changed or voided after the given position, voided ones included, whatever their day.
+     * They are ordered by their last change time, which is the first of dateChanged, dateVoided and dateCreated
+     * that is set, then by id. The position is a change time, optionally with the id of the last appointment
+     * already read at that time, and at most limit appointments are returned.
+     */
+    List<Appointment> getAppointmentsChangedSince(Date since, Integer sinceAppointmentId, int limit);
+
     @Transactional
     void save(Appointment appointment);
 
-    List<Appointment> search(Appointment appointment);
+    List<Appointment> search(AppointmentFilter appointmentFilter);
 
     List<Appointment> getAllFutureAppointmentsForService(AppointmentServiceDefinition appointmentServiceDefinition);
 
@@ -24,11 +37,61 @@ public interface AppointmentDao {
 
     List<Appointment> getAppointmentsForService(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList);
 
+    long getAppointmentsCountForService(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList);
+
+    /**
+     * Counts appointments of every non-voided service per day with a single aggregate query, no appointment is loaded.
+     */
+    List<DailyAppointmentServiceCount> getDailyAppointmentServiceCounts(Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList);
+
+    /**
+     * Reads the times of the appointments overlapping the range, of one service or of every non-voided service
+     * when none is given, with a single query that loads no appointment.
+     */
+    List<AppointmentServiceBooking> getAppointmentServiceBookings(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList);
+
 	Appointment getAppointmentByUuid(String uuid);
 
+    /**
+     * Reads the status, service and start of the appointment as they were last written to the database, without
+     * flushing the changes pending in the session. They are returned in an appointment that is not attached to the
+     * session, or null when the appointment was never saved.
+     */
+    Appointment getPersistedAppointment(Integer appointmentId);
+
     List<Appointment> getAllAppointmentsInDateRange(Date startDate, Date endDate);
 
     List<Appointment> search(AppointmentSearchRequest appointmentSearchRequest);
 
+    long getSearchCount(AppointmentSearchRequest appointmentSearchRequest);
+
     List<Appointment> getAppointmentsForPatient(Integer patientId);
+
+    List<Appointment> getAppointmentsForPatients(List<Integer> patientIds);
+
+    /**
+     * Loads the patients with their names, identifiers and attributes, the providers, services and locations of the
+     * given persisted appointments into the session with a fixed number of queries, however many appointments there are.
+     */
+    void prefetchAssociations(List<Appointment> appointments);
+
+    /**
+     * Set based status update, bypasses the session so appointments already loaded keep their old status.
+     */
+    void updateStatus(List<Appointment> appointments, AppointmentStatus status, User changedBy, Date dateChanged);
+
+    /**
+     * Walks non voided appointments ending before endDate in chunks of at most chunkSize, keyed on appointment id.
+     * The session is flushed and cleared after every chunk, so callers must not hold on to appointments
+     * handed to them beyond the chunkConsumer call.
+     */
+    void forEachAppointmentsChunkInDateRange(Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList,
+                                             int chunkSize, Consumer<List<Appointment>> chunkConsumer);
+
+    /**
+     * One chunk of the walk above, the at most chunkSize appointments with the lowest ids above lastAppointmentId,
+     * or from the first one when it is null. Lets callers go on with the walk in another transaction.
+     */
+    List<Appointment> getAppointmentsChunkInDateRange(Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList,
+                                                      Integer lastAppointmentId, int chunkSize);
 }
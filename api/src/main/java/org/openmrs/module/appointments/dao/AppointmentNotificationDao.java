@@ -0,0 +1,27 @@
+package org.openmrs.module.appointments.dao;
+
+import org.openmrs.module.appointments.model.AppointmentNotification;
+
+import java.util.Date;
+import java.util.List;
+
+public interface AppointmentNotificationDao {
+
+    void save(AppointmentNotification appointmentNotification);
+
+    AppointmentNotification getAppointmentNotificationById(Integer appointmentNotificationId);
+
+    /**
+     * Returns the ids of notifications whose next attempt is due at the given time, oldest first. These are the
+     * pending ones and those whose claim ran out without a result being recorded.
+     */
+    List<Integer> getDueNotificationIds(Date now, int limit);
+
+    /**
+     * Marks a due notification as being sent until the given time and counts the attempt, unless another worker
+     * claimed it first. The claim runs out at that time, so a notification claimed by a worker that died is sent again.
+     *
+     * @return whether this call claimed the notification
+     */
+    boolean claim(Integer appointmentNotificationId, Date now, Date claimedUntil);
+}
@@ -0,0 +1,11 @@
+package org.openmrs.module.appointments.dao;
+
+public interface AppointmentNumberBlockDao {
+
+    /**
+     * Reserves the next block of values of the named sequence, creating the sequence if it does not exist yet.
+     *
+     * @return the first value of the block; the block holds the values from it up to, excluding, it plus blockSize
+     */
+    long reserveBlock(String sequenceName, int blockSize);
+}
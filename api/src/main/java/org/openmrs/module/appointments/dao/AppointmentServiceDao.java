@@ -14,6 +14,10 @@ public interface AppointmentServiceDao {
 
     AppointmentServiceDefinition getAppointmentServiceByUuid(String uuid);
 
+    Integer getAppointmentServiceIdByUuid(String uuid);
+
+    AppointmentServiceDefinition loadAppointmentService(Integer appointmentServiceId);
+
     AppointmentServiceDefinition getNonVoidedAppointmentServiceByName(String serviceName);
 
     AppointmentServiceType getAppointmentServiceTypeByUuid(String uuid);
@@ -0,0 +1,35 @@
+package org.openmrs.module.appointments.dao;
+
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+public interface AppointmentServiceDayCapacityDao {
+
+    /**
+     * Takes one of the places of the service on the day, unless all of them are taken. The row of the service and
+     * day stays locked until the transaction ends, so bookings of the same service and day wait for each other
+     * while those of other services and days go ahead. When the count says the day is full it is recounted from
+     * the appointments in the given statuses, leaving out the given appointment, as cancelled ones give their place
+     * back only then.
+     *
+     * @param dayStart start of the day, inclusive
+     * @param dayEnd   end of the day, exclusive
+     * @return whether a place was taken
+     */
+    boolean takePlace(Integer appointmentServiceId, LocalDate day, Date dayStart, Date dayEnd, int limit,
+                      Integer appointmentId, List<AppointmentStatus> appointmentStatusList);
+
+    /**
+     * Gives back the place of an appointment leaving the given statuses by recounting the service on the day from
+     * the appointments in those statuses, leaving out the given appointment. Nothing is done when no place was ever
+     * taken of the service on the day.
+     *
+     * @param dayStart start of the day, inclusive
+     * @param dayEnd   end of the day, exclusive
+     */
+    void releasePlace(Integer appointmentServiceId, LocalDate day, Date dayStart, Date dayEnd,
+                      Integer appointmentId, List<AppointmentStatus> appointmentStatusList);
+}
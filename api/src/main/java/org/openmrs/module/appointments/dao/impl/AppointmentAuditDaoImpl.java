@@ -11,10 +11,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.util.List;
 
 public class AppointmentAuditDaoImpl implements AppointmentAuditDao{
 
+	private static final String INSERT_AUDIT_SQL = "INSERT INTO patient_appointment_audit " +
+			"(appointment_id, uuid, date_created, creator, voided, status, notes) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
 	private SessionFactory sessionFactory;
 
 	public void setSessionFactory(SessionFactory sessionFactory) {
@@ -44,4 +49,26 @@ public class AppointmentAuditDaoImpl implements AppointmentAuditDao{
 		return (AppointmentAudit) criteria.uniqueResult();
 	}
 
+	@Override
+	public void saveInBatch(List<AppointmentAudit> appointmentAuditEvents) {
+		if (appointmentAuditEvents.isEmpty()) {
+			return;
+		}
+		sessionFactory.getCurrentSession().doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(INSERT_AUDIT_SQL)) {
+				for (AppointmentAudit appointmentAudit : appointmentAuditEvents) {
+					statement.setInt(1, appointmentAudit.getAppointment().getAppointmentId());
+					statement.setString(2, appointmentAudit.getUuid());
+					statement.setTimestamp(3, new Timestamp(appointmentAudit.getDateCreated().getTime()));
+					statement.setInt(4, appointmentAudit.getCreator().getUserId());
+					statement.setBoolean(5, false);
+					statement.setString(6, appointmentAudit.getStatus().name());
+					statement.setString(7, appointmentAudit.getNotes());
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			}
+		});
+	}
+
 }
@@ -2,28 +2,61 @@ package org.openmrs.module.appointments.dao.impl;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.FlushMode;
+import org.hibernate.Query;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.criterion.Example;
-
+import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.criterion.Subqueries;
 import org.hibernate.sql.JoinType;
+import org.openmrs.User;
 import org.openmrs.module.appointments.dao.AppointmentDao;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentFilter;
+import org.openmrs.module.appointments.model.AppointmentProvider;
 import org.openmrs.module.appointments.model.AppointmentSearchRequest;
+import org.openmrs.module.appointments.model.AppointmentSearchToken;
+import org.openmrs.module.appointments.model.AppointmentServiceBooking;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.DailyAppointmentServiceCount;
 import org.openmrs.module.appointments.util.DateUtil;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class AppointmentDaoImpl implements AppointmentDao {
 
-    private static final int APPOINTMENT_SEARCH_DEFAULT_LIMIT = 50;
+    // keeps the in lists of the prefetch queries within what databases and their plan caches handle well
+    static final int PREFETCH_CHUNK_SIZE = 500;
+    // each query initializes one association of all the appointments, so later access does not hit the database per row
+    private static final String[] PREFETCH_QUERIES = {
+            "select distinct a from Appointment a left join fetch a.providers ap left join fetch ap.provider pr " +
+                    "left join fetch pr.person where a.id in (:appointmentIds)",
+            "select distinct per from Appointment a join a.providers ap join ap.provider pr join pr.person per " +
+                    "left join fetch per.names where a.id in (:appointmentIds)",
+            "select distinct p from Appointment a join a.patient p left join fetch p.names where a.id in (:appointmentIds)",
+            "select distinct p from Appointment a join a.patient p left join fetch p.identifiers where a.id in (:appointmentIds)",
+            "select distinct p from Appointment a join a.patient p left join fetch p.attributes pa " +
+                    "left join fetch pa.attributeType where a.id in (:appointmentIds)",
+            "select distinct s from Appointment a join a.service s left join fetch s.serviceTypes " +
+                    "left join fetch s.location left join fetch s.speciality where a.id in (:appointmentIds)",
+            "select distinct l from Appointment a join a.location l where a.id in (:appointmentIds)"
+    };
+    private static final String CHANGE_TIME = "coalesce(appointment.dateChanged, appointment.dateVoided, appointment.dateCreated)";
     private SessionFactory sessionFactory;
 
     public void setSessionFactory(SessionFactory sessionFactory) {
@@ -44,6 +77,22 @@ public class AppointmentDaoImpl implements AppointmentDao {
         return criteria.list();
     }
 
+    @Override
+    public List<Appointment> getAppointmentsChangedSince(Date since, Integer sinceAppointmentId, int limit) {
+        // the or on the timestamps lets the database merge their indexes, the change time then gives the exact position
+        Query query = sessionFactory.getCurrentSession().createQuery("select appointment from Appointment appointment " +
+                "where (appointment.dateCreated >= :since or appointment.dateChanged >= :since or appointment.dateVoided >= :since) " +
+                "and (" + CHANGE_TIME + " > :since" +
+                (sinceAppointmentId != null ? " or (" + CHANGE_TIME + " = :since and appointment.appointmentId > :sinceAppointmentId)" : "") +
+                ") order by " + CHANGE_TIME + ", appointment.appointmentId");
+        query.setParameter("since", since);
+        if (sinceAppointmentId != null) {
+            query.setParameter("sinceAppointmentId", sinceAppointmentId);
+        }
+        query.setMaxResults(limit);
+        return query.list();
+    }
+
     @Transactional
     @Override
     public void save(Appointment appointment) {
@@ -51,23 +100,76 @@ public class AppointmentDaoImpl implements AppointmentDao {
     }
 
     @Override
-    public List<Appointment> search(Appointment appointment) {
-        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class).add(
-                Example.create(appointment).excludeProperty("uuid"));
+    public List<Appointment> search(AppointmentFilter appointmentFilter) {
+        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class);
+        criteria.add(Restrictions.eq("voided", false));
+        criteria.createAlias("patient", "patient");
+        criteria.add(Restrictions.eq("patient.voided", false));
+        addUuidCriteria(criteria, "patient", appointmentFilter.getPatientUuid());
+        setServiceFilterCriteria(appointmentFilter, criteria);
+        setLocationFilterCriteria(appointmentFilter, criteria);
+        setProviderFilterCriteria(appointmentFilter, criteria);
+        if (appointmentFilter.getStatus() != null) {
+            criteria.add(Restrictions.eq("status", appointmentFilter.getStatus()));
+        }
+        if (appointmentFilter.getAppointmentKind() != null) {
+            criteria.add(Restrictions.eq("appointmentKind", appointmentFilter.getAppointmentKind()));
+        }
+        if (appointmentFilter.getStartDate() != null) {
+            criteria.add(Restrictions.ge("startDateTime", appointmentFilter.getStartDate()));
+        }
+        if (appointmentFilter.getEndDate() != null) {
+            criteria.add(Restrictions.lt("startDateTime", appointmentFilter.getEndDate()));
+        }
+        setFilterOrderAndPage(appointmentFilter, criteria);
+        return criteria.list();
+    }
 
-        if(appointment.getPatient()!=null) criteria.createCriteria("patient").add(
-                Example.create(appointment.getPatient()));
+    private void setServiceFilterCriteria(AppointmentFilter appointmentFilter, Criteria criteria) {
+        criteria.createAlias("service", "appointmentService", JoinType.LEFT_OUTER_JOIN);
+        criteria.add(Restrictions.or(Restrictions.isNull("service"), Restrictions.eq("appointmentService.voided", false)));
+        addUuidCriteria(criteria, "appointmentService", appointmentFilter.getServiceUuid());
+        criteria.createAlias("serviceType", "appointmentServiceType", JoinType.LEFT_OUTER_JOIN);
+        criteria.add(Restrictions.or(Restrictions.isNull("serviceType"), Restrictions.eq("appointmentServiceType.voided", false)));
+        addUuidCriteria(criteria, "appointmentServiceType", appointmentFilter.getServiceTypeUuid());
+    }
 
-        if(appointment.getLocation()!=null) criteria.createCriteria("location").add(
-                Example.create(appointment.getLocation()));
+    private void setLocationFilterCriteria(AppointmentFilter appointmentFilter, Criteria criteria) {
+        if (StringUtils.isNotEmpty(appointmentFilter.getLocationUuid())) {
+            criteria.createAlias("location", "location");
+            addUuidCriteria(criteria, "location", appointmentFilter.getLocationUuid());
+        }
+    }
 
-        if(appointment.getService()!=null) criteria.createCriteria("service").add(
-                Example.create(appointment.getService()));
+    private void setProviderFilterCriteria(AppointmentFilter appointmentFilter, Criteria criteria) {
+        if (StringUtils.isNotEmpty(appointmentFilter.getProviderUuid())) {
+            DetachedCriteria providerAppointments = DetachedCriteria.forClass(AppointmentProvider.class)
+                    .createAlias("provider", "provider")
+                    .add(Restrictions.eq("provider.uuid", appointmentFilter.getProviderUuid()))
+                    .add(Restrictions.or(Restrictions.isNull("voided"), Restrictions.eq("voided", false)))
+                    .setProjection(Projections.property("appointment.appointmentId"));
+            criteria.add(Subqueries.propertyIn("appointmentId", providerAppointments));
+        }
+    }
 
-        if(appointment.getProvider()!=null) criteria.createCriteria("provider").add(
-                Example.create(appointment.getProvider()));
+    private void addUuidCriteria(Criteria criteria, String alias, String uuid) {
+        if (StringUtils.isNotEmpty(uuid)) {
+            criteria.add(Restrictions.eq(alias + ".uuid", uuid));
+        }
+    }
 
-        return criteria.list();
+    private void setFilterOrderAndPage(AppointmentFilter appointmentFilter, Criteria criteria) {
+        AppointmentFilter.SortField sortBy = appointmentFilter.getSortBy() != null ?
+                appointmentFilter.getSortBy() : AppointmentFilter.SortField.START_DATE_TIME;
+        if (appointmentFilter.isDescending()) {
+            criteria.addOrder(Order.desc(sortBy.getPropertyName())).addOrder(Order.desc("appointmentId"));
+        } else {
+            criteria.addOrder(Order.asc(sortBy.getPropertyName())).addOrder(Order.asc("appointmentId"));
+        }
+        criteria.setFirstResult(Math.max(appointmentFilter.getStartIndex(), 0));
+        if (appointmentFilter.getLimit() > 0) {
+            criteria.setMaxResults(appointmentFilter.getLimit());
+        }
     }
 
     @Override
@@ -96,6 +198,17 @@ public class AppointmentDaoImpl implements AppointmentDao {
 
     @Override
     public List<Appointment> getAppointmentsForService(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList) {
+        return  createAppointmentsForServiceCriteria(appointmentServiceDefinition, startDate, endDate, appointmentStatusFilterList).list();
+    }
+
+    @Override
+    public long getAppointmentsCountForService(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList) {
+        Criteria criteria = createAppointmentsForServiceCriteria(appointmentServiceDefinition, startDate, endDate, appointmentStatusFilterList);
+        criteria.setProjection(Projections.rowCount());
+        return (Long) criteria.uniqueResult();
+    }
+
+    private Criteria createAppointmentsForServiceCriteria(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList) {
         Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class);
         criteria.createAlias("serviceType", "serviceType", JoinType.LEFT_OUTER_JOIN);
         criteria.add(Restrictions.or(Restrictions.isNull("serviceType"), Restrictions.eq("serviceType.voided", false)));
@@ -104,12 +217,71 @@ public class AppointmentDaoImpl implements AppointmentDao {
         criteria.add(Restrictions.eq("patient.voided", false));
         criteria.add(Restrictions.ge("startDateTime", startDate));
         criteria.add(Restrictions.le("startDateTime", endDate));
-        criteria.createCriteria("service").add(Example.create(appointmentServiceDefinition));
+        criteria.add(Restrictions.eq("service", appointmentServiceDefinition));
         if (appointmentStatusFilterList != null && !appointmentStatusFilterList.isEmpty()) {
             criteria.add(Restrictions.in("status", appointmentStatusFilterList));
         }
-        return  criteria.list();
+        return criteria;
+    }
+
+    @Override
+    public List<DailyAppointmentServiceCount> getDailyAppointmentServiceCounts(Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList) {
+        boolean filterByStatus = appointmentStatusFilterList != null && !appointmentStatusFilterList.isEmpty();
+        String day = "year(appointment.startDateTime), month(appointment.startDateTime), day(appointment.startDateTime)";
+        Query query = sessionFactory.getCurrentSession().createQuery(
+                "select service.uuid, " + day + ", appointment.status, count(appointment.appointmentId) " +
+                "from Appointment appointment join appointment.service service join appointment.patient patient " +
+                "left join appointment.serviceType serviceType " +
+                "where appointment.voided = false and patient.voided = false and service.voided = false " +
+                "and (serviceType.id is null or serviceType.voided = false) " +
+                "and appointment.startDateTime >= :startDate and appointment.startDateTime <= :endDate " +
+                (filterByStatus ? "and appointment.status in (:statuses) " : "") +
+                "group by service.uuid, " + day + ", appointment.status " +
+                "order by service.uuid, " + day);
+        query.setParameter("startDate", startDate);
+        query.setParameter("endDate", endDate);
+        if (filterByStatus) {
+            query.setParameterList("statuses", appointmentStatusFilterList);
+        }
+        Map<String, DailyAppointmentServiceCount> dailyCounts = new LinkedHashMap<>();
+        for (Object[] row : (List<Object[]>) query.list()) {
+            String serviceUuid = (String) row[0];
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(((Number) row[1]).intValue(), ((Number) row[2]).intValue() - 1, ((Number) row[3]).intValue());
+            Date appointmentDate = calendar.getTime();
+            dailyCounts.computeIfAbsent(serviceUuid + appointmentDate.getTime(), key -> new DailyAppointmentServiceCount(serviceUuid, appointmentDate))
+                    .addAppointments((AppointmentStatus) row[4], ((Number) row[5]).intValue());
+        }
+        return new ArrayList<>(dailyCounts.values());
+    }
 
+    @Override
+    public List<AppointmentServiceBooking> getAppointmentServiceBookings(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList) {
+        boolean filterByStatus = appointmentStatusFilterList != null && !appointmentStatusFilterList.isEmpty();
+        Query query = sessionFactory.getCurrentSession().createQuery(
+                "select service.uuid, appointment.startDateTime, appointment.endDateTime " +
+                "from Appointment appointment join appointment.service service join appointment.patient patient " +
+                "left join appointment.serviceType serviceType " +
+                "where appointment.voided = false and patient.voided = false and service.voided = false " +
+                "and (serviceType.id is null or serviceType.voided = false) " +
+                "and appointment.startDateTime < :endDate and appointment.endDateTime > :startDate " +
+                (appointmentServiceDefinition != null ? "and service = :service " : "") +
+                (filterByStatus ? "and appointment.status in (:statuses) " : "") +
+                "order by appointment.startDateTime");
+        query.setParameter("startDate", startDate);
+        query.setParameter("endDate", endDate);
+        if (appointmentServiceDefinition != null) {
+            query.setParameter("service", appointmentServiceDefinition);
+        }
+        if (filterByStatus) {
+            query.setParameterList("statuses", appointmentStatusFilterList);
+        }
+        List<AppointmentServiceBooking> bookings = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) query.list()) {
+            bookings.add(new AppointmentServiceBooking((String) row[0], (Date) row[1], (Date) row[2]));
+        }
+        return bookings;
     }
 
     @Override
@@ -119,6 +291,25 @@ public class AppointmentDaoImpl implements AppointmentDao {
         return (Appointment) criteria.uniqueResult();
     }
 
+    @Override
+    public Appointment getPersistedAppointment(Integer appointmentId) {
+        Object[] row = (Object[]) sessionFactory.getCurrentSession().createQuery(
+                "select appointment.status, service, appointment.startDateTime from Appointment appointment " +
+                "left join appointment.service service where appointment.appointmentId = :appointmentId")
+                .setParameter("appointmentId", appointmentId)
+                .setFlushMode(FlushMode.MANUAL)
+                .uniqueResult();
+        if (row == null) {
+            return null;
+        }
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(appointmentId);
+        appointment.setStatus((AppointmentStatus) row[0]);
+        appointment.setService((AppointmentServiceDefinition) row[1]);
+        appointment.setStartDateTime((Date) row[2]);
+        return appointment;
+    }
+
     @Override
     public List<Appointment> getAllAppointmentsInDateRange(Date startDate, Date endDate) {
         Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class);
@@ -136,16 +327,42 @@ public class AppointmentDaoImpl implements AppointmentDao {
 
     @Override
     public List<Appointment> search(AppointmentSearchRequest appointmentSearchRequest) {
-        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class);
+        Criteria criteria = createSearchCriteria(appointmentSearchRequest);
+        criteria.addOrder(Order.asc("startDateTime")).addOrder(Order.asc("appointmentId"));
+        setContinuationCriteria(appointmentSearchRequest, criteria);
+        setLimitCriteria(appointmentSearchRequest, criteria);
+
+        return criteria.list();
+    }
+
+    @Override
+    public long getSearchCount(AppointmentSearchRequest appointmentSearchRequest) {
+        Criteria criteria = createSearchCriteria(appointmentSearchRequest);
+        criteria.setProjection(Projections.rowCount());
+        return (Long) criteria.uniqueResult();
+    }
 
+    private Criteria createSearchCriteria(AppointmentSearchRequest appointmentSearchRequest) {
+        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class);
         criteria.add(Restrictions.eq("voided", false));
-        criteria.addOrder(Order.asc("startDateTime"));
         setDateCriteria(appointmentSearchRequest, criteria);
         setPatientCriteria(appointmentSearchRequest, criteria);
-        setLimitCriteria(appointmentSearchRequest, criteria);
         setProviderCriteria(appointmentSearchRequest, criteria);
+        return criteria;
+    }
 
-        return criteria.list();
+    /**
+     * Seeks past the last appointment of the previous page on the (startDateTime, appointmentId) order,
+     * so deep pages cost the same as the first one.
+     */
+    private void setContinuationCriteria(AppointmentSearchRequest appointmentSearchRequest, Criteria criteria) {
+        if (StringUtils.isNotEmpty(appointmentSearchRequest.getContinuationToken())) {
+            AppointmentSearchToken token = AppointmentSearchToken.decode(appointmentSearchRequest.getContinuationToken());
+            criteria.add(Restrictions.or(
+                    Restrictions.gt("startDateTime", token.getStartDateTime()),
+                    Restrictions.and(Restrictions.eq("startDateTime", token.getStartDateTime()),
+                            Restrictions.gt("appointmentId", token.getAppointmentId()))));
+        }
     }
 
     private void setProviderCriteria(AppointmentSearchRequest appointmentSearchRequest, Criteria criteria) {
@@ -174,10 +391,8 @@ public class AppointmentDaoImpl implements AppointmentDao {
     }
 
     private void setLimitCriteria(AppointmentSearchRequest appointmentSearchRequest, Criteria criteria) {
-        if (appointmentSearchRequest.getLimit() > 0) {
-            criteria.setMaxResults(appointmentSearchRequest.getLimit());
-        } else if (appointmentSearchRequest.getEndDate() == null) {
-            criteria.setMaxResults(APPOINTMENT_SEARCH_DEFAULT_LIMIT);
+        if (appointmentSearchRequest.pageSize() > 0) {
+            criteria.setMaxResults(appointmentSearchRequest.pageSize());
         }
     }
 
@@ -193,4 +408,94 @@ public class AppointmentDaoImpl implements AppointmentDao {
 
         return criteria.list();
     }
+
+    @Override
+    public List<Appointment> getAppointmentsForPatients(List<Integer> patientIds) {
+        if (patientIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class);
+        criteria.createAlias("patient", "patient");
+        criteria.add(Restrictions.in("patient.patientId", patientIds));
+        criteria.add(Restrictions.eq("voided", false));
+        criteria.add(Restrictions.eq("patient.voided", false));
+        criteria.add(Restrictions.ge("startDateTime", DateUtil.getStartOfDay()));
+
+        return criteria.list();
+    }
+
+    @Override
+    public void prefetchAssociations(List<Appointment> appointments) {
+        List<Integer> appointmentIds = appointments.stream().map(Appointment::getAppointmentId)
+                .filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (appointmentIds.isEmpty()) {
+            return;
+        }
+        Session currentSession = sessionFactory.getCurrentSession();
+        for (int from = 0; from < appointmentIds.size(); from += PREFETCH_CHUNK_SIZE) {
+            List<Integer> chunk = appointmentIds.subList(from, Math.min(from + PREFETCH_CHUNK_SIZE, appointmentIds.size()));
+            for (String query : PREFETCH_QUERIES) {
+                currentSession.createQuery(query).setParameterList("appointmentIds", chunk).list();
+            }
+        }
+    }
+
+    @Override
+    public void updateStatus(List<Appointment> appointments, AppointmentStatus status, User changedBy, Date dateChanged) {
+        List<Integer> appointmentIds = appointments.stream().map(Appointment::getAppointmentId).collect(Collectors.toList());
+        sessionFactory.getCurrentSession()
+                .createQuery("update Appointment set status = :status, changedBy = :changedBy, dateChanged = :dateChanged " +
+                        "where appointmentId in (:appointmentIds)")
+                .setParameter("status", status)
+                .setParameter("changedBy", changedBy)
+                .setParameter("dateChanged", dateChanged)
+                .setParameterList("appointmentIds", appointmentIds)
+                .executeUpdate();
+    }
+
+    @Override
+    public void forEachAppointmentsChunkInDateRange(Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList,
+                                                    int chunkSize, Consumer<List<Appointment>> chunkConsumer) {
+        Integer lastAppointmentId = null;
+        List<Appointment> appointments;
+        do {
+            appointments = getAppointmentsChunkInDateRange(startDate, endDate, appointmentStatusList, lastAppointmentId, chunkSize);
+            if (appointments.isEmpty()) {
+                break;
+            }
+            lastAppointmentId = appointments.get(appointments.size() - 1).getAppointmentId();
+            chunkConsumer.accept(appointments);
+            Session session = sessionFactory.getCurrentSession();
+            session.flush();
+            session.clear();
+        } while (appointments.size() == chunkSize);
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsChunkInDateRange(Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList,
+                                                             Integer lastAppointmentId, int chunkSize) {
+        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class);
+        criteria.add(Restrictions.eq("voided", false));
+        criteria.createAlias("patient", "patient");
+        criteria.add(Restrictions.eq("patient.voided", false));
+        criteria.createAlias("service", "service", JoinType.LEFT_OUTER_JOIN);
+        criteria.add(Restrictions.or(Restrictions.isNull("service"), Restrictions.eq("service.voided", false)));
+        criteria.createAlias("serviceType", "serviceType", JoinType.LEFT_OUTER_JOIN);
+        criteria.add(Restrictions.or(Restrictions.isNull("serviceType"), Restrictions.eq("serviceType.voided", false)));
+        if (startDate != null) {
+            criteria.add(Restrictions.ge("startDateTime", startDate));
+        }
+        if (endDate != null) {
+            criteria.add(Restrictions.lt("endDateTime", endDate));
+        }
+        if (appointmentStatusList != null && !appointmentStatusList.isEmpty()) {
+            criteria.add(Restrictions.in("status", appointmentStatusList));
+        }
+        if (lastAppointmentId != null) {
+            criteria.add(Restrictions.gt("appointmentId", lastAppointmentId));
+        }
+        criteria.addOrder(Order.asc("appointmentId"));
+        criteria.setMaxResults(chunkSize);
+        return criteria.list();
+    }
 }
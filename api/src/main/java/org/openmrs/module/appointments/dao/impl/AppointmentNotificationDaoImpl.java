@@ -0,0 +1,61 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.hibernate.Criteria;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.openmrs.module.appointments.dao.AppointmentNotificationDao;
+import org.openmrs.module.appointments.model.AppointmentNotification;
+import org.openmrs.module.appointments.model.AppointmentNotificationStatus;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class AppointmentNotificationDaoImpl implements AppointmentNotificationDao {
+
+    private static final List<AppointmentNotificationStatus> DUE_STATUSES = Arrays.asList(AppointmentNotificationStatus.Pending,
+            AppointmentNotificationStatus.Sending);
+
+    private SessionFactory sessionFactory;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void save(AppointmentNotification appointmentNotification) {
+        sessionFactory.getCurrentSession().saveOrUpdate(appointmentNotification);
+    }
+
+    @Override
+    public AppointmentNotification getAppointmentNotificationById(Integer appointmentNotificationId) {
+        return (AppointmentNotification) sessionFactory.getCurrentSession().get(AppointmentNotification.class, appointmentNotificationId);
+    }
+
+    @Override
+    public List<Integer> getDueNotificationIds(Date now, int limit) {
+        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(AppointmentNotification.class);
+        criteria.add(Restrictions.in("status", DUE_STATUSES));
+        criteria.add(Restrictions.le("nextAttemptAt", now));
+        criteria.setProjection(Projections.id());
+        criteria.addOrder(Order.asc("nextAttemptAt"));
+        criteria.setMaxResults(limit);
+        return criteria.list();
+    }
+
+    @Override
+    public boolean claim(Integer appointmentNotificationId, Date now, Date claimedUntil) {
+        return sessionFactory.getCurrentSession()
+                .createQuery("update AppointmentNotification set status = :sending, nextAttemptAt = :claimedUntil, " +
+                        "attempts = attempts + 1, dateChanged = :now where appointmentNotificationId = :appointmentNotificationId " +
+                        "and status in (:dueStatuses) and nextAttemptAt <= :now")
+                .setParameter("sending", AppointmentNotificationStatus.Sending)
+                .setParameter("claimedUntil", claimedUntil)
+                .setParameter("now", now)
+                .setParameter("appointmentNotificationId", appointmentNotificationId)
+                .setParameterList("dueStatuses", DUE_STATUSES)
+                .executeUpdate() == 1;
+    }
+}
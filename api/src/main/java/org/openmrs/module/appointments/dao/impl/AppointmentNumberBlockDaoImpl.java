@@ -0,0 +1,71 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.hibernate.SessionFactory;
+import org.openmrs.api.APIException;
+import org.openmrs.module.appointments.dao.AppointmentNumberBlockDao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+import static org.openmrs.module.appointments.util.SqlUtil.isUniqueViolation;
+
+public class AppointmentNumberBlockDaoImpl implements AppointmentNumberBlockDao {
+
+    private static final String RESERVE_BLOCK_SQL = "UPDATE appointment_number_block SET next_value = next_value + ? WHERE sequence_name = ?";
+    private static final String NEXT_VALUE_SQL = "SELECT next_value FROM appointment_number_block WHERE sequence_name = ?";
+    private static final String CREATE_SEQUENCE_SQL = "INSERT INTO appointment_number_block (sequence_name, next_value) VALUES (?, ?)";
+
+    private SessionFactory sessionFactory;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public long reserveBlock(String sequenceName, int blockSize) {
+        return sessionFactory.getCurrentSession().doReturningWork(connection -> {
+            if (advance(connection, sequenceName, blockSize)) {
+                return nextValue(connection, sequenceName) - blockSize;
+            }
+            // a failed statement aborts the whole transaction on some databases, unless rolled back to a savepoint
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(CREATE_SEQUENCE_SQL)) {
+                statement.setString(1, sequenceName);
+                statement.setLong(2, 1L + blockSize);
+                statement.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+                return 1L;
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                // another node created the sequence in the meantime
+                if (isUniqueViolation(e) && advance(connection, sequenceName, blockSize)) {
+                    return nextValue(connection, sequenceName) - blockSize;
+                }
+                throw e;
+            }
+        });
+    }
+
+    private boolean advance(Connection connection, String sequenceName, int blockSize) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(RESERVE_BLOCK_SQL)) {
+            statement.setInt(1, blockSize);
+            statement.setString(2, sequenceName);
+            return statement.executeUpdate() == 1;
+        }
+    }
+
+    private long nextValue(Connection connection, String sequenceName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(NEXT_VALUE_SQL)) {
+            statement.setString(1, sequenceName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new APIException("Appointment number sequence " + sequenceName + " disappeared");
+                }
+                return resultSet.getLong(1);
+            }
+        }
+    }
+}
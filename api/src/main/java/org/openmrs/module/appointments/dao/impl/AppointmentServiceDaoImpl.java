@@ -3,6 +3,7 @@ package org.openmrs.module.appointments.dao.impl;
 import org.hibernate.Criteria;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.openmrs.module.appointments.dao.AppointmentServiceDao;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
@@ -46,6 +47,19 @@ public class AppointmentServiceDaoImpl implements AppointmentServiceDao{
         return appointmentServiceDefinition;
     }
 
+    @Override
+    public Integer getAppointmentServiceIdByUuid(String uuid) {
+        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(AppointmentServiceDefinition.class, "appointmentServiceDefinition");
+        criteria.add(Restrictions.eq("uuid", uuid));
+        criteria.setProjection(Projections.id());
+        return (Integer) criteria.uniqueResult();
+    }
+
+    @Override
+    public AppointmentServiceDefinition loadAppointmentService(Integer appointmentServiceId) {
+        return (AppointmentServiceDefinition) sessionFactory.getCurrentSession().load(AppointmentServiceDefinition.class, appointmentServiceId);
+    }
+
     @Override
     public AppointmentServiceDefinition getNonVoidedAppointmentServiceByName(String serviceName) {
         Session currentSession = sessionFactory.getCurrentSession();
@@ -0,0 +1,93 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.hibernate.SessionFactory;
+import org.openmrs.module.appointments.dao.AppointmentServiceDayCapacityDao;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+import static org.openmrs.module.appointments.util.SqlUtil.isUniqueViolation;
+
+public class AppointmentServiceDayCapacityDaoImpl implements AppointmentServiceDayCapacityDao {
+
+    private static final String TAKE_PLACE_HQL = "update AppointmentServiceDayCapacity set bookedCount = bookedCount + 1 " +
+            "where appointmentServiceId = :appointmentServiceId and appointmentDate = :day and bookedCount < :limit";
+    // a subquery of an update reads the latest committed appointments, whatever the isolation level
+    private static final String RECOUNT_HQL = "update AppointmentServiceDayCapacity set bookedCount = (" +
+            "select count(*) from Appointment appointment where appointment.service.appointmentServiceId = :appointmentServiceId " +
+            "and appointment.startDateTime >= :dayStart and appointment.startDateTime < :dayEnd " +
+            "and appointment.voided = false and appointment.patient.voided = false " +
+            "and appointment.appointmentId <> :appointmentId and appointment.status in (:statuses)) " +
+            "where appointmentServiceId = :appointmentServiceId and appointmentDate = :day";
+    private static final String CREATE_DAY_SQL = "INSERT INTO appointment_service_day_capacity " +
+            "(appointment_service_id, appointment_date, booked_count) VALUES (?, ?, 0)";
+
+    private SessionFactory sessionFactory;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public boolean takePlace(Integer appointmentServiceId, LocalDate day, Date dayStart, Date dayEnd, int limit,
+                             Integer appointmentId, List<AppointmentStatus> appointmentStatusList) {
+        if (take(appointmentServiceId, day, limit)) {
+            return true;
+        }
+        if (!recount(appointmentServiceId, day, dayStart, dayEnd, appointmentId, appointmentStatusList)) {
+            createDay(appointmentServiceId, day);
+            recount(appointmentServiceId, day, dayStart, dayEnd, appointmentId, appointmentStatusList);
+        }
+        return take(appointmentServiceId, day, limit);
+    }
+
+    @Override
+    public void releasePlace(Integer appointmentServiceId, LocalDate day, Date dayStart, Date dayEnd,
+                             Integer appointmentId, List<AppointmentStatus> appointmentStatusList) {
+        recount(appointmentServiceId, day, dayStart, dayEnd, appointmentId, appointmentStatusList);
+    }
+
+    private boolean take(Integer appointmentServiceId, LocalDate day, int limit) {
+        return sessionFactory.getCurrentSession().createQuery(TAKE_PLACE_HQL)
+                .setParameter("appointmentServiceId", appointmentServiceId)
+                .setDate("day", java.sql.Date.valueOf(day))
+                .setParameter("limit", limit)
+                .executeUpdate() == 1;
+    }
+
+    private boolean recount(Integer appointmentServiceId, LocalDate day, Date dayStart, Date dayEnd,
+                            Integer appointmentId, List<AppointmentStatus> appointmentStatusList) {
+        return sessionFactory.getCurrentSession().createQuery(RECOUNT_HQL)
+                .setParameter("appointmentServiceId", appointmentServiceId)
+                .setTimestamp("dayStart", dayStart)
+                .setTimestamp("dayEnd", dayEnd)
+                .setParameter("appointmentId", appointmentId != null ? appointmentId : 0)
+                .setParameterList("statuses", appointmentStatusList)
+                .setDate("day", java.sql.Date.valueOf(day))
+                .executeUpdate() == 1;
+    }
+
+    private void createDay(Integer appointmentServiceId, LocalDate day) {
+        sessionFactory.getCurrentSession().doWork(connection -> {
+            // a failed statement aborts the whole transaction on some databases, unless rolled back to a savepoint
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(CREATE_DAY_SQL)) {
+                statement.setInt(1, appointmentServiceId);
+                statement.setDate(2, java.sql.Date.valueOf(day));
+                statement.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                // another booking created the day in the meantime
+                if (!isUniqueViolation(e)) {
+                    throw e;
+                }
+            }
+        });
+    }
+}
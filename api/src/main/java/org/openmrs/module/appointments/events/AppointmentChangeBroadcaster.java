@@ -0,0 +1,113 @@
+package org.openmrs.module.appointments.events;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.APIException;
+import org.openmrs.module.appointments.model.Appointment;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Fans appointment changes out to the subscribed clients in memory. Publishing never blocks on a subscriber: each
+ * one has a bounded buffer and is dropped when it does not keep up. Subscriptions that are not polled for a while
+ * are removed, so clients that went away do not hold on to buffers.
+ */
+public class AppointmentChangeBroadcaster {
+
+    static final int BUFFER_SIZE = 100;
+    static final int MAX_SUBSCRIPTIONS = 500;
+    static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private Log log = LogFactory.getLog(this.getClass());
+
+    private final Map<String, AppointmentChangeSubscription> subscriptions = new ConcurrentHashMap<>();
+
+    public AppointmentChangeSubscription subscribe(String ownerUuid, String locationUuid, String serviceUuid,
+                                                   String providerUuid) {
+        removeIdleSubscriptions();
+        if (subscriptions.size() >= MAX_SUBSCRIPTIONS) {
+            throw new APIException("Too many subscriptions to appointment changes");
+        }
+        AppointmentChangeSubscription subscription = new AppointmentChangeSubscription(ownerUuid, locationUuid,
+                serviceUuid, providerUuid, BUFFER_SIZE);
+        subscriptions.put(subscription.getId(), subscription);
+        return subscription;
+    }
+
+    public AppointmentChangeSubscription getSubscription(String id) {
+        return subscriptions.get(id);
+    }
+
+    public void unsubscribe(String id) {
+        AppointmentChangeSubscription subscription = subscriptions.remove(id);
+        if (subscription != null) {
+            subscription.drop();
+        }
+    }
+
+    /**
+     * Publishes the changes once the current transaction commits, so subscribers never see a change that is rolled
+     * back. The events are built right away, while the appointments can still be read.
+     */
+    public void publishAfterCommit(Collection<Appointment> appointments) {
+        if (subscriptions.isEmpty() || appointments.isEmpty()) {
+            return;
+        }
+        publishAfterCommit(appointments.stream().map(AppointmentChangeEvent::of).collect(Collectors.toList()));
+    }
+
+    public void publishUuidsAfterCommit(Collection<String> appointmentUuids) {
+        if (subscriptions.isEmpty() || appointmentUuids.isEmpty()) {
+            return;
+        }
+        publishAfterCommit(appointmentUuids.stream().map(AppointmentChangeEvent::ofUuid).collect(Collectors.toList()));
+    }
+
+    private void publishAfterCommit(List<AppointmentChangeEvent> events) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    publish(events);
+                }
+            });
+        } else {
+            publish(events);
+        }
+    }
+
+    void publish(List<AppointmentChangeEvent> events) {
+        removeIdleSubscriptions();
+        for (AppointmentChangeSubscription subscription : subscriptions.values()) {
+            for (AppointmentChangeEvent event : events) {
+                if (subscription.matches(event) && !subscription.offer(event)) {
+                    log.warn("Dropping subscription " + subscription.getId() + " to appointment changes, it is not keeping up");
+                    subscriptions.remove(subscription.getId());
+                    break;
+                }
+            }
+        }
+    }
+
+    void removeIdleSubscriptions() {
+        long idleSince = System.currentTimeMillis() - IDLE_TIMEOUT_MILLIS;
+        subscriptions.values().removeIf(subscription -> {
+            if (subscription.getLastPolledAt() < idleSince) {
+                subscription.drop();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+}
@@ -0,0 +1,84 @@
+package org.openmrs.module.appointments.events;
+
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentProvider;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Snapshot of an appointment change pushed to subscribers. It only carries what is needed to filter and identify the
+ * appointment; clients fetch the appointment itself when they need the details.
+ */
+public class AppointmentChangeEvent {
+    private final String appointmentUuid;
+    private final String status;
+    private final String serviceUuid;
+    private final String locationUuid;
+    private final Set<String> providerUuids;
+    private final boolean scoped;
+    private final Date changedAt;
+
+    private AppointmentChangeEvent(String appointmentUuid, String status, String serviceUuid, String locationUuid,
+                                   Set<String> providerUuids, boolean scoped) {
+        this.appointmentUuid = appointmentUuid;
+        this.status = status;
+        this.serviceUuid = serviceUuid;
+        this.locationUuid = locationUuid;
+        this.providerUuids = providerUuids;
+        this.scoped = scoped;
+        this.changedAt = new Date();
+    }
+
+    public static AppointmentChangeEvent of(Appointment appointment) {
+        Set<String> providerUuids = appointment.getProviders() == null ? Collections.emptySet() :
+                appointment.getProviders().stream()
+                        .filter(appointmentProvider -> !Boolean.TRUE.equals(appointmentProvider.getVoided()))
+                        .map(AppointmentProvider::getProvider)
+                        .map(provider -> provider.getUuid())
+                        .collect(Collectors.toSet());
+        return new AppointmentChangeEvent(appointment.getUuid(),
+                appointment.getStatus() == null ? null : appointment.getStatus().name(),
+                appointment.getService() == null ? null : appointment.getService().getUuid(),
+                appointment.getLocation() == null ? null : appointment.getLocation().getUuid(),
+                providerUuids, true);
+    }
+
+    /**
+     * Event for an appointment of which only the uuid is known, as for bulk status changes. It is delivered to every
+     * subscriber since it cannot be filtered.
+     */
+    public static AppointmentChangeEvent ofUuid(String appointmentUuid) {
+        return new AppointmentChangeEvent(appointmentUuid, null, null, null, Collections.emptySet(), false);
+    }
+
+    public String getAppointmentUuid() {
+        return appointmentUuid;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getServiceUuid() {
+        return serviceUuid;
+    }
+
+    public String getLocationUuid() {
+        return locationUuid;
+    }
+
+    public Set<String> getProviderUuids() {
+        return providerUuids;
+    }
+
+    public boolean isScoped() {
+        return scoped;
+    }
+
+    public Date getChangedAt() {
+        return changedAt;
+    }
+}
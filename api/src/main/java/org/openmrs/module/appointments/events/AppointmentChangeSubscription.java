@@ -0,0 +1,147 @@
+package org.openmrs.module.appointments.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A client's interest in appointment changes of a location, service and/or provider, with a bounded buffer of the
+ * events it has not collected yet. A subscriber that lets the buffer fill up is dropped rather than slowing down
+ * the publisher, and has to resubscribe and resync.
+ */
+public class AppointmentChangeSubscription {
+    private final String id = UUID.randomUUID().toString();
+    private final String ownerUuid;
+    private final String locationUuid;
+    private final String serviceUuid;
+    private final String providerUuid;
+    private final BlockingQueue<AppointmentChangeEvent> buffer;
+    private final AtomicReference<Runnable> waiter = new AtomicReference<>();
+    private final AtomicReference<List<AppointmentChangeEvent>> unread = new AtomicReference<>();
+    private volatile boolean dropped;
+    private volatile long lastPolledAt = System.currentTimeMillis();
+
+    AppointmentChangeSubscription(String ownerUuid, String locationUuid, String serviceUuid, String providerUuid,
+                                  int bufferSize) {
+        this.ownerUuid = ownerUuid;
+        this.locationUuid = locationUuid;
+        this.serviceUuid = serviceUuid;
+        this.providerUuid = providerUuid;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    public boolean matches(AppointmentChangeEvent event) {
+        if (!event.isScoped()) {
+            return true;
+        }
+        return (locationUuid == null || locationUuid.equals(event.getLocationUuid()))
+                && (serviceUuid == null || serviceUuid.equals(event.getServiceUuid()))
+                && (providerUuid == null || event.getProviderUuids().contains(providerUuid));
+    }
+
+    /**
+     * Buffers the event without blocking. Returns false, and drops the subscription, when the buffer is full.
+     */
+    boolean offer(AppointmentChangeEvent event) {
+        if (dropped) {
+            return false;
+        }
+        if (!buffer.offer(event)) {
+            dropped = true;
+            buffer.clear();
+        }
+        wakeWaiter();
+        return !dropped;
+    }
+
+    /**
+     * Removes and returns the buffered events.
+     */
+    public List<AppointmentChangeEvent> drain() {
+        lastPolledAt = System.currentTimeMillis();
+        List<AppointmentChangeEvent> events = new ArrayList<>();
+        List<AppointmentChangeEvent> unreadEvents = unread.getAndSet(null);
+        if (unreadEvents != null) {
+            events.addAll(unreadEvents);
+        }
+        buffer.drainTo(events);
+        return events;
+    }
+
+    /**
+     * Hands back drained events that could not be delivered, as when the poll timed out meanwhile. They are returned
+     * first by the next drain, after any events handed back before and not collected yet.
+     */
+    public void unread(List<AppointmentChangeEvent> events) {
+        if (!events.isEmpty()) {
+            unread.getAndUpdate(pending -> {
+                if (pending == null) {
+                    return events;
+                }
+                List<AppointmentChangeEvent> merged = new ArrayList<>(pending);
+                merged.addAll(events);
+                return merged;
+            });
+        }
+    }
+
+    /**
+     * Runs the callback once, as soon as there are events to collect or the subscription is dropped. Replaces the
+     * callback of an earlier wait that has not been woken up yet.
+     */
+    public void whenEventsAvailable(Runnable callback) {
+        lastPolledAt = System.currentTimeMillis();
+        waiter.set(callback);
+        if (dropped || !buffer.isEmpty() || unread.get() != null) {
+            wakeWaiter();
+        }
+    }
+
+    void drop() {
+        dropped = true;
+        buffer.clear();
+        wakeWaiter();
+    }
+
+    private void wakeWaiter() {
+        Runnable callback = waiter.getAndSet(null);
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getOwnerUuid() {
+        return ownerUuid;
+    }
+
+    public boolean isOwnedBy(String userUuid) {
+        return ownerUuid != null && ownerUuid.equals(userUuid);
+    }
+
+    public String getLocationUuid() {
+        return locationUuid;
+    }
+
+    public String getServiceUuid() {
+        return serviceUuid;
+    }
+
+    public String getProviderUuid() {
+        return providerUuid;
+    }
+
+    public boolean isDropped() {
+        return dropped;
+    }
+
+    long getLastPolledAt() {
+        return lastPolledAt;
+    }
+}
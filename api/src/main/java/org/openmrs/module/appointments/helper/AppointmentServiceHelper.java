@@ -7,6 +7,7 @@ import org.openmrs.api.APIException;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentAudit;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.numbering.AppointmentNumberGenerator;
 import org.openmrs.module.appointments.validator.AppointmentStatusChangeValidator;
 import org.openmrs.module.appointments.validator.AppointmentValidator;
 import org.springframework.stereotype.Component;
@@ -20,15 +21,16 @@ import java.util.Objects;
 
 public class AppointmentServiceHelper {
 
+    private AppointmentNumberGenerator appointmentNumberGenerator;
+
     public void checkAndAssignAppointmentNumber(Appointment appointment) {
         if (appointment.getAppointmentNumber() == null) {
-            appointment.setAppointmentNumber(generateAppointmentNumber(appointment));
+            appointment.setAppointmentNumber(appointmentNumberGenerator.generateAppointmentNumber(appointment));
         }
     }
 
-    //TODO: extract this out to a pluggable strategy
-    private String generateAppointmentNumber(Appointment appointment) {
-        return "0000";
+    public void setAppointmentNumberGenerator(AppointmentNumberGenerator appointmentNumberGenerator) {
+        this.appointmentNumberGenerator = appointmentNumberGenerator;
     }
 
     public AppointmentAudit getAppointmentAuditEvent(Appointment appointment,String notes) {
@@ -9,6 +9,7 @@ import org.openmrs.module.appointments.notification.NotificationResult;
 import org.openmrs.module.appointments.util.DateUtil;
 
 import java.io.Serializable;
+import java.time.ZoneId;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
@@ -202,7 +203,11 @@ public class Appointment extends BaseOpenmrsData implements Serializable {
     }
 
     public Boolean isFutureAppointment() {
-        Date startOfDay = DateUtil.getStartOfDay();
+        return isFutureAppointment(ZoneId.systemDefault());
+    }
+
+    public Boolean isFutureAppointment(ZoneId zone) {
+        Date startOfDay = DateUtil.getStartOfDay(zone);
         return this.getStartDateTime().after(startOfDay) || startOfDay.equals(this.getStartDateTime());
     }
 
@@ -0,0 +1,57 @@
+package org.openmrs.module.appointments.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AppointmentBulkStatusChangeResult {
+
+    private AppointmentStatus toStatus;
+    private List<String> changedAppointmentUuids = new ArrayList<>();
+    private Map<String, String> failures = new LinkedHashMap<>();
+    private Integer lastAppointmentId;
+
+    public AppointmentBulkStatusChangeResult(AppointmentStatus toStatus) {
+        this.toStatus = toStatus;
+    }
+
+    public AppointmentStatus getToStatus() {
+        return toStatus;
+    }
+
+    public List<String> getChangedAppointmentUuids() {
+        return changedAppointmentUuids;
+    }
+
+    public void addChangedAppointment(Appointment appointment) {
+        changedAppointmentUuids.add(appointment.getUuid());
+    }
+
+    /**
+     * @return error messages keyed by the uuid of the appointment that could not be changed
+     */
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+
+    public void addFailure(Appointment appointment, String message) {
+        failures.put(appointment.getUuid(), message);
+    }
+
+    /**
+     * @return id of the last appointment of a full chunk, after which the change goes on, or null when it is done
+     */
+    public Integer getLastAppointmentId() {
+        return lastAppointmentId;
+    }
+
+    public void setLastAppointmentId(Integer lastAppointmentId) {
+        this.lastAppointmentId = lastAppointmentId;
+    }
+
+    public void add(AppointmentBulkStatusChangeResult chunkResult) {
+        changedAppointmentUuids.addAll(chunkResult.getChangedAppointmentUuids());
+        failures.putAll(chunkResult.getFailures());
+    }
+}
@@ -0,0 +1,153 @@
+package org.openmrs.module.appointments.model;
+
+import java.util.Date;
+
+/**
+ * Criteria of an appointment search. Every criterion left null is ignored, the others are matched by uuid or by value.
+ * Results are ordered by the sort field, then by appointment id, so that consecutive pages do not overlap.
+ */
+public class AppointmentFilter {
+
+    public enum SortField {
+        START_DATE_TIME("startDateTime"),
+        END_DATE_TIME("endDateTime"),
+        DATE_CREATED("dateCreated");
+
+        private final String propertyName;
+
+        SortField(String propertyName) {
+            this.propertyName = propertyName;
+        }
+
+        public String getPropertyName() {
+            return propertyName;
+        }
+    }
+
+    private String patientUuid;
+    private String serviceUuid;
+    private String serviceTypeUuid;
+    private String locationUuid;
+    private String providerUuid;
+    private AppointmentStatus status;
+    private AppointmentKind appointmentKind;
+    private Date startDate;
+    private Date endDate;
+    private SortField sortBy = SortField.START_DATE_TIME;
+    private boolean descending;
+    private int startIndex;
+    private int limit;
+
+    public String getPatientUuid() {
+        return patientUuid;
+    }
+
+    public void setPatientUuid(String patientUuid) {
+        this.patientUuid = patientUuid;
+    }
+
+    public String getServiceUuid() {
+        return serviceUuid;
+    }
+
+    public void setServiceUuid(String serviceUuid) {
+        this.serviceUuid = serviceUuid;
+    }
+
+    public String getServiceTypeUuid() {
+        return serviceTypeUuid;
+    }
+
+    public void setServiceTypeUuid(String serviceTypeUuid) {
+        this.serviceTypeUuid = serviceTypeUuid;
+    }
+
+    public String getLocationUuid() {
+        return locationUuid;
+    }
+
+    public void setLocationUuid(String locationUuid) {
+        this.locationUuid = locationUuid;
+    }
+
+    public String getProviderUuid() {
+        return providerUuid;
+    }
+
+    public void setProviderUuid(String providerUuid) {
+        this.providerUuid = providerUuid;
+    }
+
+    public AppointmentStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AppointmentStatus status) {
+        this.status = status;
+    }
+
+    public AppointmentKind getAppointmentKind() {
+        return appointmentKind;
+    }
+
+    public void setAppointmentKind(AppointmentKind appointmentKind) {
+        this.appointmentKind = appointmentKind;
+    }
+
+    /**
+     * Appointments starting on or after this date are returned.
+     */
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+        this.startDate = startDate;
+    }
+
+    /**
+     * Appointments starting before this date are returned.
+     */
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(Date endDate) {
+        this.endDate = endDate;
+    }
+
+    public SortField getSortBy() {
+        return sortBy;
+    }
+
+    public void setSortBy(SortField sortBy) {
+        this.sortBy = sortBy;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+
+    public int getStartIndex() {
+        return startIndex;
+    }
+
+    public void setStartIndex(int startIndex) {
+        this.startIndex = startIndex;
+    }
+
+    /**
+     * Maximum number of appointments returned. When not set, every matching appointment is returned.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
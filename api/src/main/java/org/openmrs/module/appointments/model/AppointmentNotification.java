@@ -0,0 +1,132 @@
+package org.openmrs.module.appointments.model;
+
+import org.openmrs.BaseOpenmrsObject;
+
+import java.util.Date;
+
+/**
+ * A notification about an appointment waiting in the outbox to be sent through one medium, together with the
+ * outcome of the latest attempt to send it.
+ */
+public class AppointmentNotification extends BaseOpenmrsObject {
+
+    private Integer appointmentNotificationId;
+
+    private Appointment appointment;
+
+    private String medium;
+
+    private AppointmentNotificationStatus status = AppointmentNotificationStatus.Pending;
+
+    private Integer attempts = 0;
+
+    private Date nextAttemptAt;
+
+    private Integer resultStatus;
+
+    private String resultUuid;
+
+    private String resultMessage;
+
+    private Date dateCreated;
+
+    private Date dateChanged;
+
+    @Override
+    public Integer getId() {
+        return getAppointmentNotificationId();
+    }
+
+    @Override
+    public void setId(Integer id) {
+        setAppointmentNotificationId(id);
+    }
+
+    public Integer getAppointmentNotificationId() {
+        return appointmentNotificationId;
+    }
+
+    public void setAppointmentNotificationId(Integer appointmentNotificationId) {
+        this.appointmentNotificationId = appointmentNotificationId;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    public void setAppointment(Appointment appointment) {
+        this.appointment = appointment;
+    }
+
+    public String getMedium() {
+        return medium;
+    }
+
+    public void setMedium(String medium) {
+        this.medium = medium;
+    }
+
+    public AppointmentNotificationStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AppointmentNotificationStatus status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Date nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Integer getResultStatus() {
+        return resultStatus;
+    }
+
+    public void setResultStatus(Integer resultStatus) {
+        this.resultStatus = resultStatus;
+    }
+
+    public String getResultUuid() {
+        return resultUuid;
+    }
+
+    public void setResultUuid(String resultUuid) {
+        this.resultUuid = resultUuid;
+    }
+
+    public String getResultMessage() {
+        return resultMessage;
+    }
+
+    public void setResultMessage(String resultMessage) {
+        this.resultMessage = resultMessage;
+    }
+
+    public Date getDateCreated() {
+        return dateCreated;
+    }
+
+    public void setDateCreated(Date dateCreated) {
+        this.dateCreated = dateCreated;
+    }
+
+    public Date getDateChanged() {
+        return dateChanged;
+    }
+
+    public void setDateChanged(Date dateChanged) {
+        this.dateChanged = dateChanged;
+    }
+}
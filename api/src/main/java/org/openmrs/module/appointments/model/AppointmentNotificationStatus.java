@@ -0,0 +1,11 @@
+package org.openmrs.module.appointments.model;
+
+public enum AppointmentNotificationStatus {
+    Pending("Pending"), Sending("Sending"), Sent("Sent"), Ignored("Ignored"), Failed("Failed");
+
+    private final String value;
+
+    AppointmentNotificationStatus(String value) {
+        this.value = value;
+    }
+}
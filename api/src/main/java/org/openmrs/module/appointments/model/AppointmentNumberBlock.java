@@ -0,0 +1,27 @@
+package org.openmrs.module.appointments.model;
+
+/**
+ * A named sequence appointment numbers are reserved from in blocks. The next block starts at next value.
+ */
+public class AppointmentNumberBlock {
+
+    private String sequenceName;
+
+    private Long nextValue;
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    public void setSequenceName(String sequenceName) {
+        this.sequenceName = sequenceName;
+    }
+
+    public Long getNextValue() {
+        return nextValue;
+    }
+
+    public void setNextValue(Long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
@@ -4,11 +4,15 @@ import java.util.Date;
 
 public class AppointmentSearchRequest {
 
+    public static final int DEFAULT_LIMIT = 50;
+
     private Date startDate;
     private Date endDate;
     private String patientUuid;
     private String providerUuid;
     private int limit;
+    private String continuationToken;
+    private boolean includeCount;
 
     public Date getStartDate() {
         return startDate;
@@ -49,4 +53,34 @@ public class AppointmentSearchRequest {
     public void setProviderUuid(String providerUuid) {
         this.providerUuid = providerUuid;
     }
+
+    /**
+     * Token returned with the previous page, the search continues after the last appointment of that page.
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
+    public boolean isIncludeCount() {
+        return includeCount;
+    }
+
+    public void setIncludeCount(boolean includeCount) {
+        this.includeCount = includeCount;
+    }
+
+    /**
+     * Size of a page, the given limit or the default limit when neither a limit nor an end date is given.
+     * Zero means the search is not limited.
+     */
+    public int pageSize() {
+        if (limit > 0) {
+            return limit;
+        }
+        return endDate == null ? DEFAULT_LIMIT : 0;
+    }
 }
@@ -0,0 +1,54 @@
+package org.openmrs.module.appointments.model;
+
+import org.openmrs.api.APIException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position of an appointment in the (startDateTime, appointmentId) order of a search. Clients get it as an opaque
+ * token and send it back to fetch the appointments that follow.
+ */
+public final class AppointmentSearchToken {
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = ":";
+
+    private final Date startDateTime;
+    private final Integer appointmentId;
+
+    public AppointmentSearchToken(Date startDateTime, Integer appointmentId) {
+        this.startDateTime = startDateTime;
+        this.appointmentId = appointmentId;
+    }
+
+    public static AppointmentSearchToken after(Appointment appointment) {
+        return new AppointmentSearchToken(appointment.getStartDateTime(), appointment.getAppointmentId());
+    }
+
+    public static AppointmentSearchToken decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR);
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new APIException("Invalid continuation token");
+            }
+            return new AppointmentSearchToken(new Date(Long.parseLong(parts[1])), Integer.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new APIException("Invalid continuation token", e);
+        }
+    }
+
+    public String encode() {
+        String token = VERSION + SEPARATOR + startDateTime.getTime() + SEPARATOR + appointmentId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Date getStartDateTime() {
+        return startDateTime;
+    }
+
+    public Integer getAppointmentId() {
+        return appointmentId;
+    }
+}
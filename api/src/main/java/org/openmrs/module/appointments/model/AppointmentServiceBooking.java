@@ -0,0 +1,31 @@
+package org.openmrs.module.appointments.model;
+
+import java.util.Date;
+
+/**
+ * The time an appointment takes up in a service, read without loading the appointment.
+ */
+public class AppointmentServiceBooking {
+
+    private String appointmentServiceUuid;
+    private Date startDateTime;
+    private Date endDateTime;
+
+    public AppointmentServiceBooking(String appointmentServiceUuid, Date startDateTime, Date endDateTime) {
+        this.appointmentServiceUuid = appointmentServiceUuid;
+        this.startDateTime = startDateTime;
+        this.endDateTime = endDateTime;
+    }
+
+    public String getAppointmentServiceUuid() {
+        return appointmentServiceUuid;
+    }
+
+    public Date getStartDateTime() {
+        return startDateTime;
+    }
+
+    public Date getEndDateTime() {
+        return endDateTime;
+    }
+}
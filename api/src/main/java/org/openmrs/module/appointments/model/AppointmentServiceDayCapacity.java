@@ -0,0 +1,55 @@
+package org.openmrs.module.appointments.model;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Number of places taken of a service on a day. Bookings take a place with a conditional update of the row, which
+ * also serializes the bookings of one service and day, and the count is recounted from the appointments when full.
+ */
+public class AppointmentServiceDayCapacity implements Serializable {
+
+    private Integer appointmentServiceId;
+
+    private Date appointmentDate;
+
+    private Integer bookedCount;
+
+    public Integer getAppointmentServiceId() {
+        return appointmentServiceId;
+    }
+
+    public void setAppointmentServiceId(Integer appointmentServiceId) {
+        this.appointmentServiceId = appointmentServiceId;
+    }
+
+    public Date getAppointmentDate() {
+        return appointmentDate;
+    }
+
+    public void setAppointmentDate(Date appointmentDate) {
+        this.appointmentDate = appointmentDate;
+    }
+
+    public Integer getBookedCount() {
+        return bookedCount;
+    }
+
+    public void setBookedCount(Integer bookedCount) {
+        this.bookedCount = bookedCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AppointmentServiceDayCapacity)) return false;
+        AppointmentServiceDayCapacity that = (AppointmentServiceDayCapacity) o;
+        return Objects.equals(appointmentServiceId, that.appointmentServiceId) && Objects.equals(appointmentDate, that.appointmentDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(appointmentServiceId, appointmentDate);
+    }
+}
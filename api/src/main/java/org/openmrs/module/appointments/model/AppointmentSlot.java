@@ -0,0 +1,28 @@
+package org.openmrs.module.appointments.model;
+
+import java.util.Date;
+
+public class AppointmentSlot {
+
+    private String appointmentServiceUuid;
+    private Date startDateTime;
+    private Date endDateTime;
+
+    public AppointmentSlot(String appointmentServiceUuid, Date startDateTime, Date endDateTime) {
+        this.appointmentServiceUuid = appointmentServiceUuid;
+        this.startDateTime = startDateTime;
+        this.endDateTime = endDateTime;
+    }
+
+    public String getAppointmentServiceUuid() {
+        return appointmentServiceUuid;
+    }
+
+    public Date getStartDateTime() {
+        return startDateTime;
+    }
+
+    public Date getEndDateTime() {
+        return endDateTime;
+    }
+}
@@ -0,0 +1,39 @@
+package org.openmrs.module.appointments.model;
+
+import java.util.Date;
+
+public class DailyAppointmentServiceCount {
+
+    private String appointmentServiceUuid;
+    private Date appointmentDate;
+    private int allAppointmentsCount;
+    private int missedAppointmentsCount;
+
+    public DailyAppointmentServiceCount(String appointmentServiceUuid, Date appointmentDate) {
+        this.appointmentServiceUuid = appointmentServiceUuid;
+        this.appointmentDate = appointmentDate;
+    }
+
+    public String getAppointmentServiceUuid() {
+        return appointmentServiceUuid;
+    }
+
+    public Date getAppointmentDate() {
+        return appointmentDate;
+    }
+
+    public int getAllAppointmentsCount() {
+        return allAppointmentsCount;
+    }
+
+    public int getMissedAppointmentsCount() {
+        return missedAppointmentsCount;
+    }
+
+    public void addAppointments(AppointmentStatus status, int count) {
+        allAppointmentsCount += count;
+        if (AppointmentStatus.Missed.equals(status)) {
+            missedAppointmentsCount += count;
+        }
+    }
+}
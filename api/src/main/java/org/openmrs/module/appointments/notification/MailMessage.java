@@ -0,0 +1,37 @@
+package org.openmrs.module.appointments.notification;
+
+public class MailMessage {
+    private final String subject;
+    private final String body;
+    private final String[] to;
+    private final String[] cc;
+    private final String[] bcc;
+
+    public MailMessage(String subject, String body, String[] to, String[] cc, String[] bcc) {
+        this.subject = subject;
+        this.body = body;
+        this.to = to;
+        this.cc = cc;
+        this.bcc = bcc;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public String[] getTo() {
+        return to;
+    }
+
+    public String[] getCc() {
+        return cc;
+    }
+
+    public String[] getBcc() {
+        return bcc;
+    }
+}
@@ -1,5 +1,26 @@
 package org.openmrs.module.appointments.notification;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface MailSender {
     void send(String subject, String body, String[] to, String[] cc, String[] bcc);
+
+    /**
+     * Sends all the messages, carrying on past the ones that fail. Implementations should send them over one
+     * connection; this default sends them one by one.
+     *
+     * @return the messages that could not be sent
+     */
+    default List<MailMessage> send(List<MailMessage> messages) {
+        List<MailMessage> failedMessages = new ArrayList<>();
+        for (MailMessage message : messages) {
+            try {
+                send(message.getSubject(), message.getBody(), message.getTo(), message.getCc(), message.getBcc());
+            } catch (RuntimeException e) {
+                failedMessages.add(message);
+            }
+        }
+        return failedMessages;
+    }
 }
@@ -4,6 +4,7 @@ public class NotificationResult {
     public static int SUCCESS_STATUS = 0;
     public static int GENERAL_ERROR = 1;
     public static int IGNORED = 2;
+    public static int QUEUED = 3;
     private String uuid;
     private String medium;
     private int status = SUCCESS_STATUS;
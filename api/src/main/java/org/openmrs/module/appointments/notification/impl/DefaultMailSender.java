@@ -4,14 +4,18 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.api.AdministrationService;
+import org.openmrs.module.appointments.notification.MailMessage;
 import org.openmrs.module.appointments.notification.MailSender;
 import org.openmrs.util.OpenmrsUtil;
+import org.springframework.beans.factory.DisposableBean;
 
 import javax.mail.Address;
 import javax.mail.Authenticator;
 import javax.mail.Message;
+import javax.mail.MessagingException;
 import javax.mail.Multipart;
 import javax.mail.PasswordAuthentication;
+import javax.mail.SendFailedException;
 import javax.mail.Session;
 import javax.mail.Transport;
 import javax.mail.internet.AddressException;
@@ -23,13 +27,17 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Properties;
 
-public class DefaultMailSender implements MailSender {
+public class DefaultMailSender implements MailSender, DisposableBean {
     private static final String EMAIL_PROPERTIES_FILENAME = "mail-config.properties";
     private Log log = LogFactory.getLog(this.getClass());
     private volatile Session session = null;
+    private volatile SmtpTransportPool transportPool = null;
 
     private AdministrationService administrationService;
 
@@ -40,34 +48,99 @@ public class DefaultMailSender implements MailSender {
     @Override
     public void send(String subject, String bodyText, String[] to, String[] cc, String[] bcc) {
         try {
-            MimeMessage mail = new MimeMessage(getSession());
-            mail.setFrom(new InternetAddress(this.administrationService.getGlobalProperty("mail.from", "")));
-            Address[] toAddresses = new Address[1];
-            toAddresses[0] = new InternetAddress(to[0]);
-            mail.setRecipients(Message.RecipientType.TO, getAddresses(to));
-            if (cc != null && cc.length > 0) {
-                mail.setRecipients(Message.RecipientType.CC, getAddresses(cc));
-            }
-            if (bcc != null && bcc.length > 0) {
-                mail.setRecipients(Message.RecipientType.BCC, getAddresses(bcc));
+            MimeMessage mail = createMessage(new MailMessage(subject, bodyText, to, cc, bcc));
+            Transport transport = getTransportPool().borrow();
+            try {
+                transport.sendMessage(mail, mail.getAllRecipients());
+            } catch (SendFailedException e) {
+                getTransportPool().release(transport);
+                throw e;
+            } catch (MessagingException e) {
+                getTransportPool().discard(transport);
+                throw e;
             }
-            mail.setSubject(subject);
-            mail.setSentDate(new Date());
-
-            MimeBodyPart mimeBodyPart = new MimeBodyPart();
-            //TODO: might need to read from GP mail.default_content_type
-            //mail.setContent(bodyText, "text/html;charset=utf-8");
-            mimeBodyPart.setContent(bodyText, "text/html");
-            Multipart multipart = new MimeMultipart();
-            multipart.addBodyPart(mimeBodyPart);
-            mail.setContent(multipart);
-            Transport.send(mail);
+            getTransportPool().release(transport);
         }
         catch (Exception e) {
             throw new RuntimeException("Error occurred while sending email", e);
         }
     }
 
+    /**
+     * Sends the messages one after the other over a single pooled connection. A message the server refuses does
+     * not stop the rest; if the connection itself breaks, the remaining messages go over a new one.
+     */
+    @Override
+    public List<MailMessage> send(List<MailMessage> messages) {
+        List<MailMessage> failedMessages = new ArrayList<>();
+        Transport transport = null;
+        for (MailMessage message : messages) {
+            try {
+                MimeMessage mail = createMessage(message);
+                if (transport == null) {
+                    transport = getTransportPool().borrow();
+                }
+                transport.sendMessage(mail, mail.getAllRecipients());
+            } catch (SendFailedException | AddressException e) {
+                log.error("Could not send email to " + Arrays.toString(message.getTo()), e);
+                failedMessages.add(message);
+            } catch (MessagingException e) {
+                log.error("Could not send email to " + Arrays.toString(message.getTo()), e);
+                failedMessages.add(message);
+                if (transport != null) {
+                    getTransportPool().discard(transport);
+                    transport = null;
+                }
+            }
+        }
+        if (transport != null) {
+            getTransportPool().release(transport);
+        }
+        return failedMessages;
+    }
+
+    private MimeMessage createMessage(MailMessage message) throws MessagingException {
+        MimeMessage mail = new MimeMessage(getSession());
+        mail.setFrom(new InternetAddress(this.administrationService.getGlobalProperty("mail.from", "")));
+        mail.setRecipients(Message.RecipientType.TO, getAddresses(message.getTo()));
+        if (message.getCc() != null && message.getCc().length > 0) {
+            mail.setRecipients(Message.RecipientType.CC, getAddresses(message.getCc()));
+        }
+        if (message.getBcc() != null && message.getBcc().length > 0) {
+            mail.setRecipients(Message.RecipientType.BCC, getAddresses(message.getBcc()));
+        }
+        mail.setSubject(message.getSubject());
+        mail.setSentDate(new Date());
+
+        MimeBodyPart mimeBodyPart = new MimeBodyPart();
+        //TODO: might need to read from GP mail.default_content_type
+        //mail.setContent(bodyText, "text/html;charset=utf-8");
+        mimeBodyPart.setContent(message.getBody(), "text/html");
+        Multipart multipart = new MimeMultipart();
+        multipart.addBodyPart(mimeBodyPart);
+        mail.setContent(multipart);
+        mail.saveChanges();
+        return mail;
+    }
+
+    private SmtpTransportPool getTransportPool() {
+        if (transportPool == null) {
+            synchronized (this) {
+                if (transportPool == null) {
+                    transportPool = new SmtpTransportPool(getSession());
+                }
+            }
+        }
+        return transportPool;
+    }
+
+    @Override
+    public void destroy() {
+        if (transportPool != null) {
+            transportPool.close();
+        }
+    }
+
     private Address[] getAddresses(String[] addrs) throws AddressException {
         if (addrs != null && addrs.length > 0) {
             Address[] addresses = new Address[addrs.length];
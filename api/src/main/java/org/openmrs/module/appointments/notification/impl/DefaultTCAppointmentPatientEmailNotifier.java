@@ -5,6 +5,8 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.Patient;
 import org.openmrs.PersonAttribute;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.config.AppointmentsConfiguration;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
 import org.openmrs.module.appointments.model.AppointmentKind;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.notification.AppointmentEventNotifier;
@@ -15,15 +17,14 @@ import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentProvider;
 import org.openmrs.util.LocaleUtility;
 
-import java.text.MessageFormat;
 import java.util.Date;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.openmrs.module.appointments.config.AppointmentsConfiguration.PATIENT_EMAIL_SUBJECT;
+import static org.openmrs.module.appointments.config.AppointmentsConfiguration.PATIENT_EMAIL_TEMPLATE;
+
 public class DefaultTCAppointmentPatientEmailNotifier implements AppointmentEventNotifier {
-    private final static String PROP_PATIENT_EMAIL_SUBJECT = "bahmni.appointment.teleConsultation.patientEmailNotificationSubject";
-    private final static String PROP_PATIENT_EMAIL_TEMPLATE = "bahmni.appointment.teleConsultation.patientEmailNotificationTemplate";
-    private final static String PROP_SEND_TC_APPT_EMAIL = "bahmni.appointment.teleConsultation.sendEmail";
 
     private static final String EMAIL_NOT_CONFIGURED = "Notification can not be sent to patient. Email address not configured.";
     private static final String EMAIL_SENT = "Email sent to Patient";
@@ -33,6 +34,7 @@ public class DefaultTCAppointmentPatientEmailNotifier implements AppointmentEven
 
     private Log log = LogFactory.getLog(this.getClass());
     private MailSender mailSender;
+    private AppointmentsConfigurationProvider appointmentsConfigurationProvider;
 
     public DefaultTCAppointmentPatientEmailNotifier() {}
     public DefaultTCAppointmentPatientEmailNotifier(MailSender mailSender) {
@@ -80,12 +82,11 @@ public class DefaultTCAppointmentPatientEmailNotifier implements AppointmentEven
     }
 
     private boolean shouldSendEmailToPatient() {
-        String shouldSendEmail = Context.getAdministrationService().getGlobalProperty(PROP_SEND_TC_APPT_EMAIL, "false");
-        return Boolean.valueOf(shouldSendEmail);
+        return appointmentsConfigurationProvider.get().shouldSendTeleconsultationEmail();
     }
 
     private String getEmailBody(String patientName, AppointmentServiceDefinition service, Set<AppointmentProvider> providers, Date appointmentDate, String link) {
-        String emailTemplate = Context.getAdministrationService().getGlobalProperty(PROP_PATIENT_EMAIL_TEMPLATE);
+        AppointmentsConfiguration configuration = appointmentsConfigurationProvider.get();
         String practitioners =
                 providers != null ?
                         providers.stream()
@@ -93,21 +94,25 @@ public class DefaultTCAppointmentPatientEmailNotifier implements AppointmentEven
                                 .collect(Collectors.joining(","))
                         : "";
         Object[] arguments = {patientName, practitioners, appointmentDate, link};
-        if (emailTemplate == null || "".equals(emailTemplate)) {
-            return Context.getMessageSourceService().getMessage(PROP_PATIENT_EMAIL_TEMPLATE, arguments, LocaleUtility.getDefaultLocale());
+        if (!configuration.hasPatientEmailTemplate()) {
+            return Context.getMessageSourceService().getMessage(PATIENT_EMAIL_TEMPLATE, arguments, LocaleUtility.getDefaultLocale());
         } else {
-            return new MessageFormat(emailTemplate).format(arguments);
+            return configuration.formatPatientEmail(arguments);
         }
     }
 
     private String getEmailSubject() {
-        String emailSubject = Context.getAdministrationService().getGlobalProperty(PROP_PATIENT_EMAIL_SUBJECT);
-        if (emailSubject == null || "".equals(emailSubject)) {
-            emailSubject = Context.getMessageSourceService().getMessage(PROP_PATIENT_EMAIL_SUBJECT, null, LocaleUtility.getDefaultLocale());
+        String emailSubject = appointmentsConfigurationProvider.get().getPatientEmailSubject();
+        if (emailSubject == null) {
+            emailSubject = Context.getMessageSourceService().getMessage(PATIENT_EMAIL_SUBJECT, null, LocaleUtility.getDefaultLocale());
         }
         return emailSubject;
     }
 
+    public void setAppointmentsConfigurationProvider(AppointmentsConfigurationProvider appointmentsConfigurationProvider) {
+        this.appointmentsConfigurationProvider = appointmentsConfigurationProvider;
+    }
+
     public void setMailSender(MailSender mailSender) {
         log.warn("Replacing default MailSender: " + this.mailSender + ", with:" + mailSender);
         this.mailSender = mailSender;
@@ -0,0 +1,146 @@
+package org.openmrs.module.appointments.notification.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps connected mail transports for reuse, so a message does not pay for a new connection, TLS handshake and
+ * login each time. A transport is only used by one thread at a time. Transports left idle longer than the idle
+ * timeout are closed by a background evictor, before the server drops them on its side.
+ */
+class SmtpTransportPool implements AutoCloseable {
+
+    static final int DEFAULT_MAX_IDLE = 4;
+    static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    private Log log = LogFactory.getLog(this.getClass());
+
+    private final Session session;
+    private final int maxIdle;
+    private final long idleTimeoutMillis;
+    private final Deque<IdleTransport> idleTransports = new ArrayDeque<>();
+    private ScheduledExecutorService evictor;
+    private boolean closed;
+
+    SmtpTransportPool(Session session) {
+        this(session, DEFAULT_MAX_IDLE, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    SmtpTransportPool(Session session, int maxIdle, long idleTimeoutMillis) {
+        this.session = session;
+        this.maxIdle = maxIdle;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Returns the most recently used idle transport that is still connected, or a newly connected one.
+     */
+    Transport borrow() throws MessagingException {
+        synchronized (this) {
+            IdleTransport idle;
+            while ((idle = idleTransports.pollFirst()) != null) {
+                if (idle.transport.isConnected()) {
+                    return idle.transport;
+                }
+            }
+        }
+        Transport transport = session.getTransport();
+        transport.connect();
+        return transport;
+    }
+
+    /**
+     * Takes back a transport that worked, keeping it for reuse unless enough are idle already.
+     */
+    void release(Transport transport) {
+        synchronized (this) {
+            if (!closed && idleTransports.size() < maxIdle && transport.isConnected()) {
+                idleTransports.addFirst(new IdleTransport(transport, System.currentTimeMillis()));
+                startEvictor();
+                return;
+            }
+        }
+        closeQuietly(transport);
+    }
+
+    /**
+     * Closes a transport that failed, instead of returning it to the pool.
+     */
+    void discard(Transport transport) {
+        closeQuietly(transport);
+    }
+
+    synchronized int getIdleCount() {
+        return idleTransports.size();
+    }
+
+    void evictIdle() {
+        long idleSince = System.currentTimeMillis() - idleTimeoutMillis;
+        Deque<Transport> evicted = new ArrayDeque<>();
+        synchronized (this) {
+            Iterator<IdleTransport> iterator = idleTransports.iterator();
+            while (iterator.hasNext()) {
+                IdleTransport idle = iterator.next();
+                if (idle.releasedAt <= idleSince) {
+                    iterator.remove();
+                    evicted.add(idle.transport);
+                }
+            }
+        }
+        evicted.forEach(this::closeQuietly);
+    }
+
+    private void startEvictor() {
+        if (evictor == null) {
+            evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "appointment-mail-transport-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(idleTimeoutMillis / 2, 1);
+            evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Could not close mail transport", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        Deque<IdleTransport> remaining;
+        synchronized (this) {
+            closed = true;
+            if (evictor != null) {
+                evictor.shutdownNow();
+            }
+            remaining = new ArrayDeque<>(idleTransports);
+            idleTransports.clear();
+        }
+        remaining.forEach(idle -> closeQuietly(idle.transport));
+    }
+
+    private static class IdleTransport {
+        private final Transport transport;
+        private final long releasedAt;
+
+        private IdleTransport(Transport transport, long releasedAt) {
+            this.transport = transport;
+            this.releasedAt = releasedAt;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.openmrs.module.appointments.numbering;
+
+import org.openmrs.module.appointments.model.Appointment;
+
+public interface AppointmentNumberGenerator {
+
+    /**
+     * Returns a new number for the appointment, unique among those handed out for the same prefix. Called for
+     * every appointment being booked, so it should not wait on other bookings.
+     */
+    String generateAppointmentNumber(Appointment appointment);
+}
@@ -0,0 +1,125 @@
+package org.openmrs.module.appointments.numbering.impl;
+
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
+import org.openmrs.module.appointments.dao.AppointmentNumberBlockDao;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.numbering.AppointmentNumberGenerator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Numbers appointments from blocks of sequence values reserved in the database (hi/lo). Each node reserves a
+ * whole block in a short transaction of its own and hands the values out from memory, so only one booking in a
+ * block touches the sequence row. Values left in a block when the node stops are skipped, so numbers are unique
+ * and increasing per node but may have gaps.
+ * <p>
+ * Depending on the {@code bahmni.appointment.appointmentNumberPrefix} global property, numbers are prefixed with
+ * the id of the appointment service ("service") or the day of the appointment ("day"), each prefix counting on
+ * its own sequence; by default ("none") there is no prefix. Each sequence reserves its blocks under a lock of its
+ * own, and only the most recently used sequences are kept, so a new one every day does not pile up.
+ */
+public class HiLoAppointmentNumberGenerator implements AppointmentNumberGenerator {
+
+    static final String SEQUENCE_NAME = "appointment";
+    static final String SERVICE_PREFIX = "service";
+    static final String DAY_PREFIX = "day";
+    static final int MAX_SEQUENCES = 1000;
+    private static final int DEFAULT_BLOCK_SIZE = 50;
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final Map<String, Sequence> sequences = Collections.synchronizedMap(
+            new LinkedHashMap<String, Sequence>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Sequence> eldest) {
+                    return size() > MAX_SEQUENCES;
+                }
+            });
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+
+    private AppointmentNumberBlockDao appointmentNumberBlockDao;
+    private AppointmentsConfigurationProvider appointmentsConfigurationProvider;
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public String generateAppointmentNumber(Appointment appointment) {
+        String prefix = getPrefix(appointment);
+        String sequenceName = prefix == null ? SEQUENCE_NAME : SEQUENCE_NAME + "-" + prefix;
+        String number = String.format("%05d", nextValue(sequenceName));
+        return prefix == null ? number : prefix + "-" + number;
+    }
+
+    private String getPrefix(Appointment appointment) {
+        switch (appointmentsConfigurationProvider.get().getAppointmentNumberPrefix()) {
+            case SERVICE_PREFIX:
+                return appointment.getService() != null && appointment.getService().getAppointmentServiceId() != null
+                        ? String.valueOf(appointment.getService().getAppointmentServiceId()) : null;
+            case DAY_PREFIX:
+                return appointment.getStartDateTime() != null
+                        ? appointment.getStartDateTime().toInstant().atZone(ZoneId.systemDefault()).format(DAY_FORMAT) : null;
+            default:
+                return null;
+        }
+    }
+
+    long nextValue(String sequenceName) {
+        Sequence sequence = sequences.computeIfAbsent(sequenceName, name -> new Sequence());
+        while (true) {
+            Block block = sequence.block;
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value < block.end) {
+                    return value;
+                }
+            }
+            synchronized (sequence) {
+                if (sequence.block == block) {
+                    long start = reserveBlock(sequenceName);
+                    sequence.block = new Block(start, start + blockSize);
+                }
+            }
+        }
+    }
+
+    private long reserveBlock(String sequenceName) {
+        return transactionTemplate.execute(status -> appointmentNumberBlockDao.reserveBlock(sequenceName, blockSize));
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    public void setAppointmentNumberBlockDao(AppointmentNumberBlockDao appointmentNumberBlockDao) {
+        this.appointmentNumberBlockDao = appointmentNumberBlockDao;
+    }
+
+    public void setAppointmentsConfigurationProvider(AppointmentsConfigurationProvider appointmentsConfigurationProvider) {
+        this.appointmentsConfigurationProvider = appointmentsConfigurationProvider;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    private static class Sequence {
+        private volatile Block block;
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -1,43 +1,36 @@
 package org.openmrs.module.appointments.scheduler.tasks;
 
-import org.openmrs.GlobalProperty;
-import org.openmrs.api.AdministrationService;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.openmrs.api.context.Context;
-import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.config.AppointmentsConfiguration;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
+import org.openmrs.module.appointments.model.AppointmentBulkStatusChangeResult;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.scheduler.tasks.AbstractTask;
 
+import java.util.Collections;
 import java.util.Date;
-import java.util.List;
-import java.util.stream.Collectors;
 
 public class MarkAppointmentAsCompleteTask extends AbstractTask {
 
+    private Log log = LogFactory.getLog(this.getClass());
+
     @Override
     public void execute() {
         AppointmentsService appointmentsService = Context.getService(AppointmentsService.class);
-        AdministrationService administrationService = Context.getService(AdministrationService.class);
-        GlobalProperty schedulerMarksCompleteProperty = administrationService.getGlobalPropertyObject("SchedulerMarksComplete");
-        Boolean schedulerMarksComplete = Boolean.valueOf(schedulerMarksCompleteProperty.getPropertyValue());
+        AppointmentsConfiguration configuration = Context.getRegisteredComponents(AppointmentsConfigurationProvider.class).get(0).get();
 
-        if (!schedulerMarksComplete) {
+        if (!configuration.schedulerMarksComplete()) {
             return;
         }
 
         Date today = new Date();
-        List<Appointment> appointments = appointmentsService.getAllAppointmentsInDateRange(null, today);
-        List<Appointment> scheduledAndCheckedInAppointments = appointments.stream()
-                .filter(appointment -> isAppointmentCheckedIn(appointment))
-                .collect(Collectors.toList());
-        for (Appointment appointment : scheduledAndCheckedInAppointments) {
-            String status = AppointmentStatus.Completed.toString();
-            appointmentsService.changeStatus(appointment, status, today);
-        }
-    }
-
-    private boolean isAppointmentCheckedIn(Appointment appointment) {
-        return appointment.getStatus().equals(AppointmentStatus.CheckedIn);
+        AppointmentBulkStatusChangeResult result = appointmentsService.changeStatusInBulk(null, today,
+                Collections.singletonList(AppointmentStatus.CheckedIn), AppointmentStatus.Completed.toString(), today);
+        result.getFailures().forEach((appointmentUuid, error) ->
+                log.warn(String.format("Could not mark appointment %s as completed: %s", appointmentUuid, error)));
     }
 
 }
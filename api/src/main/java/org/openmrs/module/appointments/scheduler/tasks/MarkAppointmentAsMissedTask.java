@@ -1,48 +1,39 @@
 package org.openmrs.module.appointments.scheduler.tasks;
 
-import org.openmrs.GlobalProperty;
-import org.openmrs.api.AdministrationService;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.openmrs.api.context.Context;
-import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.config.AppointmentsConfiguration;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
+import org.openmrs.module.appointments.model.AppointmentBulkStatusChangeResult;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.scheduler.tasks.AbstractTask;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class MarkAppointmentAsMissedTask extends AbstractTask {
 
+    private Log log = LogFactory.getLog(this.getClass());
+
     @Override
     public void execute() {
         AppointmentsService appointmentsService = Context.getService(AppointmentsService.class);
-        AdministrationService administrationService = Context.getService(AdministrationService.class);
-        GlobalProperty schedulerMarksMissedProperty = administrationService.getGlobalPropertyObject("SchedulerMarksMissed");
-        Boolean schedulerMarksMissed = Boolean.valueOf(schedulerMarksMissedProperty.getPropertyValue());
-        if (!schedulerMarksMissed){
+        AppointmentsConfiguration configuration = Context.getRegisteredComponents(AppointmentsConfigurationProvider.class).get(0).get();
+        if (!configuration.schedulerMarksMissed()){
            return;
         }
-        GlobalProperty schedulerMarksCompleteProperty = administrationService.getGlobalPropertyObject("SchedulerMarksComplete");
-        Boolean schedulerMarksComplete = Boolean.valueOf(schedulerMarksCompleteProperty.getPropertyValue());
         Date today = new Date();
-        List<Appointment> appointments = appointmentsService.getAllAppointmentsInDateRange(null, today);
-        List<Appointment> scheduledAndCheckedInAppointments = appointments.stream()
-                .filter(appointment -> isAppointmentScheduled(appointment) || isAppointmentCheckedIn(appointment))
-                .collect(Collectors.toList());
-        for (Appointment appointment : scheduledAndCheckedInAppointments) {
-            String status = AppointmentStatus.Missed.toString();
-            if ((!schedulerMarksComplete && appointment.getStatus().equals(AppointmentStatus.CheckedIn)) || appointment.getStatus().equals(AppointmentStatus.Scheduled)) {
-                appointmentsService.changeStatus(appointment, status, today);
-            }
+        List<AppointmentStatus> statusesToMarkAsMissed = new ArrayList<>();
+        statusesToMarkAsMissed.add(AppointmentStatus.Scheduled);
+        if (!configuration.schedulerMarksComplete()) {
+            statusesToMarkAsMissed.add(AppointmentStatus.CheckedIn);
         }
-    }
-
-    private boolean isAppointmentCheckedIn(Appointment appointment) {
-        return appointment.getStatus().equals(AppointmentStatus.CheckedIn);
-    }
-
-    private boolean isAppointmentScheduled(Appointment appointment) {
-        return appointment.getStatus().equals(AppointmentStatus.Scheduled);
+        AppointmentBulkStatusChangeResult result = appointmentsService.changeStatusInBulk(null, today, statusesToMarkAsMissed,
+                AppointmentStatus.Missed.toString(), today);
+        result.getFailures().forEach((appointmentUuid, error) ->
+                log.warn(String.format("Could not mark appointment %s as missed: %s", appointmentUuid, error)));
     }
 }
@@ -4,6 +4,7 @@ package org.openmrs.module.appointments.service;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
+import org.openmrs.module.appointments.model.AppointmentSlot;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
@@ -26,6 +27,15 @@ public interface AppointmentServiceDefinitionService {
     @Authorized({VIEW_APPOINTMENTS_SERVICE, MANAGE_APPOINTMENTS_SERVICE})
     AppointmentServiceDefinition getAppointmentServiceByUuid(String uuid);
 
+    /**
+     * Returns the service in the current session, resolving its uuid through an in-process cache of service ids,
+     * which is invalidated when the service is saved or voided. Lookups of the same service within a session
+     * share one instance, use {@link #getAppointmentServiceByUuid(String)} to load a detached service for editing.
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS_SERVICE, MANAGE_APPOINTMENTS_SERVICE})
+    AppointmentServiceDefinition getCachedAppointmentServiceByUuid(String uuid);
+
     @Transactional
     @Authorized({MANAGE_APPOINTMENTS_SERVICE})
     AppointmentServiceDefinition voidAppointmentService(AppointmentServiceDefinition appointmentServiceDefinition, String voidReason);
@@ -37,5 +47,17 @@ public interface AppointmentServiceDefinitionService {
     @Transactional
     @Authorized({VIEW_APPOINTMENTS_SERVICE, MANAGE_APPOINTMENTS_SERVICE})
     Integer calculateCurrentLoad(AppointmentServiceDefinition appointmentServiceDefinition, Date startDateTime, Date endDateTime);
+
+    /**
+     * Returns the free slots between the two times of the given service, or of every service when it is null,
+     * from the weekly availability, duration and appointment limits of the services and the appointments already
+     * booked, read in one query. Slots are as long as the given service type, else the service duration, and
+     * take up to {@code capacity} overlapping appointments. A service type must come with the service it belongs to,
+     * and the two times must be at most 31 days apart.
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS_SERVICE, MANAGE_APPOINTMENTS_SERVICE})
+    List<AppointmentSlot> getAvailableSlots(AppointmentServiceDefinition appointmentServiceDefinition, AppointmentServiceType appointmentServiceType,
+                                            Date startDateTime, Date endDateTime, int capacity);
 }
 
@@ -3,17 +3,23 @@ package org.openmrs.module.appointments.service;
 
 import org.openmrs.annotation.Authorized;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBulkStatusChangeResult;
+import org.openmrs.module.appointments.model.AppointmentFilter;
 import org.openmrs.module.appointments.model.AppointmentProvider;
 import org.openmrs.module.appointments.model.AppointmentSearchRequest;
+import org.openmrs.module.appointments.model.AppointmentServiceBooking;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.DailyAppointmentServiceCount;
 import org.openmrs.module.appointments.validator.AppointmentValidator;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import static org.openmrs.module.appointments.constants.PrivilegeConstants.MANAGE_APPOINTMENTS;
@@ -30,10 +36,38 @@ public interface AppointmentsService {
     @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
     List<Appointment> getAllAppointments(Date forDate);
 
+    /**
+     * Appointments created, changed or voided after the given time, so that clients holding the appointments of a day
+     * can apply only what changed. Voided appointments are returned to let clients drop them, and appointments of
+     * any day, as one moved off the day a client holds is no longer found by its dates. At most limit appointments
+     * are returned, in the order of their last change and id, so a full page is continued from its last appointment.
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
+    List<Appointment> getAppointmentsChangedSince(Date since, Integer sinceAppointmentId, int limit);
+
+    /**
+     * Applies the action to every appointment {@link #getAllAppointments(Date)} would return, one at a time, in a single
+     * read only transaction. Appointments are loaded in chunks with their associations prefetched, and earlier chunks
+     * are detached as the walk proceeds, so memory stays flat.
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
+    void forEachAppointment(Date forDate, Consumer<Appointment> action);
+
+    /**
+     * @deprecated matches only the patient, service, service type, location, provider, status and kind of the given
+     * appointment, use {@link #search(AppointmentFilter)}
+     */
+    @Deprecated
     @Transactional
     @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
     List<Appointment> search(Appointment appointment);
 
+    @Transactional
+    @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
+    List<Appointment> search(AppointmentFilter appointmentFilter);
+
     @Transactional
     @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
     List<Appointment> getAllFutureAppointmentsForService(AppointmentServiceDefinition appointmentServiceDefinition);
@@ -46,6 +80,29 @@ public interface AppointmentsService {
     @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
     List<Appointment> getAppointmentsForService(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList);
 
+    @Transactional
+    @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
+    long getAppointmentsCountForService(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList);
+
+    /**
+     * Appointment counts of every non-voided service for each day in the date range having appointments.
+     * @param startDate
+     * @param endDate
+     * @param appointmentStatusList
+     * @return daily counts ordered by service and date
+     */
+    @Transactional
+    @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
+    List<DailyAppointmentServiceCount> getDailyAppointmentServiceCounts(Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList);
+
+    /**
+     * Returns the times of the appointments overlapping the range, of the given service or of all services when
+     * it is null, read in one query.
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
+    List<AppointmentServiceBooking> getAppointmentServiceBookings(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList);
+
     @Transactional
     @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
     Appointment getAppointmentByUuid(String uuid);
@@ -54,6 +111,32 @@ public interface AppointmentsService {
     @Authorized({MANAGE_APPOINTMENTS, MANAGE_OWN_APPOINTMENTS})
     void changeStatus(Appointment appointment, String status, Date onDate);
 
+    /**
+     * Moves all appointments in the date range having one of the given statuses to the new status.
+     * Status change validators run in memory, the update and audits are then written set based per chunk.
+     * Each chunk is committed on its own with {@link #changeStatusInBulkAfter}, so a long history is neither
+     * locked nor held in memory as a whole, and the chunks committed before a failure stay changed.
+     * Appointments failing validation are left as they are and reported in the result.
+     * @param startDate
+     * @param endDate
+     * @param fromStatusList
+     * @param toStatus
+     * @param onDate
+     * @return uuids of the changed appointments and the failures
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Authorized({MANAGE_APPOINTMENTS})
+    AppointmentBulkStatusChangeResult changeStatusInBulk(Date startDate, Date endDate, List<AppointmentStatus> fromStatusList, String toStatus, Date onDate);
+
+    /**
+     * Moves the next chunk of the appointments changeStatusInBulk walks, those with an id above afterAppointmentId,
+     * to the new status in one transaction.
+     * @return uuids of the changed appointments and the failures, with the id to go on after when there may be more
+     */
+    @Transactional
+    @Authorized({MANAGE_APPOINTMENTS})
+    AppointmentBulkStatusChangeResult changeStatusInBulkAfter(Date startDate, Date endDate, List<AppointmentStatus> fromStatusList, String toStatus, Date onDate, Integer afterAppointmentId);
+
     @Transactional
     @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
     List<Appointment> getAllAppointmentsInDateRange(Date startDate, Date endDate);
@@ -78,12 +161,38 @@ public interface AppointmentsService {
     @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
     List<Appointment> search(AppointmentSearchRequest appointmentSearchRequest);
 
+    /**
+     * Counts all the appointments matching the search, regardless of its limit and continuation token.
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
+    long getSearchCount(AppointmentSearchRequest appointmentSearchRequest);
+
     @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
     Map<Enum, List<Appointment>> getAppointmentConflicts(Appointment appointment);
 
     @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
     Map<Enum, List<Appointment>> getAppointmentsConflicts(List<Appointment> appointments);
 
+    /**
+     * Conflicts of appointments belonging to any number of patients. The existing future appointments of all the
+     * patients are fetched with a single query.
+     * @param appointments
+     * @return conflicts by conflict type, keyed by patient uuid. Patients without conflicts are left out.
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
+    Map<String, Map<Enum, List<Appointment>>> getAppointmentsConflictsForPatients(List<Appointment> appointments);
+
+    /**
+     * Loads what a list response shows of the given appointments, patient names, identifiers and attributes,
+     * providers, services and locations, with a fixed number of queries instead of one per appointment.
+     * @param appointments
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS, MANAGE_APPOINTMENTS})
+    void prefetchAssociations(List<Appointment> appointments);
+
     /**
      * Note, this API is introduced to fix potential error of transaction not being  atomic.
      * Please see comments on the appointmentController.
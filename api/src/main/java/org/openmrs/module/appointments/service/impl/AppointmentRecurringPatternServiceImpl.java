@@ -13,9 +13,9 @@ import org.openmrs.module.appointments.validator.AppointmentValidator;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
@@ -108,11 +108,9 @@ public class AppointmentRecurringPatternServiceImpl implements AppointmentRecurr
     public List<Appointment> changeStatus(Appointment appointment, String status, String clientTimeZone) {
         AppointmentStatus appointmentStatus = AppointmentStatus.valueOf(status);
         appointmentServiceHelper.validateStatusChangeAndGetErrors(appointment, appointmentStatus, statusChangeValidators);
-        String serverTimeZone = Calendar.getInstance().getTimeZone().getID();
-        TimeZone.setDefault(TimeZone.getTimeZone(clientTimeZone));
         List<Appointment> pendingAppointments = getPendingOccurrences(appointment.getUuid(),
-                Arrays.asList(AppointmentStatus.Requested, AppointmentStatus.Scheduled, AppointmentStatus.CheckedIn));
-        TimeZone.setDefault(TimeZone.getTimeZone(serverTimeZone));
+                Arrays.asList(AppointmentStatus.Requested, AppointmentStatus.Scheduled, AppointmentStatus.CheckedIn),
+                TimeZone.getTimeZone(clientTimeZone).toZoneId());
         pendingAppointments.stream()
                 .map(pendingAppointment -> {
                     pendingAppointment.setStatus(appointmentStatus);
@@ -126,8 +124,9 @@ public class AppointmentRecurringPatternServiceImpl implements AppointmentRecurr
 
 
 
-    private List<Appointment> getPendingOccurrences(String appointmentUuid, List<AppointmentStatus> applicableStatusList) {
-        Date startOfDay = getStartOfDay();
+    private List<Appointment> getPendingOccurrences(String appointmentUuid, List<AppointmentStatus> applicableStatusList,
+                                                    ZoneId clientZone) {
+        Date startOfDay = getStartOfDay(clientZone);
         Appointment appointment = appointmentDao.getAppointmentByUuid(appointmentUuid);
         return appointment.getAppointmentRecurringPattern().getAppointments()
                 .stream()
@@ -1,24 +1,48 @@
 package org.openmrs.module.appointments.service.impl;
 
+import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.availability.SlotAvailabilityEngine;
+import org.openmrs.module.appointments.cache.AppointmentServiceDefinitionCache;
+import org.openmrs.module.appointments.cache.AppointmentServiceLoadCache;
+import org.openmrs.module.appointments.cache.ServiceAvailabilityCalendarCache;
 import org.openmrs.module.appointments.dao.AppointmentServiceDao;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentServiceBooking;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
+import org.openmrs.module.appointments.model.AppointmentSlot;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.openmrs.module.appointments.model.ServiceWeeklyAvailability;
 import org.openmrs.module.appointments.service.AppointmentServiceDefinitionService;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
 @Transactional
 public class AppointmentServiceDefinitionServiceImpl implements AppointmentServiceDefinitionService {
 
+    private static final int DEFAULT_SLOT_MINUTES = 15;
+    private static final int MAX_SLOT_SEARCH_DAYS = 31;
+    private static final List<AppointmentStatus> BOOKED_STATUSES = Arrays.asList(AppointmentStatus.Scheduled,
+            AppointmentStatus.CheckedIn, AppointmentStatus.Completed);
+
     AppointmentServiceDao appointmentServiceDao;
 
     AppointmentsService appointmentsService;
 
+    AppointmentServiceLoadCache appointmentServiceLoadCache;
+
+    ServiceAvailabilityCalendarCache serviceAvailabilityCalendarCache;
+
+    AppointmentServiceDefinitionCache appointmentServiceDefinitionCache;
+
     public void setAppointmentServiceDao(AppointmentServiceDao appointmentServiceDao) {
         this.appointmentServiceDao = appointmentServiceDao;
     }
@@ -27,13 +51,30 @@ public class AppointmentServiceDefinitionServiceImpl implements AppointmentServi
         this.appointmentsService = appointmentsService;
     }
 
+    public void setAppointmentServiceLoadCache(AppointmentServiceLoadCache appointmentServiceLoadCache) {
+        this.appointmentServiceLoadCache = appointmentServiceLoadCache;
+    }
+
+    public void setServiceAvailabilityCalendarCache(ServiceAvailabilityCalendarCache serviceAvailabilityCalendarCache) {
+        this.serviceAvailabilityCalendarCache = serviceAvailabilityCalendarCache;
+    }
+
+    public void setAppointmentServiceDefinitionCache(AppointmentServiceDefinitionCache appointmentServiceDefinitionCache) {
+        this.appointmentServiceDefinitionCache = appointmentServiceDefinitionCache;
+    }
+
     @Override
     public AppointmentServiceDefinition save(AppointmentServiceDefinition appointmentServiceDefinition) {
         AppointmentServiceDefinition service = appointmentServiceDao.getNonVoidedAppointmentServiceByName(appointmentServiceDefinition.getName());
         if(service != null && !service.getUuid().equals(appointmentServiceDefinition.getUuid())) {
             throw new RuntimeException("The service '" + appointmentServiceDefinition.getName() + "' is already present");
         }
-        return appointmentServiceDao.save(appointmentServiceDefinition);
+        if (appointmentServiceDefinition.getAppointmentServiceId() != null) {
+            setChangeInfoForService(appointmentServiceDefinition);
+        }
+        AppointmentServiceDefinition savedAppointmentServiceDefinition = appointmentServiceDao.save(appointmentServiceDefinition);
+        evictCachedService(appointmentServiceDefinition);
+        return savedAppointmentServiceDefinition;
     }
 
     @Override
@@ -48,6 +89,12 @@ public class AppointmentServiceDefinitionServiceImpl implements AppointmentServi
         return appointmentServiceDefinition;
     }
 
+    @Override
+    public AppointmentServiceDefinition getCachedAppointmentServiceByUuid(String uuid) {
+        Integer appointmentServiceId = appointmentServiceDefinitionCache.getId(uuid, appointmentServiceDao::getAppointmentServiceIdByUuid);
+        return appointmentServiceId == null ? null : appointmentServiceDao.loadAppointmentService(appointmentServiceId);
+    }
+
     @Override
     public AppointmentServiceDefinition voidAppointmentService(AppointmentServiceDefinition appointmentServiceDefinition, String voidReason) {
         List<Appointment> allFutureAppointmentsForService = appointmentsService.getAllFutureAppointmentsForService(appointmentServiceDefinition);
@@ -55,7 +102,9 @@ public class AppointmentServiceDefinitionServiceImpl implements AppointmentServi
             throw new RuntimeException("Please cancel all future appointments for this service to proceed. After deleting this service, you will not be able to see any appointments for it");
         }
         setVoidInfoForAppointmentService(appointmentServiceDefinition, voidReason);
-        return appointmentServiceDao.save(appointmentServiceDefinition);
+        AppointmentServiceDefinition voidedAppointmentServiceDefinition = appointmentServiceDao.save(appointmentServiceDefinition);
+        evictCachedService(appointmentServiceDefinition);
+        return voidedAppointmentServiceDefinition;
     }
 
     @Override
@@ -66,17 +115,88 @@ public class AppointmentServiceDefinitionServiceImpl implements AppointmentServi
     @Override
     public Integer calculateCurrentLoad(AppointmentServiceDefinition appointmentServiceDefinition, Date startDateTime, Date endDateTime) {
         AppointmentStatus[] includeStatus = new AppointmentStatus[]{AppointmentStatus.CheckedIn, AppointmentStatus.Completed, AppointmentStatus.Scheduled};
-        List<Appointment> appointmentsForService = appointmentsService
-                .getAppointmentsForService(appointmentServiceDefinition, startDateTime, endDateTime, Arrays.asList(includeStatus));
-        return appointmentsForService.size();
+        List<AppointmentStatus> appointmentStatusList = Arrays.asList(includeStatus);
+        return appointmentServiceLoadCache.get(appointmentServiceDefinition, startDateTime, endDateTime, appointmentStatusList,
+                () -> Math.toIntExact(appointmentsService.getAppointmentsCountForService(
+                        appointmentServiceDefinition, startDateTime, endDateTime, appointmentStatusList)));
+    }
+
+    @Override
+    public List<AppointmentSlot> getAvailableSlots(AppointmentServiceDefinition appointmentServiceDefinition, AppointmentServiceType appointmentServiceType,
+                                                   Date startDateTime, Date endDateTime, int capacity) {
+        if (capacity < 1) {
+            throw new APIException("Slot capacity should be at least 1");
+        }
+        if (!startDateTime.before(endDateTime)) {
+            throw new APIException("Start date should be before end date");
+        }
+        if (endDateTime.getTime() - startDateTime.getTime() > TimeUnit.DAYS.toMillis(MAX_SLOT_SEARCH_DAYS)) {
+            throw new APIException("Slots can be searched over at most " + MAX_SLOT_SEARCH_DAYS + " days");
+        }
+        if (appointmentServiceType != null) {
+            if (appointmentServiceDefinition == null) {
+                throw new APIException("Appointment Service should be given with the Appointment Service Type");
+            }
+            AppointmentServiceDefinition typeService = appointmentServiceType.getAppointmentServiceDefinition();
+            if (typeService == null || !typeService.getUuid().equals(appointmentServiceDefinition.getUuid())) {
+                throw new APIException("Appointment Service Type does not belong to the Appointment Service");
+            }
+        }
+        List<AppointmentServiceDefinition> services = appointmentServiceDefinition != null
+                ? Collections.singletonList(appointmentServiceDefinition) : appointmentServiceDao.getAllAppointmentServices(false);
+        Map<String, List<AppointmentServiceBooking>> bookingsByService = appointmentsService
+                .getAppointmentServiceBookings(appointmentServiceDefinition, startDateTime, endDateTime, BOOKED_STATUSES)
+                .stream().collect(Collectors.groupingBy(AppointmentServiceBooking::getAppointmentServiceUuid));
+        SlotAvailabilityEngine slotAvailabilityEngine = new SlotAvailabilityEngine(ZoneId.systemDefault());
+        Date now = new Date();
+        List<AppointmentSlot> slots = new ArrayList<>();
+        for (AppointmentServiceDefinition service : services) {
+            slots.addAll(slotAvailabilityEngine.findAvailableSlots(service.getUuid(), serviceAvailabilityCalendarCache.get(service),
+                    getSlotMinutes(service, appointmentServiceType), capacity, startDateTime, endDateTime, now,
+                    bookingsByService.getOrDefault(service.getUuid(), Collections.emptyList())));
+        }
+        return slots;
+    }
+
+    private int getSlotMinutes(AppointmentServiceDefinition appointmentServiceDefinition, AppointmentServiceType appointmentServiceType) {
+        if (appointmentServiceType != null && appointmentServiceType.getDuration() != null && appointmentServiceType.getDuration() > 0) {
+            return appointmentServiceType.getDuration();
+        }
+        Integer durationMins = appointmentServiceDefinition.getDurationMins();
+        return durationMins != null && durationMins > 0 ? durationMins : DEFAULT_SLOT_MINUTES;
+    }
+
+    private void evictCachedService(AppointmentServiceDefinition appointmentServiceDefinition) {
+        appointmentServiceDefinitionCache.evict(appointmentServiceDefinition);
+        serviceAvailabilityCalendarCache.evict(appointmentServiceDefinition);
+        // a lookup between the eviction and the commit would cache the definition as it was before this change
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    appointmentServiceDefinitionCache.evict(appointmentServiceDefinition);
+                    serviceAvailabilityCalendarCache.evict(appointmentServiceDefinition);
+                }
+            });
+        }
     }
 
     private void setVoidInfoForAppointmentService(AppointmentServiceDefinition appointmentServiceDefinition, String voidReason) {
+        setChangeInfoForService(appointmentServiceDefinition);
         setVoidInfoForService(appointmentServiceDefinition, voidReason);
         setVoidInfoForWeeklyAvailability(appointmentServiceDefinition, voidReason);
         setVoidInfoForServiceTypes(appointmentServiceDefinition, voidReason);
     }
 
+    /**
+     * Cached availability calendars are told apart by the time their service changed, which a change of the weekly
+     * availabilities alone would otherwise leave as it was.
+     */
+    private void setChangeInfoForService(AppointmentServiceDefinition appointmentServiceDefinition) {
+        appointmentServiceDefinition.setDateChanged(new Date());
+        appointmentServiceDefinition.setChangedBy(Context.getAuthenticatedUser());
+    }
+
     private void setVoidInfoForService(AppointmentServiceDefinition appointmentServiceDefinition, String voidReason) {
         appointmentServiceDefinition.setVoided(true);
         appointmentServiceDefinition.setDateVoided(new Date());
@@ -4,38 +4,57 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.Person;
+import org.openmrs.User;
 import org.openmrs.api.APIAuthenticationException;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.cache.AppointmentServiceLoadCache;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
 import org.openmrs.module.appointments.conflicts.AppointmentConflict;
 import org.openmrs.module.appointments.dao.AppointmentAuditDao;
 import org.openmrs.module.appointments.dao.AppointmentDao;
+import org.openmrs.module.appointments.dao.AppointmentServiceDayCapacityDao;
 import org.openmrs.module.appointments.helper.AppointmentServiceHelper;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentAudit;
+import org.openmrs.module.appointments.model.AppointmentBulkStatusChangeResult;
+import org.openmrs.module.appointments.model.AppointmentFilter;
 import org.openmrs.module.appointments.model.AppointmentKind;
 import org.openmrs.module.appointments.model.AppointmentProvider;
 import org.openmrs.module.appointments.model.AppointmentProviderResponse;
 import org.openmrs.module.appointments.model.AppointmentSearchRequest;
+import org.openmrs.module.appointments.model.AppointmentServiceBooking;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.DailyAppointmentServiceCount;
 import org.openmrs.module.appointments.notification.NotificationResult;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.module.appointments.validator.AppointmentStatusChangeValidator;
 import org.openmrs.module.appointments.validator.AppointmentValidator;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -49,6 +68,9 @@ import static org.openmrs.module.appointments.util.DateUtil.getStartOfDay;
 public class AppointmentsServiceImpl implements AppointmentsService {
 
     private static final String PRIVILEGES_EXCEPTION_CODE = "error.privilegesRequired";
+    private static final int APPOINTMENTS_CHUNK_SIZE = 100;
+    private static final List<AppointmentStatus> PLACE_TAKING_STATUSES = Arrays.asList(AppointmentStatus.Scheduled,
+            AppointmentStatus.CheckedIn, AppointmentStatus.Completed);
     private Log log = LogFactory.getLog(this.getClass());
     private AppointmentDao appointmentDao;
 
@@ -68,6 +90,12 @@ public class AppointmentsServiceImpl implements AppointmentsService {
 
     private PatientAppointmentNotifierService appointmentNotifierService;
 
+    private AppointmentServiceLoadCache appointmentServiceLoadCache;
+
+    private AppointmentServiceDayCapacityDao appointmentServiceDayCapacityDao;
+
+    private AppointmentsConfigurationProvider appointmentsConfigurationProvider;
+
     public void setAppointmentDao(AppointmentDao appointmentDao) {
         this.appointmentDao = appointmentDao;
     }
@@ -104,6 +132,18 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         this.appointmentNotifierService = appointmentNotifierService;
     }
 
+    public void setAppointmentServiceLoadCache(AppointmentServiceLoadCache appointmentServiceLoadCache) {
+        this.appointmentServiceLoadCache = appointmentServiceLoadCache;
+    }
+
+    public void setAppointmentServiceDayCapacityDao(AppointmentServiceDayCapacityDao appointmentServiceDayCapacityDao) {
+        this.appointmentServiceDayCapacityDao = appointmentServiceDayCapacityDao;
+    }
+
+    public void setAppointmentsConfigurationProvider(AppointmentsConfigurationProvider appointmentsConfigurationProvider) {
+        this.appointmentsConfigurationProvider = appointmentsConfigurationProvider;
+    }
+
     private boolean validateIfUserHasSelfOrAllAppointmentsAccess(Appointment appointment) {
         return Context.hasPrivilege(MANAGE_APPOINTMENTS) ||
                 isAppointmentNotAssignedToAnyProvider(appointment) ||
@@ -125,9 +165,12 @@ public class AppointmentsServiceImpl implements AppointmentsService {
     @Override
     public Appointment validateAndSave(Appointment appointment) throws APIException {
         validate(appointment, appointmentValidators);
+        moveServicePlace(appointment);
         appointmentServiceHelper.checkAndAssignAppointmentNumber(appointment);
         setupTeleconsultation(appointment);
+        boolean isNewAppointment = appointment.getAppointmentId() == null;
         save(appointment);
+        evictServiceLoad(appointment, isNewAppointment);
         notifyUpdates(appointment);
         return appointment;
     }
@@ -137,13 +180,102 @@ public class AppointmentsServiceImpl implements AppointmentsService {
     public Appointment validateAndSave(Supplier<Appointment> mapper) {
         Appointment appointment = mapper.get();
         validate(appointment, appointmentValidators);
+        moveServicePlace(appointment);
         appointmentServiceHelper.checkAndAssignAppointmentNumber(appointment);
         setupTeleconsultation(appointment);
+        boolean isNewAppointment = appointment.getAppointmentId() == null;
         save(appointment);
+        evictServiceLoad(appointment, isNewAppointment);
         notifyUpdates(appointment);
         return appointment;
     }
 
+    /**
+     * Takes a place of the service when the appointment moves into a place-taking status and gives it back when the
+     * appointment moves out of them.
+     */
+    private void changeServicePlace(Appointment appointment, AppointmentStatus previousStatus) {
+        boolean tookPlace = PLACE_TAKING_STATUSES.contains(previousStatus);
+        boolean takesPlace = PLACE_TAKING_STATUSES.contains(appointment.getStatus());
+        if (takesPlace && !tookPlace) {
+            takeServicePlace(appointment);
+        } else if (tookPlace && !takesPlace) {
+            releaseServicePlace(appointment.getService(), appointment.getStartDateTime(), appointment.getAppointmentId());
+        }
+    }
+
+    /**
+     * Compares a saved appointment with its persisted status, service and day, and only takes a place or gives it
+     * back when they change, so that editing other details of a booked appointment leaves the count alone.
+     */
+    private void moveServicePlace(Appointment appointment) {
+        Appointment persisted = appointment.getAppointmentId() != null
+                ? appointmentDao.getPersistedAppointment(appointment.getAppointmentId()) : null;
+        boolean tookPlace = persisted != null && PLACE_TAKING_STATUSES.contains(persisted.getStatus());
+        boolean takesPlace = PLACE_TAKING_STATUSES.contains(appointment.getStatus());
+        if (tookPlace && takesPlace && isSameServiceDay(persisted, appointment)) {
+            return;
+        }
+        if (tookPlace) {
+            releaseServicePlace(persisted.getService(), persisted.getStartDateTime(), appointment.getAppointmentId());
+        }
+        if (takesPlace) {
+            takeServicePlace(appointment);
+        }
+    }
+
+    private static boolean isSameServiceDay(Appointment persisted, Appointment appointment) {
+        AppointmentServiceDefinition persistedService = persisted.getService();
+        AppointmentServiceDefinition service = appointment.getService();
+        boolean sameService = persistedService == null ? service == null
+                : service != null && Objects.equals(persistedService.getAppointmentServiceId(), service.getAppointmentServiceId());
+        Date persistedStart = persisted.getStartDateTime();
+        Date start = appointment.getStartDateTime();
+        boolean sameDay = persistedStart == null ? start == null
+                : start != null && toLocalDate(persistedStart).equals(toLocalDate(start));
+        return sameService && sameDay;
+    }
+
+    /**
+     * Refuses the appointment when its service is booked up to maxAppointmentsLimit on its day. Only bookings of the
+     * same service and day wait for each other here, on the row of the day, until the transaction ends.
+     */
+    private void takeServicePlace(Appointment appointment) {
+        AppointmentServiceDefinition service = appointment.getService();
+        if (!isServiceLimited(service, appointment.getStartDateTime())) {
+            return;
+        }
+        LocalDate day = toLocalDate(appointment.getStartDateTime());
+        if (!appointmentServiceDayCapacityDao.takePlace(service.getAppointmentServiceId(), day, toStartOfDay(day),
+                toStartOfDay(day.plusDays(1)), service.getMaxAppointmentsLimit(), appointment.getAppointmentId(),
+                PLACE_TAKING_STATUSES)) {
+            throw new APIException("The service " + service.getName() + " is fully booked on " + day
+                    + ", it takes at most " + service.getMaxAppointmentsLimit() + " appointments a day");
+        }
+    }
+
+    private void releaseServicePlace(AppointmentServiceDefinition service, Date startDateTime, Integer appointmentId) {
+        if (!isServiceLimited(service, startDateTime)) {
+            return;
+        }
+        LocalDate day = toLocalDate(startDateTime);
+        appointmentServiceDayCapacityDao.releasePlace(service.getAppointmentServiceId(), day, toStartOfDay(day),
+                toStartOfDay(day.plusDays(1)), appointmentId, PLACE_TAKING_STATUSES);
+    }
+
+    private boolean isServiceLimited(AppointmentServiceDefinition service, Date startDateTime) {
+        return service != null && service.getMaxAppointmentsLimit() != null && service.getAppointmentServiceId() != null
+                && startDateTime != null && appointmentsConfigurationProvider.get().isMaxAppointmentsLimitEnforced();
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static Date toStartOfDay(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
     private void setupTeleconsultation(Appointment appointment) {
         if (isVirtual(appointment)) {
             appointment.setTeleHealthVideoLink(teleconsultationAppointmentService.generateTeleconsultationLink(appointment));
@@ -154,19 +286,51 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         return appointment.getAppointmentKind() != null && appointment.getAppointmentKind().equals(AppointmentKind.Virtual);
     }
 
+    /**
+     * Notifications are only queued here and sent after commit, so a slow medium does not hold up the save.
+     */
     private void notifyUpdates(Appointment appointment) {
-        List<NotificationResult> notificationResults = appointmentNotifierService.notifyAll(appointment);
+        List<NotificationResult> notificationResults = appointmentNotifierService.queueAll(appointment);
         if (!notificationResults.isEmpty()) {
-            notificationResults.stream().forEach(nr -> {
-                String notificationMsg = String.format("Appointment Notification Result - medium: %s, uuid: %s, status: %d, message: %s",
-                        nr.getMedium(), nr.getUuid(), nr.getStatus(), nr.getMessage());
-                log.info(notificationMsg);
-            });
             appointment.setNotificationResults(notificationResults);
         }
     }
 
 
+    /**
+     * An edited appointment may have moved to another service or time, which are not known any more here.
+     */
+    private void evictServiceLoad(Appointment appointment, boolean isNewAppointment) {
+        if (isNewAppointment) {
+            evictServiceLoad(appointment);
+        } else {
+            evictServiceLoadAfterCommit(appointmentServiceLoadCache::evictAll);
+        }
+    }
+
+    private void evictServiceLoad(Appointment appointment) {
+        AppointmentServiceDefinition service = appointment.getService();
+        Date startDateTime = appointment.getStartDateTime();
+        evictServiceLoadAfterCommit(() -> appointmentServiceLoadCache.evict(service, startDateTime));
+    }
+
+    /**
+     * A count between an eviction and the commit would cache the load as it was before the change, for the whole
+     * time to live, so loads are evicted once the change is committed.
+     */
+    private void evictServiceLoadAfterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+
     private void save(Appointment appointment) {
         createAndSetAppointmentAudit(appointment);
         appointmentDao.save(appointment);
@@ -189,22 +353,45 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         return appointments.stream().filter(appointment -> !isServiceOrServiceTypeVoided(appointment)).collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public List<Appointment> getAppointmentsChangedSince(Date since, Integer sinceAppointmentId, int limit) {
+        return appointmentDao.getAppointmentsChangedSince(since, sinceAppointmentId, limit);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void forEachAppointment(Date forDate, Consumer<Appointment> action) {
+        Date endDate = forDate != null ? new Date(forDate.getTime() + TimeUnit.DAYS.toMillis(1)) : null;
+        appointmentDao.forEachAppointmentsChunkInDateRange(forDate, endDate, null, APPOINTMENTS_CHUNK_SIZE, appointments -> {
+            appointmentDao.prefetchAssociations(appointments);
+            appointments.forEach(action);
+        });
+    }
+
     private boolean isServiceOrServiceTypeVoided(Appointment appointment) {
         return (appointment.getService() != null && appointment.getService().getVoided()) ||
                 (appointment.getServiceType() != null && appointment.getServiceType().getVoided());
     }
 
-    /**
-     * TODO: refactor. How can a search by an appointment return a list of appointments?
-     *
-     * @param appointment
-     * @return
-     */
     @Transactional
     @Override
     public List<Appointment> search(Appointment appointment) {
-        List<Appointment> appointments = appointmentDao.search(appointment);
-        return appointments.stream().filter(searchedAppointment -> !isServiceOrServiceTypeVoided(searchedAppointment)).collect(Collectors.toList());
+        AppointmentFilter appointmentFilter = new AppointmentFilter();
+        appointmentFilter.setPatientUuid(appointment.getPatient() != null ? appointment.getPatient().getUuid() : null);
+        appointmentFilter.setServiceUuid(appointment.getService() != null ? appointment.getService().getUuid() : null);
+        appointmentFilter.setServiceTypeUuid(appointment.getServiceType() != null ? appointment.getServiceType().getUuid() : null);
+        appointmentFilter.setLocationUuid(appointment.getLocation() != null ? appointment.getLocation().getUuid() : null);
+        appointmentFilter.setProviderUuid(appointment.getProvider() != null ? appointment.getProvider().getUuid() : null);
+        appointmentFilter.setStatus(appointment.getStatus());
+        appointmentFilter.setAppointmentKind(appointment.getAppointmentKind());
+        return search(appointmentFilter);
+    }
+
+    @Transactional
+    @Override
+    public List<Appointment> search(AppointmentFilter appointmentFilter) {
+        return appointmentDao.search(appointmentFilter);
     }
 
     @Transactional
@@ -225,6 +412,24 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         return appointmentDao.getAppointmentsForService(appointmentServiceDefinition, startDate, endDate, appointmentStatusList);
     }
 
+    @Transactional
+    @Override
+    public long getAppointmentsCountForService(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList) {
+        return appointmentDao.getAppointmentsCountForService(appointmentServiceDefinition, startDate, endDate, appointmentStatusList);
+    }
+
+    @Transactional
+    @Override
+    public List<DailyAppointmentServiceCount> getDailyAppointmentServiceCounts(Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList) {
+        return appointmentDao.getDailyAppointmentServiceCounts(startDate, endDate, appointmentStatusList);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<AppointmentServiceBooking> getAppointmentServiceBookings(AppointmentServiceDefinition appointmentServiceDefinition, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList) {
+        return appointmentDao.getAppointmentServiceBookings(appointmentServiceDefinition, startDate, endDate, appointmentStatusList);
+    }
+
     @Transactional
     @Override
     public Appointment getAppointmentByUuid(String uuid) {
@@ -239,12 +444,98 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         validateUserPrivilege(appointment, appointmentStatus);
         appointmentServiceHelper.validateStatusChangeAndGetErrors(appointment, appointmentStatus, statusChangeValidators);
         validateUserPrivilege(appointment, appointmentStatus);
+        AppointmentStatus previousStatus = appointment.getStatus();
         appointment.setStatus(appointmentStatus);
+        changeServicePlace(appointment, previousStatus);
         appointmentDao.save(appointment);
+        evictServiceLoad(appointment);
         String notes = onDate != null ? onDate.toInstant().toString() : null;
         createEventInAppointmentAudit(appointment, notes);
     }
 
+    /**
+     * Every chunk is changed through the service, so that it is committed, and its events raised, on its own.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public AppointmentBulkStatusChangeResult changeStatusInBulk(Date startDate, Date endDate, List<AppointmentStatus> fromStatusList,
+                                                                String status, Date onDate) {
+        AppointmentBulkStatusChangeResult result = new AppointmentBulkStatusChangeResult(AppointmentStatus.valueOf(status));
+        Integer lastAppointmentId = null;
+        do {
+            AppointmentBulkStatusChangeResult chunkResult = Context.getService(AppointmentsService.class)
+                    .changeStatusInBulkAfter(startDate, endDate, fromStatusList, status, onDate, lastAppointmentId);
+            result.add(chunkResult);
+            lastAppointmentId = chunkResult.getLastAppointmentId();
+        } while (lastAppointmentId != null);
+        return result;
+    }
+
+    @Transactional
+    @Override
+    public AppointmentBulkStatusChangeResult changeStatusInBulkAfter(Date startDate, Date endDate, List<AppointmentStatus> fromStatusList,
+                                                                     String status, Date onDate, Integer afterAppointmentId) {
+        AppointmentStatus toStatus = AppointmentStatus.valueOf(status);
+        AppointmentBulkStatusChangeResult result = new AppointmentBulkStatusChangeResult(toStatus);
+        List<Appointment> appointments = appointmentDao.getAppointmentsChunkInDateRange(startDate, endDate, fromStatusList,
+                afterAppointmentId, APPOINTMENTS_CHUNK_SIZE);
+        if (appointments.size() == APPOINTMENTS_CHUNK_SIZE) {
+            result.setLastAppointmentId(appointments.get(appointments.size() - 1).getAppointmentId());
+        }
+        User changedBy = Context.getAuthenticatedUser();
+        String notes = onDate != null ? onDate.toInstant().toString() : null;
+        boolean takesPlace = PLACE_TAKING_STATUSES.contains(toStatus);
+        Date now = new Date();
+        List<Appointment> validAppointments = new ArrayList<>();
+        List<Appointment> appointmentsToUpdate = new ArrayList<>();
+        Map<String, Appointment> releasedServiceDays = new LinkedHashMap<>();
+        for (Appointment appointment : appointments) {
+            try {
+                validateUserPrivilege(appointment, toStatus);
+                appointmentServiceHelper.validateStatusChangeAndGetErrors(appointment, toStatus, statusChangeValidators);
+                boolean tookPlace = PLACE_TAKING_STATUSES.contains(appointment.getStatus());
+                if (takesPlace && !tookPlace) {
+                    // updated at once, so that a recount for the next place sees this one taken
+                    takeServicePlace(appointment);
+                    appointmentDao.updateStatus(Collections.singletonList(appointment), toStatus, changedBy, now);
+                } else {
+                    appointmentsToUpdate.add(appointment);
+                }
+                if (tookPlace && !takesPlace && appointment.getService() != null && appointment.getStartDateTime() != null) {
+                    releasedServiceDays.putIfAbsent(appointment.getService().getAppointmentServiceId() + "/"
+                            + toLocalDate(appointment.getStartDateTime()), appointment);
+                }
+                validAppointments.add(appointment);
+            } catch (APIException e) {
+                result.addFailure(appointment, e.getMessage());
+            }
+        }
+        if (validAppointments.isEmpty()) {
+            return result;
+        }
+        if (!appointmentsToUpdate.isEmpty()) {
+            appointmentDao.updateStatus(appointmentsToUpdate, toStatus, changedBy, now);
+        }
+        // recounted after the update, which leaves the released appointments out of the count
+        for (Appointment appointment : releasedServiceDays.values()) {
+            releaseServicePlace(appointment.getService(), appointment.getStartDateTime(), null);
+        }
+        List<AppointmentAudit> appointmentAudits = new ArrayList<>();
+        for (Appointment appointment : validAppointments) {
+            AppointmentAudit appointmentAudit = appointmentServiceHelper.getAppointmentAuditEvent(appointment, notes);
+            appointmentAudit.setStatus(toStatus);
+            appointmentAudit.setCreator(changedBy);
+            appointmentAudit.setDateCreated(now);
+            appointmentAudits.add(appointmentAudit);
+            result.addChangedAppointment(appointment);
+        }
+        appointmentAuditDao.saveInBatch(appointmentAudits);
+        if (!result.getChangedAppointmentUuids().isEmpty()) {
+            evictServiceLoadAfterCommit(appointmentServiceLoadCache::evictAll);
+        }
+        return result;
+    }
+
     private void validateUserPrivilege(Appointment appointment, AppointmentStatus appointmentStatus) {
         if (!validateIfUserHasSelfOrAllAppointmentsAccess(appointment)) {
             throw new APIAuthenticationException(Context.getMessageSourceService().getMessage(PRIVILEGES_EXCEPTION_CODE,
@@ -269,6 +560,12 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         return appointments.stream().filter(appointment -> !isServiceOrServiceTypeVoided(appointment)).collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public void prefetchAssociations(List<Appointment> appointments) {
+        appointmentDao.prefetchAssociations(appointments);
+    }
+
     @Transactional
     @Override
     public void undoStatusChange(Appointment appointment) throws APIException {
@@ -278,8 +575,11 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         }
         AppointmentAudit statusChangeEvent = appointmentAuditDao.getPriorStatusChangeEvent(appointment);
         if (statusChangeEvent != null) {
+            AppointmentStatus previousStatus = appointment.getStatus();
             appointment.setStatus(statusChangeEvent.getStatus());
+            changeServicePlace(appointment, previousStatus);
             appointmentDao.save(appointment);
+            evictServiceLoad(appointment);
             createEventInAppointmentAudit(appointment, statusChangeEvent.getNotes());
         } else
             throw new APIException("No status change actions to undo");
@@ -294,6 +594,12 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         return appointmentDao.search(appointmentSearchRequest);
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public long getSearchCount(AppointmentSearchRequest appointmentSearchRequest) {
+        return appointmentDao.getSearchCount(appointmentSearchRequest);
+    }
+
     @Override
     public Map<Enum, List<Appointment>> getAppointmentConflicts(Appointment appointment) {
         return getAllConflicts(Collections.singletonList(appointment));
@@ -305,6 +611,29 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         return CollectionUtils.isEmpty(filteredAppointments) ? new HashMap<>() : getAllConflicts(filteredAppointments);
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public Map<String, Map<Enum, List<Appointment>>> getAppointmentsConflictsForPatients(List<Appointment> appointments) {
+        Map<Integer, List<Appointment>> appointmentsByPatient = getNonVoidedFutureAppointments(appointments).stream()
+                .collect(Collectors.groupingBy(appointment -> appointment.getPatient().getPatientId(), LinkedHashMap::new, Collectors.toList()));
+        Map<Integer, List<Appointment>> existingAppointmentsByPatient = appointmentDao.getAppointmentsForPatients(new ArrayList<>(appointmentsByPatient.keySet()))
+                .stream().collect(Collectors.groupingBy(appointment -> appointment.getPatient().getPatientId()));
+
+        Map<String, Map<Enum, List<Appointment>>> conflictsByPatient = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<Appointment>> patientAppointments : appointmentsByPatient.entrySet()) {
+            List<Appointment> existingAppointments = existingAppointmentsByPatient.getOrDefault(patientAppointments.getKey(), Collections.emptyList());
+            Map<Enum, List<Appointment>> conflictsMap = new HashMap<>();
+            for (AppointmentConflict appointmentConflict : appointmentConflicts) {
+                List<Appointment> conflictAppointments = appointmentConflict.getConflicts(patientAppointments.getValue(), existingAppointments);
+                if (CollectionUtils.isNotEmpty(conflictAppointments))
+                    conflictsMap.put(appointmentConflict.getType(), conflictAppointments);
+            }
+            if (!conflictsMap.isEmpty())
+                conflictsByPatient.put(patientAppointments.getValue().get(0).getPatient().getUuid(), conflictsMap);
+        }
+        return conflictsByPatient;
+    }
+
     private Map<Enum, List<Appointment>> getAllConflicts(List<Appointment> appointments) {
         Map<Enum, List<Appointment>> conflictsMap = new HashMap<>();
         for (AppointmentConflict appointmentConflict : appointmentConflicts) {
@@ -316,10 +645,9 @@ public class AppointmentsServiceImpl implements AppointmentsService {
     }
 
     private List<Appointment> getNonVoidedFutureAppointments(List<Appointment> appointments) {
-        return appointments.stream().filter(appointment -> {
-            appointmentServiceHelper.checkAndAssignAppointmentNumber(appointment);
-            return !(appointment.getVoided() || appointment.getStartDateTime().before(getStartOfDay()));
-        }).collect(Collectors.toList());
+        return appointments.stream()
+                .filter(appointment -> !(appointment.getVoided() || appointment.getStartDateTime().before(getStartOfDay())))
+                .collect(Collectors.toList());
     }
 
     @Transactional
@@ -334,6 +662,9 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         AppointmentProvider existingProviderInAppointment = findProviderInAppointment(providerWithNewResponse, existingProviders);
         validateProviderResponseForSelf(existingProviderInAppointment);
         existingProviderInAppointment.setResponse(providerWithNewResponse.getResponse());
+        // the appointment itself is not dirty when only a provider changed, so touch it for the changes feed
+        appointment.setDateChanged(new Date());
+        appointment.setChangedBy(Context.getAuthenticatedUser());
 
         if (isFirstAcceptForRequestedAppointment(providerWithNewResponse, appointment)) {
             changeStatus(appointment, AppointmentStatus.Scheduled.name(), Date.from(Instant.now()));
@@ -386,8 +717,6 @@ public class AppointmentsServiceImpl implements AppointmentsService {
 
             //TODO: should we copy the original appointment
             //newAppointment.setAppointmentNumber(prevAppointment.getAppointmentNumber());
-            appointmentServiceHelper.checkAndAssignAppointmentNumber(newAppointment);
-
             newAppointment.setStatus(AppointmentStatus.Scheduled);
             validateAndSave(newAppointment);
 
@@ -0,0 +1,183 @@
+package org.openmrs.module.appointments.service.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.appointments.dao.AppointmentNotificationDao;
+import org.openmrs.module.appointments.model.AppointmentNotification;
+import org.openmrs.module.appointments.notification.NotificationResult;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the notifications of the outbox on a fixed number of worker threads. Notifications queued by a transaction
+ * are handed to the workers once it commits; a sweeper regularly picks up the ones that are due again after a failed
+ * attempt, that did not fit in the work queue, or that were left behind by a restart. The workers and the sweeper are
+ * daemon threads of OpenMRS, started once with the token of the module, so each delivery runs on the worker itself
+ * as the daemon user. A worker claims the notification in the database and commits before sending it, so no transaction is held while
+ * the medium answers and no other worker or node sends it meanwhile, then records the result in a new transaction.
+ */
+public class NotificationOutboxDispatcher implements DisposableBean {
+
+    static final int WORKER_THREADS = 4;
+    static final int WORK_QUEUE_CAPACITY = 200;
+    static final long SWEEP_INTERVAL_SECONDS = 30;
+
+    private Log log = LogFactory.getLog(this.getClass());
+
+    private final Set<Integer> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final BlockingQueue<Integer> workQueue = new ArrayBlockingQueue<>(WORK_QUEUE_CAPACITY);
+    private final List<Thread> threads = new ArrayList<>();
+
+    private PatientAppointmentNotifierService patientAppointmentNotifierService;
+    private AppointmentNotificationDao appointmentNotificationDao;
+    private TransactionTemplate transactionTemplate;
+    private volatile DaemonToken daemonToken;
+
+    /**
+     * Starts the workers and the sweeper of the outbox as daemon threads with the token of the module. Notifications
+     * dispatched before are left for the first sweep. Calling it again only replaces the token.
+     */
+    public synchronized void start(DaemonToken daemonToken) {
+        this.daemonToken = daemonToken;
+        if (threads.isEmpty()) {
+            for (int i = 1; i <= WORKER_THREADS; i++) {
+                startDaemonThread(this::work, "appointment-notification-worker-" + i);
+            }
+            startDaemonThread(this::sweepPeriodically, "appointment-notification-sweeper");
+        }
+    }
+
+    private void startDaemonThread(Runnable loop, String name) {
+        Thread thread = Daemon.runInDaemonThread(loop, daemonToken);
+        thread.setName(name);
+        threads.add(thread);
+    }
+
+    /**
+     * Sends the given notifications after the current transaction commits, or right away if there is none. They
+     * are not sent at all if it rolls back, along with the outbox rows.
+     */
+    public void dispatchAfterCommit(List<Integer> appointmentNotificationIds) {
+        List<Integer> ids = new ArrayList<>(appointmentNotificationIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ids.forEach(this::dispatch);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                ids.forEach(NotificationOutboxDispatcher.this::dispatch);
+            }
+        });
+    }
+
+    void dispatch(Integer appointmentNotificationId) {
+        if (daemonToken == null) {
+            log.warn("Module has not started yet, leaving notification " + appointmentNotificationId + " for the next sweep");
+            return;
+        }
+        if (!inFlight.add(appointmentNotificationId)) {
+            return;
+        }
+        if (!workQueue.offer(appointmentNotificationId)) {
+            inFlight.remove(appointmentNotificationId);
+            log.warn("Notification work queue is full, leaving notification " + appointmentNotificationId + " for the next sweep");
+        }
+    }
+
+    /**
+     * Delivers queued notifications one at a time until the worker is interrupted. The session of the worker lives
+     * as long as it does, so it is cleared after every delivery.
+     */
+    private void work() {
+        try {
+            while (true) {
+                Integer appointmentNotificationId = workQueue.take();
+                try {
+                    deliver(appointmentNotificationId);
+                } finally {
+                    inFlight.remove(appointmentNotificationId);
+                    Context.clearSession();
+                }
+            }
+        } catch (InterruptedException e) {
+            // the module is stopping
+        }
+    }
+
+    private void deliver(Integer appointmentNotificationId) {
+        try {
+            AppointmentNotification notification = transactionTemplate.execute(status ->
+                    patientAppointmentNotifierService.claim(appointmentNotificationId));
+            if (notification == null) {
+                return;
+            }
+            NotificationResult result = patientAppointmentNotifierService.send(notification);
+            transactionTemplate.execute(status -> {
+                patientAppointmentNotifierService.record(appointmentNotificationId, result);
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Could not deliver appointment notification " + appointmentNotificationId, e);
+        }
+    }
+
+    private void sweepPeriodically() {
+        try {
+            while (true) {
+                TimeUnit.SECONDS.sleep(SWEEP_INTERVAL_SECONDS);
+                try {
+                    sweep();
+                } finally {
+                    Context.clearSession();
+                }
+            }
+        } catch (InterruptedException e) {
+            // the module is stopping
+        }
+    }
+
+    void sweep() {
+        try {
+            List<Integer> dueIds = transactionTemplate.execute(status ->
+                    appointmentNotificationDao.getDueNotificationIds(new Date(), WORK_QUEUE_CAPACITY));
+            dueIds.forEach(this::dispatch);
+        } catch (Exception e) {
+            log.error("Could not sweep the appointment notification outbox", e);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        threads.forEach(Thread::interrupt);
+        threads.clear();
+    }
+
+    public void setPatientAppointmentNotifierService(PatientAppointmentNotifierService patientAppointmentNotifierService) {
+        this.patientAppointmentNotifierService = patientAppointmentNotifierService;
+    }
+
+    public void setAppointmentNotificationDao(AppointmentNotificationDao appointmentNotificationDao) {
+        this.appointmentNotificationDao = appointmentNotificationDao;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+}
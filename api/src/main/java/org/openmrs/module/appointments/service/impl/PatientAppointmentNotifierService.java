@@ -2,52 +2,149 @@ package org.openmrs.module.appointments.service.impl;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.appointments.dao.AppointmentNotificationDao;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentNotification;
+import org.openmrs.module.appointments.model.AppointmentNotificationStatus;
 import org.openmrs.module.appointments.notification.AppointmentEventNotifier;
 import org.openmrs.module.appointments.notification.NotificationException;
 import org.openmrs.module.appointments.notification.NotificationResult;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class PatientAppointmentNotifierService {
 
     private static final String CANNOT_SEND_NOTIFICATION_USING_MEDIUM = "Unable to send tele-consultation appointment information through ";
     private static final String NOT_APPLICABLE = "This appointment is not applicable to the notifier. Medium: ";
+    private static final String QUEUED_FOR_MEDIUM = "Notification queued for sending through ";
+    private static final String NO_NOTIFIER_FOR_MEDIUM = "No notifier is registered any more for medium: ";
+    private static final String NO_RESULT_FROM_MEDIUM = "No notification result returned by medium: ";
+    static final int MAX_ATTEMPTS = 6;
+    static final long RETRY_BASE_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final long RETRY_MAX_DELAY_MILLIS = TimeUnit.HOURS.toMillis(1);
+    static final long CLAIM_MILLIS = TimeUnit.MINUTES.toMillis(5);
     private Log log = LogFactory.getLog(this.getClass());
 
     private List<AppointmentEventNotifier> eventNotifiers = new ArrayList<>();
 
+    private AppointmentNotificationDao appointmentNotificationDao;
+
+    private NotificationOutboxDispatcher notificationOutboxDispatcher;
+
     //def constructor not required. Test application contexts should spring  wiring
     public PatientAppointmentNotifierService() {}
     public PatientAppointmentNotifierService(List<AppointmentEventNotifier> notifiers) {
         this.eventNotifiers = notifiers;
     }
 
-    public List<NotificationResult> notifyAll(final Appointment appointment) {
+    /**
+     * Writes a pending notification to the outbox for every notifier applicable to the appointment, in the current
+     * transaction, and hands them to the dispatcher to be sent once it commits. Nothing is sent here, so the caller
+     * does not wait for any medium.
+     *
+     * @return a {@link NotificationResult#QUEUED} result per queued notification
+     */
+    public List<NotificationResult> queueAll(final Appointment appointment) {
         if ((eventNotifiers == null) || eventNotifiers.isEmpty()) return Collections.emptyList();
-        log.info("Notifying TC Appointment. Number of notifiers:" + eventNotifiers.size());
         List<NotificationResult> notificationResults = new ArrayList<>();
+        List<Integer> notificationIds = new ArrayList<>();
+        Date now = new Date();
         for (AppointmentEventNotifier eventNotifier : eventNotifiers) {
-            try {
-                if (eventNotifier.isApplicable(appointment)) {
-                    log.debug("Invoking Appointment Notifier: " + eventNotifier.getClass());
-                    NotificationResult result = eventNotifier.sendNotification(appointment);
-                    notificationResults.add(result);
-                } else {
-                    log.info(NOT_APPLICABLE + eventNotifier.getMedium());
-                }
-            } catch (NotificationException e) {
-                String msg = CANNOT_SEND_NOTIFICATION_USING_MEDIUM + eventNotifier.getMedium();
-                log.error(msg, e);
-                notificationResults.add(new NotificationResult("", eventNotifier.getMedium(), NotificationResult.GENERAL_ERROR, msg));
+            if (eventNotifier.isApplicable(appointment)) {
+                AppointmentNotification notification = new AppointmentNotification();
+                notification.setAppointment(appointment);
+                notification.setMedium(eventNotifier.getMedium());
+                notification.setNextAttemptAt(now);
+                notification.setDateCreated(now);
+                appointmentNotificationDao.save(notification);
+                notificationIds.add(notification.getAppointmentNotificationId());
+                notificationResults.add(new NotificationResult(notification.getUuid(), eventNotifier.getMedium(),
+                        NotificationResult.QUEUED, QUEUED_FOR_MEDIUM + eventNotifier.getMedium()));
+            } else {
+                log.info(NOT_APPLICABLE + eventNotifier.getMedium());
             }
         }
+        if (!notificationIds.isEmpty()) {
+            notificationOutboxDispatcher.dispatchAfterCommit(notificationIds);
+        }
         return notificationResults;
     }
 
+    /**
+     * Claims a due notification of the outbox for one attempt, so that no other worker sends it meanwhile. Must be
+     * called in a transaction, which should commit before the notification is sent.
+     *
+     * @return the claimed notification, or null when it is not due or another worker claimed it first
+     */
+    public AppointmentNotification claim(Integer appointmentNotificationId) {
+        Date now = new Date();
+        if (!appointmentNotificationDao.claim(appointmentNotificationId, now, new Date(now.getTime() + CLAIM_MILLIS))) {
+            return null;
+        }
+        return appointmentNotificationDao.getAppointmentNotificationById(appointmentNotificationId);
+    }
+
+    /**
+     * Sends a claimed notification through its medium. Should be called outside any transaction, as the medium may
+     * take a while to answer.
+     */
+    public NotificationResult send(AppointmentNotification notification) {
+        String medium = notification.getMedium();
+        AppointmentEventNotifier eventNotifier = eventNotifiers.stream()
+                .filter(notifier -> medium.equalsIgnoreCase(notifier.getMedium())).findFirst().orElse(null);
+        if (eventNotifier == null) {
+            return new NotificationResult("", medium, NotificationResult.IGNORED, NO_NOTIFIER_FOR_MEDIUM + medium);
+        }
+        try {
+            log.debug("Invoking Appointment Notifier: " + eventNotifier.getClass());
+            NotificationResult result = eventNotifier.sendNotification(notification.getAppointment());
+            return result != null ? result
+                    : new NotificationResult("", medium, NotificationResult.GENERAL_ERROR, NO_RESULT_FROM_MEDIUM + medium);
+        } catch (NotificationException | RuntimeException e) {
+            String msg = CANNOT_SEND_NOTIFICATION_USING_MEDIUM + medium;
+            log.error(msg, e);
+            return new NotificationResult("", medium, NotificationResult.GENERAL_ERROR, msg);
+        }
+    }
+
+    /**
+     * Records the result of an attempt at a claimed notification. A failed attempt is retried with exponential
+     * backoff until {@link #MAX_ATTEMPTS} is reached. Must be called in a transaction.
+     */
+    public void record(Integer appointmentNotificationId, NotificationResult result) {
+        AppointmentNotification notification = appointmentNotificationDao.getAppointmentNotificationById(appointmentNotificationId);
+        if (notification == null || notification.getStatus() != AppointmentNotificationStatus.Sending) {
+            return;
+        }
+        Date now = new Date();
+        notification.setResultStatus(result.getStatus());
+        notification.setResultUuid(result.getUuid());
+        notification.setResultMessage(result.getMessage());
+        notification.setDateChanged(now);
+        if (result.getStatus() == NotificationResult.SUCCESS_STATUS) {
+            notification.setStatus(AppointmentNotificationStatus.Sent);
+        } else if (result.getStatus() == NotificationResult.IGNORED) {
+            notification.setStatus(AppointmentNotificationStatus.Ignored);
+        } else if (notification.getAttempts() >= MAX_ATTEMPTS) {
+            notification.setStatus(AppointmentNotificationStatus.Failed);
+        } else {
+            notification.setStatus(AppointmentNotificationStatus.Pending);
+            notification.setNextAttemptAt(new Date(now.getTime() + retryDelayMillis(notification.getAttempts())));
+        }
+        appointmentNotificationDao.save(notification);
+        log.info(String.format("Appointment Notification Result - medium: %s, uuid: %s, status: %d, attempt: %d, message: %s",
+                result.getMedium(), result.getUuid(), result.getStatus(), notification.getAttempts(), result.getMessage()));
+    }
+
+    static long retryDelayMillis(int attempts) {
+        return Math.min(RETRY_BASE_DELAY_MILLIS << Math.min(attempts - 1, 20), RETRY_MAX_DELAY_MILLIS);
+    }
+
     public List<AppointmentEventNotifier> getEventNotifiers() {
         return eventNotifiers;
     }
@@ -56,6 +153,14 @@ public class PatientAppointmentNotifierService {
         this.eventNotifiers = eventNotifiers;
     }
 
+    public void setAppointmentNotificationDao(AppointmentNotificationDao appointmentNotificationDao) {
+        this.appointmentNotificationDao = appointmentNotificationDao;
+    }
+
+    public void setNotificationOutboxDispatcher(NotificationOutboxDispatcher notificationOutboxDispatcher) {
+        this.notificationOutboxDispatcher = notificationOutboxDispatcher;
+    }
+
     public void registerNotifier(AppointmentEventNotifier notifier) {
         if (notifier.getMedium() != null) {
             List<AppointmentEventNotifier> exitingNotifiers = this.eventNotifiers.stream().filter(n -> n.getMedium().equalsIgnoreCase(notifier.getMedium())).collect(Collectors.toList());
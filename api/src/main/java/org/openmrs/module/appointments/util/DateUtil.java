@@ -4,6 +4,8 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
@@ -56,6 +58,10 @@ public class DateUtil {
         return calendar.getTime();
     }
 
+    public static Date getStartOfDay(ZoneId zone) {
+        return Date.from(LocalDate.now(zone).atStartOfDay(zone).toInstant());
+    }
+
     public static long getEpochTime(long date) {
         Calendar calendar = getCalendar(new Date(date));
         int hours = calendar.get(Calendar.HOUR_OF_DAY);
@@ -0,0 +1,19 @@
+package org.openmrs.module.appointments.util;
+
+import java.sql.SQLException;
+
+public class SqlUtil {
+
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23000";
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+
+    /**
+     * MySQL reports a duplicate key with the generic integrity constraint state and its own error code, other
+     * databases with the standard unique violation state.
+     */
+    public static boolean isUniqueViolation(SQLException e) {
+        return UNIQUE_VIOLATION.equals(e.getSQLState())
+                || INTEGRITY_CONSTRAINT_VIOLATION.equals(e.getSQLState()) && e.getErrorCode() == MYSQL_DUPLICATE_ENTRY;
+    }
+}
@@ -1,6 +1,6 @@
 package org.openmrs.module.appointments.validator.impl;
 
-import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.openmrs.module.appointments.validator.AppointmentStatusChangeValidator;
@@ -10,11 +10,15 @@ import java.util.List;
 
 public class DefaultAppointmentStatusChangeValidator implements AppointmentStatusChangeValidator {
 
+    private AppointmentsConfigurationProvider appointmentsConfigurationProvider;
+
+    public void setAppointmentsConfigurationProvider(AppointmentsConfigurationProvider appointmentsConfigurationProvider) {
+        this.appointmentsConfigurationProvider = appointmentsConfigurationProvider;
+    }
+
     @Override
     public void validate(Appointment appointment, AppointmentStatus toStatus, List<String> errors) {
-        String disableDefaultValidationValue = Context.getAdministrationService().getGlobalProperty("disableDefaultAppointmentValidations");
-        boolean disableValidation = disableDefaultValidationValue != null ? Boolean.valueOf(disableDefaultValidationValue) : false;
-        if (!disableValidation) {
+        if (!appointmentsConfigurationProvider.get().areDefaultValidationsDisabled()) {
             AppointmentStatus currentStatus = appointment.getStatus();
             if (toStatus.getSequence() <= currentStatus.getSequence() && toStatus != AppointmentStatus.Scheduled) {
                 errors.add("Appointment status can not be changed from " + appointment.getStatus() + " to " + toStatus);
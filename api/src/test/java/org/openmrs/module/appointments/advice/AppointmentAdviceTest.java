@@ -8,9 +8,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
-import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.config.AppointmentsConfiguration;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
+import org.openmrs.module.appointments.events.AppointmentChangeBroadcaster;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBulkStatusChangeResult;
+import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.openmrs.module.atomfeed.transaction.support.AtomFeedSpringTransactionManager;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -19,11 +23,14 @@ import org.springframework.transaction.PlatformTransactionManager;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
@@ -53,7 +60,9 @@ public class AppointmentAdviceTest {
     private EventServiceImpl eventService;
 
     @Mock
-    private AdministrationService administrationService;
+    private AppointmentsConfigurationProvider configurationProvider;
+
+    private Map<String, String> globalProperties = new HashMap<>();
 
     @Mock
     private Event event;
@@ -70,9 +79,10 @@ public class AppointmentAdviceTest {
         atomFeedSpringTransactionManager = spy(new AtomFeedSpringTransactionManager(platformTransactionManager));
 
         when(Context.getRegisteredComponents(PlatformTransactionManager.class)).thenReturn(Collections.singletonList(platformTransactionManager));
-        when(Context.getAdministrationService()).thenReturn(administrationService);
-        when(administrationService.getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY)).thenReturn("true");
-        when(administrationService.getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN)).thenReturn(DEFAULT_URL_PATTERN);
+        when(Context.getRegisteredComponents(AppointmentsConfigurationProvider.class)).thenReturn(Collections.singletonList(configurationProvider));
+        when(configurationProvider.get()).thenAnswer(invocation -> new AppointmentsConfiguration(globalProperties));
+        globalProperties.put(RAISE_EVENT_GLOBAL_PROPERTY, "true");
+        globalProperties.put(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
 
         whenNew(AtomFeedSpringTransactionManager.class).withAnyArguments().thenReturn(atomFeedSpringTransactionManager);
         whenNew(AllEventRecordsQueueJdbcImpl.class).withArguments(this.atomFeedSpringTransactionManager).thenReturn(allEventRecordsQueue);
@@ -91,18 +101,14 @@ public class AppointmentAdviceTest {
         verify(atomFeedSpringTransactionManager, times(1)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verify(eventService, times(1)).notify(any(Event.class));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("Appointment"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/appointment?uuid=%s", UUID)), eq("appointments"));
-        verify(administrationService, times(1)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
-        verify(administrationService, times(1)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
     }
 
     @Test
     public void shouldNotRaiseAppointmentServiceChangeEventToEventRecordsTableIfTheGlobalPropertyIsSetToFalse() throws Throwable {
-        when(administrationService.getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY)).thenReturn("false");
+        globalProperties.put(RAISE_EVENT_GLOBAL_PROPERTY, "false");
 
         appointmentAdvice.afterReturning(appointment, this.getClass().getMethod("validateAndSave"), null, null);
 
-        verify(administrationService, times(1)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
-        verify(administrationService, times(0)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
         verify(atomFeedSpringTransactionManager, times(0)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verify(eventService, times(0)).notify(any(Event.class));
         verifyNew(Event.class, times(0)).withArguments(anyString(), anyString(), any(Date.class), any(URI.class), anyString(), anyString());
@@ -112,8 +118,6 @@ public class AppointmentAdviceTest {
     public void shouldNotRaiseAppointmentServiceChangeEventToEventRecordsTableIfTheMethodIsNotSaveOrVoidAppointmentService() throws Throwable {
         appointmentAdvice.afterReturning(appointment, this.getClass().getMethod("dummy"), null, null);
 
-        verify(administrationService, times(1)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
-        verify(administrationService, times(0)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
         verify(atomFeedSpringTransactionManager, times(0)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verify(eventService, times(0)).notify(any(Event.class));
         verifyNew(Event.class, times(0)).withArguments(anyString(), anyString(), any(Date.class), any(URI.class), anyString(), anyString());
@@ -121,16 +125,13 @@ public class AppointmentAdviceTest {
 
     @Test
     public void shouldRaiseEventWithCustomUrlPatternGivenInGlobalProperty() throws Throwable {
-        when(administrationService.getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN)).thenReturn("/openmrs/ws/rest/v1/appointment/test/{uuid}");
+        globalProperties.put(URL_PATTERN_GLOBAL_PROPERTY, "/openmrs/ws/rest/v1/appointment/test/{uuid}");
 
         appointmentAdvice.afterReturning(appointment, this.getClass().getMethod("validateAndSave"), null, null);
 
         verify(atomFeedSpringTransactionManager, times(1)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
-        verify(administrationService, times(1)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
         verify(eventService, times(1)).notify(any(Event.class));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("Appointment"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/appointment/test/%s", UUID)), eq("appointments"));
-        verify(administrationService, times(1)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
-        verify(administrationService, times(1)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
     }
 
     public void validateAndSave() {
@@ -145,6 +146,9 @@ public class AppointmentAdviceTest {
     public void dummy() {
     }
 
+    public void changeStatusInBulkAfter() {
+    }
+
     @Test
     public void shouldCreateEventForStatusChange() throws Throwable {
         appointmentAdvice.afterReturning(null, this.getClass().getMethod("changeStatus"), Collections.singletonList(appointment).toArray(), null);
@@ -152,8 +156,6 @@ public class AppointmentAdviceTest {
         verify(atomFeedSpringTransactionManager, times(1)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verify(eventService, times(1)).notify(any(Event.class));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("Appointment"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/appointment?uuid=%s", UUID)), eq("appointments"));
-        verify(administrationService, times(1)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
-        verify(administrationService, times(1)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
     }
 
     @Test
@@ -163,7 +165,55 @@ public class AppointmentAdviceTest {
         verify(atomFeedSpringTransactionManager, times(1)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verify(eventService, times(1)).notify(any(Event.class));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("Appointment"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/appointment?uuid=%s", UUID)), eq("appointments"));
-        verify(administrationService, times(1)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
-        verify(administrationService, times(1)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldRaiseEventsForAllAppointmentsChangedInBulkInOneTransaction() throws Throwable {
+        Appointment anotherAppointment = new Appointment();
+        anotherAppointment.setUuid("anotherUuid");
+        AppointmentBulkStatusChangeResult result = new AppointmentBulkStatusChangeResult(AppointmentStatus.Missed);
+        result.addChangedAppointment(appointment);
+        result.addChangedAppointment(anotherAppointment);
+
+        appointmentAdvice.afterReturning(result, this.getClass().getMethod("changeStatusInBulkAfter"), null, null);
+
+        verify(atomFeedSpringTransactionManager, times(1)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
+        verify(eventService, times(2)).notify(any(Event.class));
+        verifyNew(Event.class, times(1)).withArguments(anyString(), eq("Appointment"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/appointment?uuid=%s", UUID)), eq("appointments"));
+        verifyNew(Event.class, times(1)).withArguments(anyString(), eq("Appointment"), any(Date.class), any(URI.class), eq("/openmrs/ws/rest/v1/appointment?uuid=anotherUuid"), eq("appointments"));
+    }
+
+    @Test
+    public void shouldBroadcastChangedAppointmentEvenIfAtomFeedEventsAreTurnedOff() throws Throwable {
+        AppointmentChangeBroadcaster appointmentChangeBroadcaster = mock(AppointmentChangeBroadcaster.class);
+        when(Context.getRegisteredComponents(AppointmentChangeBroadcaster.class)).thenReturn(Collections.singletonList(appointmentChangeBroadcaster));
+        globalProperties.put(RAISE_EVENT_GLOBAL_PROPERTY, "false");
+
+        new AppointmentAdvice().afterReturning(null, this.getClass().getMethod("changeStatus"), new Object[]{appointment}, null);
+
+        verify(appointmentChangeBroadcaster, times(1)).publishAfterCommit(Collections.singletonList(appointment));
+        verify(eventService, times(0)).notify(any(Event.class));
+    }
+
+    @Test
+    public void shouldBroadcastUuidsOfAppointmentsChangedInBulk() throws Throwable {
+        AppointmentChangeBroadcaster appointmentChangeBroadcaster = mock(AppointmentChangeBroadcaster.class);
+        when(Context.getRegisteredComponents(AppointmentChangeBroadcaster.class)).thenReturn(Collections.singletonList(appointmentChangeBroadcaster));
+        AppointmentBulkStatusChangeResult result = new AppointmentBulkStatusChangeResult(AppointmentStatus.Missed);
+        result.addChangedAppointment(appointment);
+
+        new AppointmentAdvice().afterReturning(result, this.getClass().getMethod("changeStatusInBulkAfter"), null, null);
+
+        verify(appointmentChangeBroadcaster, times(1)).publishUuidsAfterCommit(Collections.singletonList(UUID));
+    }
+
+    @Test
+    public void shouldNotRaiseEventsWhenNoAppointmentIsChangedInBulk() throws Throwable {
+        AppointmentBulkStatusChangeResult result = new AppointmentBulkStatusChangeResult(AppointmentStatus.Missed);
+
+        appointmentAdvice.afterReturning(result, this.getClass().getMethod("changeStatusInBulkAfter"), null, null);
+
+        verify(atomFeedSpringTransactionManager, times(0)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
+        verify(eventService, times(0)).notify(any(Event.class));
+    }
+}
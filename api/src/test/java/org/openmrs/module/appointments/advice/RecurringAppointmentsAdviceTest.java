@@ -8,20 +8,26 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
-import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.config.AppointmentsConfiguration;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentRecurringPattern;
 import org.openmrs.module.atomfeed.transaction.support.AtomFeedSpringTransactionManager;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -56,7 +62,9 @@ public class RecurringAppointmentsAdviceTest {
     private EventServiceImpl eventService;
 
     @Mock
-    private AdministrationService administrationService;
+    private AppointmentsConfigurationProvider configurationProvider;
+
+    private Map<String, String> globalProperties = new HashMap<>();
 
     @Mock
     private Event event;
@@ -72,9 +80,10 @@ public class RecurringAppointmentsAdviceTest {
         atomFeedSpringTransactionManager = spy(new AtomFeedSpringTransactionManager(platformTransactionManager));
 
         when(Context.getRegisteredComponents(PlatformTransactionManager.class)).thenReturn(Collections.singletonList(platformTransactionManager));
-        when(Context.getAdministrationService()).thenReturn(administrationService);
-        when(administrationService.getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY)).thenReturn("true");
-        when(administrationService.getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN)).thenReturn(DEFAULT_URL_PATTERN);
+        when(Context.getRegisteredComponents(AppointmentsConfigurationProvider.class)).thenReturn(Collections.singletonList(configurationProvider));
+        when(configurationProvider.get()).thenAnswer(invocation -> new AppointmentsConfiguration(globalProperties));
+        globalProperties.put(RAISE_EVENT_GLOBAL_PROPERTY, "true");
+        globalProperties.put(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
 
         whenNew(AtomFeedSpringTransactionManager.class).withAnyArguments().thenReturn(atomFeedSpringTransactionManager);
         whenNew(AllEventRecordsQueueJdbcImpl.class).withArguments(this.atomFeedSpringTransactionManager).thenReturn(allEventRecordsQueue);
@@ -95,46 +104,35 @@ public class RecurringAppointmentsAdviceTest {
         verify(eventService, times(1)).notify(any(Event.class));
         verify(atomFeedSpringTransactionManager, times(1)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("RecurringAppointments"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/recurring-appointments?uuid=%s", UUID)), eq("appointments"));
-        verify(administrationService, times(1)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
-        verify(administrationService, times(1)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
     }
 
     @Test
     public void shouldNotRaiseAppointmentServiceChangeEventToEventRecordsTableIfTheGlobalPropertyIsSetToFalse() throws Throwable {
-        when(administrationService.getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY)).thenReturn("false");
+        globalProperties.put(RAISE_EVENT_GLOBAL_PROPERTY, "false");
 
         recurringAppointmentsAdvice.afterReturning(appointmentRecurringPattern, this.getClass().getMethod("validateAndSave"), null, null);
 
-        verify(administrationService, times(0)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
-        verify(administrationService, times(1)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
         verify(atomFeedSpringTransactionManager, times(0)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verify(eventService, times(0)).notify(any(Event.class));
-        verifyNew(Event.class, times(0)).withArguments(anyString(), anyString(), any(Date.class), any(URI.class), anyString(), anyString());
     }
 
     @Test
     public void shouldNotRaiseAppointmentServiceChangeEventToEventRecordsTableIfTheMethodIsNotSaveOrVoidAppointmentService() throws Throwable {
         recurringAppointmentsAdvice.afterReturning(appointmentRecurringPattern, this.getClass().getMethod("dummy"), null, null);
 
-        verify(administrationService, times(0)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
-        verify(administrationService, times(0)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
         verify(atomFeedSpringTransactionManager, times(0)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verify(eventService, times(0)).notify(any(Event.class));
-        verifyNew(Event.class, times(0)).withArguments(anyString(), anyString(), any(Date.class), any(URI.class), anyString(), anyString());
     }
 
     @Test
     public void shouldRaiseEventWithCustomUrlPatternGivenInGlobalProperty() throws Throwable {
-        when(administrationService.getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN)).thenReturn("/openmrs/ws/rest/v1/appointment/test/{uuid}");
+        globalProperties.put(URL_PATTERN_GLOBAL_PROPERTY, "/openmrs/ws/rest/v1/appointment/test/{uuid}");
 
         recurringAppointmentsAdvice.afterReturning(appointmentRecurringPattern, this.getClass().getMethod("validateAndSave"), null, null);
 
-        verify(administrationService, times(1)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
         verify(atomFeedSpringTransactionManager, times(1)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verify(eventService, times(1)).notify(any(Event.class));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("RecurringAppointments"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/appointment/test/%s", UUID)), eq("appointments"));
-        verify(administrationService, times(1)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
-        verify(administrationService, times(1)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
     }
 
     public void validateAndSave() {
@@ -160,11 +158,9 @@ public class RecurringAppointmentsAdviceTest {
         recurringAppointmentsAdvice.afterReturning(appointmentRecurringPattern, this.getClass().getMethod("update"), null, null);
 
         verify(eventService, times(2)).notify(any(Event.class));
-        verify(atomFeedSpringTransactionManager, times(2)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
+        verify(atomFeedSpringTransactionManager, times(1)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("RecurringAppointments"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/recurring-appointments?uuid=%s", UUID)), eq("appointments"));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("RecurringAppointments"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/recurring-appointments?uuid=%s", anotherUuid)), eq("appointments"));
-        verify(administrationService, times(2)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
-        verify(administrationService, times(2)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
     }
 
     @Test
@@ -182,11 +178,9 @@ public class RecurringAppointmentsAdviceTest {
                 this.getClass().getMethod("update"), arguments, null);
 
         verify(eventService, times(2)).notify(any(Event.class));
-        verify(atomFeedSpringTransactionManager, times(2)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
+        verify(atomFeedSpringTransactionManager, times(1)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("RecurringAppointments"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/recurring-appointments?uuid=%s", UUID)), eq("appointments"));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("RecurringAppointments"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/recurring-appointments?uuid=%s", anotherUuid)), eq("appointments"));
-        verify(administrationService, times(2)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
-        verify(administrationService, times(2)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
     }
 
     @Test
@@ -199,10 +193,67 @@ public class RecurringAppointmentsAdviceTest {
         recurringAppointmentsAdvice.afterReturning(Arrays.asList(appointmentOne, appointmentTwo), this.getClass().getMethod("changeStatus"), null, null);
 
         verify(eventService, times(2)).notify(any(Event.class));
-        verify(atomFeedSpringTransactionManager, times(2)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
+        verify(atomFeedSpringTransactionManager, times(1)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("RecurringAppointments"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/recurring-appointments?uuid=%s", UUID)), eq("appointments"));
         verifyNew(Event.class, times(1)).withArguments(anyString(), eq("RecurringAppointments"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/recurring-appointments?uuid=%s", anotherUuid)), eq("appointments"));
-        verify(administrationService, times(2)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
-        verify(administrationService, times(2)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
+    }
+
+    @Test
+    public void shouldWriteCoalescedEventsOfTransactionTogetherBeforeCommit() throws Throwable {
+        Appointment appointmentOne = new Appointment();
+        Appointment appointmentTwo = new Appointment();
+        appointmentOne.setUuid(UUID);
+        appointmentTwo.setUuid("Another UUID");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            recurringAppointmentsAdvice.afterReturning(Arrays.asList(appointmentOne, appointmentTwo), this.getClass().getMethod("changeStatus"), null, null);
+            recurringAppointmentsAdvice.afterReturning(Collections.singletonList(appointmentOne), this.getClass().getMethod("changeStatus"), null, null);
+
+            verify(atomFeedSpringTransactionManager, times(0)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.beforeCommit(false);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(atomFeedSpringTransactionManager, times(1)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
+        verify(eventService, times(2)).notify(any(Event.class));
+    }
+
+    @Test
+    public void shouldWriteEventsOfTransactionStartedWhileAnotherIsSuspendedOnItsOwn() throws Throwable {
+        Appointment appointmentOne = new Appointment();
+        Appointment appointmentTwo = new Appointment();
+        appointmentOne.setUuid(UUID);
+        appointmentTwo.setUuid("Another UUID");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            recurringAppointmentsAdvice.afterReturning(Collections.singletonList(appointmentOne), this.getClass().getMethod("changeStatus"), null, null);
+
+            List<TransactionSynchronization> suspended = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.initSynchronization();
+            recurringAppointmentsAdvice.afterReturning(Collections.singletonList(appointmentTwo), this.getClass().getMethod("changeStatus"), null, null);
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.beforeCommit(false);
+            }
+            TransactionSynchronizationManager.clearSynchronization();
+
+            verify(eventService, times(1)).notify(any(Event.class));
+
+            TransactionSynchronizationManager.initSynchronization();
+            suspended.forEach(TransactionSynchronizationManager::registerSynchronization);
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.beforeCommit(false);
+            }
+        } finally {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+
+        verify(atomFeedSpringTransactionManager, times(2)).executeWithTransaction(any(AFTransactionWorkWithoutResult.class));
+        verify(eventService, times(2)).notify(any(Event.class));
     }
 }
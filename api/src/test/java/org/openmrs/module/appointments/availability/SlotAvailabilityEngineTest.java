@@ -0,0 +1,167 @@
+package org.openmrs.module.appointments.availability;
+
+import org.junit.Test;
+import org.openmrs.module.appointments.cache.ServiceAvailabilityCalendar;
+import org.openmrs.module.appointments.model.AppointmentServiceBooking;
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+import org.openmrs.module.appointments.model.AppointmentSlot;
+import org.openmrs.module.appointments.model.ServiceWeeklyAvailability;
+
+import java.sql.Time;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SlotAvailabilityEngineTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+    private static final String SERVICE_UUID = "service-uuid";
+
+    private SlotAvailabilityEngine slotAvailabilityEngine = new SlotAvailabilityEngine(ZONE);
+
+    // 2108-08-13 is a Monday
+    private Date startDateTime = toDate(LocalDateTime.of(2108, 8, 13, 0, 0));
+    private Date endDateTime = toDate(LocalDateTime.of(2108, 8, 14, 0, 0));
+    private Date now = toDate(LocalDateTime.of(2108, 8, 1, 0, 0));
+
+    @Test
+    public void shouldStepSlotsThroughServiceHours() {
+        ServiceAvailabilityCalendar calendar = ServiceAvailabilityCalendar.compile(service("09:00:00", "10:00:00", null));
+
+        List<AppointmentSlot> slots = findSlots(calendar, 20, 1, Collections.emptyList());
+
+        assertEquals(3, slots.size());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 13, 9, 0)), slots.get(0).getStartDateTime());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 13, 9, 20)), slots.get(0).getEndDateTime());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 13, 9, 40)), slots.get(2).getStartDateTime());
+        assertEquals(SERVICE_UUID, slots.get(2).getAppointmentServiceUuid());
+    }
+
+    @Test
+    public void shouldLeaveOutSlotsOverlappingBookingsAtCapacity() {
+        ServiceAvailabilityCalendar calendar = ServiceAvailabilityCalendar.compile(service("09:00:00", "10:00:00", null));
+        List<AppointmentServiceBooking> bookings = Arrays.asList(booking(9, 15, 9, 30), booking(9, 15, 9, 30), booking(9, 30, 9, 40));
+
+        List<AppointmentSlot> singleSlots = findSlots(calendar, 15, 1, bookings);
+        List<AppointmentSlot> doubleSlots = findSlots(calendar, 15, 2, bookings);
+
+        assertEquals(2, singleSlots.size());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 13, 9, 0)), singleSlots.get(0).getStartDateTime());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 13, 9, 45)), singleSlots.get(1).getStartDateTime());
+        assertEquals(3, doubleSlots.size());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 13, 9, 30)), doubleSlots.get(1).getStartDateTime());
+    }
+
+    @Test
+    public void shouldNotOfferRangesWhoseAppointmentLimitIsReached() {
+        AppointmentServiceDefinition service = service(null, null, null);
+        service.setWeeklyAvailability(new HashSet<>(Arrays.asList(
+                availability(DayOfWeek.MONDAY, "09:00:00", "10:00:00", 1),
+                availability(DayOfWeek.MONDAY, "14:00:00", "15:00:00", 2))));
+        ServiceAvailabilityCalendar calendar = ServiceAvailabilityCalendar.compile(service);
+        List<AppointmentServiceBooking> bookings = Arrays.asList(booking(9, 0, 9, 30), booking(14, 0, 14, 30));
+
+        List<AppointmentSlot> slots = findSlots(calendar, 30, 1, bookings);
+
+        assertEquals(1, slots.size());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 13, 14, 30)), slots.get(0).getStartDateTime());
+    }
+
+    @Test
+    public void shouldNotOfferSlotsOutsideRequestedRangeOrInThePast() {
+        ServiceAvailabilityCalendar calendar = ServiceAvailabilityCalendar.compile(service("09:00:00", "11:00:00", null));
+
+        List<AppointmentSlot> slots = slotAvailabilityEngine.findAvailableSlots(SERVICE_UUID, calendar, 30, 1,
+                toDate(LocalDateTime.of(2108, 8, 13, 9, 10)), toDate(LocalDateTime.of(2108, 8, 13, 10, 45)),
+                toDate(LocalDateTime.of(2108, 8, 13, 9, 35)), Collections.emptyList());
+
+        assertEquals(1, slots.size());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 13, 10, 0)), slots.get(0).getStartDateTime());
+    }
+
+    @Test
+    public void shouldOnlyOfferDaysOfWeeklyAvailability() {
+        AppointmentServiceDefinition service = service(null, null, null);
+        service.setWeeklyAvailability(new HashSet<>(Collections.singletonList(
+                availability(DayOfWeek.TUESDAY, "09:00:00", "09:30:00", null))));
+        ServiceAvailabilityCalendar calendar = ServiceAvailabilityCalendar.compile(service);
+
+        List<AppointmentSlot> slots = slotAvailabilityEngine.findAvailableSlots(SERVICE_UUID, calendar, 30, 1,
+                startDateTime, toDate(LocalDateTime.of(2108, 8, 20, 0, 0)), now, Collections.emptyList());
+
+        assertEquals(1, slots.size());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 14, 9, 0)), slots.get(0).getStartDateTime());
+    }
+
+    @Test
+    public void shouldLeaveOutEveryBookedSlotOverAMonthOfManyServices() {
+        int services = 20;
+        int bookingsPerService = 1000;
+        int slotsPerDay = 40;
+        Date monthStart = toDate(LocalDateTime.of(2108, 8, 1, 0, 0));
+        Date monthEnd = toDate(LocalDateTime.of(2108, 9, 1, 0, 0));
+        Random random = new Random(42);
+        for (int i = 0; i < services; i++) {
+            ServiceAvailabilityCalendar calendar = ServiceAvailabilityCalendar.compile(service("08:00:00", "18:00:00", null));
+            List<AppointmentServiceBooking> bookings = new ArrayList<>();
+            Set<Date> bookedStarts = new HashSet<>();
+            for (int j = 0; j < bookingsPerService; j++) {
+                LocalDateTime start = LocalDateTime.of(2108, 8, 1 + random.nextInt(31), 8 + random.nextInt(10), 15 * random.nextInt(4));
+                bookings.add(new AppointmentServiceBooking("service-" + i, toDate(start), toDate(start.plusMinutes(15))));
+                bookedStarts.add(toDate(start));
+            }
+
+            List<AppointmentSlot> slots = slotAvailabilityEngine.findAvailableSlots("service-" + i, calendar, 15, 1,
+                    monthStart, monthEnd, now, bookings);
+
+            assertEquals(31 * slotsPerDay - bookedStarts.size(), slots.size());
+            for (AppointmentSlot slot : slots) {
+                assertFalse(bookedStarts.contains(slot.getStartDateTime()));
+            }
+        }
+    }
+
+    private List<AppointmentSlot> findSlots(ServiceAvailabilityCalendar calendar, int slotMinutes, int capacity,
+                                            List<AppointmentServiceBooking> bookings) {
+        return slotAvailabilityEngine.findAvailableSlots(SERVICE_UUID, calendar, slotMinutes, capacity, startDateTime,
+                endDateTime, now, bookings);
+    }
+
+    private AppointmentServiceDefinition service(String startTime, String endTime, Integer maxAppointmentsLimit) {
+        AppointmentServiceDefinition service = new AppointmentServiceDefinition();
+        service.setStartTime(startTime != null ? Time.valueOf(startTime) : null);
+        service.setEndTime(endTime != null ? Time.valueOf(endTime) : null);
+        service.setMaxAppointmentsLimit(maxAppointmentsLimit);
+        return service;
+    }
+
+    private ServiceWeeklyAvailability availability(DayOfWeek dayOfWeek, String startTime, String endTime, Integer maxAppointmentsLimit) {
+        ServiceWeeklyAvailability availability = new ServiceWeeklyAvailability();
+        availability.setDayOfWeek(dayOfWeek);
+        availability.setStartTime(Time.valueOf(startTime));
+        availability.setEndTime(Time.valueOf(endTime));
+        availability.setMaxAppointmentsLimit(maxAppointmentsLimit);
+        return availability;
+    }
+
+    private AppointmentServiceBooking booking(int startHour, int startMinute, int endHour, int endMinute) {
+        return new AppointmentServiceBooking(SERVICE_UUID, toDate(LocalDateTime.of(2108, 8, 13, startHour, startMinute)),
+                toDate(LocalDateTime.of(2108, 8, 13, endHour, endMinute)));
+    }
+
+    private static Date toDate(LocalDateTime localDateTime) {
+        return Date.from(localDateTime.atZone(ZONE).toInstant());
+    }
+}
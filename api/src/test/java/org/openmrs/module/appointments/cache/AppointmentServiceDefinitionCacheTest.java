@@ -0,0 +1,74 @@
+package org.openmrs.module.appointments.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AppointmentServiceDefinitionCacheTest {
+
+    private AppointmentServiceDefinitionCache appointmentServiceDefinitionCache;
+
+    private AppointmentServiceDefinition appointmentServiceDefinition;
+
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() {
+        appointmentServiceDefinitionCache = new AppointmentServiceDefinitionCache();
+        appointmentServiceDefinition = new AppointmentServiceDefinition();
+        appointmentServiceDefinition.setUuid("serviceUuid");
+        appointmentServiceDefinition.setAppointmentServiceId(1);
+        loads = new AtomicInteger();
+    }
+
+    private Integer load(String uuid) {
+        loads.incrementAndGet();
+        return appointmentServiceDefinition.getUuid().equals(uuid) ? appointmentServiceDefinition.getAppointmentServiceId() : null;
+    }
+
+    @Test
+    public void shouldLookUpServiceIdOnceAndCountHitsAndMisses() {
+        appointmentServiceDefinitionCache.getId("serviceUuid", this::load);
+        Integer cachedId = appointmentServiceDefinitionCache.getId("serviceUuid", this::load);
+
+        assertEquals(Integer.valueOf(1), cachedId);
+        assertEquals(1, loads.get());
+        assertEquals(1, appointmentServiceDefinitionCache.getHitCount());
+        assertEquals(1, appointmentServiceDefinitionCache.getMissCount());
+    }
+
+    @Test
+    public void shouldNotCacheUnknownService() {
+        assertNull(appointmentServiceDefinitionCache.getId("unknownUuid", this::load));
+        assertNull(appointmentServiceDefinitionCache.getId("unknownUuid", this::load));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, appointmentServiceDefinitionCache.getSize());
+    }
+
+    @Test
+    public void shouldLoadServiceAgainAfterItIsEvicted() {
+        appointmentServiceDefinitionCache.getId("serviceUuid", this::load);
+        appointmentServiceDefinitionCache.evict(appointmentServiceDefinition);
+        appointmentServiceDefinitionCache.getId("serviceUuid", this::load);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, appointmentServiceDefinitionCache.getVersion());
+    }
+
+    @Test
+    public void shouldNotKeepServiceLoadedWhileItWasEvicted() {
+        appointmentServiceDefinitionCache.getId("serviceUuid", uuid -> {
+            appointmentServiceDefinitionCache.evict(appointmentServiceDefinition);
+            return load(uuid);
+        });
+        appointmentServiceDefinitionCache.getId("serviceUuid", this::load);
+
+        assertEquals(2, loads.get());
+    }
+}
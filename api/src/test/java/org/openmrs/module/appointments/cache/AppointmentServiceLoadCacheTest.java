@@ -0,0 +1,99 @@
+package org.openmrs.module.appointments.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class AppointmentServiceLoadCacheTest {
+
+    private AppointmentServiceLoadCache appointmentServiceLoadCache;
+
+    private AppointmentServiceDefinition appointmentServiceDefinition;
+
+    private List<AppointmentStatus> appointmentStatusList = Arrays.asList(AppointmentStatus.Scheduled, AppointmentStatus.CheckedIn);
+
+    private Date startDateTime = new Date(1000000);
+
+    private Date endDateTime = new Date(2000000);
+
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() {
+        appointmentServiceLoadCache = new AppointmentServiceLoadCache();
+        appointmentServiceDefinition = new AppointmentServiceDefinition();
+        appointmentServiceDefinition.setUuid("serviceUuid");
+        loads = new AtomicInteger();
+    }
+
+    private Integer getLoad(List<AppointmentStatus> statuses) {
+        return appointmentServiceLoadCache.get(appointmentServiceDefinition, startDateTime, endDateTime, statuses,
+                () -> loads.incrementAndGet());
+    }
+
+    @Test
+    public void shouldLoadOnceForSameServiceWindowAndStatuses() {
+        getLoad(appointmentStatusList);
+        Integer load = getLoad(Arrays.asList(AppointmentStatus.CheckedIn, AppointmentStatus.Scheduled));
+
+        assertEquals(1, load.intValue());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void shouldLoadAgainForDifferentStatuses() {
+        getLoad(appointmentStatusList);
+        getLoad(Arrays.asList(AppointmentStatus.Scheduled));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void shouldLoadAgainAfterTimeToLive() {
+        appointmentServiceLoadCache.setTimeToLiveMillis(0);
+        getLoad(appointmentStatusList);
+        getLoad(appointmentStatusList);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void shouldLoadAgainWhenAppointmentInWindowIsEvicted() {
+        getLoad(appointmentStatusList);
+        appointmentServiceLoadCache.evict(appointmentServiceDefinition, new Date(1500000));
+        getLoad(appointmentStatusList);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void shouldKeepLoadWhenEvictedAppointmentIsOutsideWindowOrOfAnotherService() {
+        AppointmentServiceDefinition anotherService = new AppointmentServiceDefinition();
+        anotherService.setUuid("anotherServiceUuid");
+        getLoad(appointmentStatusList);
+        appointmentServiceLoadCache.evict(appointmentServiceDefinition, new Date(3000000));
+        appointmentServiceLoadCache.evict(anotherService, new Date(1500000));
+        getLoad(appointmentStatusList);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void shouldNotKeepLoadWhenEvictedWhileLoading() {
+        appointmentServiceLoadCache.get(appointmentServiceDefinition, startDateTime, endDateTime, appointmentStatusList, () -> {
+            appointmentServiceLoadCache.evictAll();
+            return loads.incrementAndGet();
+        });
+        getLoad(appointmentStatusList);
+
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,87 @@
+package org.openmrs.module.appointments.cache;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+import org.openmrs.module.appointments.model.Speciality;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReferenceDataCacheStatisticsTest {
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private Statistics statistics;
+
+    @Mock
+    private SecondLevelCacheStatistics serviceStatistics;
+
+    @Mock
+    private SecondLevelCacheStatistics specialityStatistics;
+
+    @Spy
+    private AppointmentServiceDefinitionCache appointmentServiceDefinitionCache = new AppointmentServiceDefinitionCache();
+
+    @InjectMocks
+    private ReferenceDataCacheStatistics referenceDataCacheStatistics;
+
+    @Before
+    public void setUp() {
+        when(sessionFactory.getStatistics()).thenReturn(statistics);
+        when(statistics.getSecondLevelCacheStatistics(AppointmentServiceDefinition.class.getName())).thenReturn(serviceStatistics);
+        when(statistics.getSecondLevelCacheStatistics(Speciality.class.getName())).thenReturn(specialityStatistics);
+    }
+
+    @Test
+    public void shouldReturnStatisticsOfConfiguredReferenceDataRegions() {
+        Map<String, SecondLevelCacheStatistics> regionStatistics = referenceDataCacheStatistics.getRegionStatistics();
+
+        assertEquals(Arrays.asList(AppointmentServiceDefinition.class.getName(), Speciality.class.getName()),
+                Arrays.asList(regionStatistics.keySet().toArray()));
+        assertSame(serviceStatistics, regionStatistics.get(AppointmentServiceDefinition.class.getName()));
+        for (String region : ReferenceDataCacheStatistics.REGIONS) {
+            verify(statistics).getSecondLevelCacheStatistics(region);
+        }
+    }
+
+    @Test
+    public void shouldLogServiceDefinitionCacheCountsWhetherStatisticsAreEnabledOrNot() {
+        when(statistics.isStatisticsEnabled()).thenReturn(false);
+
+        referenceDataCacheStatistics.logStatistics();
+
+        verify(appointmentServiceDefinitionCache).getHitCount();
+        verify(appointmentServiceDefinitionCache).getMissCount();
+    }
+
+    @Test
+    public void shouldLogRegionCountsOnlyWhenStatisticsAreEnabled() {
+        when(statistics.isStatisticsEnabled()).thenReturn(false);
+        referenceDataCacheStatistics.logStatistics();
+        verify(statistics, never()).getSecondLevelCacheStatistics(anyString());
+
+        when(statistics.isStatisticsEnabled()).thenReturn(true);
+        referenceDataCacheStatistics.logStatistics();
+        verify(serviceStatistics).getHitCount();
+        verify(specialityStatistics).getMissCount();
+    }
+}
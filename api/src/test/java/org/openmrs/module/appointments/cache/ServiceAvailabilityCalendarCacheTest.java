@@ -0,0 +1,66 @@
+package org.openmrs.module.appointments.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ServiceAvailabilityCalendarCacheTest {
+
+    private ServiceAvailabilityCalendarCache serviceAvailabilityCalendarCache;
+
+    @Before
+    public void setUp() {
+        serviceAvailabilityCalendarCache = new ServiceAvailabilityCalendarCache();
+    }
+
+    @Test
+    public void shouldReuseCalendarOfServiceChangedAtSameTime() {
+        ServiceAvailabilityCalendar calendar = serviceAvailabilityCalendarCache.get(service(new Date(1000)));
+
+        assertSame(calendar, serviceAvailabilityCalendarCache.get(service(new Date(1000))));
+    }
+
+    @Test
+    public void shouldCompileCalendarAgainForChangedServiceWhenStaleOneWasKeptAfterEviction() {
+        AppointmentServiceDefinition readBeforeChange = service(new Date(1000));
+        serviceAvailabilityCalendarCache.evict(readBeforeChange);
+        ServiceAvailabilityCalendar staleCalendar = serviceAvailabilityCalendarCache.get(readBeforeChange);
+
+        ServiceAvailabilityCalendar calendar = serviceAvailabilityCalendarCache.get(service(new Date(2000)));
+
+        assertNotSame(staleCalendar, calendar);
+        assertSame(calendar, serviceAvailabilityCalendarCache.get(service(new Date(2000))));
+    }
+
+    @Test
+    public void shouldNotReplaceCalendarOfLaterChangeWithOneOfEarlierDefinition() {
+        ServiceAvailabilityCalendar calendar = serviceAvailabilityCalendarCache.get(service(new Date(2000)));
+
+        ServiceAvailabilityCalendar staleCalendar = serviceAvailabilityCalendarCache.get(service(new Date(1000)));
+
+        assertNotSame(calendar, staleCalendar);
+        assertSame(calendar, serviceAvailabilityCalendarCache.get(service(new Date(2000))));
+    }
+
+    @Test
+    public void shouldCompileCalendarOfNeverChangedServiceOnceUntilEvicted() {
+        ServiceAvailabilityCalendar calendar = serviceAvailabilityCalendarCache.get(service(null));
+        assertSame(calendar, serviceAvailabilityCalendarCache.get(service(null)));
+
+        serviceAvailabilityCalendarCache.evict(service(null));
+
+        assertNotSame(calendar, serviceAvailabilityCalendarCache.get(service(null)));
+    }
+
+    private AppointmentServiceDefinition service(Date dateChanged) {
+        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
+        appointmentServiceDefinition.setUuid("serviceUuid");
+        appointmentServiceDefinition.setDateChanged(dateChanged);
+        return appointmentServiceDefinition;
+    }
+}
@@ -0,0 +1,87 @@
+package org.openmrs.module.appointments.config;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.context.Context;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@PrepareForTest(Context.class)
+@RunWith(PowerMockRunner.class)
+public class AppointmentsConfigurationProviderTest {
+
+    @Mock
+    private AdministrationService administrationService;
+
+    private AppointmentsConfigurationProvider appointmentsConfigurationProvider;
+
+    @Before
+    public void setUp() {
+        mockStatic(Context.class);
+        when(Context.getAdministrationService()).thenReturn(administrationService);
+        when(administrationService.getGlobalProperty(AppointmentsConfiguration.RAISE_APPOINTMENT_EVENTS)).thenReturn("true");
+        appointmentsConfigurationProvider = new AppointmentsConfigurationProvider();
+    }
+
+    @Test
+    public void shouldLoadGlobalPropertiesOnceAndListenToTheirChanges() {
+        AppointmentsConfiguration configuration = appointmentsConfigurationProvider.get();
+
+        assertSame(configuration, appointmentsConfigurationProvider.get());
+        assertTrue(configuration.shouldRaiseAppointmentEvents());
+        verify(administrationService, times(AppointmentsConfiguration.PROPERTY_NAMES.size())).getGlobalProperty(anyString());
+        verify(administrationService, times(1)).addGlobalPropertyListener(appointmentsConfigurationProvider);
+    }
+
+    @Test
+    public void shouldSwapInNewSnapshotWhenPropertyChanges() {
+        AppointmentsConfiguration configuration = appointmentsConfigurationProvider.get();
+
+        appointmentsConfigurationProvider.globalPropertyChanged(new GlobalProperty(AppointmentsConfiguration.APPOINTMENT_URL_PATTERN, "/custom/{uuid}"));
+
+        AppointmentsConfiguration changedConfiguration = appointmentsConfigurationProvider.get();
+        assertNotSame(configuration, changedConfiguration);
+        assertEquals("/custom/{uuid}", changedConfiguration.getAppointmentUrlPattern());
+        assertTrue(changedConfiguration.shouldRaiseAppointmentEvents());
+        assertEquals("/openmrs/ws/rest/v1/appointment?uuid={uuid}", configuration.getAppointmentUrlPattern());
+    }
+
+    @Test
+    public void shouldFallBackToDefaultWhenPropertyIsDeleted() {
+        appointmentsConfigurationProvider.get();
+
+        appointmentsConfigurationProvider.globalPropertyDeleted(AppointmentsConfiguration.RAISE_APPOINTMENT_EVENTS);
+
+        assertFalse(appointmentsConfigurationProvider.get().shouldRaiseAppointmentEvents());
+    }
+
+    @Test
+    public void shouldOnlySupportPropertiesOfTheModule() {
+        assertTrue(appointmentsConfigurationProvider.supportsPropertyName(AppointmentsConfiguration.SCHEDULER_MARKS_MISSED));
+        assertFalse(appointmentsConfigurationProvider.supportsPropertyName("mail.smtp_host"));
+    }
+
+    @Test
+    public void shouldStopListeningWhenDestroyed() {
+        appointmentsConfigurationProvider.get();
+
+        appointmentsConfigurationProvider.destroy();
+
+        verify(administrationService, times(1)).removeGlobalPropertyListener(appointmentsConfigurationProvider);
+    }
+}
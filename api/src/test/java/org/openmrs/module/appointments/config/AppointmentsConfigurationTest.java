@@ -0,0 +1,43 @@
+package org.openmrs.module.appointments.config;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AppointmentsConfigurationTest {
+
+    @Test
+    public void shouldUseDefaultsForMissingOrEmptyProperties() {
+        Map<String, String> values = new HashMap<>();
+        values.put(AppointmentsConfiguration.TELECONSULTATION_SERVER_URL_PATTERN, "");
+
+        AppointmentsConfiguration configuration = new AppointmentsConfiguration(values);
+
+        assertEquals("https://meet.jit.si/uuid", configuration.formatTeleconsultationLink("uuid"));
+        assertEquals("/openmrs/ws/rest/v1/recurring-appointments?uuid={uuid}", configuration.getRecurringAppointmentUrlPattern());
+        assertEquals("/openmrs/ws/rest/v1/appointmentService?uuid={uuid}", configuration.getAppointmentServiceUrlPattern());
+        assertFalse(configuration.shouldRaiseAppointmentServiceEvents());
+        assertFalse(configuration.areDefaultValidationsDisabled());
+        assertFalse(configuration.hasPatientEmailTemplate());
+        assertNull(configuration.getPatientEmailSubject());
+        assertEquals("none", configuration.getAppointmentNumberPrefix());
+        assertTrue(configuration.isMaxAppointmentsLimitEnforced());
+    }
+
+    @Test
+    public void shouldFormatPatientEmailWithConfiguredTemplate() {
+        AppointmentsConfiguration configuration = new AppointmentsConfiguration(Collections.singletonMap(
+                AppointmentsConfiguration.PATIENT_EMAIL_TEMPLATE, "Dear {0}, join {3} with {1}"));
+
+        assertTrue(configuration.hasPatientEmailTemplate());
+        assertEquals("Dear John, join link with Dr. Smith",
+                configuration.formatPatientEmail(new Object[]{"John", "Dr. Smith", null, "link"}));
+    }
+}
@@ -3,7 +3,9 @@ package org.openmrs.module.appointments.conflicts.impl;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.openmrs.module.appointments.cache.ServiceAvailabilityCalendarCache;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.ServiceWeeklyAvailability;
@@ -16,6 +18,9 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -24,6 +29,9 @@ import static org.openmrs.module.appointments.helper.DateHelper.getDate;
 @RunWith(MockitoJUnitRunner.class)
 public class AppointmentServiceUnavailabilityConflictTest {
 
+    @Spy
+    private ServiceAvailabilityCalendarCache serviceAvailabilityCalendarCache = new ServiceAvailabilityCalendarCache();
+
     @InjectMocks
     private AppointmentServiceUnavailabilityConflict appointmentServiceUnavailabilityConflict;
 
@@ -217,4 +225,62 @@ public class AppointmentServiceUnavailabilityConflictTest {
         assertNotNull(appointments);
         assertEquals(appointment, appointments.get(0));
     }
+
+    @Test
+    public void shouldCompileAvailabilityOfServiceOnlyOnce() {
+        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
+        appointmentServiceDefinition.setStartTime(new Time(8, 30, 0));
+        appointmentServiceDefinition.setEndTime(new Time(17, 0, 0));
+        Appointment appointmentOne = new Appointment();
+        appointmentOne.setService(appointmentServiceDefinition);
+        appointmentOne.setStartDateTime(getDate(2019, 8, 23, 9, 0, 0));
+        appointmentOne.setEndDateTime(getDate(2019, 8, 23, 9, 30, 0));
+        Appointment appointmentTwo = new Appointment();
+        appointmentTwo.setService(appointmentServiceDefinition);
+        appointmentTwo.setStartDateTime(getDate(2019, 8, 24, 16, 30, 0));
+        appointmentTwo.setEndDateTime(getDate(2019, 8, 24, 17, 30, 0));
+
+        List<Appointment> conflicts = appointmentServiceUnavailabilityConflict.getConflicts(Arrays.asList(appointmentOne, appointmentTwo));
+        appointmentServiceDefinition.setEndTime(new Time(18, 0, 0));
+        List<Appointment> conflictsAfterChange = appointmentServiceUnavailabilityConflict.getConflicts(Arrays.asList(appointmentOne, appointmentTwo));
+        serviceAvailabilityCalendarCache.evict(appointmentServiceDefinition);
+        List<Appointment> conflictsAfterEviction = appointmentServiceUnavailabilityConflict.getConflicts(Arrays.asList(appointmentOne, appointmentTwo));
+
+        assertEquals(Collections.singletonList(appointmentTwo), conflicts);
+        assertEquals(Collections.singletonList(appointmentTwo), conflictsAfterChange);
+        assertEquals(0, conflictsAfterEviction.size());
+    }
+
+    @Test
+    public void shouldReturnSameConflictsWhenCheckedConcurrently() throws Exception {
+        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
+        ServiceWeeklyAvailability tuesday = new ServiceWeeklyAvailability();
+        tuesday.setStartTime(new Time(8, 30, 0));
+        tuesday.setEndTime(new Time(12, 0, 0));
+        tuesday.setDayOfWeek(DayOfWeek.TUESDAY);
+        appointmentServiceDefinition.setWeeklyAvailability(new HashSet<>(Collections.singletonList(tuesday)));
+        List<Appointment> series = new ArrayList<>();
+        for (int week = 0; week < 50; week++) {
+            Appointment appointment = new Appointment();
+            appointment.setService(appointmentServiceDefinition);
+            appointment.setStartDateTime(getDate(2019, 8, 3 + week * 7, 11, 0, 0));
+            appointment.setEndDateTime(getDate(2019, 8, 3 + week * 7, week % 2 == 0 ? 11 : 13, 30, 0));
+            series.add(appointment);
+        }
+        List<Appointment> expectedConflicts = appointmentServiceUnavailabilityConflict.getConflicts(series);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Appointment>>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                serviceAvailabilityCalendarCache.evictAll();
+                results.add(executorService.submit(() -> appointmentServiceUnavailabilityConflict.getConflicts(series)));
+            }
+            for (Future<List<Appointment>> result : results) {
+                assertEquals(expectedConflicts, result.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals(25, expectedConflicts.size());
+    }
 }
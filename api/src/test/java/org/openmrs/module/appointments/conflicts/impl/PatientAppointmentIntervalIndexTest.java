@@ -0,0 +1,89 @@
+package org.openmrs.module.appointments.conflicts.impl;
+
+import org.junit.Test;
+import org.openmrs.module.appointments.helper.DateHelper;
+import org.openmrs.module.appointments.model.Appointment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PatientAppointmentIntervalIndexTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void shouldReturnOverlappingAppointmentsInGivenOrder() {
+        Appointment longAppointment = appointment(DateHelper.getDate(2119, 8, 1, 9, 0, 0), DateHelper.getDate(2119, 8, 1, 17, 0, 0));
+        Appointment lateAppointment = appointment(DateHelper.getDate(2119, 8, 1, 11, 30, 0), DateHelper.getDate(2119, 8, 1, 12, 30, 0));
+        Appointment earlyAppointment = appointment(DateHelper.getDate(2119, 8, 1, 10, 0, 0), DateHelper.getDate(2119, 8, 1, 10, 30, 0));
+        PatientAppointmentIntervalIndex index = new PatientAppointmentIntervalIndex(Arrays.asList(lateAppointment, longAppointment, earlyAppointment));
+
+        List<Appointment> overlapping = index.getOverlapping(DateHelper.getDate(2119, 8, 1, 10, 15, 0), DateHelper.getDate(2119, 8, 1, 12, 0, 0));
+
+        assertEquals(Arrays.asList(lateAppointment, longAppointment, earlyAppointment), overlapping);
+    }
+
+    @Test
+    public void shouldNotReturnAppointmentsOnlyTouchingTheRange() {
+        Appointment before = appointment(DateHelper.getDate(2119, 8, 1, 9, 0, 0), DateHelper.getDate(2119, 8, 1, 10, 0, 0));
+        Appointment after = appointment(DateHelper.getDate(2119, 8, 1, 11, 0, 0), DateHelper.getDate(2119, 8, 1, 12, 0, 0));
+        PatientAppointmentIntervalIndex index = new PatientAppointmentIntervalIndex(Arrays.asList(before, after));
+
+        List<Appointment> overlapping = index.getOverlapping(DateHelper.getDate(2119, 8, 1, 10, 0, 0), DateHelper.getDate(2119, 8, 1, 11, 0, 0));
+
+        assertTrue(overlapping.isEmpty());
+    }
+
+    @Test
+    public void shouldReturnNothingWhenThereAreNoAppointments() {
+        PatientAppointmentIntervalIndex index = new PatientAppointmentIntervalIndex(Collections.emptyList());
+
+        assertTrue(index.getOverlapping(new Date(0), new Date(HOUR)).isEmpty());
+    }
+
+    @Test
+    public void shouldFindSameAppointmentsAsLinearScan() {
+        Random random = new Random(7);
+        List<Appointment> patientAppointments = randomAppointments(random, 500);
+        PatientAppointmentIntervalIndex index = new PatientAppointmentIntervalIndex(patientAppointments);
+
+        for (Appointment candidate : randomAppointments(random, 200)) {
+            assertEquals(linearScan(patientAppointments, candidate),
+                    index.getOverlapping(candidate.getStartDateTime(), candidate.getEndDateTime()));
+        }
+    }
+
+    private List<Appointment> linearScan(List<Appointment> patientAppointments, Appointment candidate) {
+        return patientAppointments.stream()
+                .filter(patientAppointment -> candidate.getStartDateTime().before(patientAppointment.getEndDateTime())
+                        && candidate.getEndDateTime().after(patientAppointment.getStartDateTime()))
+                .collect(Collectors.toList());
+    }
+
+    private List<Appointment> randomAppointments(Random random, int count) {
+        long firstDay = DateHelper.getDate(2119, 0, 1, 0, 0, 0).getTime();
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long start = firstDay + (random.nextInt(365 * 24 * 4) * HOUR / 4);
+            long end = start + (1 + random.nextInt(8)) * HOUR / 4;
+            appointments.add(appointment(new Date(start), new Date(end)));
+        }
+        return appointments;
+    }
+
+    private Appointment appointment(Date startDateTime, Date endDateTime) {
+        Appointment appointment = new Appointment();
+        appointment.setStartDateTime(startDateTime);
+        appointment.setEndDateTime(endDateTime);
+        return appointment;
+    }
+}
@@ -19,6 +19,9 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -55,6 +58,25 @@ public class PatientDoubleBookingConflictTest {
         assertEquals(patientAppointment,appointments.get(0));
     }
 
+    @Test
+    public void shouldUseGivenPatientAppointmentsInsteadOfFetchingThem() {
+        Patient patient = new Patient();
+        patient.setId(1);
+        Appointment patientAppointment = new Appointment();
+        patientAppointment.setStartDateTime(DateHelper.getDate(2119,8,1,11,0,0));
+        patientAppointment.setEndDateTime(DateHelper.getDate(2119,8,1,12,0,0));
+        Appointment appointment = new Appointment();
+        appointment.setPatient(patient);
+        appointment.setStartDateTime(DateHelper.getDate(2119,8,1,11,30,0));
+        appointment.setEndDateTime(DateHelper.getDate(2119,8,1,12,30,0));
+
+        List<Appointment> appointments = patientDoubleBookingConflict.getConflicts(Collections.singletonList(appointment),
+                Collections.singletonList(patientAppointment));
+
+        assertEquals(Collections.singletonList(patientAppointment), appointments);
+        verify(appointmentDao, never()).getAppointmentsForPatient(any(Integer.class));
+    }
+
     @Test
     public void shouldNotConflictWithCancelledAppointmentOnSameTime() {
         Patient patient = new Patient();
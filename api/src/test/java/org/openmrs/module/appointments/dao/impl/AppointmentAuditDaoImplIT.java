@@ -2,6 +2,7 @@ package org.openmrs.module.appointments.dao.impl;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.appointments.BaseIntegrationTest;
 import org.openmrs.module.appointments.dao.AppointmentAuditDao;
 import org.openmrs.module.appointments.dao.AppointmentDao;
@@ -10,6 +11,9 @@ import org.openmrs.module.appointments.model.AppointmentAudit;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -68,4 +72,23 @@ public class AppointmentAuditDaoImplIT extends BaseIntegrationTest {
         AppointmentAudit priorStatusChangeEvent = appointmentAuditDao.getPriorStatusChangeEvent(appointment);
         assertNull(priorStatusChangeEvent);
     }
+
+    @Test
+    public void shouldSaveAppointmentAuditsInBatch() throws Exception {
+        Appointment appointment = appointmentDao.getAppointmentByUuid("75504r42-3ca8-11e3-bf2b-0800271c1111");
+        List<AppointmentAudit> audits = new ArrayList<>();
+        for (AppointmentStatus status : Arrays.asList(AppointmentStatus.CheckedIn, AppointmentStatus.Completed)) {
+            AppointmentAudit audit = new AppointmentAudit();
+            audit.setAppointment(appointment);
+            audit.setStatus(status);
+            audit.setCreator(Context.getAuthenticatedUser());
+            audit.setDateCreated(new Date());
+            audits.add(audit);
+        }
+
+        appointmentAuditDao.saveInBatch(audits);
+
+        List<AppointmentAudit> allAuditEvents = appointmentAuditDao.getAppointmentHistoryForAppointment(appointment);
+        assertEquals(3, allAuditEvents.size());
+    }
 }
@@ -1,7 +1,11 @@
 package org.openmrs.module.appointments.dao.impl;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
+import org.openmrs.Patient;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.appointments.BaseIntegrationTest;
 import org.openmrs.module.appointments.dao.AppointmentDao;
 import org.openmrs.module.appointments.dao.AppointmentServiceDao;
@@ -12,6 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -23,6 +28,9 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
     @Autowired
     AppointmentServiceDao appointmentServiceDao;
 
+    @Autowired
+    SessionFactory sessionFactory;
+
     @Before
     public void setUp() throws Exception {
         executeDataSet("appointmentTestData.xml");
@@ -107,6 +115,57 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
         assertEquals(AppointmentStatus.Scheduled, appointment1.getStatus());
     }
 
+    @Test
+    public void shouldCountAppointmentsOfEachServicePerDayForGivenStatuses() throws ParseException {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        Date startDate = simpleDateFormat.parse("2108-08-15");
+        Date endDate = simpleDateFormat.parse("2108-08-22");
+        List<AppointmentStatus> appointmentStatusList = Arrays.asList(AppointmentStatus.Requested, AppointmentStatus.Completed,
+                AppointmentStatus.Scheduled, AppointmentStatus.CheckedIn, AppointmentStatus.Missed);
+
+        List<DailyAppointmentServiceCount> dailyCounts = appointmentDao.getDailyAppointmentServiceCounts(startDate, endDate, appointmentStatusList);
+
+        DailyAppointmentServiceCount dailyCount = dailyCounts.stream()
+                .filter(count -> "c36006e5-9fbb-4f20-866b-0ece245615a6".equals(count.getAppointmentServiceUuid()))
+                .findFirst().get();
+        assertEquals(simpleDateFormat.parse("2108-08-15"), dailyCount.getAppointmentDate());
+        assertEquals(4, dailyCount.getAllAppointmentsCount());
+        assertEquals(1, dailyCount.getMissedAppointmentsCount());
+    }
+
+    @Test
+    public void shouldCountAppointmentsForServiceWithoutLoadingThem() throws ParseException {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        Date startDate = simpleDateFormat.parse("2017-08-08");
+        Date endDate = simpleDateFormat.parse("2017-08-09");
+        AppointmentServiceDefinition appointmentServiceDefinition = appointmentServiceDao.getAppointmentServiceByUuid("c36006e5-9fbb-4f20-866b-0ece245615a6");
+
+        long count = appointmentDao.getAppointmentsCountForService(appointmentServiceDefinition, startDate, endDate,
+                Collections.singletonList(AppointmentStatus.Scheduled));
+
+        assertEquals(appointmentDao.getAppointmentsForService(appointmentServiceDefinition, startDate, endDate,
+                Collections.singletonList(AppointmentStatus.Scheduled)).size(), count);
+        assertEquals(1, count);
+    }
+
+    @Test
+    public void shouldReadTimesOfServiceAppointmentsOverlappingRange() throws ParseException {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        Date startDate = simpleDateFormat.parse("2017-08-08");
+        Date endDate = simpleDateFormat.parse("2017-08-09");
+        AppointmentServiceDefinition appointmentServiceDefinition = appointmentServiceDao.getAppointmentServiceByUuid("c36006e5-9fbb-4f20-866b-0ece245615a6");
+
+        List<AppointmentServiceBooking> bookings = appointmentDao.getAppointmentServiceBookings(appointmentServiceDefinition,
+                startDate, endDate, Collections.singletonList(AppointmentStatus.Scheduled));
+
+        assertFalse(bookings.isEmpty());
+        for (AppointmentServiceBooking booking : bookings) {
+            assertEquals("c36006e5-9fbb-4f20-866b-0ece245615a6", booking.getAppointmentServiceUuid());
+            assertTrue(booking.getStartDateTime().before(endDate));
+            assertTrue(booking.getEndDateTime().after(startDate));
+        }
+    }
+
     @Test
     public void shouldGetAppointmentByUuid() throws Exception {
         String appointmentUuid="75504r42-3ca8-11e3-bf2b-0800271c1b77";
@@ -122,6 +181,24 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
         assertNull(appointment);
     }
 
+    @Test
+    public void shouldGetPersistedStatusServiceAndStartOfAppointmentWithoutFlushingItsChanges() throws Exception {
+        Appointment appointment = appointmentDao.getAppointmentByUuid("75504r42-3ca8-11e3-bf2b-0800271c1b77");
+        AppointmentStatus status = appointment.getStatus();
+        AppointmentServiceDefinition service = appointment.getService();
+        Date startDateTime = appointment.getStartDateTime();
+        appointment.setStatus(AppointmentStatus.Cancelled);
+        appointment.setStartDateTime(new Date(startDateTime.getTime() + 24 * 60 * 60 * 1000));
+
+        Appointment persisted = appointmentDao.getPersistedAppointment(appointment.getAppointmentId());
+
+        assertNotSame(appointment, persisted);
+        assertEquals(status, persisted.getStatus());
+        assertEquals(service, persisted.getService());
+        assertEquals(startDateTime.getTime(), persisted.getStartDateTime().getTime());
+        assertNull(appointmentDao.getPersistedAppointment(-1));
+    }
+
     @Test
     public void shouldGetAppointmentsForGivenDateRange() throws Exception {
         Date from = DateUtil.convertToDate("2108-08-10T00:00:00.0Z", DateUtil.DateFormatType.UTC);
@@ -137,26 +214,149 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
         assertEquals(6, allAppointments.size());
     }
 
+    @Test
+    public void shouldWalkAppointmentsInDateRangeInChunksOrderedByIdForGivenStatuses() throws ParseException {
+        Date to = DateUtil.convertToDate("2108-08-15T00:00:00.0Z", DateUtil.DateFormatType.UTC);
+        List<AppointmentStatus> statuses = Arrays.asList(AppointmentStatus.Scheduled, AppointmentStatus.CheckedIn);
+        List<List<Integer>> chunks = new ArrayList<>();
+
+        appointmentDao.forEachAppointmentsChunkInDateRange(null, to, statuses, 3, appointments ->
+                chunks.add(appointments.stream().map(Appointment::getAppointmentId).collect(Collectors.toList())));
+
+        assertEquals(2, chunks.size());
+        assertEquals(Arrays.asList(7, 10, 14), chunks.get(0));
+        assertEquals(Collections.singletonList(15), chunks.get(1));
+    }
+
+    @Test
+    public void shouldNotWalkAppointmentsOfVoidedServiceTypeInDateRange() throws ParseException {
+        Date to = DateUtil.convertToDate("2108-08-15T00:00:00.0Z", DateUtil.DateFormatType.UTC);
+        List<Appointment> cancelledAppointments = new ArrayList<>();
+
+        appointmentDao.forEachAppointmentsChunkInDateRange(null, to, Collections.singletonList(AppointmentStatus.Cancelled),
+                10, cancelledAppointments::addAll);
+
+        assertEquals(0, cancelledAppointments.size());
+    }
+
+    @Test
+    public void shouldGetNextChunkOfAppointmentsAfterGivenId() throws Exception {
+        List<Appointment> firstChunk = appointmentDao.getAppointmentsChunkInDateRange(null, null, null, null, 3);
+        Integer lastAppointmentId = firstChunk.get(2).getAppointmentId();
+
+        List<Appointment> nextChunk = appointmentDao.getAppointmentsChunkInDateRange(null, null, null, lastAppointmentId, 3);
+
+        assertEquals(3, nextChunk.size());
+        for (Appointment appointment : nextChunk) {
+            assertTrue(appointment.getAppointmentId() > lastAppointmentId);
+        }
+    }
+
     @Test
     public void shouldGetAllNonVoidedAppointmentsWhenNoDateRangeIsProvided() throws Exception {
         List<Appointment> allAppointmentServices = appointmentDao.getAllAppointmentsInDateRange(null, null);
         assertEquals(11, allAppointmentServices.size());
     }
 
+    @Test
+    public void shouldReturnAppointmentsChangedSinceGivenTimeIncludingVoidedOnes() throws Exception {
+        Date since = DateUtil.convertToDate("2100-01-01T00:00:00.0Z", DateUtil.DateFormatType.UTC);
+
+        List<Appointment> appointments = appointmentDao.getAppointmentsChangedSince(since, null, 500);
+
+        List<String> uuids = appointments.stream().map(Appointment::getUuid).collect(Collectors.toList());
+        assertTrue(uuids.contains("75504r42-3ca8-11e3-bf2b-0800271c1111"));
+        assertTrue(uuids.contains("75504r42-3ca8-11e3-bf2b-0800271c13344"));
+        assertFalse(uuids.contains("75504r42-3ca8-11e3-bf2b-0800271c1b77"));
+        for (Appointment appointment : appointments) {
+            assertTrue(appointment.getDateCreated().after(since)
+                    || (appointment.getDateChanged() != null && appointment.getDateChanged().after(since))
+                    || (appointment.getDateVoided() != null && appointment.getDateVoided().after(since)));
+        }
+    }
+
+    @Test
+    public void shouldPageAppointmentsChangedSinceGivenTimeByChangeTimeAndId() throws Exception {
+        Date since = DateUtil.convertToDate("2100-01-01T00:00:00.0Z", DateUtil.DateFormatType.UTC);
+        List<Appointment> allChanges = appointmentDao.getAppointmentsChangedSince(since, null, 500);
+
+        List<Appointment> firstPage = appointmentDao.getAppointmentsChangedSince(since, null, 2);
+        Appointment lastOfFirstPage = firstPage.get(1);
+        Date lastChangeTime = lastOfFirstPage.getDateChanged() != null ? lastOfFirstPage.getDateChanged() :
+                lastOfFirstPage.getDateVoided() != null ? lastOfFirstPage.getDateVoided() : lastOfFirstPage.getDateCreated();
+        List<Appointment> secondPage = appointmentDao.getAppointmentsChangedSince(lastChangeTime,
+                lastOfFirstPage.getAppointmentId(), 500);
+
+        assertEquals(allChanges.subList(0, 2), firstPage);
+        assertEquals(allChanges.subList(2, allChanges.size()), secondPage);
+    }
+
     @Test
     public void shouldSearchAppointmentsForAPatient() {
-        // TODO: #92
-        // this test fails after adding a default value in Appointment:
-        // private Boolean isTeleconsultationEnabled = Boolean.FALSE;
-        // fix that in the search function (not test)
         List<Appointment> allAppointments = appointmentDao.getAllAppointments(null);
-        Appointment appointment = new Appointment();
-        appointment.setPatient(allAppointments.get(0).getPatient());
-        appointment.setLocation(allAppointments.get(0).getLocation());
-        appointment.setService(allAppointments.get(0).getService());
-        appointment.setStatus(null);
-        List<Appointment> searchedAppointmentList = appointmentDao.search(appointment);
+        AppointmentFilter appointmentFilter = new AppointmentFilter();
+        appointmentFilter.setPatientUuid(allAppointments.get(0).getPatient().getUuid());
+        appointmentFilter.setLocationUuid(allAppointments.get(0).getLocation().getUuid());
+        appointmentFilter.setServiceUuid(allAppointments.get(0).getService().getUuid());
+        List<Appointment> searchedAppointmentList = appointmentDao.search(appointmentFilter);
+        assertEquals(1, searchedAppointmentList.size());
+    }
+
+    @Test
+    public void shouldSearchAppointmentsOfAProvider() {
+        AppointmentFilter appointmentFilter = new AppointmentFilter();
+        appointmentFilter.setProviderUuid("2bdc3f7d-d911-401a-84e9-5494dda83e8e");
+
+        List<Appointment> searchedAppointmentList = appointmentDao.search(appointmentFilter);
+
         assertEquals(1, searchedAppointmentList.size());
+        assertEquals("75504r42-3ca8-11e3-bf2b-0800271c1111", searchedAppointmentList.get(0).getUuid());
+    }
+
+    @Test
+    public void shouldNotReturnAppointmentsOfVoidedServiceTypeWhenSearching() {
+        AppointmentFilter appointmentFilter = new AppointmentFilter();
+        appointmentFilter.setServiceTypeUuid("678906e5-9fbb-4f20-866b-0ece24564878");
+
+        assertTrue(appointmentDao.search(appointmentFilter).isEmpty());
+    }
+
+    @Test
+    public void shouldReturnEveryMatchingAppointmentWhenNoLimitIsGiven() {
+        AppointmentFilter appointmentFilter = new AppointmentFilter();
+        appointmentFilter.setServiceUuid("c36006e5-9fbb-4f20-866b-0ece245615a6");
+        appointmentFilter.setLimit(2);
+        List<Appointment> page = appointmentDao.search(appointmentFilter);
+        appointmentFilter.setLimit(0);
+        List<Appointment> allAppointments = appointmentDao.search(appointmentFilter);
+
+        assertEquals(2, page.size());
+        assertTrue(allAppointments.size() > 2);
+        assertEquals(page, allAppointments.subList(0, 2));
+    }
+
+    @Test
+    public void shouldReturnSearchedAppointmentsInNonOverlappingSortedPages() {
+        AppointmentFilter appointmentFilter = new AppointmentFilter();
+        appointmentFilter.setServiceUuid("c36006e5-9fbb-4f20-866b-0ece245615a6");
+        appointmentFilter.setSortBy(AppointmentFilter.SortField.START_DATE_TIME);
+        appointmentFilter.setDescending(true);
+        appointmentFilter.setLimit(2);
+        List<Appointment> firstPage = appointmentDao.search(appointmentFilter);
+        appointmentFilter.setStartIndex(2);
+        List<Appointment> secondPage = appointmentDao.search(appointmentFilter);
+
+        assertEquals(2, firstPage.size());
+        assertFalse(secondPage.isEmpty());
+        assertTrue(secondPage.size() <= 2);
+        List<Appointment> bothPages = new ArrayList<>(firstPage);
+        bothPages.addAll(secondPage);
+        assertEquals(bothPages.size(), bothPages.stream().map(Appointment::getUuid).distinct().count());
+        List<Date> startDateTimes = bothPages.stream().map(Appointment::getStartDateTime).filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        for (int i = 1; i < startDateTimes.size(); i++) {
+            assertFalse(startDateTimes.get(i - 1).before(startDateTimes.get(i)));
+        }
     }
 
     @Test
@@ -183,6 +383,28 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
         assertEquals(10, appointments.size());
     }
 
+    @Test
+    public void shouldContinueSearchAfterLastAppointmentOfPreviousPage() throws Exception {
+        AppointmentSearchRequest appointmentSearchRequest = new AppointmentSearchRequest();
+        appointmentSearchRequest.setStartDate(DateUtil.convertToDate("2000-08-10T18:30:00.0Z", DateUtil.DateFormatType.UTC));
+        List<String> allAppointmentUuids = appointmentDao.search(appointmentSearchRequest).stream()
+                .map(Appointment::getUuid).collect(Collectors.toList());
+        appointmentSearchRequest.setLimit(3);
+
+        List<String> pagedAppointmentUuids = new ArrayList<>();
+        List<Appointment> page;
+        do {
+            page = appointmentDao.search(appointmentSearchRequest);
+            page.forEach(appointment -> pagedAppointmentUuids.add(appointment.getUuid()));
+            if (!page.isEmpty()) {
+                appointmentSearchRequest.setContinuationToken(AppointmentSearchToken.after(page.get(page.size() - 1)).encode());
+            }
+        } while (page.size() == 3);
+
+        assertEquals(allAppointmentUuids, pagedAppointmentUuids);
+        assertEquals(allAppointmentUuids.size(), appointmentDao.getSearchCount(appointmentSearchRequest));
+    }
+
     @Test
     public void shouldReturnAllAppointmentsBetweenGivenDatesForLimit() throws ParseException {
         AppointmentSearchRequest appointmentSearchRequest = new AppointmentSearchRequest();
@@ -254,10 +476,85 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
         assertEquals(5, appointments.size());
     }
 
+    @Test
+    public void shouldReturnAllNonVoidedFutureAppointmentsOfPatientsInOneQuery() {
+        List<Appointment> appointments = appointmentDao.getAppointmentsForPatients(Arrays.asList(1, 2));
+        assertEquals(appointmentDao.getAppointmentsForPatient(1).size() + appointmentDao.getAppointmentsForPatient(2).size(),
+                appointments.size());
+        assertTrue(appointmentDao.getAppointmentsForPatients(Collections.emptyList()).isEmpty());
+    }
+
     @Test
     public void shouldReturnEmptyListWhenPatientIsNull() {
         List<Appointment> appointments = appointmentDao.getAppointmentsForPatient(null);
         assertNotNull(appointments);
         assertEquals(0, appointments.size());
     }
+
+    @Test
+    public void shouldUpdateStatusOfGivenAppointmentsInOneStatement() {
+        Appointment appointment = appointmentDao.getAppointmentByUuid("75504r42-3ca8-11e3-bf2b-0800271c1111");
+        Date dateChanged = new Date();
+
+        appointmentDao.updateStatus(Collections.singletonList(appointment), AppointmentStatus.Missed,
+                Context.getAuthenticatedUser(), dateChanged);
+        Context.flushSession();
+        Context.clearSession();
+
+        Appointment updated = appointmentDao.getAppointmentByUuid("75504r42-3ca8-11e3-bf2b-0800271c1111");
+        assertEquals(AppointmentStatus.Missed, updated.getStatus());
+        assertEquals(Context.getAuthenticatedUser(), updated.getChangedBy());
+    }
+
+    @Test
+    public void shouldPrefetchAssociationsWithSameNumberOfQueriesHoweverManyAppointmentsThereAre() {
+        long queriesForOneAppointment = countQueriesToReadAppointments(1, true);
+        long queriesForAllAppointments = countQueriesToReadAppointments(Integer.MAX_VALUE, true);
+        long queriesForAllAppointmentsWithoutPrefetch = countQueriesToReadAppointments(Integer.MAX_VALUE, false);
+
+        assertEquals(queriesForOneAppointment, queriesForAllAppointments);
+        assertTrue(queriesForAllAppointmentsWithoutPrefetch > queriesForAllAppointments);
+    }
+
+    private long countQueriesToReadAppointments(int limit, boolean prefetch) {
+        Context.flushSession();
+        Context.clearSession();
+        List<Appointment> appointments = appointmentDao.getAllAppointments(null).stream().limit(limit).collect(Collectors.toList());
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        if (prefetch) {
+            appointmentDao.prefetchAssociations(appointments);
+        }
+        appointments.forEach(this::readListResponseFields);
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void readListResponseFields(Appointment appointment) {
+        Patient patient = appointment.getPatient();
+        if (patient.getPersonName() != null) {
+            patient.getPersonName().getFullName();
+        }
+        if (patient.getPatientIdentifier() != null) {
+            patient.getPatientIdentifier().getIdentifier();
+        }
+        appointment.hasPatientAttribute("email");
+        AppointmentServiceDefinition service = appointment.getService();
+        service.getName();
+        service.getServiceTypes().size();
+        if (service.getLocation() != null) {
+            service.getLocation().getName();
+        }
+        if (service.getSpeciality() != null) {
+            service.getSpeciality().getName();
+        }
+        if (appointment.getLocation() != null) {
+            appointment.getLocation().getName();
+        }
+        if (appointment.getProviders() != null) {
+            appointment.getProviders().forEach(appointmentProvider -> appointmentProvider.getProvider().getName());
+        }
+    }
 }
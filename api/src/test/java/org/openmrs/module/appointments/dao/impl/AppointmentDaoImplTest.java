@@ -0,0 +1,71 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openmrs.module.appointments.model.Appointment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AppointmentDaoImplTest {
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private Query query;
+
+    private AppointmentDaoImpl appointmentDao;
+
+    @Before
+    public void setUp() {
+        when(sessionFactory.getCurrentSession()).thenReturn(session);
+        when(session.createQuery(anyString())).thenReturn(query);
+        when(query.setParameterList(anyString(), any(Collection.class))).thenReturn(query);
+        appointmentDao = new AppointmentDaoImpl();
+        appointmentDao.setSessionFactory(sessionFactory);
+    }
+
+    @Test
+    public void shouldPrefetchAssociationsOfManyAppointmentsInChunks() {
+        int appointmentCount = 2 * AppointmentDaoImpl.PREFETCH_CHUNK_SIZE + 1;
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 1; i <= appointmentCount; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setAppointmentId(i);
+            appointments.add(appointment);
+        }
+
+        appointmentDao.prefetchAssociations(appointments);
+
+        ArgumentCaptor<Collection> idsCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(query, times(3 * 7)).setParameterList(eq("appointmentIds"), idsCaptor.capture());
+        int prefetchedIds = 0;
+        for (Collection ids : idsCaptor.getAllValues()) {
+            assertTrue(ids.size() <= AppointmentDaoImpl.PREFETCH_CHUNK_SIZE);
+            prefetchedIds += ids.size();
+        }
+        assertEquals(7 * appointmentCount, prefetchedIds);
+    }
+}
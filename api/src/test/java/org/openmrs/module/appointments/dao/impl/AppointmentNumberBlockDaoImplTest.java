@@ -0,0 +1,119 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jdbc.ReturningWork;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AppointmentNumberBlockDaoImplTest {
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Savepoint savepoint;
+
+    @Mock
+    private PreparedStatement updateStatement;
+
+    @Mock
+    private PreparedStatement insertStatement;
+
+    @Mock
+    private PreparedStatement selectStatement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private AppointmentNumberBlockDaoImpl appointmentNumberBlockDao = new AppointmentNumberBlockDaoImpl();
+
+    @Before
+    public void setUp() throws SQLException {
+        when(sessionFactory.getCurrentSession()).thenReturn(session);
+        when(session.doReturningWork(any(ReturningWork.class))).thenAnswer(invocation ->
+                ((ReturningWork<?>) invocation.getArguments()[0]).execute(connection));
+        when(connection.setSavepoint()).thenReturn(savepoint);
+        when(connection.prepareStatement(startsWith("UPDATE"))).thenReturn(updateStatement);
+        when(connection.prepareStatement(startsWith("INSERT"))).thenReturn(insertStatement);
+        when(connection.prepareStatement(startsWith("SELECT"))).thenReturn(selectStatement);
+        when(selectStatement.executeQuery()).thenReturn(resultSet);
+        appointmentNumberBlockDao.setSessionFactory(sessionFactory);
+    }
+
+    @Test
+    public void shouldCreateSequenceWithFirstBlockReserved() throws SQLException {
+        when(updateStatement.executeUpdate()).thenReturn(0);
+
+        assertEquals(1L, appointmentNumberBlockDao.reserveBlock("appointment", 50));
+
+        verify(insertStatement).setLong(2, 51L);
+        verify(connection).releaseSavepoint(savepoint);
+    }
+
+    @Test
+    public void shouldReserveBlockOfSequenceCreatedInTheMeantimeAfterRollingBackToSavepoint() throws SQLException {
+        when(updateStatement.executeUpdate()).thenReturn(0, 1);
+        when(insertStatement.executeUpdate()).thenThrow(new SQLException("duplicate key", "23505"));
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(101L);
+
+        assertEquals(51L, appointmentNumberBlockDao.reserveBlock("appointment", 50));
+
+        verify(connection).rollback(savepoint);
+    }
+
+    @Test
+    public void shouldTreatMySqlDuplicateEntryAsSequenceCreatedInTheMeantime() throws SQLException {
+        when(updateStatement.executeUpdate()).thenReturn(0, 1);
+        when(insertStatement.executeUpdate()).thenThrow(new SQLException("Duplicate entry", "23000", 1062));
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(101L);
+
+        assertEquals(51L, appointmentNumberBlockDao.reserveBlock("appointment", 50));
+    }
+
+    @Test
+    public void shouldRethrowOtherFailuresOfCreatingSequence() throws SQLException {
+        when(updateStatement.executeUpdate()).thenReturn(0);
+        SQLException failure = new SQLException("value too long", "22001");
+        when(insertStatement.executeUpdate()).thenThrow(failure);
+        expectedException.expect(SQLException.class);
+        expectedException.expectMessage("value too long");
+
+        try {
+            appointmentNumberBlockDao.reserveBlock("appointment", 50);
+        } finally {
+            verify(connection).rollback(savepoint);
+            verify(selectStatement, never()).executeQuery();
+        }
+    }
+}
@@ -49,6 +49,20 @@ public class AppointmentServiceDaoImplIT extends BaseIntegrationTest {
         assertEquals(appointmentServiceUuid, appointmentServiceDefinition.getUuid());
     }
 
+    @Test
+    public void shouldGetAppointmentServiceIdByUuid() throws Exception {
+        assertEquals(Integer.valueOf(2), appointmentServiceDao.getAppointmentServiceIdByUuid("c36006d4-9fbb-4f20-866b-0ece245615b1"));
+        assertNull(appointmentServiceDao.getAppointmentServiceIdByUuid("unknownUuid"));
+    }
+
+    @Test
+    public void shouldLoadAppointmentServiceInCurrentSession() throws Exception {
+        AppointmentServiceDefinition appointmentServiceDefinition = appointmentServiceDao.loadAppointmentService(2);
+
+        assertSame(appointmentServiceDefinition, appointmentServiceDao.loadAppointmentService(2));
+        assertEquals("c36006d4-9fbb-4f20-866b-0ece245615b1", appointmentServiceDefinition.getUuid());
+    }
+
     @Test
     public void shouldGetAppointmentServiceByUuidAndChangeTheStateOfObjectFromPersistedToDetachedUsingEvict() throws Exception {
         String appointmentServiceUuid = "c36006e5-9fbb-4f20-866b-0ece245615a6";
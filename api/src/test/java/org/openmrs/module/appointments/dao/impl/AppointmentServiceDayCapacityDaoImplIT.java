@@ -0,0 +1,135 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.appointments.BaseIntegrationTest;
+import org.openmrs.module.appointments.dao.AppointmentDao;
+import org.openmrs.module.appointments.dao.AppointmentServiceDao;
+import org.openmrs.module.appointments.dao.AppointmentServiceDayCapacityDao;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AppointmentServiceDayCapacityDaoImplIT extends BaseIntegrationTest {
+
+    private static final List<AppointmentStatus> PLACE_TAKING_STATUSES = Arrays.asList(AppointmentStatus.Scheduled,
+            AppointmentStatus.CheckedIn, AppointmentStatus.Completed);
+    // service 1 has a scheduled and a checked in appointment on this day, besides voided and cancelled ones
+    private static final LocalDate BOOKED_DAY = LocalDate.of(2108, 8, 15);
+    private static final LocalDate FREE_DAY = LocalDate.of(2108, 8, 20);
+    private static final String SCHEDULED_APPOINTMENT_UUID = "75504r42-3ca8-11e3-bf2b-0800271c1111";
+
+    @Autowired
+    AppointmentServiceDayCapacityDao appointmentServiceDayCapacityDao;
+
+    @Autowired
+    AppointmentDao appointmentDao;
+
+    @Autowired
+    AppointmentServiceDao appointmentServiceDao;
+
+    @Autowired
+    SessionFactory sessionFactory;
+
+    private AppointmentServiceDefinition consultation;
+
+    @Before
+    public void setUp() throws Exception {
+        executeDataSet("appointmentTestData.xml");
+        consultation = appointmentServiceDao.getAppointmentServiceByUuid("c36006e5-9fbb-4f20-866b-0ece245615a6");
+    }
+
+    @Test
+    public void shouldTakePlacesUpToLimit() {
+        assertTrue(book(consultation, FREE_DAY, 2));
+        assertTrue(book(consultation, FREE_DAY, 2));
+        assertFalse(book(consultation, FREE_DAY, 2));
+        assertTrue(book(consultation, FREE_DAY.plusDays(1), 2));
+        assertEquals(2, getBookedCount(consultation, FREE_DAY));
+    }
+
+    @Test
+    public void shouldCountAppointmentsBookedBeforeTheCounterExisted() {
+        assertFalse(takePlace(consultation, BOOKED_DAY, 2));
+        assertEquals(2, getBookedCount(consultation, BOOKED_DAY));
+
+        assertTrue(takePlace(consultation, BOOKED_DAY, 3));
+        assertEquals(3, getBookedCount(consultation, BOOKED_DAY));
+    }
+
+    @Test
+    public void shouldGiveBackPlacesOfCancelledAppointments() {
+        assertFalse(takePlace(consultation, BOOKED_DAY, 2));
+        appointmentDao.getAppointmentByUuid(SCHEDULED_APPOINTMENT_UUID).setStatus(AppointmentStatus.Cancelled);
+
+        assertTrue(book(consultation, BOOKED_DAY, 2));
+        assertFalse(book(consultation, BOOKED_DAY, 2));
+    }
+
+    @Test
+    public void shouldGiveBackPlaceOfReleasedAppointment() {
+        assertTrue(takePlace(consultation, BOOKED_DAY, 3));
+        Appointment appointment = appointmentDao.getAppointmentByUuid(SCHEDULED_APPOINTMENT_UUID);
+
+        appointmentServiceDayCapacityDao.releasePlace(consultation.getAppointmentServiceId(), BOOKED_DAY,
+                toDate(BOOKED_DAY), toDate(BOOKED_DAY.plusDays(1)), appointment.getAppointmentId(), PLACE_TAKING_STATUSES);
+
+        assertEquals(1, getBookedCount(consultation, BOOKED_DAY));
+    }
+
+    @Test
+    public void shouldNotCreateCounterWhenReleasingPlaceOfUncountedDay() {
+        appointmentServiceDayCapacityDao.releasePlace(consultation.getAppointmentServiceId(), FREE_DAY,
+                toDate(FREE_DAY), toDate(FREE_DAY.plusDays(1)), null, PLACE_TAKING_STATUSES);
+
+        assertEquals(0L, sessionFactory.getCurrentSession()
+                .createQuery("select count(*) from AppointmentServiceDayCapacity").uniqueResult());
+    }
+
+    /**
+     * Books an appointment the way a desk does, taking a place and saving the appointment.
+     */
+    private boolean book(AppointmentServiceDefinition service, LocalDate day, int limit) {
+        boolean taken = takePlace(service, day, limit);
+        if (taken) {
+            Appointment appointment = new Appointment();
+            appointment.setPatient(appointmentDao.getAppointmentByUuid(SCHEDULED_APPOINTMENT_UUID).getPatient());
+            appointment.setService(service);
+            appointment.setStartDateTime(Timestamp.valueOf(day.atTime(10, 0)));
+            appointment.setEndDateTime(Timestamp.valueOf(day.atTime(10, 30)));
+            appointment.setStatus(AppointmentStatus.Scheduled);
+            appointmentDao.save(appointment);
+        }
+        return taken;
+    }
+
+    private boolean takePlace(AppointmentServiceDefinition service, LocalDate day, int limit) {
+        return appointmentServiceDayCapacityDao.takePlace(service.getAppointmentServiceId(), day, toDate(day),
+                toDate(day.plusDays(1)), limit, null, PLACE_TAKING_STATUSES);
+    }
+
+    private int getBookedCount(AppointmentServiceDefinition service, LocalDate day) {
+        return (Integer) sessionFactory.getCurrentSession()
+                .createQuery("select bookedCount from AppointmentServiceDayCapacity " +
+                        "where appointmentServiceId = :appointmentServiceId and appointmentDate = :day")
+                .setParameter("appointmentServiceId", service.getAppointmentServiceId())
+                .setDate("day", java.sql.Date.valueOf(day))
+                .uniqueResult();
+    }
+
+    private static Date toDate(LocalDate day) {
+        return Timestamp.valueOf(day.atStartOfDay());
+    }
+}
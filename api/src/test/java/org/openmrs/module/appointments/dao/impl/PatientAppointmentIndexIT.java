@@ -0,0 +1,101 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.appointments.BaseIntegrationTest;
+import org.openmrs.module.appointments.dao.AppointmentDao;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the plans of the sql the dao queries send, as captured by the query statistics of H2.
+ */
+public class PatientAppointmentIndexIT extends BaseIntegrationTest {
+
+    @Autowired
+    AppointmentDao appointmentDao;
+
+    @Before
+    public void setUp() throws Exception {
+        executeDataSet("appointmentTestData.xml");
+    }
+
+    @Test
+    public void shouldUseStartDateTimeIndexForAppointmentsStartingFromDate() throws Exception {
+        String plan = explainDaoQuery(() -> appointmentDao.getAllAppointmentsInDateRange(new Date(0), null));
+        assertUsesIndex(plan, "patient_appointment_start_date_time_idx");
+    }
+
+    @Test
+    public void shouldUseEndDateTimeIndexForAppointmentsEndingBeforeDate() throws Exception {
+        String plan = explainDaoQuery(() -> appointmentDao.getAllAppointmentsInDateRange(null, new Date()));
+        assertUsesIndex(plan, "patient_appointment_end_date_time_idx");
+    }
+
+    @Test
+    public void shouldUseStatusIndexForAppointmentsOfStatus() throws Exception {
+        String plan = explainDaoQuery(() -> appointmentDao.forEachAppointmentsChunkInDateRange(null, null,
+                Collections.singletonList(AppointmentStatus.Scheduled), 100, appointments -> {}));
+        assertUsesIndex(plan, "patient_appointment_status_idx");
+    }
+
+    @Test
+    public void shouldUsePatientAndStartDateTimeIndexForUpcomingAppointmentsOfPatient() throws Exception {
+        String plan = explainDaoQuery(() -> appointmentDao.getAppointmentsForPatient(1));
+        assertUsesIndex(plan, "patient_appointment_patient_id_start_date_time_idx");
+    }
+
+    /**
+     * Runs the dao query with query statistics freshly turned on, and explains the first appointment select it sent.
+     * The parameters are left null, the plan only depends on which columns are compared.
+     */
+    private String explainDaoQuery(Runnable daoQuery) throws SQLException {
+        execute("SET QUERY_STATISTICS FALSE");
+        execute("SET QUERY_STATISTICS TRUE");
+        daoQuery.run();
+        String query = null;
+        try (Statement statement = getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT SQL_STATEMENT FROM INFORMATION_SCHEMA.QUERY_STATISTICS")) {
+            while (query == null && resultSet.next()) {
+                String sql = resultSet.getString(1);
+                if (sql.toLowerCase().startsWith("select") && sql.contains("patient_appointment this_")) {
+                    query = sql;
+                }
+            }
+        } finally {
+            execute("SET QUERY_STATISTICS FALSE");
+        }
+        assertNotNull("The dao query did not select from patient_appointment", query);
+        try (PreparedStatement statement = getConnection().prepareStatement("EXPLAIN " + query)) {
+            int parameterCount = query.length() - query.replace("?", "").length();
+            for (int i = 1; i <= parameterCount; i++) {
+                statement.setObject(i, null);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = getConnection().createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private void assertUsesIndex(String plan, String indexName) {
+        assertTrue("Expected " + indexName + " to be used, plan was " + plan,
+                plan.toLowerCase().contains(indexName));
+    }
+}
@@ -0,0 +1,169 @@
+package org.openmrs.module.appointments.events;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Location;
+import org.openmrs.Provider;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentProvider;
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AppointmentChangeBroadcasterTest {
+
+    private AppointmentChangeBroadcaster appointmentChangeBroadcaster;
+
+    @Before
+    public void setUp() {
+        appointmentChangeBroadcaster = new AppointmentChangeBroadcaster();
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void shouldDeliverChangesOnlyToMatchingSubscriptions() {
+        AppointmentChangeSubscription locationSubscription = appointmentChangeBroadcaster.subscribe("userUuid", "locationUuid", null, null);
+        AppointmentChangeSubscription otherServiceSubscription = appointmentChangeBroadcaster.subscribe("userUuid", null, "otherServiceUuid", null);
+        AppointmentChangeSubscription providerSubscription = appointmentChangeBroadcaster.subscribe("userUuid", null, "serviceUuid", "providerUuid");
+
+        appointmentChangeBroadcaster.publishAfterCommit(Collections.singletonList(appointment()));
+
+        List<AppointmentChangeEvent> events = locationSubscription.drain();
+        assertEquals(1, events.size());
+        assertEquals("appointmentUuid", events.get(0).getAppointmentUuid());
+        assertEquals("Scheduled", events.get(0).getStatus());
+        assertEquals(1, providerSubscription.drain().size());
+        assertTrue(otherServiceSubscription.drain().isEmpty());
+    }
+
+    @Test
+    public void shouldDeliverChangesWithOnlyUuidToEverySubscription() {
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe("userUuid", "locationUuid", "serviceUuid", "providerUuid");
+
+        appointmentChangeBroadcaster.publishUuidsAfterCommit(Arrays.asList("firstUuid", "secondUuid"));
+
+        assertEquals(2, subscription.drain().size());
+    }
+
+    @Test
+    public void shouldDropSubscriptionWhoseBufferIsFull() {
+        AppointmentChangeSubscription slowSubscription = appointmentChangeBroadcaster.subscribe("userUuid", null, null, null);
+        AtomicInteger wakeUps = new AtomicInteger();
+        slowSubscription.whenEventsAvailable(wakeUps::incrementAndGet);
+
+        for (int i = 0; i <= AppointmentChangeBroadcaster.BUFFER_SIZE; i++) {
+            appointmentChangeBroadcaster.publishUuidsAfterCommit(Collections.singletonList("uuid" + i));
+        }
+
+        assertTrue(slowSubscription.isDropped());
+        assertTrue(slowSubscription.drain().isEmpty());
+        assertNull(appointmentChangeBroadcaster.getSubscription(slowSubscription.getId()));
+        assertEquals(1, wakeUps.get());
+    }
+
+    @Test
+    public void shouldWakeUpWaitingPollWhenChangeIsPublished() {
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe("userUuid", null, null, null);
+        AtomicInteger wakeUps = new AtomicInteger();
+        subscription.whenEventsAvailable(wakeUps::incrementAndGet);
+        assertEquals(0, wakeUps.get());
+
+        appointmentChangeBroadcaster.publishUuidsAfterCommit(Collections.singletonList("uuid"));
+
+        assertEquals(1, wakeUps.get());
+    }
+
+    @Test
+    public void shouldReturnUnreadEventsFirstOnNextDrain() {
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe("userUuid", null, null, null);
+        appointmentChangeBroadcaster.publishUuidsAfterCommit(Collections.singletonList("firstUuid"));
+        subscription.unread(subscription.drain());
+        appointmentChangeBroadcaster.publishUuidsAfterCommit(Collections.singletonList("secondUuid"));
+
+        List<AppointmentChangeEvent> events = subscription.drain();
+
+        assertEquals("firstUuid", events.get(0).getAppointmentUuid());
+        assertEquals("secondUuid", events.get(1).getAppointmentUuid());
+    }
+
+    @Test
+    public void shouldKeepEventsHandedBackEarlierWhenMoreAreHandedBackBeforeNextDrain() {
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe("userUuid", null, null, null);
+        appointmentChangeBroadcaster.publishUuidsAfterCommit(Collections.singletonList("firstUuid"));
+        List<AppointmentChangeEvent> firstEvents = subscription.drain();
+        appointmentChangeBroadcaster.publishUuidsAfterCommit(Collections.singletonList("secondUuid"));
+        List<AppointmentChangeEvent> secondEvents = subscription.drain();
+        subscription.unread(firstEvents);
+        subscription.unread(secondEvents);
+
+        List<AppointmentChangeEvent> events = subscription.drain();
+
+        assertEquals(2, events.size());
+        assertEquals("firstUuid", events.get(0).getAppointmentUuid());
+        assertEquals("secondUuid", events.get(1).getAppointmentUuid());
+    }
+
+    @Test
+    public void shouldPublishOnlyAfterTransactionCommits() {
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe("userUuid", null, null, null);
+        TransactionSynchronizationManager.initSynchronization();
+
+        appointmentChangeBroadcaster.publishAfterCommit(Collections.singletonList(appointment()));
+
+        assertTrue(subscription.drain().isEmpty());
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertEquals(1, subscription.drain().size());
+    }
+
+    @Test
+    public void shouldStopDeliveringAfterUnsubscribe() {
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe("userUuid", null, null, null);
+
+        appointmentChangeBroadcaster.unsubscribe(subscription.getId());
+        appointmentChangeBroadcaster.publishUuidsAfterCommit(Collections.singletonList("uuid"));
+
+        assertTrue(subscription.isDropped());
+        assertFalse(subscription.offer(AppointmentChangeEvent.ofUuid("uuid")));
+        assertEquals(0, appointmentChangeBroadcaster.getSubscriptionCount());
+    }
+
+    private Appointment appointment() {
+        Appointment appointment = new Appointment();
+        appointment.setUuid("appointmentUuid");
+        appointment.setStatus(AppointmentStatus.Scheduled);
+        Location location = new Location();
+        location.setUuid("locationUuid");
+        appointment.setLocation(location);
+        AppointmentServiceDefinition service = new AppointmentServiceDefinition();
+        service.setUuid("serviceUuid");
+        appointment.setService(service);
+        Provider provider = new Provider();
+        provider.setUuid("providerUuid");
+        AppointmentProvider appointmentProvider = new AppointmentProvider();
+        appointmentProvider.setProvider(provider);
+        appointmentProvider.setVoided(false);
+        appointment.setProviders(new HashSet<>(Collections.singletonList(appointmentProvider)));
+        return appointment;
+    }
+}
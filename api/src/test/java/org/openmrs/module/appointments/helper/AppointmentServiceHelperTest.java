@@ -15,6 +15,7 @@ import org.openmrs.module.appointments.model.AppointmentKind;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.numbering.AppointmentNumberGenerator;
 import org.openmrs.module.appointments.util.DateUtil;
 import org.openmrs.module.appointments.validator.AppointmentStatusChangeValidator;
 import org.openmrs.module.appointments.validator.AppointmentValidator;
@@ -33,6 +34,7 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class AppointmentServiceHelperTest {
@@ -49,6 +51,9 @@ public class AppointmentServiceHelperTest {
     @Mock
     private AppointmentStatusChangeValidator appointmentStatusChangeValidator;
 
+    @Mock
+    private AppointmentNumberGenerator appointmentNumberGenerator;
+
     @Test
     public void shouldRunDefaultAppointmentValidatorsOnSave(){
         Appointment appointment = new Appointment();
@@ -85,10 +90,11 @@ public class AppointmentServiceHelperTest {
     @Test
     public void shouldAssignAppointmentNumberIfNumberIsNull() {
         Appointment appointment = new Appointment();
+        when(appointmentNumberGenerator.generateAppointmentNumber(appointment)).thenReturn("00042");
 
         appointmentServiceHelper.checkAndAssignAppointmentNumber(appointment);
 
-        assertEquals("0000", appointment.getAppointmentNumber());
+        assertEquals("00042", appointment.getAppointmentNumber());
     }
 
     @Test
@@ -99,6 +105,7 @@ public class AppointmentServiceHelperTest {
         appointmentServiceHelper.checkAndAssignAppointmentNumber(appointment);
 
         assertEquals("1234", appointment.getAppointmentNumber());
+        verify(appointmentNumberGenerator, never()).generateAppointmentNumber(any(Appointment.class));
     }
 
     @Test
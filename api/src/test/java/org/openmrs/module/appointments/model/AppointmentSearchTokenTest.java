@@ -0,0 +1,44 @@
+package org.openmrs.module.appointments.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.openmrs.api.APIException;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+public class AppointmentSearchTokenTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void shouldDecodeEncodedPositionOfAppointment() {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(42);
+        appointment.setStartDateTime(new Date(1500000000000L));
+
+        AppointmentSearchToken token = AppointmentSearchToken.decode(AppointmentSearchToken.after(appointment).encode());
+
+        assertEquals(new Date(1500000000000L), token.getStartDateTime());
+        assertEquals(Integer.valueOf(42), token.getAppointmentId());
+    }
+
+    @Test
+    public void shouldThrowExceptionForMalformedToken() {
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("Invalid continuation token");
+
+        AppointmentSearchToken.decode("MTo0Mg");
+    }
+
+    @Test
+    public void shouldThrowExceptionForTokenThatIsNotBase64() {
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("Invalid continuation token");
+
+        AppointmentSearchToken.decode("not a token");
+    }
+}
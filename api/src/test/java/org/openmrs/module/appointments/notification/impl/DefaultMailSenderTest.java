@@ -9,10 +9,20 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.openmrs.api.AdministrationService;
+import org.openmrs.module.appointments.notification.LocalSmtpServer;
+import org.openmrs.module.appointments.notification.MailMessage;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.when;
 
 @RunWith(PowerMockRunner.class)
@@ -50,4 +60,77 @@ public class DefaultMailSenderTest {
         mailSender.send("test", "nothing", new String[] {""}, null, null);
     }
 
+    @Test
+    public void shouldSendMailThroughSmtpServer() throws Exception {
+        try (LocalSmtpServer smtpServer = new LocalSmtpServer()) {
+            DefaultMailSender mailSender = mailSenderFor(smtpServer);
+
+            mailSender.send("Appointment booked", "See you soon", new String[] {"patient@bahmni.org"}, null, null);
+
+            List<String> messages = smtpServer.getMessages();
+            assertEquals(1, messages.size());
+            assertTrue(messages.get(0).contains("Subject: Appointment booked"));
+            assertTrue(messages.get(0).contains("See you soon"));
+            mailSender.destroy();
+        }
+    }
+
+    @Test
+    public void shouldReuseConnectionForConsecutiveMails() throws Exception {
+        try (LocalSmtpServer smtpServer = new LocalSmtpServer()) {
+            DefaultMailSender mailSender = mailSenderFor(smtpServer);
+
+            for (int i = 0; i < 10; i++) {
+                mailSender.send("Appointment booked", "Mail " + i, new String[] {"patient@bahmni.org"}, null, null);
+            }
+
+            assertEquals(10, smtpServer.getMessages().size());
+            assertEquals(1, smtpServer.getConnectionCount());
+            mailSender.destroy();
+        }
+    }
+
+    @Test
+    public void shouldSendBatchOverOneConnection() throws Exception {
+        int batchSize = 200;
+        List<MailMessage> batch = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new MailMessage("Appointment booked", "Mail " + i, new String[] {"patient" + i + "@bahmni.org"}, null, null));
+        }
+        try (LocalSmtpServer smtpServer = new LocalSmtpServer()) {
+            DefaultMailSender mailSender = mailSenderFor(smtpServer);
+
+            List<MailMessage> failedMessages = mailSender.send(batch);
+
+            assertTrue(failedMessages.isEmpty());
+            assertEquals(batchSize, smtpServer.getMessages().size());
+            assertEquals(1, smtpServer.getConnectionCount());
+            mailSender.destroy();
+        }
+    }
+
+    @Test
+    public void shouldCarryOnWithBatchPastMailThatCannotBeSent() throws Exception {
+        MailMessage invalidMessage = new MailMessage("Appointment booked", "Invalid", new String[] {""}, null, null);
+        try (LocalSmtpServer smtpServer = new LocalSmtpServer()) {
+            DefaultMailSender mailSender = mailSenderFor(smtpServer);
+
+            List<MailMessage> failedMessages = mailSender.send(Arrays.asList(
+                    new MailMessage("Appointment booked", "First", new String[] {"first@bahmni.org"}, null, null),
+                    invalidMessage,
+                    new MailMessage("Appointment booked", "Second", new String[] {"second@bahmni.org"}, null, null)));
+
+            assertEquals(Collections.singletonList(invalidMessage), failedMessages);
+            assertEquals(2, smtpServer.getMessages().size());
+            mailSender.destroy();
+        }
+    }
+
+    private DefaultMailSender mailSenderFor(LocalSmtpServer smtpServer) {
+        when(administrationService.getGlobalProperty(anyString(), anyString())).thenAnswer(invocation -> invocation.getArguments()[1]);
+        when(administrationService.getGlobalProperty("mail.smtp_host", "")).thenReturn("localhost");
+        when(administrationService.getGlobalProperty("mail.smtp_port", "25")).thenReturn(String.valueOf(smtpServer.getPort()));
+        when(administrationService.getGlobalProperty("mail.from", "")).thenReturn("noreply@bahmni.org");
+        return new DefaultMailSender(administrationService);
+    }
 }
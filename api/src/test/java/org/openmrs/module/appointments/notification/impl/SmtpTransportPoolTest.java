@@ -0,0 +1,90 @@
+package org.openmrs.module.appointments.notification.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.appointments.notification.LocalSmtpServer;
+
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SmtpTransportPoolTest {
+
+    private LocalSmtpServer smtpServer;
+
+    private Session session;
+
+    @Before
+    public void setUp() throws Exception {
+        smtpServer = new LocalSmtpServer();
+        Properties properties = new Properties();
+        properties.put("mail.transport.protocol", "smtp");
+        properties.put("mail.smtp.host", "localhost");
+        properties.put("mail.smtp.port", String.valueOf(smtpServer.getPort()));
+        session = Session.getInstance(properties);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        smtpServer.close();
+    }
+
+    @Test
+    public void shouldReuseReleasedTransport() throws Exception {
+        try (SmtpTransportPool pool = new SmtpTransportPool(session)) {
+            Transport transport = pool.borrow();
+            pool.release(transport);
+
+            assertSame(transport, pool.borrow());
+            assertEquals(1, smtpServer.getConnectionCount());
+        }
+    }
+
+    @Test
+    public void shouldCloseTransportsIdleForTooLong() throws Exception {
+        try (SmtpTransportPool pool = new SmtpTransportPool(session, 2, 10)) {
+            Transport transport = pool.borrow();
+            pool.release(transport);
+            Thread.sleep(20);
+
+            pool.evictIdle();
+
+            assertEquals(0, pool.getIdleCount());
+            assertFalse(transport.isConnected());
+            assertNotSame(transport, pool.borrow());
+            assertEquals(2, smtpServer.getConnectionCount());
+        }
+    }
+
+    @Test
+    public void shouldNotKeepMoreIdleTransportsThanAllowed() throws Exception {
+        try (SmtpTransportPool pool = new SmtpTransportPool(session, 1, 60000)) {
+            Transport first = pool.borrow();
+            Transport second = pool.borrow();
+
+            pool.release(first);
+            pool.release(second);
+
+            assertEquals(1, pool.getIdleCount());
+            assertFalse(second.isConnected());
+        }
+    }
+
+    @Test
+    public void shouldCloseIdleTransportsWhenClosed() throws Exception {
+        SmtpTransportPool pool = new SmtpTransportPool(session);
+        Transport transport = pool.borrow();
+        pool.release(transport);
+
+        pool.close();
+
+        assertEquals(0, pool.getIdleCount());
+        assertFalse(transport.isConnected());
+    }
+}
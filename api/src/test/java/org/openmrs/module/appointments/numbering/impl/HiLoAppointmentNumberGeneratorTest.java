@@ -0,0 +1,185 @@
+package org.openmrs.module.appointments.numbering.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openmrs.module.appointments.config.AppointmentsConfiguration;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
+import org.openmrs.module.appointments.dao.AppointmentNumberBlockDao;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class HiLoAppointmentNumberGeneratorTest {
+
+    private static final int BLOCK_SIZE = 10;
+
+    @Mock
+    private AppointmentNumberBlockDao appointmentNumberBlockDao;
+
+    @Mock
+    private AppointmentsConfigurationProvider appointmentsConfigurationProvider;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private Map<String, String> globalProperties = new HashMap<>();
+
+    private Map<String, Long> sequences = new HashMap<>();
+
+    private HiLoAppointmentNumberGenerator appointmentNumberGenerator;
+
+    @Before
+    public void setUp() {
+        when(appointmentsConfigurationProvider.get()).thenAnswer(invocation -> new AppointmentsConfiguration(globalProperties));
+        when(appointmentNumberBlockDao.reserveBlock(anyString(), anyInt())).thenAnswer(invocation -> {
+            synchronized (sequences) {
+                String sequenceName = (String) invocation.getArguments()[0];
+                int blockSize = (Integer) invocation.getArguments()[1];
+                long start = sequences.getOrDefault(sequenceName, 1L);
+                sequences.put(sequenceName, start + blockSize);
+                return start;
+            }
+        });
+        appointmentNumberGenerator = new HiLoAppointmentNumberGenerator();
+        appointmentNumberGenerator.setBlockSize(BLOCK_SIZE);
+        appointmentNumberGenerator.setAppointmentNumberBlockDao(appointmentNumberBlockDao);
+        appointmentNumberGenerator.setAppointmentsConfigurationProvider(appointmentsConfigurationProvider);
+        appointmentNumberGenerator.setTransactionManager(transactionManager);
+    }
+
+    @Test
+    public void shouldHandOutNumbersFromReservedBlocks() {
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            numbers.add(appointmentNumberGenerator.generateAppointmentNumber(new Appointment()));
+        }
+
+        assertEquals("00001", numbers.get(0));
+        assertEquals("00025", numbers.get(24));
+        verify(appointmentNumberBlockDao, times(3)).reserveBlock(HiLoAppointmentNumberGenerator.SEQUENCE_NAME, BLOCK_SIZE);
+    }
+
+    @Test
+    public void shouldNumberEachServiceOnItsOwnWhenPrefixedByService() {
+        globalProperties.put(AppointmentsConfiguration.APPOINTMENT_NUMBER_PREFIX, "service");
+
+        assertEquals("12-00001", appointmentNumberGenerator.generateAppointmentNumber(appointmentFor(12, new Date())));
+        assertEquals("12-00002", appointmentNumberGenerator.generateAppointmentNumber(appointmentFor(12, new Date())));
+        assertEquals("7-00001", appointmentNumberGenerator.generateAppointmentNumber(appointmentFor(7, new Date())));
+        verify(appointmentNumberBlockDao).reserveBlock(eq("appointment-12"), anyInt());
+        verify(appointmentNumberBlockDao).reserveBlock(eq("appointment-7"), anyInt());
+    }
+
+    @Test
+    public void shouldNumberEachDayOnItsOwnWhenPrefixedByDay() {
+        globalProperties.put(AppointmentsConfiguration.APPOINTMENT_NUMBER_PREFIX, "day");
+        Date startDateTime = Date.from(LocalDateTime.of(2026, 10, 17, 10, 30).atZone(ZoneId.systemDefault()).toInstant());
+
+        assertEquals("20261017-00001", appointmentNumberGenerator.generateAppointmentNumber(appointmentFor(12, startDateTime)));
+        assertEquals("20261017-00002", appointmentNumberGenerator.generateAppointmentNumber(appointmentFor(7, startDateTime)));
+    }
+
+    @Test
+    public void shouldHandOutUniqueNumbersToManyThreadsBookingAtOnce() throws Exception {
+        int threads = 32;
+        int bookingsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        Callable<Void> booking = () -> {
+            start.await();
+            for (int i = 0; i < bookingsPerThread; i++) {
+                numbers.add(appointmentNumberGenerator.generateAppointmentNumber(new Appointment()));
+            }
+            return null;
+        };
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(booking));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        int bookings = threads * bookingsPerThread;
+        assertEquals(bookings, numbers.size());
+        assertTrue(numbers.contains("00001"));
+        assertTrue(numbers.contains(String.format("%05d", bookings)));
+        verify(appointmentNumberBlockDao, times(bookings / BLOCK_SIZE)).reserveBlock(HiLoAppointmentNumberGenerator.SEQUENCE_NAME, BLOCK_SIZE);
+    }
+
+    @Test
+    public void shouldNotHoldUpOtherSequencesWhileReservingABlock() throws Exception {
+        CountDownLatch reserving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(appointmentNumberBlockDao.reserveBlock(eq("slow"), anyInt())).thenAnswer(invocation -> {
+            reserving.countDown();
+            release.await();
+            return 1L;
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Long> slowValue = executor.submit(() -> appointmentNumberGenerator.nextValue("slow"));
+        reserving.await();
+
+        try {
+            assertEquals(1L, appointmentNumberGenerator.nextValue("fast"));
+        } finally {
+            release.countDown();
+        }
+        assertEquals(1L, (long) slowValue.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldForgetLeastRecentlyUsedSequences() {
+        appointmentNumberGenerator.nextValue("sequence-0");
+        for (int i = 1; i <= HiLoAppointmentNumberGenerator.MAX_SEQUENCES; i++) {
+            appointmentNumberGenerator.nextValue("sequence-" + i);
+        }
+
+        assertEquals(BLOCK_SIZE + 1, appointmentNumberGenerator.nextValue("sequence-0"));
+        assertEquals(2, appointmentNumberGenerator.nextValue("sequence-" + HiLoAppointmentNumberGenerator.MAX_SEQUENCES));
+        verify(appointmentNumberBlockDao, times(2)).reserveBlock("sequence-0", BLOCK_SIZE);
+    }
+
+    private Appointment appointmentFor(int serviceId, Date startDateTime) {
+        AppointmentServiceDefinition service = new AppointmentServiceDefinition();
+        service.setAppointmentServiceId(serviceId);
+        Appointment appointment = new Appointment();
+        appointment.setService(service);
+        appointment.setStartDateTime(startDateTime);
+        return appointment;
+    }
+}
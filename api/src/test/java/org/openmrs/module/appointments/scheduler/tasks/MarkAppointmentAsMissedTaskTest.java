@@ -5,19 +5,22 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
-import org.openmrs.GlobalProperty;
-import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.config.AppointmentsConfiguration;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBulkStatusChangeResult;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
@@ -33,92 +36,67 @@ public class MarkAppointmentAsMissedTaskTest {
     private AppointmentsService appointmentsService;
 
     @Mock
-    private AdministrationService administrationService;
+    private AppointmentsConfigurationProvider configurationProvider;
+
+    private Map<String, String> globalProperties = new HashMap<>();
 
     private MarkAppointmentAsMissedTask markAppointmentAsMissedTask;
 
-    private GlobalProperty globalProperty;
+    private AppointmentBulkStatusChangeResult result;
 
     @Before
     public void setUp() throws Exception {
         PowerMockito.mockStatic(Context.class);
         when(Context.getService(AppointmentsService.class)).thenReturn(appointmentsService);
-        when(Context.getService(AdministrationService.class)).thenReturn(administrationService);
+        when(Context.getRegisteredComponents(AppointmentsConfigurationProvider.class)).thenReturn(Collections.singletonList(configurationProvider));
+        when(configurationProvider.get()).thenAnswer(invocation -> new AppointmentsConfiguration(globalProperties));
         String schedulerMarksMissed = "SchedulerMarksMissed";
-        GlobalProperty missedGlobalProperty = new GlobalProperty(schedulerMarksMissed, "true");
-        when(administrationService.getGlobalPropertyObject(schedulerMarksMissed)).thenReturn(missedGlobalProperty);
+        globalProperties.put(schedulerMarksMissed, "true");
+        result = new AppointmentBulkStatusChangeResult(AppointmentStatus.Missed);
+        when(appointmentsService.changeStatusInBulk(any(), any(), any(), any(), any())).thenReturn(result);
         markAppointmentAsMissedTask = new MarkAppointmentAsMissedTask();
     }
 
     @Test
     public void shouldNotMarkAppointmentAsMissedWhenSchedulerIsTurnedOff() {
         String schedulerMarksMissed = "SchedulerMarksMissed";
-        globalProperty = new GlobalProperty(schedulerMarksMissed, "false");
-        when(administrationService.getGlobalPropertyObject(schedulerMarksMissed)).thenReturn(globalProperty);
+        globalProperties.put(schedulerMarksMissed, "false");
         markAppointmentAsMissedTask.execute();
         Mockito.verify(appointmentsService, never()).changeStatus(any(Appointment.class), any(String.class), any(Date.class));
+        Mockito.verify(appointmentsService, never()).changeStatusInBulk(any(), any(), any(), any(), any());
     }
 
     @Test
-    public void executeShouldMarkCheckedInAppointmentsAsMissedWhenCompleteSchedulerIsTurnedOff() throws Exception {
-        String schedulerMarksComplete = "SchedulerMarksComplete";
-        globalProperty = new GlobalProperty(schedulerMarksComplete, "false");
-        when(administrationService.getGlobalPropertyObject(schedulerMarksComplete)).thenReturn(globalProperty);
-        List<Appointment> appointments = new ArrayList<>();
-        Appointment appointment = new Appointment();
-        appointments.add(appointment);
-        appointment.setStatus(AppointmentStatus.CheckedIn);
-        when(appointmentsService.getAllAppointmentsInDateRange(any(Date.class), any(Date.class))).thenReturn(appointments);
-        markAppointmentAsMissedTask.execute();
-
-        String missedStatus = AppointmentStatus.Missed.toString();
-        Mockito.verify(appointmentsService, times(1)).changeStatus(eq(appointment), eq(missedStatus), any(Date.class));
-    }
-    @Test
-    public void shouldMarkScheduledAppointmentsAsMissedWhenCompleteSchedulerIsTurnedOff() {
+    public void shouldMarkScheduledAndCheckedInAppointmentsAsMissedWhenCompleteSchedulerIsTurnedOff() {
         String schedulerMarksComplete = "SchedulerMarksComplete";
-        globalProperty = new GlobalProperty(schedulerMarksComplete, "false");
-        when(administrationService.getGlobalPropertyObject(schedulerMarksComplete)).thenReturn(globalProperty);
-        List<Appointment> appointments = new ArrayList<>();
-        Appointment appointment = new Appointment();
-        appointments.add(appointment);
-        appointment.setStatus(AppointmentStatus.Scheduled);
-        when(appointmentsService.getAllAppointmentsInDateRange(any(Date.class), any(Date.class))).thenReturn(appointments);
+        globalProperties.put(schedulerMarksComplete, "false");
         markAppointmentAsMissedTask.execute();
 
         String missedStatus = AppointmentStatus.Missed.toString();
-        Mockito.verify(appointmentsService, times(1)).changeStatus(eq(appointment), eq(missedStatus), any(Date.class));
+        Mockito.verify(appointmentsService, times(1)).changeStatusInBulk(eq((Date) null), any(Date.class),
+                eq(Arrays.asList(AppointmentStatus.Scheduled, AppointmentStatus.CheckedIn)), eq(missedStatus), any(Date.class));
     }
 
     @Test
-    public void shouldNotMarkCheckedInAppointmentAsMissedWhenCompleteSchedulerIsTurnedOn() {
+    public void shouldOnlyMarkScheduledAppointmentsAsMissedWhenCompleteSchedulerIsTurnedOn() {
         String schedulerMarksComplete = "SchedulerMarksComplete";
-        globalProperty = new GlobalProperty(schedulerMarksComplete, "true");
-        when(administrationService.getGlobalPropertyObject(schedulerMarksComplete)).thenReturn(globalProperty);
-        List<Appointment> appointments = new ArrayList<>();
-        Appointment appointment = new Appointment();
-        appointments.add(appointment);
-        appointment.setStatus(AppointmentStatus.CheckedIn);
-        when(appointmentsService.getAllAppointmentsInDateRange(any(Date.class), any(Date.class))).thenReturn(appointments);
+        globalProperties.put(schedulerMarksComplete, "true");
         markAppointmentAsMissedTask.execute();
 
         String missedStatus = AppointmentStatus.Missed.toString();
-        Mockito.verify(appointmentsService, times(0)).changeStatus(eq(appointment), eq(missedStatus), any(Date.class));
+        Mockito.verify(appointmentsService, times(1)).changeStatusInBulk(eq((Date) null), any(Date.class),
+                eq(Collections.singletonList(AppointmentStatus.Scheduled)), eq(missedStatus), any(Date.class));
     }
 
     @Test
-    public void shouldNotMarkCancelledAppointmentAsMissed() {
+    public void shouldNotFailWhenSomeAppointmentsCouldNotBeMarkedAsMissed() {
         String schedulerMarksComplete = "SchedulerMarksComplete";
-        globalProperty = new GlobalProperty(schedulerMarksComplete, "true");
-        when(administrationService.getGlobalPropertyObject(schedulerMarksComplete)).thenReturn(globalProperty);
-        List<Appointment> appointments = new ArrayList<>();
+        globalProperties.put(schedulerMarksComplete, "true");
         Appointment appointment = new Appointment();
-        appointments.add(appointment);
-        appointment.setStatus(AppointmentStatus.Cancelled);
-        when(appointmentsService.getAllAppointmentsInDateRange(any(Date.class), any(Date.class))).thenReturn(appointments);
+        result.addFailure(appointment, "Appointment status can not be changed from Missed to Missed");
         markAppointmentAsMissedTask.execute();
 
-        String missedStatus = AppointmentStatus.Missed.toString();
-        Mockito.verify(appointmentsService, times(0)).changeStatus(eq(appointment), eq(missedStatus), any(Date.class));
+        Mockito.verify(appointmentsService, times(1)).changeStatusInBulk(any(), any(), any(), any(), any());
+        Mockito.verify(appointmentsService, never()).changeStatus(any(Appointment.class), any(String.class), any(Date.class));
     }
-}
\ No newline at end of file
+}
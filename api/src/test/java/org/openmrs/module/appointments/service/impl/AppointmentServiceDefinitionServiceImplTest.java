@@ -7,7 +7,11 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.*;
 import org.openmrs.User;
+import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.cache.AppointmentServiceDefinitionCache;
+import org.openmrs.module.appointments.cache.AppointmentServiceLoadCache;
+import org.openmrs.module.appointments.cache.ServiceAvailabilityCalendarCache;
 import org.openmrs.module.appointments.dao.AppointmentServiceDao;
 import org.openmrs.module.appointments.model.*;
 import org.openmrs.module.appointments.service.AppointmentsService;
@@ -17,11 +21,18 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.sql.Time;
+import java.sql.Timestamp;
 import java.time.DayOfWeek;
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -42,6 +53,15 @@ public class AppointmentServiceDefinitionServiceImplTest {
     @Mock
     private AppointmentsService appointmentsService;
 
+    @Spy
+    private AppointmentServiceLoadCache appointmentServiceLoadCache = new AppointmentServiceLoadCache();
+
+    @Mock
+    private ServiceAvailabilityCalendarCache serviceAvailabilityCalendarCache;
+
+    @Spy
+    private AppointmentServiceDefinitionCache appointmentServiceDefinitionCache = new AppointmentServiceDefinitionCache();
+
     @InjectMocks
     AppointmentServiceDefinitionServiceImpl appointmentServiceService;
 
@@ -61,6 +81,51 @@ public class AppointmentServiceDefinitionServiceImplTest {
         appointmentServiceDefinition.setName("Cardiology OPD");
         appointmentServiceService.save(appointmentServiceDefinition);
         Mockito.verify(appointmentServiceDao, times(1)).save(appointmentServiceDefinition);
+        Mockito.verify(serviceAvailabilityCalendarCache, times(1)).evict(appointmentServiceDefinition);
+        Mockito.verify(appointmentServiceDefinitionCache, times(1)).evict(appointmentServiceDefinition);
+    }
+
+    @Test
+    public void shouldMoveDateChangedOfExistingServiceOnSave() throws Exception {
+        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
+        appointmentServiceDefinition.setAppointmentServiceId(1);
+        appointmentServiceDefinition.setName("Cardiology OPD");
+        appointmentServiceDefinition.setDateChanged(new Date(0));
+
+        appointmentServiceService.save(appointmentServiceDefinition);
+
+        assertTrue(appointmentServiceDefinition.getDateChanged().after(new Date(0)));
+        assertEquals(authenticatedUser, appointmentServiceDefinition.getChangedBy());
+    }
+
+    @Test
+    public void shouldServeRepeatedLookupOfServiceFromCacheUntilItIsSaved() throws Exception {
+        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
+        appointmentServiceDefinition.setUuid("uuid");
+        appointmentServiceDefinition.setName("Cardiology OPD");
+        when(appointmentServiceDao.getAppointmentServiceIdByUuid("uuid")).thenReturn(1);
+        when(appointmentServiceDao.loadAppointmentService(1)).thenReturn(appointmentServiceDefinition);
+
+        appointmentServiceService.getCachedAppointmentServiceByUuid("uuid");
+        AppointmentServiceDefinition cachedAppointmentServiceDefinition = appointmentServiceService.getCachedAppointmentServiceByUuid("uuid");
+        appointmentServiceService.save(appointmentServiceDefinition);
+        appointmentServiceService.getCachedAppointmentServiceByUuid("uuid");
+
+        assertEquals(appointmentServiceDefinition, cachedAppointmentServiceDefinition);
+        Mockito.verify(appointmentServiceDao, times(2)).getAppointmentServiceIdByUuid("uuid");
+        Mockito.verify(appointmentServiceDao, times(3)).loadAppointmentService(1);
+        assertEquals(1, appointmentServiceDefinitionCache.getHitCount());
+        assertEquals(2, appointmentServiceDefinitionCache.getMissCount());
+    }
+
+    @Test
+    public void shouldNotLoadUnknownServiceFromCache() throws Exception {
+        when(appointmentServiceDao.getAppointmentServiceIdByUuid("unknownUuid")).thenReturn(null);
+
+        assertNull(appointmentServiceService.getCachedAppointmentServiceByUuid("unknownUuid"));
+
+        Mockito.verify(appointmentServiceDao, never()).loadAppointmentService(any(Integer.class));
+        assertEquals(0, appointmentServiceDefinitionCache.getSize());
     }
 
     @Test
@@ -89,6 +154,7 @@ public class AppointmentServiceDefinitionServiceImplTest {
         assertNotNull(captor.getValue().getDateVoided());
         assertEquals(captor.getValue().getVoidedBy(), authenticatedUser);
         assertEquals(captor.getValue().getVoidReason(), voidReason);
+        Mockito.verify(serviceAvailabilityCalendarCache, times(1)).evict(appointmentServiceDefinition);
     }
 
 
@@ -291,11 +357,111 @@ public class AppointmentServiceDefinitionServiceImplTest {
         AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
         Date startDateTime = DateUtil.convertToLocalDateFromUTC("2108-08-14T18:30:00.0Z");
         Date endDateTime = DateUtil.convertToLocalDateFromUTC("2108-08-15T18:29:29.0Z");
-        appointmentServiceService.calculateCurrentLoad(appointmentServiceDefinition,
-                startDateTime, endDateTime);
         AppointmentStatus[] includeStatus = new AppointmentStatus[]{AppointmentStatus.CheckedIn, AppointmentStatus.Completed, AppointmentStatus.Scheduled};
+        when(appointmentsService.getAppointmentsCountForService(appointmentServiceDefinition, startDateTime, endDateTime,
+                Arrays.asList(includeStatus))).thenReturn(3L);
 
-        Mockito.verify(appointmentsService, times(1)).getAppointmentsForService(appointmentServiceDefinition, startDateTime, endDateTime,
+        Integer load = appointmentServiceService.calculateCurrentLoad(appointmentServiceDefinition,
+                startDateTime, endDateTime);
+
+        assertEquals(3, load.intValue());
+        Mockito.verify(appointmentsService, times(1)).getAppointmentsCountForService(appointmentServiceDefinition, startDateTime, endDateTime,
                 Arrays.asList(includeStatus));
+        Mockito.verify(appointmentsService, never()).getAppointmentsForService(any(AppointmentServiceDefinition.class),
+                any(Date.class), any(Date.class), anyListOf(AppointmentStatus.class));
+    }
+
+    @Test
+    public void shouldServeRepeatedLoadOfSameServiceAndWindowFromCache() throws Exception {
+        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
+        Date startDateTime = DateUtil.convertToLocalDateFromUTC("2108-08-14T18:30:00.0Z");
+        Date endDateTime = DateUtil.convertToLocalDateFromUTC("2108-08-15T18:29:29.0Z");
+        when(appointmentsService.getAppointmentsCountForService(any(AppointmentServiceDefinition.class), any(Date.class),
+                any(Date.class), anyListOf(AppointmentStatus.class))).thenReturn(3L);
+
+        appointmentServiceService.calculateCurrentLoad(appointmentServiceDefinition, startDateTime, endDateTime);
+        Integer load = appointmentServiceService.calculateCurrentLoad(appointmentServiceDefinition, startDateTime, endDateTime);
+
+        assertEquals(3, load.intValue());
+        Mockito.verify(appointmentsService, times(1)).getAppointmentsCountForService(any(AppointmentServiceDefinition.class),
+                any(Date.class), any(Date.class), anyListOf(AppointmentStatus.class));
+    }
+
+    @Test
+    public void shouldFindFreeSlotsOfAllServicesFromOneReadOfBookings() {
+        AppointmentServiceDefinition cardiology = serviceWithHours("cardiology-uuid", 30, "09:00:00", "10:00:00");
+        AppointmentServiceDefinition dental = serviceWithHours("dental-uuid", null, "09:00:00", "09:30:00");
+        ServiceAvailabilityCalendarCache calendarCache = new ServiceAvailabilityCalendarCache();
+        appointmentServiceService.setServiceAvailabilityCalendarCache(calendarCache);
+        Date startDateTime = toDate(LocalDateTime.of(2108, 8, 14, 0, 0));
+        Date endDateTime = toDate(LocalDateTime.of(2108, 8, 15, 0, 0));
+        when(appointmentServiceDao.getAllAppointmentServices(false)).thenReturn(Arrays.asList(cardiology, dental));
+        when(appointmentsService.getAppointmentServiceBookings(null, startDateTime, endDateTime,
+                Arrays.asList(AppointmentStatus.Scheduled, AppointmentStatus.CheckedIn, AppointmentStatus.Completed)))
+                .thenReturn(Collections.singletonList(new AppointmentServiceBooking("cardiology-uuid",
+                        toDate(LocalDateTime.of(2108, 8, 14, 9, 0)), toDate(LocalDateTime.of(2108, 8, 14, 9, 30)))));
+
+        List<AppointmentSlot> slots = appointmentServiceService.getAvailableSlots(null, null, startDateTime, endDateTime, 1);
+
+        assertEquals(3, slots.size());
+        assertEquals("cardiology-uuid", slots.get(0).getAppointmentServiceUuid());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 14, 9, 30)), slots.get(0).getStartDateTime());
+        assertEquals("dental-uuid", slots.get(1).getAppointmentServiceUuid());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 14, 9, 0)), slots.get(1).getStartDateTime());
+        assertEquals(toDate(LocalDateTime.of(2108, 8, 14, 9, 15)), slots.get(2).getStartDateTime());
+        Mockito.verify(appointmentsService, times(1)).getAppointmentServiceBookings(Matchers.isNull(AppointmentServiceDefinition.class),
+                any(Date.class), any(Date.class), anyListOf(AppointmentStatus.class));
+    }
+
+    @Test
+    public void shouldNotFindSlotsWithoutCapacity() {
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("Slot capacity should be at least 1");
+
+        appointmentServiceService.getAvailableSlots(null, null, new Date(), new Date(), 0);
+    }
+
+    @Test
+    public void shouldNotFindSlotsOverMoreThanAMonth() {
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("Slots can be searched over at most 31 days");
+
+        appointmentServiceService.getAvailableSlots(null, null, toDate(LocalDateTime.of(2108, 8, 14, 0, 0)),
+                toDate(LocalDateTime.of(2108, 9, 14, 0, 1)), 1);
+    }
+
+    @Test
+    public void shouldNotFindSlotsOfServiceTypeWithoutItsService() {
+        AppointmentServiceType appointmentServiceType = new AppointmentServiceType();
+        appointmentServiceType.setAppointmentServiceDefinition(serviceWithHours("cardiology-uuid", 30, "09:00:00", "10:00:00"));
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("Appointment Service should be given with the Appointment Service Type");
+
+        appointmentServiceService.getAvailableSlots(null, appointmentServiceType, toDate(LocalDateTime.of(2108, 8, 14, 0, 0)),
+                toDate(LocalDateTime.of(2108, 8, 15, 0, 0)), 1);
+    }
+
+    @Test
+    public void shouldNotFindSlotsOfServiceTypeOfAnotherService() {
+        AppointmentServiceType appointmentServiceType = new AppointmentServiceType();
+        appointmentServiceType.setAppointmentServiceDefinition(serviceWithHours("dental-uuid", null, "09:00:00", "09:30:00"));
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("Appointment Service Type does not belong to the Appointment Service");
+
+        appointmentServiceService.getAvailableSlots(serviceWithHours("cardiology-uuid", 30, "09:00:00", "10:00:00"),
+                appointmentServiceType, toDate(LocalDateTime.of(2108, 8, 14, 0, 0)), toDate(LocalDateTime.of(2108, 8, 15, 0, 0)), 1);
+    }
+
+    private AppointmentServiceDefinition serviceWithHours(String uuid, Integer durationMins, String startTime, String endTime) {
+        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
+        appointmentServiceDefinition.setUuid(uuid);
+        appointmentServiceDefinition.setDurationMins(durationMins);
+        appointmentServiceDefinition.setStartTime(Time.valueOf(startTime));
+        appointmentServiceDefinition.setEndTime(Time.valueOf(endTime));
+        return appointmentServiceDefinition;
+    }
+
+    private Date toDate(LocalDateTime localDateTime) {
+        return new Date(Timestamp.valueOf(localDateTime).getTime());
     }
 }
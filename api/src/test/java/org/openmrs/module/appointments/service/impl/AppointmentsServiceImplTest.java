@@ -6,7 +6,9 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
@@ -17,15 +19,21 @@ import org.openmrs.User;
 import org.openmrs.api.APIAuthenticationException;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.cache.AppointmentServiceLoadCache;
+import org.openmrs.module.appointments.config.AppointmentsConfiguration;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
 import org.openmrs.messagesource.MessageSourceService;
 import org.openmrs.module.appointments.conflicts.AppointmentConflict;
 import org.openmrs.module.appointments.conflicts.impl.AppointmentServiceUnavailabilityConflict;
 import org.openmrs.module.appointments.conflicts.impl.PatientDoubleBookingConflict;
 import org.openmrs.module.appointments.dao.AppointmentAuditDao;
 import org.openmrs.module.appointments.dao.AppointmentDao;
+import org.openmrs.module.appointments.dao.AppointmentServiceDayCapacityDao;
 import org.openmrs.module.appointments.helper.AppointmentServiceHelper;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentAudit;
+import org.openmrs.module.appointments.model.AppointmentBulkStatusChangeResult;
+import org.openmrs.module.appointments.model.AppointmentFilter;
 import org.openmrs.module.appointments.model.AppointmentKind;
 import org.openmrs.module.appointments.model.AppointmentProvider;
 import org.openmrs.module.appointments.model.AppointmentProviderResponse;
@@ -33,12 +41,16 @@ import org.openmrs.module.appointments.model.AppointmentSearchRequest;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.DailyAppointmentServiceCount;
+import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.module.appointments.util.DateUtil;
 import org.openmrs.module.appointments.validator.AppointmentStatusChangeValidator;
 import org.openmrs.module.appointments.validator.AppointmentValidator;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
@@ -46,13 +58,17 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
@@ -60,8 +76,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -133,6 +154,17 @@ public class AppointmentsServiceImplTest {
     @Mock
     private PatientAppointmentNotifierService patientAppointmentNotifierService;
 
+    @Mock
+    private AppointmentServiceLoadCache appointmentServiceLoadCache;
+
+    @Mock
+    private AppointmentServiceDayCapacityDao appointmentServiceDayCapacityDao;
+
+    @Mock
+    private AppointmentsConfigurationProvider appointmentsConfigurationProvider;
+
+    private Map<String, String> globalProperties = new HashMap<>();
+
     @InjectMocks
     private AppointmentsServiceImpl appointmentsService;
 
@@ -149,6 +181,8 @@ public class AppointmentsServiceImplTest {
         setValuesForMemberFields(appointmentsService, "appointmentValidators", appointmentValidators);
         setValuesForMemberFields(appointmentsService, "statusChangeValidators", statusChangeValidators);
         setValuesForMemberFields(appointmentsService, "appointmentConflicts", appointmentConflicts);
+        when(appointmentsConfigurationProvider.get()).thenAnswer(invocation -> new AppointmentsConfiguration(globalProperties));
+        when(Context.getService(AppointmentsService.class)).thenReturn(appointmentsService);
     }
 
     public static void setValuesForMemberFields(Object classInstance, String fieldName, Object valueForMemberField)
@@ -203,7 +237,7 @@ public class AppointmentsServiceImplTest {
         appointment.setAppointmentKind(AppointmentKind.Virtual);
         appointment.setAppointmentAudits(new HashSet<>());
         appointmentsService.validateAndSave(appointment);
-        verify(patientAppointmentNotifierService, times(1)).notifyAll(appointment);
+        verify(patientAppointmentNotifierService, times(1)).queueAll(appointment);
     }
 
     @Test
@@ -216,7 +250,259 @@ public class AppointmentsServiceImplTest {
         appointment.setAppointmentKind(AppointmentKind.Scheduled);
         appointment.setAppointmentAudits(new HashSet<>());
         appointmentsService.validateAndSave(appointment);
-        verify(patientAppointmentNotifierService, times(1)).notifyAll(appointment);
+        verify(patientAppointmentNotifierService, times(1)).queueAll(appointment);
+    }
+
+    @Test
+    public void shouldTakePlaceOfServiceOnDayOfAppointment() {
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+        when(appointmentServiceDayCapacityDao.takePlace(eq(12), any(LocalDate.class), any(Date.class), any(Date.class),
+                eq(4), any(), anyListOf(AppointmentStatus.class))).thenReturn(true);
+
+        appointmentsService.validateAndSave(appointment);
+
+        verify(appointmentServiceDayCapacityDao, times(1)).takePlace(eq(12), any(LocalDate.class), any(Date.class),
+                any(Date.class), eq(4), any(), anyListOf(AppointmentStatus.class));
+        verify(appointmentDao, times(1)).save(appointment);
+    }
+
+    @Test
+    public void shouldNotSaveAppointmentWhenServiceIsFullyBookedOnItsDay() {
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+        when(appointmentServiceDayCapacityDao.takePlace(eq(12), any(LocalDate.class), any(Date.class), any(Date.class),
+                eq(4), any(), anyListOf(AppointmentStatus.class))).thenReturn(false);
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("is fully booked");
+
+        try {
+            appointmentsService.validateAndSave(appointment);
+        } finally {
+            verify(appointmentDao, never()).save(appointment);
+        }
+    }
+
+    @Test
+    public void shouldNotTakePlaceAgainWhenBookedAppointmentIsEditedOnSameServiceAndDay() {
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+        appointment.setAppointmentId(7);
+        appointment.setComments("Bring the reports");
+        Appointment persisted = appointmentOfLimitedService(12, 4);
+        persisted.setStartDateTime(appointment.getStartDateTime());
+        when(appointmentDao.getPersistedAppointment(7)).thenReturn(persisted);
+
+        appointmentsService.validateAndSave(appointment);
+
+        verify(appointmentServiceDayCapacityDao, never()).takePlace(any(), any(), any(), any(), anyInt(), any(), any());
+        verify(appointmentServiceDayCapacityDao, never()).releasePlace(any(), any(), any(), any(), any(), any());
+        verify(appointmentDao, times(1)).save(appointment);
+    }
+
+    @Test
+    public void shouldMovePlaceWhenBookedAppointmentIsMovedToAnotherDay() {
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+        appointment.setAppointmentId(7);
+        Appointment persisted = appointmentOfLimitedService(12, 4);
+        persisted.setStartDateTime(new Date(appointment.getStartDateTime().getTime() - TimeUnit.DAYS.toMillis(2)));
+        when(appointmentDao.getPersistedAppointment(7)).thenReturn(persisted);
+        when(appointmentServiceDayCapacityDao.takePlace(eq(12), any(LocalDate.class), any(Date.class), any(Date.class),
+                eq(4), eq(7), anyListOf(AppointmentStatus.class))).thenReturn(true);
+
+        appointmentsService.validateAndSave(appointment);
+
+        LocalDate previousDay = persisted.getStartDateTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        LocalDate day = appointment.getStartDateTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        verify(appointmentServiceDayCapacityDao, times(1)).releasePlace(eq(12), eq(previousDay), any(Date.class),
+                any(Date.class), eq(7), anyListOf(AppointmentStatus.class));
+        verify(appointmentServiceDayCapacityDao, times(1)).takePlace(eq(12), eq(day), any(Date.class),
+                any(Date.class), eq(4), eq(7), anyListOf(AppointmentStatus.class));
+    }
+
+    @Test
+    public void shouldReleasePlaceWhenBookedAppointmentIsSavedAsCancelled() {
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+        appointment.setAppointmentId(7);
+        appointment.setStatus(AppointmentStatus.Cancelled);
+        when(appointmentDao.getPersistedAppointment(7)).thenReturn(appointmentOfLimitedService(12, 4));
+
+        appointmentsService.validateAndSave(appointment);
+
+        verify(appointmentServiceDayCapacityDao, times(1)).releasePlace(eq(12), any(LocalDate.class), any(Date.class),
+                any(Date.class), eq(7), anyListOf(AppointmentStatus.class));
+        verify(appointmentServiceDayCapacityDao, never()).takePlace(any(), any(), any(), any(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void shouldNotLimitAppointmentsWhenLimitIsNotEnforced() {
+        globalProperties.put(AppointmentsConfiguration.ENFORCE_MAX_APPOINTMENTS_LIMIT, "false");
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+
+        appointmentsService.validateAndSave(appointment);
+
+        verify(appointmentServiceDayCapacityDao, never()).takePlace(any(), any(), any(), any(), anyInt(), any(), any());
+        verify(appointmentDao, times(1)).save(appointment);
+    }
+
+    @Test
+    public void shouldNotLimitCancelledAppointments() {
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+        appointment.setStatus(AppointmentStatus.Cancelled);
+
+        appointmentsService.validateAndSave(appointment);
+
+        verify(appointmentServiceDayCapacityDao, never()).takePlace(any(), any(), any(), any(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void shouldNotScheduleCancelledAppointmentAgainWhenServiceIsFullyBookedOnItsDay() {
+        when(Context.hasPrivilege(RESET_APPOINTMENT_STATUS)).thenReturn(true);
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+        appointment.setAppointmentId(7);
+        appointment.setStatus(AppointmentStatus.Cancelled);
+        when(appointmentServiceDayCapacityDao.takePlace(eq(12), any(LocalDate.class), any(Date.class), any(Date.class),
+                eq(4), eq(7), anyListOf(AppointmentStatus.class))).thenReturn(false);
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("is fully booked");
+
+        try {
+            appointmentsService.changeStatus(appointment, "Scheduled", null);
+        } finally {
+            verify(appointmentDao, never()).save(appointment);
+        }
+    }
+
+    @Test
+    public void shouldReleasePlaceOfServiceWhenAppointmentIsCancelled() {
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+        appointment.setAppointmentId(7);
+
+        appointmentsService.changeStatus(appointment, "Cancelled", null);
+
+        verify(appointmentServiceDayCapacityDao, times(1)).releasePlace(eq(12), any(LocalDate.class), any(Date.class),
+                any(Date.class), eq(7), anyListOf(AppointmentStatus.class));
+        verify(appointmentServiceDayCapacityDao, never()).takePlace(any(), any(), any(), any(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void shouldKeepPlaceOfServiceWhenAppointmentIsCheckedIn() {
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+
+        appointmentsService.changeStatus(appointment, "CheckedIn", null);
+
+        verify(appointmentServiceDayCapacityDao, never()).takePlace(any(), any(), any(), any(), anyInt(), any(), any());
+        verify(appointmentServiceDayCapacityDao, never()).releasePlace(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldNotUndoCancellationWhenServiceIsFullyBookedOnItsDay() {
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+        appointment.setStatus(AppointmentStatus.Cancelled);
+        AppointmentAudit appointmentAudit = new AppointmentAudit();
+        appointmentAudit.setStatus(AppointmentStatus.Scheduled);
+        when(appointmentAuditDao.getPriorStatusChangeEvent(appointment)).thenReturn(appointmentAudit);
+        when(appointmentServiceDayCapacityDao.takePlace(eq(12), any(LocalDate.class), any(Date.class), any(Date.class),
+                eq(4), any(), anyListOf(AppointmentStatus.class))).thenReturn(false);
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("is fully booked");
+
+        try {
+            appointmentsService.undoStatusChange(appointment);
+        } finally {
+            verify(appointmentDao, never()).save(appointment);
+        }
+    }
+
+    @Test
+    public void shouldTakePlaceOfServiceWhenProviderAcceptsRequestedAppointment() {
+        when(Context.hasPrivilege(MANAGE_OWN_APPOINTMENTS)).thenReturn(true);
+        Person person = new Person();
+        when(user.getPerson()).thenReturn(person);
+        when(Context.getAuthenticatedUser()).thenReturn(user);
+        Provider provider = new Provider();
+        provider.setPerson(person);
+        Appointment appointment = appointmentOfLimitedService(12, 4);
+        appointment.setStatus(AppointmentStatus.Requested);
+        AppointmentProvider existingProvider = new AppointmentProvider();
+        existingProvider.setResponse(AppointmentProviderResponse.AWAITING);
+        existingProvider.setProvider(provider);
+        existingProvider.setAppointment(appointment);
+        appointment.setProviders(new HashSet<>(asList(existingProvider)));
+        AppointmentProvider providerRequest = new AppointmentProvider();
+        providerRequest.setProvider(provider);
+        providerRequest.setAppointment(appointment);
+        providerRequest.setResponse(AppointmentProviderResponse.ACCEPTED);
+        when(appointmentServiceDayCapacityDao.takePlace(eq(12), any(LocalDate.class), any(Date.class), any(Date.class),
+                eq(4), any(), anyListOf(AppointmentStatus.class))).thenReturn(false);
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("is fully booked");
+
+        try {
+            appointmentsService.updateAppointmentProviderResponse(providerRequest);
+        } finally {
+            verify(appointmentDao, never()).save(appointment);
+        }
+    }
+
+    @Test
+    public void shouldTakePlacesInBulkAndReportAppointmentsOfFullyBookedDays() {
+        when(Context.hasPrivilege(RESET_APPOINTMENT_STATUS)).thenReturn(true);
+        Appointment bookedAppointment = appointmentOfLimitedService(12, 4);
+        bookedAppointment.setAppointmentId(1);
+        bookedAppointment.setUuid("bookedUuid");
+        bookedAppointment.setStatus(AppointmentStatus.Cancelled);
+        Appointment refusedAppointment = appointmentOfLimitedService(12, 4);
+        refusedAppointment.setAppointmentId(2);
+        refusedAppointment.setUuid("refusedUuid");
+        refusedAppointment.setStatus(AppointmentStatus.Cancelled);
+        when(appointmentServiceDayCapacityDao.takePlace(eq(12), any(LocalDate.class), any(Date.class), any(Date.class),
+                eq(4), any(), anyListOf(AppointmentStatus.class))).thenReturn(true, false);
+        when(appointmentServiceHelper.getAppointmentAuditEvent(any(Appointment.class), any())).thenReturn(new AppointmentAudit());
+        when(appointmentDao.getAppointmentsChunkInDateRange(any(), any(), any(), any(), anyInt()))
+                .thenReturn(asList(bookedAppointment, refusedAppointment));
+
+        AppointmentBulkStatusChangeResult result = appointmentsService.changeStatusInBulk(null, new Date(),
+                Collections.singletonList(AppointmentStatus.Cancelled), "Scheduled", null);
+
+        verify(appointmentDao, times(1)).updateStatus(eq(Collections.singletonList(bookedAppointment)),
+                eq(AppointmentStatus.Scheduled), any(), any(Date.class));
+        verify(appointmentDao, times(1)).updateStatus(any(), any(), any(), any());
+        assertEquals(Collections.singletonList("bookedUuid"), result.getChangedAppointmentUuids());
+        assertTrue(result.getFailures().get("refusedUuid").contains("is fully booked"));
+    }
+
+    @Test
+    public void shouldReleasePlacesOfEachServiceDayOnceAfterBulkUpdate() {
+        Appointment appointmentOne = appointmentOfLimitedService(12, 4);
+        appointmentOne.setUuid("uuid1");
+        Appointment appointmentTwo = appointmentOfLimitedService(12, 4);
+        appointmentTwo.setUuid("uuid2");
+        when(appointmentServiceHelper.getAppointmentAuditEvent(any(Appointment.class), any())).thenReturn(new AppointmentAudit());
+        when(appointmentDao.getAppointmentsChunkInDateRange(any(), any(), any(), any(), anyInt()))
+                .thenReturn(asList(appointmentOne, appointmentTwo));
+
+        appointmentsService.changeStatusInBulk(null, new Date(), Collections.singletonList(AppointmentStatus.Scheduled),
+                "Missed", null);
+
+        InOrder inOrder = inOrder(appointmentDao, appointmentServiceDayCapacityDao);
+        inOrder.verify(appointmentDao).updateStatus(eq(asList(appointmentOne, appointmentTwo)), eq(AppointmentStatus.Missed),
+                any(), any(Date.class));
+        inOrder.verify(appointmentServiceDayCapacityDao, times(1)).releasePlace(eq(12), any(LocalDate.class),
+                any(Date.class), any(Date.class), Matchers.isNull(Integer.class), anyListOf(AppointmentStatus.class));
+    }
+
+    private Appointment appointmentOfLimitedService(int serviceId, int maxAppointmentsLimit) {
+        AppointmentServiceDefinition service = new AppointmentServiceDefinition();
+        service.setAppointmentServiceId(serviceId);
+        service.setName("Cardiology");
+        service.setMaxAppointmentsLimit(maxAppointmentsLimit);
+        Appointment appointment = new Appointment();
+        appointment.setPatient(new Patient());
+        appointment.setService(service);
+        appointment.setStatus(AppointmentStatus.Scheduled);
+        appointment.setStartDateTime(new Date());
+        appointment.setEndDateTime(new Date());
+        appointment.setAppointmentKind(AppointmentKind.Scheduled);
+        appointment.setAppointmentAudits(new HashSet<>());
+        return appointment;
     }
 
     @Test
@@ -303,15 +589,51 @@ public class AppointmentsServiceImplTest {
         verify(appointmentDao, times(1)).getAppointmentsForService(appointmentServiceDefinition, startDate, endDate, null);
     }
 
+    @Test
+    public void shouldGetDailyAppointmentServiceCountsFromAggregateQuery() throws ParseException {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        Date startDate = simpleDateFormat.parse("2017-08-08");
+        Date endDate = simpleDateFormat.parse("2017-08-15");
+        List<AppointmentStatus> appointmentStatusList = Collections.singletonList(AppointmentStatus.Scheduled);
+        List<DailyAppointmentServiceCount> dailyCounts = Collections.singletonList(new DailyAppointmentServiceCount("serviceUuid", startDate));
+        when(appointmentDao.getDailyAppointmentServiceCounts(startDate, endDate, appointmentStatusList)).thenReturn(dailyCounts);
+
+        List<DailyAppointmentServiceCount> result = appointmentsService.getDailyAppointmentServiceCounts(startDate, endDate, appointmentStatusList);
+
+        assertEquals(dailyCounts, result);
+        verify(appointmentDao, never()).getAppointmentsForService(any(AppointmentServiceDefinition.class), any(Date.class), any(Date.class), anyList());
+    }
+
     @Test
     public void shouldSearchForAnAppointment() {
         Appointment appointment = new Appointment();
         appointment.setUuid("Uuid");
+        Patient patient = new Patient();
+        patient.setUuid("patientUuid");
+        appointment.setPatient(patient);
+        appointment.setStatus(AppointmentStatus.Scheduled);
         List<Appointment> appointmentList = new ArrayList<>();
         appointmentList.add(appointment);
-        when(appointmentDao.search(appointment)).thenReturn(appointmentList);
-        appointmentsService.search(appointment);
-        verify(appointmentDao, times(1)).search(appointment);
+        ArgumentCaptor<AppointmentFilter> captor = ArgumentCaptor.forClass(AppointmentFilter.class);
+        when(appointmentDao.search(any(AppointmentFilter.class))).thenReturn(appointmentList);
+
+        List<Appointment> appointments = appointmentsService.search(appointment);
+
+        verify(appointmentDao, times(1)).search(captor.capture());
+        assertEquals(appointmentList, appointments);
+        assertEquals("patientUuid", captor.getValue().getPatientUuid());
+        assertNull(captor.getValue().getServiceUuid());
+        assertEquals(AppointmentStatus.Scheduled, captor.getValue().getStatus());
+    }
+
+    @Test
+    public void shouldSearchAppointmentsMatchingFilter() {
+        AppointmentFilter appointmentFilter = new AppointmentFilter();
+        List<Appointment> appointmentList = Collections.singletonList(new Appointment());
+        when(appointmentDao.search(appointmentFilter)).thenReturn(appointmentList);
+
+        assertEquals(appointmentList, appointmentsService.search(appointmentFilter));
+        verify(appointmentDao, times(1)).search(appointmentFilter);
     }
 
     @Test
@@ -351,6 +673,70 @@ public class AppointmentsServiceImplTest {
         verify(appointmentAuditDao, times(1)).save(any(AppointmentAudit.class));
     }
 
+    @Test
+    public void shouldEvictServiceLoadOfAppointmentOnStatusChange() {
+        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
+        Date startDateTime = new Date();
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(1);
+        appointment.setService(appointmentServiceDefinition);
+        appointment.setStartDateTime(startDateTime);
+        appointment.setStatus(AppointmentStatus.Scheduled);
+
+        appointmentsService.changeStatus(appointment, "CheckedIn", null);
+
+        verify(appointmentServiceLoadCache, times(1)).evict(appointmentServiceDefinition, startDateTime);
+        verify(appointmentServiceLoadCache, never()).evictAll();
+    }
+
+    @Test
+    public void shouldEvictServiceLoadOnlyAfterStatusChangeIsCommitted() {
+        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
+        Date startDateTime = new Date();
+        Appointment appointment = new Appointment();
+        appointment.setService(appointmentServiceDefinition);
+        appointment.setStartDateTime(startDateTime);
+        appointment.setStatus(AppointmentStatus.Scheduled);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            appointmentsService.changeStatus(appointment, "CheckedIn", null);
+
+            verify(appointmentServiceLoadCache, never()).evict(any(), any());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(appointmentServiceLoadCache, times(1)).evict(appointmentServiceDefinition, startDateTime);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void shouldEvictServiceLoadOfNewAppointmentOnSave() {
+        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
+        Date startDateTime = new Date();
+        Appointment appointment = new Appointment();
+        appointment.setService(appointmentServiceDefinition);
+        appointment.setStartDateTime(startDateTime);
+        appointment.setAppointmentAudits(new HashSet<>());
+
+        appointmentsService.validateAndSave(appointment);
+
+        verify(appointmentServiceLoadCache, times(1)).evict(appointmentServiceDefinition, startDateTime);
+        verify(appointmentServiceLoadCache, never()).evictAll();
+    }
+
+    @Test
+    public void shouldEvictAllServiceLoadsWhenExistingAppointmentIsSaved() {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(1);
+        appointment.setService(new AppointmentServiceDefinition());
+        appointment.setStartDateTime(new Date());
+        appointment.setAppointmentAudits(new HashSet<>());
+
+        appointmentsService.validateAndSave(appointment);
+
+        verify(appointmentServiceLoadCache, times(1)).evictAll();
+    }
+
     @Test
     public void shouldCreateAuditEventOnStatusChangeWithOutDate() {
         Appointment appointment = new Appointment();
@@ -382,6 +768,130 @@ public class AppointmentsServiceImplTest {
         verify(appointmentAuditDao, times(1)).save(appointmentAudit);
     }
 
+    @Test
+    public void shouldChangeStatusInBulkAndReportAppointmentsFailingValidation() {
+        Appointment validAppointment = new Appointment();
+        validAppointment.setUuid("validUuid");
+        validAppointment.setStatus(AppointmentStatus.Scheduled);
+        Appointment invalidAppointment = new Appointment();
+        invalidAppointment.setUuid("invalidUuid");
+        invalidAppointment.setStatus(AppointmentStatus.Completed);
+        List<AppointmentStatus> statuses = asList(AppointmentStatus.Scheduled, AppointmentStatus.Completed);
+        Date onDate = new Date();
+        String errorMessage = "Appointment status can not be changed from Completed to Missed";
+        doThrow(new APIException(errorMessage)).when(appointmentServiceHelper)
+                .validateStatusChangeAndGetErrors(eq(invalidAppointment), any(AppointmentStatus.class),
+                        anyListOf(AppointmentStatusChangeValidator.class));
+        when(appointmentServiceHelper.getAppointmentAuditEvent(validAppointment, onDate.toInstant().toString()))
+                .thenReturn(new AppointmentAudit());
+        when(appointmentDao.getAppointmentsChunkInDateRange(eq((Date) null), eq(onDate), eq(statuses), any(), anyInt()))
+                .thenReturn(asList(validAppointment, invalidAppointment));
+
+        AppointmentBulkStatusChangeResult result = appointmentsService.changeStatusInBulk(null, onDate, statuses, "Missed", onDate);
+
+        verify(appointmentDao).updateStatus(eq(Collections.singletonList(validAppointment)), eq(AppointmentStatus.Missed), any(), any(Date.class));
+        ArgumentCaptor<List> auditsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(appointmentAuditDao).saveInBatch(auditsCaptor.capture());
+        assertEquals(1, auditsCaptor.getValue().size());
+        assertEquals(AppointmentStatus.Missed, ((AppointmentAudit) auditsCaptor.getValue().get(0)).getStatus());
+        verify(appointmentDao, never()).save(any(Appointment.class));
+        assertEquals(Collections.singletonList("validUuid"), result.getChangedAppointmentUuids());
+        assertEquals(errorMessage, result.getFailures().get("invalidUuid"));
+    }
+
+    @Test
+    public void shouldChangeStatusInBulkChunkByChunkThroughService() {
+        List<Appointment> fullChunk = new ArrayList<>();
+        for (int appointmentId = 1; appointmentId <= 100; appointmentId++) {
+            Appointment appointment = new Appointment();
+            appointment.setAppointmentId(appointmentId);
+            appointment.setUuid("uuid" + appointmentId);
+            appointment.setStatus(AppointmentStatus.Scheduled);
+            fullChunk.add(appointment);
+        }
+        Appointment lastAppointment = new Appointment();
+        lastAppointment.setAppointmentId(101);
+        lastAppointment.setUuid("uuid101");
+        lastAppointment.setStatus(AppointmentStatus.Scheduled);
+        List<AppointmentStatus> statuses = Collections.singletonList(AppointmentStatus.Scheduled);
+        when(appointmentServiceHelper.getAppointmentAuditEvent(any(Appointment.class), any())).thenReturn(new AppointmentAudit());
+        when(appointmentDao.getAppointmentsChunkInDateRange(any(), any(), eq(statuses), Matchers.isNull(Integer.class), eq(100)))
+                .thenReturn(fullChunk);
+        when(appointmentDao.getAppointmentsChunkInDateRange(any(), any(), eq(statuses), eq(100), eq(100)))
+                .thenReturn(Collections.singletonList(lastAppointment));
+
+        AppointmentBulkStatusChangeResult result = appointmentsService.changeStatusInBulk(null, new Date(), statuses, "Missed", null);
+
+        verify(appointmentDao, times(2)).updateStatus(anyListOf(Appointment.class), eq(AppointmentStatus.Missed), any(), any(Date.class));
+        verify(appointmentAuditDao, times(2)).saveInBatch(any());
+        assertEquals(101, result.getChangedAppointmentUuids().size());
+        assertEquals("uuid101", result.getChangedAppointmentUuids().get(100));
+        assertNull(result.getLastAppointmentId());
+    }
+
+    @Test
+    public void shouldNotUpdateAnythingInBulkWhenAllAppointmentsFailValidation() {
+        Appointment invalidAppointment = new Appointment();
+        invalidAppointment.setStatus(AppointmentStatus.Completed);
+        doThrow(new APIException("error")).when(appointmentServiceHelper)
+                .validateStatusChangeAndGetErrors(any(Appointment.class), any(AppointmentStatus.class),
+                        anyListOf(AppointmentStatusChangeValidator.class));
+        when(appointmentDao.getAppointmentsChunkInDateRange(any(), any(), any(), any(), anyInt()))
+                .thenReturn(Collections.singletonList(invalidAppointment));
+
+        AppointmentBulkStatusChangeResult result = appointmentsService.changeStatusInBulk(null, new Date(),
+                Collections.singletonList(AppointmentStatus.Completed), "Missed", null);
+
+        verify(appointmentDao, never()).updateStatus(any(), any(), any(), any());
+        verify(appointmentAuditDao, never()).saveInBatch(any());
+        assertTrue(result.getChangedAppointmentUuids().isEmpty());
+        assertEquals(1, result.getFailures().size());
+    }
+
+    @Test
+    public void shouldGetAppointmentsChangedSinceGivenTimeFromDao() {
+        Date since = new Date(1000);
+        List<Appointment> changedAppointments = Collections.singletonList(new Appointment());
+        when(appointmentDao.getAppointmentsChangedSince(since, 7, 500)).thenReturn(changedAppointments);
+
+        assertEquals(changedAppointments, appointmentsService.getAppointmentsChangedSince(since, 7, 500));
+    }
+
+    @Test
+    public void shouldWalkAllAppointmentsOfTheDayInChunksWithTheirAssociationsPrefetched() {
+        Date forDate = new Date();
+        Date endDate = new Date(forDate.getTime() + 24 * 60 * 60 * 1000);
+        Appointment appointmentOne = new Appointment();
+        Appointment appointmentTwo = new Appointment();
+        List<Appointment> firstChunk = Collections.singletonList(appointmentOne);
+        List<Appointment> secondChunk = Collections.singletonList(appointmentTwo);
+        Consumer<Appointment> action = mock(Consumer.class);
+        doAnswer(invocation -> {
+            Consumer<List<Appointment>> chunkConsumer = (Consumer<List<Appointment>>) invocation.getArguments()[4];
+            chunkConsumer.accept(firstChunk);
+            chunkConsumer.accept(secondChunk);
+            return null;
+        }).when(appointmentDao).forEachAppointmentsChunkInDateRange(eq(forDate), eq(endDate), eq((List<AppointmentStatus>) null), eq(100), any());
+
+        appointmentsService.forEachAppointment(forDate, action);
+
+        InOrder inOrder = inOrder(appointmentDao, action);
+        inOrder.verify(appointmentDao).prefetchAssociations(firstChunk);
+        inOrder.verify(action).accept(appointmentOne);
+        inOrder.verify(appointmentDao).prefetchAssociations(secondChunk);
+        inOrder.verify(action).accept(appointmentTwo);
+        verify(appointmentDao, never()).getAllAppointments(any(Date.class));
+    }
+
+    @Test
+    public void shouldPrefetchAssociationsOfAppointmentsThroughDao() {
+        List<Appointment> appointments = Collections.singletonList(new Appointment());
+
+        appointmentsService.prefetchAssociations(appointments);
+
+        verify(appointmentDao, times(1)).prefetchAssociations(appointments);
+    }
+
     @Test
     public void shouldCallAppointmentDaoOnce() {
         appointmentsService.getAllAppointmentsInDateRange(null, null);
@@ -650,6 +1160,36 @@ public class AppointmentsServiceImplTest {
         assertEquals(1, response.get(PATIENT_DOUBLE_BOOKING).size());
     }
 
+    @Test
+    public void shouldReturnConflictsOfEachPatientFetchingExistingAppointmentsOnce() {
+        Patient patientOne = new Patient(1);
+        Patient patientTwo = new Patient(2);
+        Appointment appointmentOne = new Appointment();
+        appointmentOne.setPatient(patientOne);
+        appointmentOne.setStartDateTime(DateUtil.getStartOfDay());
+        Appointment appointmentTwo = new Appointment();
+        appointmentTwo.setPatient(patientTwo);
+        appointmentTwo.setStartDateTime(DateUtil.getStartOfDay());
+        Appointment existingAppointmentOfPatientOne = new Appointment();
+        existingAppointmentOfPatientOne.setPatient(patientOne);
+        Appointment conflictingAppointment = new Appointment();
+        when(appointmentDao.getAppointmentsForPatients(asList(1, 2))).thenReturn(Collections.singletonList(existingAppointmentOfPatientOne));
+        when(patientDoubleBookingConflict.getConflicts(Collections.singletonList(appointmentOne), Collections.singletonList(existingAppointmentOfPatientOne)))
+                .thenReturn(Collections.singletonList(conflictingAppointment));
+        when(patientDoubleBookingConflict.getConflicts(Collections.singletonList(appointmentTwo), Collections.emptyList()))
+                .thenReturn(Collections.emptyList());
+        when(patientDoubleBookingConflict.getType()).thenReturn(PATIENT_DOUBLE_BOOKING);
+
+        Map<String, Map<Enum, List<Appointment>>> response = appointmentsService.getAppointmentsConflictsForPatients(asList(appointmentOne, appointmentTwo));
+
+        verify(appointmentDao, times(1)).getAppointmentsForPatients(asList(1, 2));
+        verify(appointmentDao, never()).getAppointmentsForPatient(any(Integer.class));
+        verify(appointmentServiceHelper, never()).checkAndAssignAppointmentNumber(any(Appointment.class));
+        assertEquals(1, response.size());
+        assertEquals(Collections.singletonList(conflictingAppointment), response.get(patientOne.getUuid()).get(PATIENT_DOUBLE_BOOKING));
+        assertFalse(response.containsKey(patientTwo.getUuid()));
+    }
+
     @Test
     public void shouldNeverCallGetConflictsForEmptyList() {
         Appointment appointmentOne = new Appointment();
@@ -696,6 +1236,33 @@ public class AppointmentsServiceImplTest {
         assertEquals(AppointmentProviderResponse.ACCEPTED, savedAppointment.getProviders().iterator().next().getResponse());
     }
 
+    @Test
+    public void shouldTouchAppointmentWhenProviderResponds() {
+        Person person = new Person();
+        when(user.getPerson()).thenReturn(person);
+        when(Context.getAuthenticatedUser()).thenReturn(user);
+        Provider provider = new Provider();
+        provider.setPerson(person);
+        Appointment appointment = new Appointment();
+        appointment.setStatus(AppointmentStatus.Scheduled);
+        AppointmentProvider existingProvider = new AppointmentProvider();
+        existingProvider.setResponse(AppointmentProviderResponse.AWAITING);
+        existingProvider.setProvider(provider);
+        existingProvider.setAppointment(appointment);
+        appointment.setProviders(new HashSet<>(asList(existingProvider)));
+        AppointmentProvider providerRequest = new AppointmentProvider();
+        providerRequest.setProvider(provider);
+        providerRequest.setAppointment(appointment);
+        providerRequest.setResponse(AppointmentProviderResponse.REJECTED);
+        Date before = new Date();
+
+        appointmentsService.updateAppointmentProviderResponse(providerRequest);
+
+        assertFalse(appointment.getDateChanged().before(before));
+        assertEquals(user, appointment.getChangedBy());
+        verify(appointmentDao, times(1)).save(appointment);
+    }
+
     @Test
     public void shouldUpdateAppointmentStatusInCaseOfRequestedAppointment() {
         when(Context.hasPrivilege(MANAGE_OWN_APPOINTMENTS)).thenReturn(true);
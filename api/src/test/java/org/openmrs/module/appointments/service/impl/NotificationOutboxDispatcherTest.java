@@ -0,0 +1,176 @@
+package org.openmrs.module.appointments.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.appointments.dao.AppointmentNotificationDao;
+import org.openmrs.module.appointments.model.AppointmentNotification;
+import org.openmrs.module.appointments.notification.NotificationResult;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@PrepareForTest({Daemon.class, Context.class})
+@RunWith(PowerMockRunner.class)
+public class NotificationOutboxDispatcherTest {
+
+    @Mock
+    private PatientAppointmentNotifierService patientAppointmentNotifierService;
+
+    @Mock
+    private AppointmentNotificationDao appointmentNotificationDao;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DaemonToken daemonToken = new DaemonToken("appointments");
+
+    private NotificationOutboxDispatcher notificationOutboxDispatcher;
+
+    private List<Thread> daemonThreads = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        mockStatic(Daemon.class);
+        mockStatic(Context.class);
+        when(Daemon.runInDaemonThread(any(Runnable.class), eq(daemonToken))).thenAnswer(invocation -> {
+            Thread thread = new Thread((Runnable) invocation.getArguments()[0]);
+            thread.start();
+            daemonThreads.add(thread);
+            return thread;
+        });
+        when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenReturn(mock(TransactionStatus.class));
+        notificationOutboxDispatcher = new NotificationOutboxDispatcher();
+        notificationOutboxDispatcher.setPatientAppointmentNotifierService(patientAppointmentNotifierService);
+        notificationOutboxDispatcher.setAppointmentNotificationDao(appointmentNotificationDao);
+        notificationOutboxDispatcher.setTransactionManager(transactionManager);
+        notificationOutboxDispatcher.start(daemonToken);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        notificationOutboxDispatcher.destroy();
+    }
+
+    @Test
+    public void shouldDeliverQueuedNotificationsOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        notificationOutboxDispatcher.dispatchAfterCommit(Arrays.asList(1, 2));
+
+        verify(patientAppointmentNotifierService, never()).claim(any(Integer.class));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(patientAppointmentNotifierService, timeout(2000)).claim(1);
+        verify(patientAppointmentNotifierService, timeout(2000)).claim(2);
+    }
+
+    @Test
+    public void shouldDeliverRightAwayWhenNotInTransaction() {
+        notificationOutboxDispatcher.dispatchAfterCommit(Collections.singletonList(3));
+
+        verify(patientAppointmentNotifierService, timeout(2000)).claim(3);
+    }
+
+    @Test
+    public void shouldSendClaimedNotificationAsDaemonBetweenTransactions() {
+        AppointmentNotification notification = new AppointmentNotification();
+        NotificationResult result = new NotificationResult("message-id", "EMAIL", NotificationResult.SUCCESS_STATUS, "Sent");
+        AtomicReference<Thread> claimingThread = new AtomicReference<>();
+        when(patientAppointmentNotifierService.claim(6)).thenAnswer(invocation -> {
+            claimingThread.set(Thread.currentThread());
+            return notification;
+        });
+        when(patientAppointmentNotifierService.send(notification)).thenReturn(result);
+
+        notificationOutboxDispatcher.dispatch(6);
+
+        verify(patientAppointmentNotifierService, timeout(2000)).record(6, result);
+        InOrder inOrder = inOrder(transactionManager, patientAppointmentNotifierService);
+        inOrder.verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        inOrder.verify(patientAppointmentNotifierService).claim(6);
+        inOrder.verify(transactionManager).commit(any(TransactionStatus.class));
+        inOrder.verify(patientAppointmentNotifierService).send(notification);
+        inOrder.verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        inOrder.verify(patientAppointmentNotifierService).record(6, result);
+        inOrder.verify(transactionManager).commit(any(TransactionStatus.class));
+        assertTrue(daemonThreads.contains(claimingThread.get()));
+    }
+
+    @Test
+    public void shouldDeliverOnDaemonThreadsStartedOnce() {
+        notificationOutboxDispatcher.start(daemonToken);
+
+        notificationOutboxDispatcher.dispatch(9);
+        notificationOutboxDispatcher.dispatch(10);
+
+        verify(patientAppointmentNotifierService, timeout(2000)).claim(9);
+        verify(patientAppointmentNotifierService, timeout(2000)).claim(10);
+        assertEquals(NotificationOutboxDispatcher.WORKER_THREADS + 1, daemonThreads.size());
+    }
+
+    @Test
+    public void shouldNotSendNotificationClaimedByAnotherWorker() throws Exception {
+        notificationOutboxDispatcher.dispatch(7);
+
+        verify(patientAppointmentNotifierService, timeout(2000)).claim(7);
+        Thread.sleep(100);
+        verify(patientAppointmentNotifierService, never()).send(any(AppointmentNotification.class));
+        verify(patientAppointmentNotifierService, never()).record(any(Integer.class), any(NotificationResult.class));
+    }
+
+    @Test
+    public void shouldLeaveNotificationsForTheSweepUntilStarted() throws Exception {
+        NotificationOutboxDispatcher notStartedDispatcher = new NotificationOutboxDispatcher();
+        notStartedDispatcher.setPatientAppointmentNotifierService(patientAppointmentNotifierService);
+        notStartedDispatcher.setTransactionManager(transactionManager);
+
+        notStartedDispatcher.dispatchAfterCommit(Collections.singletonList(8));
+
+        Thread.sleep(100);
+        verify(patientAppointmentNotifierService, never()).claim(8);
+        notStartedDispatcher.destroy();
+    }
+
+    @Test
+    public void shouldDeliverDueNotificationsFoundBySweep() {
+        when(appointmentNotificationDao.getDueNotificationIds(any(Date.class), anyInt())).thenReturn(Arrays.asList(4, 5));
+
+        notificationOutboxDispatcher.sweep();
+
+        verify(patientAppointmentNotifierService, timeout(2000)).claim(4);
+        verify(patientAppointmentNotifierService, timeout(2000)).claim(5);
+    }
+}
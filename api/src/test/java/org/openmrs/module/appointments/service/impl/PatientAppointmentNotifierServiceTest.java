@@ -3,8 +3,12 @@ package org.openmrs.module.appointments.service.impl;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.openmrs.module.appointments.dao.AppointmentNotificationDao;
+import org.openmrs.module.appointments.model.AppointmentNotification;
+import org.openmrs.module.appointments.model.AppointmentNotificationStatus;
 import org.openmrs.module.appointments.notification.AppointmentEventNotifier;
 import org.openmrs.module.appointments.notification.NotificationException;
 import org.openmrs.module.appointments.notification.NotificationResult;
@@ -12,9 +16,16 @@ import org.openmrs.module.appointments.model.Appointment;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -26,18 +37,161 @@ public class PatientAppointmentNotifierServiceTest {
     @Mock
     private AppointmentEventNotifier appointmentEventNotifier;
 
+    @Mock
+    private AppointmentNotificationDao appointmentNotificationDao;
+
+    @Mock
+    private NotificationOutboxDispatcher notificationOutboxDispatcher;
+
     @Before
     public void init() {
         MockitoAnnotations.initMocks(this);
         notifierService =  new PatientAppointmentNotifierService(Collections.singletonList(appointmentEventNotifier));
+        notifierService.setAppointmentNotificationDao(appointmentNotificationDao);
+        notifierService.setNotificationOutboxDispatcher(notificationOutboxDispatcher);
+        when(appointmentEventNotifier.getMedium()).thenReturn("EMAIL");
     }
 
     @Test
-    public void shouldSendEmailOnTeleconsultationAppointmentSavedEvent() throws NotificationException {
+    public void shouldQueueNotificationForApplicableNotifierWithoutSendingIt() throws NotificationException {
         Appointment appointment = new Appointment();
         when(appointmentEventNotifier.isApplicable(appointment)).thenReturn(true);
-        when(appointmentEventNotifier.sendNotification(appointment)).thenReturn(new NotificationResult("", "EMAIL", 0, "Some message"));
-        notifierService.notifyAll(appointment);
-        verify(appointmentEventNotifier, times(1)).sendNotification(appointment);
+        doAnswer(invocation -> {
+            ((AppointmentNotification) invocation.getArguments()[0]).setAppointmentNotificationId(7);
+            return null;
+        }).when(appointmentNotificationDao).save(any(AppointmentNotification.class));
+
+        List<NotificationResult> results = notifierService.queueAll(appointment);
+
+        ArgumentCaptor<AppointmentNotification> captor = ArgumentCaptor.forClass(AppointmentNotification.class);
+        verify(appointmentNotificationDao).save(captor.capture());
+        assertEquals(appointment, captor.getValue().getAppointment());
+        assertEquals("EMAIL", captor.getValue().getMedium());
+        assertEquals(AppointmentNotificationStatus.Pending, captor.getValue().getStatus());
+        verify(notificationOutboxDispatcher).dispatchAfterCommit(Collections.singletonList(7));
+        verify(appointmentEventNotifier, never()).sendNotification(appointment);
+        assertEquals(1, results.size());
+        assertEquals(NotificationResult.QUEUED, results.get(0).getStatus());
+        assertEquals(captor.getValue().getUuid(), results.get(0).getUuid());
+    }
+
+    @Test
+    public void shouldNotQueueNotificationForNotifierNotApplicable() {
+        Appointment appointment = new Appointment();
+        when(appointmentEventNotifier.isApplicable(appointment)).thenReturn(false);
+
+        assertTrue(notifierService.queueAll(appointment).isEmpty());
+
+        verify(appointmentNotificationDao, never()).save(any(AppointmentNotification.class));
+        verify(notificationOutboxDispatcher, never()).dispatchAfterCommit(any(List.class));
+    }
+
+    @Test
+    public void shouldClaimDueNotificationUntilItCanBeRetried() {
+        AppointmentNotification notification = claimedNotification(1);
+        long before = System.currentTimeMillis();
+        when(appointmentNotificationDao.claim(eq(1), any(Date.class), any(Date.class))).thenReturn(true);
+
+        assertEquals(notification, notifierService.claim(1));
+
+        ArgumentCaptor<Date> nowCaptor = ArgumentCaptor.forClass(Date.class);
+        ArgumentCaptor<Date> claimedUntilCaptor = ArgumentCaptor.forClass(Date.class);
+        verify(appointmentNotificationDao).claim(eq(1), nowCaptor.capture(), claimedUntilCaptor.capture());
+        assertTrue(nowCaptor.getValue().getTime() >= before);
+        assertEquals(nowCaptor.getValue().getTime() + PatientAppointmentNotifierService.CLAIM_MILLIS,
+                claimedUntilCaptor.getValue().getTime());
+    }
+
+    @Test
+    public void shouldNotHandOutNotificationClaimedByAnotherWorker() {
+        claimedNotification(1);
+        when(appointmentNotificationDao.claim(eq(1), any(Date.class), any(Date.class))).thenReturn(false);
+
+        assertNull(notifierService.claim(1));
+    }
+
+    @Test
+    public void shouldSendNotificationThroughItsMedium() throws NotificationException {
+        AppointmentNotification notification = claimedNotification(1);
+        NotificationResult result = new NotificationResult("message-id", "EMAIL", NotificationResult.SUCCESS_STATUS, "Sent");
+        when(appointmentEventNotifier.sendNotification(notification.getAppointment())).thenReturn(result);
+
+        assertEquals(result, notifierService.send(notification));
+        verify(appointmentNotificationDao, never()).save(any(AppointmentNotification.class));
+    }
+
+    @Test
+    public void shouldReportFailureWhenMediumCannotSend() throws NotificationException {
+        AppointmentNotification notification = claimedNotification(1);
+        when(appointmentEventNotifier.sendNotification(notification.getAppointment()))
+                .thenThrow(new NotificationException("SMTP server unavailable", null));
+
+        assertEquals(NotificationResult.GENERAL_ERROR, notifierService.send(notification).getStatus());
+    }
+
+    @Test
+    public void shouldMarkNotificationSentWhenDelivered() {
+        AppointmentNotification notification = claimedNotification(1);
+
+        notifierService.record(1, new NotificationResult("message-id", "EMAIL", NotificationResult.SUCCESS_STATUS, "Sent"));
+
+        assertEquals(AppointmentNotificationStatus.Sent, notification.getStatus());
+        assertEquals(Integer.valueOf(1), notification.getAttempts());
+        assertEquals(Integer.valueOf(NotificationResult.SUCCESS_STATUS), notification.getResultStatus());
+        assertEquals("message-id", notification.getResultUuid());
+        verify(appointmentNotificationDao).save(notification);
+    }
+
+    @Test
+    public void shouldRetryFailedNotificationWithBackoff() {
+        AppointmentNotification notification = claimedNotification(3);
+        long before = System.currentTimeMillis();
+
+        notifierService.record(1, new NotificationResult("", "EMAIL", NotificationResult.GENERAL_ERROR, "Failed"));
+
+        assertEquals(AppointmentNotificationStatus.Pending, notification.getStatus());
+        assertEquals(Integer.valueOf(3), notification.getAttempts());
+        assertEquals(Integer.valueOf(NotificationResult.GENERAL_ERROR), notification.getResultStatus());
+        assertTrue(notification.getNextAttemptAt().getTime() >= before + 4 * PatientAppointmentNotifierService.RETRY_BASE_DELAY_MILLIS);
+    }
+
+    @Test
+    public void shouldGiveUpOnNotificationAfterMaximumAttempts() {
+        AppointmentNotification notification = claimedNotification(PatientAppointmentNotifierService.MAX_ATTEMPTS);
+
+        notifierService.record(1, new NotificationResult("", "EMAIL", NotificationResult.GENERAL_ERROR, "Failed"));
+
+        assertEquals(AppointmentNotificationStatus.Failed, notification.getStatus());
+        assertEquals(Integer.valueOf(PatientAppointmentNotifierService.MAX_ATTEMPTS), notification.getAttempts());
+    }
+
+    @Test
+    public void shouldNotRecordResultOfNotificationNoLongerClaimed() {
+        AppointmentNotification notification = claimedNotification(1);
+        notification.setStatus(AppointmentNotificationStatus.Sent);
+
+        notifierService.record(1, new NotificationResult("", "EMAIL", NotificationResult.GENERAL_ERROR, "Failed"));
+
+        assertEquals(AppointmentNotificationStatus.Sent, notification.getStatus());
+        verify(appointmentNotificationDao, never()).save(notification);
+    }
+
+    @Test
+    public void shouldDoubleRetryDelayUpToMaximum() {
+        assertEquals(PatientAppointmentNotifierService.RETRY_BASE_DELAY_MILLIS, PatientAppointmentNotifierService.retryDelayMillis(1));
+        assertEquals(2 * PatientAppointmentNotifierService.RETRY_BASE_DELAY_MILLIS, PatientAppointmentNotifierService.retryDelayMillis(2));
+        assertEquals(PatientAppointmentNotifierService.RETRY_MAX_DELAY_MILLIS, PatientAppointmentNotifierService.retryDelayMillis(40));
+    }
+
+    private AppointmentNotification claimedNotification(int attempts) {
+        AppointmentNotification notification = new AppointmentNotification();
+        notification.setStatus(AppointmentNotificationStatus.Sending);
+        notification.setAppointmentNotificationId(1);
+        notification.setAppointment(new Appointment());
+        notification.setMedium("EMAIL");
+        notification.setAttempts(attempts);
+        notification.setNextAttemptAt(new Date());
+        when(appointmentNotificationDao.getAppointmentNotificationById(1)).thenReturn(notification);
+        return notification;
     }
-}
\ No newline at end of file
+}
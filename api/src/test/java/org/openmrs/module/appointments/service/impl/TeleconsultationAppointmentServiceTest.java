@@ -3,36 +3,35 @@ package org.openmrs.module.appointments.service.impl;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.openmrs.GlobalProperty;
-import org.openmrs.api.AdministrationService;
-import org.openmrs.api.context.Context;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openmrs.module.appointments.config.AppointmentsConfiguration;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
 import org.openmrs.module.appointments.model.Appointment;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.Collections;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
-import static org.powermock.api.mockito.PowerMockito.when;
+import static org.mockito.Mockito.when;
 
-@PrepareForTest(Context.class)
-@RunWith(PowerMockRunner.class)
+@RunWith(MockitoJUnitRunner.class)
 public class TeleconsultationAppointmentServiceTest {
     @Mock
-    private AdministrationService administrationService;
+    private AppointmentsConfigurationProvider appointmentsConfigurationProvider;
+
+    @InjectMocks
+    private TeleconsultationAppointmentService teleconsultationAppointmentService;
 
     @Before
     public void setUp() throws Exception {
-        PowerMockito.mockStatic(Context.class);
-        when(Context.getAdministrationService()).thenReturn(administrationService);
-        when(administrationService.getGlobalProperty("bahmni.appointment.teleConsultation.serverUrlPattern")).thenReturn("https://test.server/{0}");
+        when(appointmentsConfigurationProvider.get()).thenReturn(new AppointmentsConfiguration(Collections.singletonMap(
+                "bahmni.appointment.teleConsultation.serverUrlPattern", "https://test.server/{0}")));
     }
 
     @Test
     public void shouldGenerateTCLinkForAppointment() {
-        TeleconsultationAppointmentService teleconsultationAppointmentService = new TeleconsultationAppointmentService();
         Appointment appointment = new Appointment();
         UUID uuid = UUID.randomUUID();
         appointment.setUuid(uuid.toString());
@@ -40,4 +39,13 @@ public class TeleconsultationAppointmentServiceTest {
         assertEquals("https://test.server/"+appointment.getUuid(), link);
 
     }
+
+    @Test
+    public void shouldUseDefaultServerWhenUrlPatternIsNotConfigured() {
+        when(appointmentsConfigurationProvider.get()).thenReturn(new AppointmentsConfiguration(Collections.emptyMap()));
+        Appointment appointment = new Appointment();
+        appointment.setUuid("appointmentUuid");
+
+        assertEquals("https://meet.jit.si/appointmentUuid", teleconsultationAppointmentService.generateTeleconsultationLink(appointment));
+    }
 }
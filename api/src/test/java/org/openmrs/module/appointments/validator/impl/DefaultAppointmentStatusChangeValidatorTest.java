@@ -6,8 +6,9 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.config.AppointmentsConfiguration;
+import org.openmrs.module.appointments.config.AppointmentsConfigurationProvider;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.powermock.api.mockito.PowerMockito;
@@ -15,7 +16,9 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.when;
@@ -27,7 +30,9 @@ public class DefaultAppointmentStatusChangeValidatorTest {
     private Appointment appointment;
 
     @Mock
-    private AdministrationService administrationService;
+    private AppointmentsConfigurationProvider appointmentsConfigurationProvider;
+
+    private Map<String, String> globalProperties = new HashMap<>();
 
     @InjectMocks
     private DefaultAppointmentStatusChangeValidator validator;
@@ -37,8 +42,8 @@ public class DefaultAppointmentStatusChangeValidatorTest {
         MockitoAnnotations.initMocks(this);
         PowerMockito.mockStatic(Context.class);
 
-        when(administrationService.getGlobalProperty("disableDefaultAppointmentValidations")).thenReturn("false");
-        when(Context.getAdministrationService()).thenReturn(administrationService);
+        globalProperties.put("disableDefaultAppointmentValidations", "false");
+        when(appointmentsConfigurationProvider.get()).thenAnswer(invocation -> new AppointmentsConfiguration(globalProperties));
     }
 
     @Before
@@ -266,7 +271,7 @@ public class DefaultAppointmentStatusChangeValidatorTest {
 
     @Test
     public void shouldNotRunValidationsWhenConfigIsTrue() {
-        when(administrationService.getGlobalProperty("disableDefaultAppointmentValidations")).thenReturn("true");
+        globalProperties.put("disableDefaultAppointmentValidations", "true");
         appointment.setStatus(AppointmentStatus.Scheduled);
         List<String> errors = new ArrayList<>();
         validator.validate(appointment, AppointmentStatus.Scheduled, errors);
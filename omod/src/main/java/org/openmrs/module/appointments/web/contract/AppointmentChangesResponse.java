@@ -0,0 +1,65 @@
+package org.openmrs.module.appointments.web.contract;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.List;
+
+public class AppointmentChangesResponse {
+    private List<AppointmentDefaultResponse> appointments;
+    private long watermark;
+    private Integer watermarkId;
+    private boolean hasMore;
+
+    @JsonCreator
+    public AppointmentChangesResponse(@JsonProperty("appointments") List<AppointmentDefaultResponse> appointments,
+                                      @JsonProperty("watermark") long watermark,
+                                      @JsonProperty("watermarkId") Integer watermarkId,
+                                      @JsonProperty("hasMore") boolean hasMore) {
+        this.appointments = appointments;
+        this.watermark = watermark;
+        this.watermarkId = watermarkId;
+        this.hasMore = hasMore;
+    }
+
+    public List<AppointmentDefaultResponse> getAppointments() {
+        return appointments;
+    }
+
+    public void setAppointments(List<AppointmentDefaultResponse> appointments) {
+        this.appointments = appointments;
+    }
+
+    /**
+     * Time in milliseconds to send as since on the next poll.
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(long watermark) {
+        this.watermark = watermark;
+    }
+
+    /**
+     * Id of the last appointment read at the watermark, to send as sinceId on the next poll. Only set on a full page.
+     */
+    public Integer getWatermarkId() {
+        return watermarkId;
+    }
+
+    public void setWatermarkId(Integer watermarkId) {
+        this.watermarkId = watermarkId;
+    }
+
+    /**
+     * Whether the page was full, so that more changes may follow right away.
+     */
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -3,6 +3,8 @@ package org.openmrs.module.appointments.web.contract;
 
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
 
+import java.util.Date;
+
 @JsonIgnoreProperties
 public class AppointmentQuery {
     private String providerUuid;
@@ -12,6 +14,12 @@ public class AppointmentQuery {
     private String patientUuid;
     private String status;
     private String appointmentKind;
+    private Date startDate;
+    private Date endDate;
+    private String sortBy;
+    private String sortOrder;
+    private int startIndex;
+    private int limit;
 
     public String getAppointmentKind() {
         return appointmentKind;
@@ -68,4 +76,52 @@ public class AppointmentQuery {
     public void setServiceTypeUuid(String serviceTypeUuid) {
         this.serviceTypeUuid = serviceTypeUuid;
     }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+        this.startDate = startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(Date endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public void setSortBy(String sortBy) {
+        this.sortBy = sortBy;
+    }
+
+    public String getSortOrder() {
+        return sortOrder;
+    }
+
+    public void setSortOrder(String sortOrder) {
+        this.sortOrder = sortOrder;
+    }
+
+    public int getStartIndex() {
+        return startIndex;
+    }
+
+    public void setStartIndex(int startIndex) {
+        this.startIndex = startIndex;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
 }
@@ -0,0 +1,39 @@
+package org.openmrs.module.appointments.web.contract;
+
+import java.util.Date;
+
+public class AppointmentSlotResponse {
+    private String appointmentServiceUuid;
+    private Date startDateTime;
+    private Date endDateTime;
+
+    public AppointmentSlotResponse(String appointmentServiceUuid, Date startDateTime, Date endDateTime) {
+        this.appointmentServiceUuid = appointmentServiceUuid;
+        this.startDateTime = startDateTime;
+        this.endDateTime = endDateTime;
+    }
+
+    public String getAppointmentServiceUuid() {
+        return appointmentServiceUuid;
+    }
+
+    public void setAppointmentServiceUuid(String appointmentServiceUuid) {
+        this.appointmentServiceUuid = appointmentServiceUuid;
+    }
+
+    public Date getStartDateTime() {
+        return startDateTime;
+    }
+
+    public void setStartDateTime(Date startDateTime) {
+        this.startDateTime = startDateTime;
+    }
+
+    public Date getEndDateTime() {
+        return endDateTime;
+    }
+
+    public void setEndDateTime(Date endDateTime) {
+        this.endDateTime = endDateTime;
+    }
+}
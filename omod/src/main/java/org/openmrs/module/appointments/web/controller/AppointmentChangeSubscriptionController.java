@@ -0,0 +1,123 @@
+package org.openmrs.module.appointments.web.controller;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.events.AppointmentChangeBroadcaster;
+import org.openmrs.module.appointments.events.AppointmentChangeEvent;
+import org.openmrs.module.appointments.events.AppointmentChangeSubscription;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.openmrs.module.appointments.constants.PrivilegeConstants.VIEW_APPOINTMENTS;
+
+/**
+ * Long-poll channel for appointment changes. A client subscribes once with the location, service and/or provider
+ * it shows, then keeps polling for events. A poll returns as soon as there are events, or with an empty list after
+ * the poll timeout. A subscription that was dropped for not keeping up answers with 410 Gone; the client then
+ * resubscribes and resyncs with the appointment changes endpoint. A subscription can only be polled and removed by
+ * the user who made it.
+ * <p>
+ * Waiting polls need async support on the dispatcher servlet and every filter in front of it. Where the web
+ * application does not declare it, a poll is answered at once with the buffered events, and clients simply poll
+ * more often.
+ */
+@Controller
+@RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/appointment/subscriptions")
+public class AppointmentChangeSubscriptionController extends BaseRestController {
+    static final long POLL_TIMEOUT_MILLIS = 30000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private AppointmentChangeBroadcaster appointmentChangeBroadcaster;
+
+    @RequestMapping(method = RequestMethod.POST)
+    @ResponseBody
+    public Map<String, String> subscribe(@RequestParam(value = "locationUuid", required = false) String locationUuid,
+                                         @RequestParam(value = "serviceUuid", required = false) String serviceUuid,
+                                         @RequestParam(value = "providerUuid", required = false) String providerUuid) {
+        requireViewPrivilege();
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe(
+                Context.getAuthenticatedUser().getUuid(), locationUuid, serviceUuid, providerUuid);
+        return Collections.singletonMap("id", subscription.getId());
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/{id}/events")
+    public DeferredResult<ResponseEntity<List<AppointmentChangeEvent>>> pollEvents(@PathVariable("id") String id,
+                                                                                  HttpServletRequest request,
+                                                                                  HttpServletResponse response) throws IOException {
+        requireViewPrivilege();
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.getSubscription(id);
+        requireOwnership(subscription);
+        if (!request.isAsyncSupported()) {
+            writeEventsNow(subscription, response);
+            return null;
+        }
+        DeferredResult<ResponseEntity<List<AppointmentChangeEvent>>> result = new DeferredResult<>(POLL_TIMEOUT_MILLIS,
+                new ResponseEntity<>(Collections.<AppointmentChangeEvent>emptyList(), HttpStatus.OK));
+        if (subscription == null || subscription.isDropped()) {
+            result.setResult(new ResponseEntity<>(HttpStatus.GONE));
+            return result;
+        }
+        subscription.whenEventsAvailable(() -> {
+            if (subscription.isDropped()) {
+                result.setResult(new ResponseEntity<>(HttpStatus.GONE));
+                return;
+            }
+            List<AppointmentChangeEvent> events = subscription.drain();
+            if (!result.setResult(new ResponseEntity<>(events, HttpStatus.OK))) {
+                subscription.unread(events);
+            }
+        });
+        return result;
+    }
+
+    private void writeEventsNow(AppointmentChangeSubscription subscription, HttpServletResponse response) throws IOException {
+        if (subscription == null || subscription.isDropped()) {
+            response.setStatus(HttpStatus.GONE.value());
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), subscription.drain());
+    }
+
+    @RequestMapping(method = RequestMethod.DELETE, value = "/{id}")
+    public ResponseEntity<Object> unsubscribe(@PathVariable("id") String id) {
+        requireViewPrivilege();
+        requireOwnership(appointmentChangeBroadcaster.getSubscription(id));
+        appointmentChangeBroadcaster.unsubscribe(id);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    private void requireViewPrivilege() {
+        if (!Context.hasPrivilege(VIEW_APPOINTMENTS)) {
+            throw new APIAuthenticationException("Privilege required: " + VIEW_APPOINTMENTS);
+        }
+    }
+
+    private void requireOwnership(AppointmentChangeSubscription subscription) {
+        if (subscription != null && !subscription.isOwnedBy(Context.getAuthenticatedUser().getUuid())) {
+            throw new APIAuthenticationException("Subscription belongs to another user");
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.openmrs.module.appointments.model.AppointmentProvider;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.DailyAppointmentServiceCount;
 import org.openmrs.module.appointments.service.AppointmentServiceDefinitionService;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.module.appointments.util.DateUtil;
@@ -34,6 +35,9 @@ import java.util.stream.Collectors;
 @RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/appointment")
 public class AppointmentController extends BaseRestController {
 
+    private static final long CHANGES_WATERMARK_LAG_MILLIS = 5000;
+    static final int CHANGES_PAGE_SIZE = 500;
+
     private Log log = LogFactory.getLog(this.getClass());
 
     @Autowired
@@ -54,14 +58,41 @@ public class AppointmentController extends BaseRestController {
         List<Appointment> appointments = appointmentsService.getAllAppointments(DateUtil.convertToLocalDateFromUTC(forDate));
         return appointmentMapper.constructResponse(appointments);
     }
+
+    /**
+     * Appointments created, changed or voided after the since watermark, with the watermark for the next poll.
+     * The new watermark lags the server clock a little, as a change saved just before the query may commit after it.
+     * Appointments changed within that lag are sent again on the next poll. Changes of every day are returned, so
+     * that clients holding a day also see the appointments moved off it, and drop those no longer on their day.
+     * A full page has more to follow: its watermark is the change time and id of its last appointment, to send back
+     * as since and sinceId right away.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "changes")
+    @ResponseBody
+    public AppointmentChangesResponse getAppointmentChanges(@RequestParam(value = "since") long since,
+                                                            @RequestParam(value = "sinceId", required = false) Integer sinceId) {
+        long watermark = System.currentTimeMillis() - CHANGES_WATERMARK_LAG_MILLIS;
+        List<Appointment> appointments = appointmentsService.getAppointmentsChangedSince(new Date(since), sinceId, CHANGES_PAGE_SIZE);
+        List<AppointmentDefaultResponse> responses = appointmentMapper.constructResponse(appointments);
+        if (appointments.size() < CHANGES_PAGE_SIZE) {
+            return new AppointmentChangesResponse(responses, Math.max(watermark, since), null, false);
+        }
+        Appointment lastAppointment = appointments.get(appointments.size() - 1);
+        return new AppointmentChangesResponse(responses, getChangeTime(lastAppointment).getTime(),
+                lastAppointment.getAppointmentId(), true);
+    }
+
+    private Date getChangeTime(Appointment appointment) {
+        if (appointment.getDateChanged() != null) {
+            return appointment.getDateChanged();
+        }
+        return appointment.getDateVoided() != null ? appointment.getDateVoided() : appointment.getDateCreated();
+    }
+
     @RequestMapping( method = RequestMethod.POST, value = "search")
     @ResponseBody
     public List<AppointmentDefaultResponse> searchAppointments( @Valid @RequestBody AppointmentQuery searchQuery) throws IOException {
-        Appointment appointment = appointmentMapper.mapQueryToAppointment(searchQuery);
-        if (searchQuery.getStatus() == null) {
-            appointment.setStatus(null);
-        }
-        List<Appointment> appointments =  appointmentsService.search(appointment);
+        List<Appointment> appointments = appointmentsService.search(appointmentMapper.mapQueryToFilter(searchQuery));
         return appointmentMapper.constructResponse(appointments);
     }
 
@@ -99,28 +130,25 @@ public class AppointmentController extends BaseRestController {
         SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
         Date startDate = DateUtil.convertToLocalDateFromUTC(startDateString);
         Date endDate = DateUtil.convertToLocalDateFromUTC(endDateString);
+        List<DailyAppointmentServiceCount> dailyAppointmentServiceCounts = appointmentsService.getDailyAppointmentServiceCounts(
+                startDate, endDate,
+                Arrays.asList(
+                        AppointmentStatus.Requested,
+                        AppointmentStatus.Completed,
+                        AppointmentStatus.Scheduled,
+                        AppointmentStatus.CheckedIn,
+                        AppointmentStatus.Missed));
+        Map<String, List<DailyAppointmentServiceCount>> dailyCountsByService = dailyAppointmentServiceCounts.stream()
+                .collect(Collectors.groupingBy(DailyAppointmentServiceCount::getAppointmentServiceUuid));
+
         List<AppointmentServiceDefinition> appointmentServiceDefinitions = appointmentServiceDefinitionService.getAllAppointmentServices(false);
         for (AppointmentServiceDefinition appointmentServiceDefinition : appointmentServiceDefinitions) {
-            List<Appointment> appointmentsForService =
-                    appointmentsService.getAppointmentsForService(
-                            appointmentServiceDefinition, startDate, endDate,
-                            Arrays.asList(
-                                    AppointmentStatus.Requested,
-                                    AppointmentStatus.Completed,
-                                    AppointmentStatus.Scheduled,
-                                    AppointmentStatus.CheckedIn,
-                                    AppointmentStatus.Missed));
-
-            Map<Date, List<Appointment>> appointmentsGroupedByDate =
-                    appointmentsForService.stream().collect(Collectors.groupingBy(Appointment::getDateFromStartDateTime));
-
             Map<String, DailyAppointmentServiceSummary> appointmentCountMap = new LinkedHashMap<>();
-            for (Map.Entry<Date, List<Appointment>> appointmentDateMap : appointmentsGroupedByDate.entrySet()) {
-                List<Appointment> appointments = appointmentDateMap.getValue();
-                Long missedAppointmentsCount = appointments.stream().filter(s-> s.getStatus().equals(AppointmentStatus.Missed)).count();
+            for (DailyAppointmentServiceCount dailyCount : dailyCountsByService.getOrDefault(appointmentServiceDefinition.getUuid(), Collections.emptyList())) {
                 DailyAppointmentServiceSummary dailyAppointmentServiceSummary = new DailyAppointmentServiceSummary(
-                        appointmentDateMap.getKey(), appointmentServiceDefinition.getUuid(), appointments.size(),Math.toIntExact(missedAppointmentsCount));
-                appointmentCountMap.put(simpleDateFormat.format(appointmentDateMap.getKey()), dailyAppointmentServiceSummary);
+                        dailyCount.getAppointmentDate(), appointmentServiceDefinition.getUuid(),
+                        dailyCount.getAllAppointmentsCount(), dailyCount.getMissedAppointmentsCount());
+                appointmentCountMap.put(simpleDateFormat.format(dailyCount.getAppointmentDate()), dailyAppointmentServiceSummary);
             }
 
             AppointmentsSummary appointmentsSummary = new AppointmentsSummary(appointmentServiceMapper.constructDefaultResponse(appointmentServiceDefinition), appointmentCountMap);
@@ -1,6 +1,9 @@
 package org.openmrs.module.appointments.web.controller;
 
+import org.openmrs.api.APIException;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+import org.openmrs.module.appointments.model.AppointmentServiceType;
+import org.openmrs.module.appointments.model.AppointmentSlot;
 import org.openmrs.module.appointments.service.AppointmentServiceDefinitionService;
 import org.openmrs.module.appointments.util.DateUtil;
 import org.openmrs.module.appointments.web.contract.AppointmentServiceDefaultResponse;
@@ -8,6 +11,7 @@ import org.openmrs.module.appointments.web.contract.AppointmentServiceDescriptio
 import org.openmrs.module.appointments.web.contract.AppointmentServiceFullResponse;
 import org.openmrs.module.appointments.web.mapper.AppointmentServiceMapper;
 import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.RestUtil;
 import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -48,7 +52,7 @@ public class AppointmentServiceController extends BaseRestController {
     @RequestMapping(method = RequestMethod.GET)
     @ResponseBody
     public AppointmentServiceFullResponse getAppointmentServiceByUuid(@RequestParam("uuid") String uuid)  {
-        AppointmentServiceDefinition appointmentServiceDefinition = appointmentServiceDefinitionService.getAppointmentServiceByUuid(uuid);
+        AppointmentServiceDefinition appointmentServiceDefinition = appointmentServiceDefinitionService.getCachedAppointmentServiceByUuid(uuid);
         if(appointmentServiceDefinition == null){
             throw new RuntimeException("Appointment Service does not exist");
         }
@@ -93,11 +97,42 @@ public class AppointmentServiceController extends BaseRestController {
     @ResponseBody
     public Integer calculateLoadForService(@RequestParam("uuid") String serviceUuid, @RequestParam(value = "startDateTime") String startDateTime, @RequestParam(value = "endDateTime") String endDateTime)
             throws ParseException {
-        AppointmentServiceDefinition appointmentServiceDefinition = appointmentServiceDefinitionService.getAppointmentServiceByUuid(serviceUuid);
+        AppointmentServiceDefinition appointmentServiceDefinition = appointmentServiceDefinitionService.getCachedAppointmentServiceByUuid(serviceUuid);
         if(appointmentServiceDefinition == null){
             throw new RuntimeException("Appointment Service does not exist");
         }
 
         return appointmentServiceDefinitionService.calculateCurrentLoad(appointmentServiceDefinition, DateUtil.convertToLocalDateFromUTC(startDateTime), DateUtil.convertToLocalDateFromUTC(endDateTime));
     }
+
+    @RequestMapping(method = RequestMethod.GET, value = "availableSlots")
+    @ResponseBody
+    public ResponseEntity<Object> getAvailableSlots(@RequestParam(value = "serviceUuid", required = false) String serviceUuid,
+                                                           @RequestParam(value = "serviceTypeUuid", required = false) String serviceTypeUuid,
+                                                           @RequestParam(value = "startDateTime") String startDateTime,
+                                                           @RequestParam(value = "endDateTime") String endDateTime,
+                                                           @RequestParam(value = "capacity", defaultValue = "1") int capacity)
+            throws ParseException {
+        AppointmentServiceDefinition appointmentServiceDefinition = null;
+        if (serviceUuid != null) {
+            appointmentServiceDefinition = appointmentServiceDefinitionService.getCachedAppointmentServiceByUuid(serviceUuid);
+            if (appointmentServiceDefinition == null) {
+                throw new RuntimeException("Appointment Service does not exist");
+            }
+        }
+        AppointmentServiceType appointmentServiceType = null;
+        if (serviceTypeUuid != null) {
+            appointmentServiceType = appointmentServiceDefinitionService.getAppointmentServiceTypeByUuid(serviceTypeUuid);
+            if (appointmentServiceType == null) {
+                throw new RuntimeException("Appointment Service Type does not exist");
+            }
+        }
+        try {
+            List<AppointmentSlot> slots = appointmentServiceDefinitionService.getAvailableSlots(appointmentServiceDefinition,
+                    appointmentServiceType, DateUtil.convertToLocalDateFromUTC(startDateTime), DateUtil.convertToLocalDateFromUTC(endDateTime), capacity);
+            return new ResponseEntity<>(appointmentServiceMapper.constructSlotResponse(slots), HttpStatus.OK);
+        } catch (APIException e) {
+            return new ResponseEntity<>(RestUtil.wrapErrorResponse(e, e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
 }
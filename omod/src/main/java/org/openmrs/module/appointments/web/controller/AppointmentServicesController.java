@@ -26,7 +26,7 @@ public class AppointmentServicesController extends BaseRestController {
     @RequestMapping(method = RequestMethod.GET, value="/{uuid}")
     @ResponseBody
     public AppointmentServiceFullResponse getAppointmentServiceByUuid(@PathVariable("uuid") String uuid)  {
-        AppointmentServiceDefinition appointmentServiceDef = appointmentServiceDefinitionService.getAppointmentServiceByUuid(uuid);
+        AppointmentServiceDefinition appointmentServiceDef = appointmentServiceDefinitionService.getCachedAppointmentServiceByUuid(uuid);
         if (appointmentServiceDef == null) {
             throw new RuntimeException("Appointment Service does not exist");
         }
@@ -0,0 +1,40 @@
+package org.openmrs.module.appointments.web.controller;
+
+import org.openmrs.module.appointments.util.DateUtil;
+import org.openmrs.module.appointments.web.service.impl.AppointmentResponseStreamingService;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Date;
+
+@Controller
+public class AppointmentStreamController extends BaseRestController {
+
+    @Autowired
+    private AppointmentResponseStreamingService appointmentResponseStreamingService;
+
+    /**
+     * Same response as {@link AppointmentController#getAllAppointments(String)} and
+     * {@link AppointmentsController#getAllAppointments(String)}, written while the appointments are read
+     * so that memory does not grow with their count.
+     */
+    @RequestMapping(method = RequestMethod.GET, params = "stream=true", value = {
+            "/rest/" + RestConstants.VERSION_1 + "/appointment/all",
+            "/rest/" + RestConstants.VERSION_1 + "/appointments"})
+    public void streamAllAppointments(@RequestParam(value = "forDate", required = false) String forDate,
+                                      HttpServletResponse response) throws ParseException, IOException {
+        Date date = DateUtil.convertToLocalDateFromUTC(forDate);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        appointmentResponseStreamingService.writeAllAppointments(date, response.getOutputStream());
+    }
+}
@@ -5,6 +5,7 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentProvider;
 import org.openmrs.module.appointments.model.AppointmentSearchRequest;
+import org.openmrs.module.appointments.model.AppointmentSearchToken;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.module.appointments.util.DateUtil;
 import org.openmrs.module.appointments.web.contract.AppointmentDefaultResponse;
@@ -28,17 +29,23 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 
 @Controller
 @RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/appointments")
 public class AppointmentsController extends BaseRestController {
+    static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     @Autowired
     private AppointmentsService appointmentsService;
     @Autowired
@@ -82,16 +89,33 @@ public class AppointmentsController extends BaseRestController {
 
     @RequestMapping(method = RequestMethod.POST, value = "search")
     @ResponseBody
-    public List<AppointmentDefaultResponse> search(@Valid @RequestBody AppointmentSearchRequest appointmentSearchRequest) {
+    public List<AppointmentDefaultResponse> search(@Valid @RequestBody AppointmentSearchRequest appointmentSearchRequest,
+                                                   HttpServletResponse response) {
         Errors appointmentSearchErrors = new BeanPropertyBindingResult(appointmentSearchRequest, "appointmentSearchRequest");
         appointmentSearchValidator.validate(appointmentSearchRequest, appointmentSearchErrors);
         if (!appointmentSearchErrors.getAllErrors().isEmpty()) {
             throw new RuntimeException(appointmentSearchErrors.getAllErrors().get(0).getDefaultMessage());
         }
         List<Appointment> appointments = appointmentsService.search(appointmentSearchRequest);
+        setPaginationHeaders(appointmentSearchRequest, appointments, response);
         return appointmentMapper.constructResponse(appointments);
     }
 
+    /**
+     * A full page gets a continuation token for the next one, which may turn out empty.
+     */
+    private void setPaginationHeaders(AppointmentSearchRequest appointmentSearchRequest, List<Appointment> appointments,
+                                      HttpServletResponse response) {
+        int pageSize = appointmentSearchRequest.pageSize();
+        if (appointments != null && pageSize > 0 && appointments.size() >= pageSize) {
+            Appointment lastAppointment = appointments.get(appointments.size() - 1);
+            response.setHeader(CONTINUATION_TOKEN_HEADER, AppointmentSearchToken.after(lastAppointment).encode());
+        }
+        if (appointmentSearchRequest.isIncludeCount()) {
+            response.setHeader(TOTAL_COUNT_HEADER, String.valueOf(appointmentsService.getSearchCount(appointmentSearchRequest)));
+        }
+    }
+
     @RequestMapping(method = RequestMethod.POST, value = "/{appointmentUuid}/status-change")
     @ResponseBody
     public ResponseEntity<Object> transitionAppointment(@PathVariable("appointmentUuid") String appointmentUuid, @RequestBody Map<String, String> statusDetails) throws ParseException {
@@ -120,6 +144,25 @@ public class AppointmentsController extends BaseRestController {
         }
     }
 
+    @RequestMapping(method = RequestMethod.POST, value = "/conflicts/patients")
+    @ResponseBody
+    public ResponseEntity<Object> getConflictsForPatients(@RequestBody List<AppointmentRequest> appointmentRequests) {
+        try {
+            List<Appointment> appointments = appointmentRequests.stream()
+                    .map(appointmentMapper::fromRequestClonedAppointment)
+                    .collect(Collectors.toList());
+            Map<String, Map<Enum, List<Appointment>>> conflictsByPatient = appointmentsService.getAppointmentsConflictsForPatients(appointments);
+            if (conflictsByPatient.isEmpty())
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            Map<String, Map<String, List<AppointmentDefaultResponse>>> response = new LinkedHashMap<>();
+            conflictsByPatient.forEach((patientUuid, conflicts) -> response.put(patientUuid, appointmentMapper.constructConflictResponse(conflicts)));
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            log.error("Runtime error while trying to get conflicts for appointments of patients", e);
+            return new ResponseEntity<>(RestUtil.wrapErrorResponse(e, e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @RequestMapping(method = RequestMethod.POST, value="/{appointmentUuid}/providerResponse")
     @ResponseBody
     public ResponseEntity<Object> updateAppointmentProviderResponse(@PathVariable("appointmentUuid")String appointmentUuid, @RequestBody AppointmentProviderDetail providerResponse) throws ParseException {
@@ -10,6 +10,7 @@ import org.openmrs.api.LocationService;
 import org.openmrs.api.PatientService;
 import org.openmrs.api.ProviderService;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentFilter;
 import org.openmrs.module.appointments.model.AppointmentKind;
 import org.openmrs.module.appointments.model.AppointmentProvider;
 import org.openmrs.module.appointments.model.AppointmentProviderResponse;
@@ -28,6 +29,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -61,6 +63,7 @@ public class AppointmentMapper {
     private Log log = LogFactory.getLog(this.getClass());
 
     public List<AppointmentDefaultResponse> constructResponse(List<Appointment> appointments) {
+        appointmentsService.prefetchAssociations(appointments);
         return appointments.stream().map(as -> this.mapToDefaultResponse(as, new AppointmentDefaultResponse())).collect(Collectors.toList());
     }
 
@@ -89,7 +92,7 @@ public class AppointmentMapper {
     }
 
     public void mapAppointmentRequestToAppointment(AppointmentRequest appointmentRequest, Appointment appointment) {
-        AppointmentServiceDefinition appointmentServiceDefinition = appointmentServiceDefinitionService.getAppointmentServiceByUuid(appointmentRequest.getServiceUuid());
+        AppointmentServiceDefinition appointmentServiceDefinition = appointmentServiceDefinitionService.getCachedAppointmentServiceByUuid(appointmentRequest.getServiceUuid());
         AppointmentServiceType appointmentServiceType = null;
         if (appointmentRequest.getServiceTypeUuid() != null) {
             appointmentServiceType = getServiceTypeByUuid(appointmentServiceDefinition.getServiceTypes(true), appointmentRequest.getServiceTypeUuid());
@@ -177,17 +180,30 @@ public class AppointmentMapper {
                 .filter(avb -> avb.getUuid().equals(serviceTypeUuid)).findAny().get();
     }
 
-    public Appointment mapQueryToAppointment(AppointmentQuery searchQuery) {
-        Appointment appointment = new Appointment();
-        appointment.setService(
-                appointmentServiceDefinitionService.getAppointmentServiceByUuid(searchQuery.getServiceUuid()));
-        appointment.setPatient(patientService.getPatientByUuid(searchQuery.getPatientUuid()));
-        appointment.setProvider(identifyAppointmentProvider(searchQuery.getProviderUuid()));
-        appointment.setLocation(identifyAppointmentLocation(searchQuery.getLocationUuid()));
+    public AppointmentFilter mapQueryToFilter(AppointmentQuery searchQuery) {
+        AppointmentFilter appointmentFilter = new AppointmentFilter();
+        appointmentFilter.setPatientUuid(searchQuery.getPatientUuid());
+        appointmentFilter.setServiceUuid(searchQuery.getServiceUuid());
+        appointmentFilter.setServiceTypeUuid(searchQuery.getServiceTypeUuid());
+        appointmentFilter.setLocationUuid(searchQuery.getLocationUuid());
+        appointmentFilter.setProviderUuid(searchQuery.getProviderUuid());
         if (searchQuery.getStatus() != null) {
-            appointment.setStatus(AppointmentStatus.valueOf(searchQuery.getStatus()));
+            appointmentFilter.setStatus(AppointmentStatus.valueOf(searchQuery.getStatus()));
         }
-        return appointment;
+        if (searchQuery.getAppointmentKind() != null) {
+            appointmentFilter.setAppointmentKind(AppointmentKind.valueOf(searchQuery.getAppointmentKind()));
+        }
+        appointmentFilter.setStartDate(searchQuery.getStartDate());
+        appointmentFilter.setEndDate(searchQuery.getEndDate());
+        if (searchQuery.getSortBy() != null) {
+            appointmentFilter.setSortBy(Arrays.stream(AppointmentFilter.SortField.values())
+                    .filter(sortField -> sortField.getPropertyName().equals(searchQuery.getSortBy()))
+                    .findFirst().orElseThrow(() -> new ConversionException("Bad Request. Cannot sort by " + searchQuery.getSortBy())));
+        }
+        appointmentFilter.setDescending("desc".equalsIgnoreCase(searchQuery.getSortOrder()));
+        appointmentFilter.setStartIndex(searchQuery.getStartIndex());
+        appointmentFilter.setLimit(searchQuery.getLimit());
+        return appointmentFilter;
     }
 
     private AppointmentDefaultResponse mapToDefaultResponse(Appointment a, AppointmentDefaultResponse response) {
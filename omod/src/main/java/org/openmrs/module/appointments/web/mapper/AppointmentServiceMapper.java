@@ -6,6 +6,7 @@ import org.openmrs.api.LocationService;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
+import org.openmrs.module.appointments.model.AppointmentSlot;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.openmrs.module.appointments.model.ServiceWeeklyAvailability;
 import org.openmrs.module.appointments.model.Speciality;
@@ -154,6 +155,11 @@ public class AppointmentServiceMapper {
         return response;
     }
 
+    public List<AppointmentSlotResponse> constructSlotResponse(List<AppointmentSlot> appointmentSlots) {
+        return appointmentSlots.stream().map(slot -> new AppointmentSlotResponse(slot.getAppointmentServiceUuid(),
+                slot.getStartDateTime(), slot.getEndDateTime())).collect(Collectors.toList());
+    }
+
     public AppointmentServiceDefaultResponse constructDefaultResponse(AppointmentServiceDefinition appointmentServiceDefinition){
         return mapToDefaultResponse(appointmentServiceDefinition, new AppointmentServiceDefaultResponse());
     }
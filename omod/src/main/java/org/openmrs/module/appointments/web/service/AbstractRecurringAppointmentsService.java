@@ -4,6 +4,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.openmrs.api.APIException;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentKind;
+import org.openmrs.module.appointments.model.AppointmentProvider;
 import org.openmrs.module.appointments.model.AppointmentRecurringPattern;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.openmrs.module.appointments.service.impl.TeleconsultationAppointmentService;
@@ -17,8 +18,10 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 @Component
 public abstract class AbstractRecurringAppointmentsService {
@@ -37,8 +40,12 @@ public abstract class AbstractRecurringAppointmentsService {
     protected List<Appointment> createAppointments(List<Pair<Date, Date>> appointmentDates,
                                                    AppointmentRequest appointmentRequest) {
         List<Appointment> appointments = new ArrayList<>();
+        if (appointmentDates.isEmpty()) {
+            return appointments;
+        }
+        Appointment prototype = appointmentMapper.fromRequest(appointmentRequest);
         appointmentDates.forEach(appointmentDate -> {
-            Appointment appointment = appointmentMapper.fromRequest(appointmentRequest);
+            Appointment appointment = newOccurrence(prototype);
             appointment.setStartDateTime(appointmentDate.getLeft());
             appointment.setEndDateTime(appointmentDate.getRight());
             if (isVirtual(appointment)) {
@@ -49,6 +56,32 @@ public abstract class AbstractRecurringAppointmentsService {
         return appointments;
     }
 
+    /**
+     * Copies the references resolved once for the series, so each occurrence does not look up the
+     * patient, service, location and providers again.
+     */
+    private Appointment newOccurrence(Appointment prototype) {
+        Appointment appointment = new Appointment();
+        appointment.setPatient(prototype.getPatient());
+        appointment.setService(prototype.getService());
+        appointment.setServiceType(prototype.getServiceType());
+        appointment.setProvider(prototype.getProvider());
+        appointment.setLocation(prototype.getLocation());
+        appointment.setAppointmentKind(prototype.getAppointmentKind());
+        appointment.setStatus(prototype.getStatus());
+        appointment.setComments(prototype.getComments());
+        if (prototype.getProviders() != null) {
+            Set<AppointmentProvider> providers = new HashSet<>();
+            prototype.getProviders().forEach(prototypeProvider -> {
+                AppointmentProvider appointmentProvider = new AppointmentProvider(prototypeProvider);
+                appointmentProvider.setAppointment(appointment);
+                providers.add(appointmentProvider);
+            });
+            appointment.setProviders(providers);
+        }
+        return appointment;
+    }
+
     private boolean isVirtual(Appointment appointment) {
         return appointment.getAppointmentKind() != null && appointment.getAppointmentKind().equals(AppointmentKind.Virtual);
     }
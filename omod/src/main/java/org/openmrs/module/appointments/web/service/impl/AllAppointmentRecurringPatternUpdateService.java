@@ -10,6 +10,8 @@ import org.openmrs.module.appointments.web.mapper.RecurringPatternMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -34,8 +36,7 @@ public class AllAppointmentRecurringPatternUpdateService {
     }
 
     private AppointmentRecurringPattern getAppointmentRecurringPattern(RecurringAppointmentRequest recurringAppointmentRequest, boolean forConflicts) {
-        String clientTimeZone = recurringAppointmentRequest.getTimeZone();
-        String serverTimeZone = Calendar.getInstance().getTimeZone().getID();
+        ZoneId clientZone = TimeZone.getTimeZone(recurringAppointmentRequest.getTimeZone()).toZoneId();
         Appointment appointment;
         if(forConflicts) {
             appointment = cloneAppointmentForConflicts(recurringAppointmentRequest);
@@ -53,9 +54,7 @@ public class AllAppointmentRecurringPatternUpdateService {
             updatedAppointmentRecurringPattern.setAppointments(new LinkedHashSet<>(newSetOfAppointments));
         }
         appointment.setAppointmentRecurringPattern(updatedAppointmentRecurringPattern);
-        TimeZone.setDefault(TimeZone.getTimeZone(clientTimeZone));
-        updateMetadataForAllAppointments(appointment, clientTimeZone);
-        TimeZone.setDefault(TimeZone.getTimeZone(serverTimeZone));
+        updateMetadataForAllAppointments(appointment, clientZone);
         return updatedAppointmentRecurringPattern;
     }
 
@@ -86,17 +85,14 @@ public class AllAppointmentRecurringPatternUpdateService {
         return appointmentClone;
     }
 
-    private void updateMetadataForAllAppointments(Appointment appointment, String clientTimeZone) {
-        String serverTimeZone = Calendar.getInstance().getTimeZone().getID();
+    private void updateMetadataForAllAppointments(Appointment appointment, ZoneId clientZone) {
         AppointmentRecurringPattern appointmentRecurringPattern = appointment.getAppointmentRecurringPattern();
         appointmentRecurringPattern
                 .setAppointments(appointment.getAppointmentRecurringPattern().getAppointments()
                         .stream()
                         .map(app -> {
-                            if (app.isFutureAppointment() && isRequestedOrScheduledAppointment(app)) {
-                                TimeZone.setDefault(TimeZone.getTimeZone(clientTimeZone));
-                                updateMetadata(app, appointment);
-                                TimeZone.setDefault(TimeZone.getTimeZone(serverTimeZone));
+                            if (app.isFutureAppointment(clientZone) && isRequestedOrScheduledAppointment(app)) {
+                                updateMetadata(app, appointment, clientZone);
                             }
                             return app;
                         }).collect(Collectors.toSet()));
@@ -106,9 +102,9 @@ public class AllAppointmentRecurringPatternUpdateService {
         return app.getStatus() == AppointmentStatus.Requested || app.getStatus() == AppointmentStatus.Scheduled;
     }
 
-    private void updateMetadata(Appointment pendingAppointment, Appointment appointment) {
-        Date startTime = getStartTime(pendingAppointment, appointment);
-        Date endTime = getEndTime(pendingAppointment, appointment);
+    private void updateMetadata(Appointment pendingAppointment, Appointment appointment, ZoneId clientZone) {
+        Date startTime = getUpdatedTimeStamp(appointment.getStartDateTime(), pendingAppointment.getStartDateTime(), clientZone);
+        Date endTime = getUpdatedTimeStamp(appointment.getEndDateTime(), pendingAppointment.getEndDateTime(), clientZone);
         pendingAppointment.setStartDateTime(startTime);
         pendingAppointment.setEndDateTime(endTime);
         pendingAppointment.setService(appointment.getService());
@@ -119,29 +115,16 @@ public class AllAppointmentRecurringPatternUpdateService {
         mapProvidersForAppointment(pendingAppointment, cloneOfProviders);
     }
 
-    private Date getStartTime(Appointment pendingAppointment, Appointment appointment) {
-        Calendar startCalender = Calendar.getInstance();
-        startCalender.setTime(appointment.getStartDateTime());
-        int startHours = startCalender.get(Calendar.HOUR_OF_DAY);
-        int startMinutes = startCalender.get(Calendar.MINUTE);
-        return getUpdatedTimeStamp(startHours, startMinutes, pendingAppointment.getStartDateTime());
-    }
-
-    private Date getEndTime(Appointment pendingAppointment, Appointment appointment) {
-        Calendar endCalender = Calendar.getInstance();
-        endCalender.setTime(appointment.getEndDateTime());
-        int endHours = endCalender.get(Calendar.HOUR_OF_DAY);
-        int endMinutes = endCalender.get(Calendar.MINUTE);
-        return getUpdatedTimeStamp(endHours, endMinutes, pendingAppointment.getEndDateTime());
-    }
-
-    private Date getUpdatedTimeStamp(int endHours, int endMinutes, Date endDateTime) {
-        Calendar pendingAppointmentCalender = Calendar.getInstance();
-        pendingAppointmentCalender.setTime(endDateTime);
-        pendingAppointmentCalender.set(Calendar.HOUR_OF_DAY, endHours);
-        pendingAppointmentCalender.set(Calendar.MINUTE, endMinutes);
-        pendingAppointmentCalender.set(Calendar.MILLISECOND, 0);
-        return pendingAppointmentCalender.getTime();
+    /**
+     * Moves the pending date to the time of day of the edited one, both read on the client's clock.
+     */
+    private Date getUpdatedTimeStamp(Date editedDateTime, Date pendingDateTime, ZoneId clientZone) {
+        ZonedDateTime edited = editedDateTime.toInstant().atZone(clientZone);
+        ZonedDateTime updated = pendingDateTime.toInstant().atZone(clientZone)
+                .withHour(edited.getHour())
+                .withMinute(edited.getMinute())
+                .withNano(0);
+        return Date.from(updated.toInstant());
     }
 
     private List<AppointmentProvider> getDeepCloneOfProviders(Set<AppointmentProvider> appointmentProviders) {
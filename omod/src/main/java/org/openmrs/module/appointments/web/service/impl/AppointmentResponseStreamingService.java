@@ -0,0 +1,51 @@
+package org.openmrs.module.appointments.web.service.impl;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
+import org.openmrs.module.appointments.service.AppointmentsService;
+import org.openmrs.module.appointments.web.mapper.AppointmentMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Date;
+
+/**
+ * Writes appointment lists as a JSON array while the appointments are read, instead of building the whole list of
+ * responses first. Appointments are read in chunks with their associations prefetched, and each one is mapped and
+ * written as soon as its chunk is loaded.
+ */
+@Component
+public class AppointmentResponseStreamingService {
+
+    @Autowired
+    private AppointmentsService appointmentsService;
+
+    @Autowired
+    private AppointmentMapper appointmentMapper;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(SerializationConfig.Feature.FLUSH_AFTER_WRITE_VALUE, false);
+
+    public void writeAllAppointments(Date forDate, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.getJsonFactory().createJsonGenerator(outputStream, JsonEncoding.UTF8);
+        generator.writeStartArray();
+        try {
+            appointmentsService.forEachAppointment(forDate, appointment -> {
+                try {
+                    objectMapper.writeValue(generator, appointmentMapper.constructResponse(appointment));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.writeEndArray();
+        generator.flush();
+    }
+}
@@ -1,6 +1,9 @@
 package org.openmrs.module.appointments.web.validators;
 
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.api.APIException;
 import org.openmrs.module.appointments.model.AppointmentSearchRequest;
+import org.openmrs.module.appointments.model.AppointmentSearchToken;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
@@ -22,5 +25,12 @@ public class AppointmentSearchValidator implements Validator {
         Date startDate = appointmentSearchRequest.getStartDate();
         if(isNull(startDate))
             errors.reject("invalid","StartDate is not provided");
+        if (StringUtils.isNotEmpty(appointmentSearchRequest.getContinuationToken())) {
+            try {
+                AppointmentSearchToken.decode(appointmentSearchRequest.getContinuationToken());
+            } catch (APIException e) {
+                errors.reject("invalid", e.getMessage());
+            }
+        }
     }
 }
@@ -0,0 +1,157 @@
+package org.openmrs.module.appointments.web.controller;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.openmrs.User;
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.events.AppointmentChangeBroadcaster;
+import org.openmrs.module.appointments.events.AppointmentChangeEvent;
+import org.openmrs.module.appointments.events.AppointmentChangeSubscription;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.openmrs.module.appointments.constants.PrivilegeConstants.VIEW_APPOINTMENTS;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@PrepareForTest(Context.class)
+@RunWith(PowerMockRunner.class)
+public class AppointmentChangeSubscriptionControllerTest {
+
+    @Spy
+    private AppointmentChangeBroadcaster appointmentChangeBroadcaster = new AppointmentChangeBroadcaster();
+
+    @InjectMocks
+    private AppointmentChangeSubscriptionController appointmentChangeSubscriptionController;
+
+    private MockHttpServletRequest asyncRequest = new MockHttpServletRequest();
+
+    private MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Before
+    public void setUp() {
+        asyncRequest.setAsyncSupported(true);
+        mockStatic(Context.class);
+        initMocks(this);
+        when(Context.hasPrivilege(VIEW_APPOINTMENTS)).thenReturn(true);
+        when(Context.getAuthenticatedUser()).thenReturn(user("userUuid"));
+    }
+
+    @Test
+    public void shouldCompletePollWhenChangeIsPublished() throws Exception {
+        String id = appointmentChangeSubscriptionController.subscribe("locationUuid", null, null).get("id");
+
+        DeferredResult<ResponseEntity<List<AppointmentChangeEvent>>> poll = appointmentChangeSubscriptionController.pollEvents(id, asyncRequest, response);
+        assertFalse(poll.hasResult());
+        appointmentChangeBroadcaster.publishUuidsAfterCommit(Collections.singletonList("appointmentUuid"));
+
+        ResponseEntity<List<AppointmentChangeEvent>> response = (ResponseEntity<List<AppointmentChangeEvent>>) poll.getResult();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("appointmentUuid", response.getBody().get(0).getAppointmentUuid());
+    }
+
+    @Test
+    public void shouldReturnBufferedChangesRightAway() throws Exception {
+        String id = appointmentChangeSubscriptionController.subscribe(null, null, null).get("id");
+        appointmentChangeBroadcaster.publishUuidsAfterCommit(Collections.singletonList("appointmentUuid"));
+
+        DeferredResult<ResponseEntity<List<AppointmentChangeEvent>>> poll = appointmentChangeSubscriptionController.pollEvents(id, asyncRequest, response);
+
+        assertTrue(poll.hasResult());
+        assertEquals(1, ((ResponseEntity<List<AppointmentChangeEvent>>) poll.getResult()).getBody().size());
+    }
+
+    @Test
+    public void shouldAnswerGoneForUnknownOrDroppedSubscription() throws Exception {
+        String id = appointmentChangeSubscriptionController.subscribe(null, null, null).get("id");
+        appointmentChangeSubscriptionController.unsubscribe(id);
+
+        DeferredResult<ResponseEntity<List<AppointmentChangeEvent>>> poll = appointmentChangeSubscriptionController.pollEvents(id, asyncRequest, response);
+
+        assertEquals(HttpStatus.GONE, ((ResponseEntity) poll.getResult()).getStatusCode());
+    }
+
+    @Test
+    public void shouldKeepEventsForNextPollWhenWaitingPollHasExpired() throws Exception {
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe("userUuid", null, null, null);
+        DeferredResult<ResponseEntity<List<AppointmentChangeEvent>>> poll = appointmentChangeSubscriptionController.pollEvents(subscription.getId(), asyncRequest, response);
+        poll.setResult(new ResponseEntity<>(Collections.<AppointmentChangeEvent>emptyList(), HttpStatus.OK));
+
+        appointmentChangeBroadcaster.publishUuidsAfterCommit(Collections.singletonList("appointmentUuid"));
+
+        assertEquals(1, subscription.drain().size());
+    }
+
+    @Test
+    public void shouldAnswerPollAtOnceWhenRequestDoesNotSupportAsync() throws Exception {
+        String id = appointmentChangeSubscriptionController.subscribe(null, null, null).get("id");
+        appointmentChangeBroadcaster.publishUuidsAfterCommit(Collections.singletonList("appointmentUuid"));
+
+        DeferredResult<ResponseEntity<List<AppointmentChangeEvent>>> poll = appointmentChangeSubscriptionController.pollEvents(id, new MockHttpServletRequest(), response);
+
+        assertNull(poll);
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertTrue(response.getContentAsString().contains("\"appointmentUuid\":\"appointmentUuid\""));
+        assertTrue(appointmentChangeBroadcaster.getSubscription(id).drain().isEmpty());
+    }
+
+    @Test(expected = APIAuthenticationException.class)
+    public void shouldNotSubscribeWithoutViewAppointmentsPrivilege() {
+        when(Context.hasPrivilege(VIEW_APPOINTMENTS)).thenReturn(false);
+
+        appointmentChangeSubscriptionController.subscribe(null, null, null);
+    }
+
+    @Test(expected = APIAuthenticationException.class)
+    public void shouldNotUnsubscribeWithoutViewAppointmentsPrivilege() {
+        String id = appointmentChangeSubscriptionController.subscribe(null, null, null).get("id");
+        when(Context.hasPrivilege(VIEW_APPOINTMENTS)).thenReturn(false);
+
+        appointmentChangeSubscriptionController.unsubscribe(id);
+    }
+
+    @Test
+    public void shouldNotUnsubscribeSubscriptionOfAnotherUser() {
+        String id = appointmentChangeSubscriptionController.subscribe(null, null, null).get("id");
+        when(Context.getAuthenticatedUser()).thenReturn(user("otherUserUuid"));
+
+        try {
+            appointmentChangeSubscriptionController.unsubscribe(id);
+            fail("Expected APIAuthenticationException");
+        } catch (APIAuthenticationException e) {
+            assertFalse(appointmentChangeBroadcaster.getSubscription(id).isDropped());
+        }
+    }
+
+    @Test(expected = APIAuthenticationException.class)
+    public void shouldNotPollSubscriptionOfAnotherUser() throws Exception {
+        String id = appointmentChangeSubscriptionController.subscribe(null, null, null).get("id");
+        when(Context.getAuthenticatedUser()).thenReturn(user("otherUserUuid"));
+
+        appointmentChangeSubscriptionController.pollEvents(id, asyncRequest, response);
+    }
+
+    private User user(String uuid) {
+        User user = new User();
+        user.setUuid(uuid);
+        return user;
+    }
+}
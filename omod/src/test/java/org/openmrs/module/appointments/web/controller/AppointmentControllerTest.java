@@ -26,7 +26,9 @@ import java.util.function.Supplier;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
@@ -129,13 +131,8 @@ public class AppointmentControllerTest {
         appointmentServiceDefinition.setUuid("someUuid");
         List<AppointmentServiceDefinition> appointmentServiceDefinitions = new ArrayList<>();
         appointmentServiceDefinitions.add(appointmentServiceDefinition);
-        Appointment appointment = new Appointment();
-        appointment.setUuid("apptUuid");
-        appointment.setService(appointmentServiceDefinition);
-        appointment.setStartDateTime(startDate);
-        appointment.setStatus(AppointmentStatus.Scheduled);
-        List<Appointment> appointmentList = new ArrayList<>();
-        appointmentList.add(appointment);
+        DailyAppointmentServiceCount dailyCount = new DailyAppointmentServiceCount("someUuid", simpleDateFormat.parse(startDateString));
+        dailyCount.addAppointments(AppointmentStatus.Scheduled, 1);
         List<AppointmentStatus> appointmentStatuses = Arrays.asList(
                 AppointmentStatus.Requested,
                 AppointmentStatus.Completed,
@@ -146,12 +143,13 @@ public class AppointmentControllerTest {
         appointmentServiceDefaultResponse.setUuid("someUuid");
 
         when(appointmentServiceDefinitionService.getAllAppointmentServices(false)).thenReturn(appointmentServiceDefinitions);
-        when(appointmentsService.getAppointmentsForService(appointmentServiceDefinition, startDate, endDate, appointmentStatuses)).thenReturn(appointmentList);
+        when(appointmentsService.getDailyAppointmentServiceCounts(startDate, endDate, appointmentStatuses)).thenReturn(Collections.singletonList(dailyCount));
         when(appointmentServiceMapper.constructDefaultResponse(appointmentServiceDefinition)).thenReturn(appointmentServiceDefaultResponse);
 
         List<AppointmentsSummary> allAppointmentsSummary = appointmentController.getAllAppointmentsSummary(startDateString, endDateString);
         verify(appointmentServiceDefinitionService, times(1)).getAllAppointmentServices(false);
-        verify(appointmentsService, times(1)).getAppointmentsForService(appointmentServiceDefinition, startDate, endDate, appointmentStatuses);
+        verify(appointmentsService, times(1)).getDailyAppointmentServiceCounts(startDate, endDate, appointmentStatuses);
+        verify(appointmentsService, never()).getAppointmentsForService(any(AppointmentServiceDefinition.class), any(Date.class), any(Date.class), anyList());
         assertEquals(1, allAppointmentsSummary.size());
         assertEquals("someUuid", allAppointmentsSummary.get(0).getAppointmentService().getUuid());
         assertEquals(1, allAppointmentsSummary.get(0).getAppointmentCountMap().size());
@@ -234,14 +232,62 @@ public class AppointmentControllerTest {
         List<AppointmentDefaultResponse> appointmentDefaultResponses = new ArrayList<>();
         appointmentDefaultResponses.add(appointmentDefaultResponse);
 
-        when(appointmentMapper.mapQueryToAppointment(appointmentQuery)).thenReturn(appointment);
-        when(appointmentsService.search(appointment)).thenReturn(appointments);
+        AppointmentFilter appointmentFilter = new AppointmentFilter();
+        when(appointmentMapper.mapQueryToFilter(appointmentQuery)).thenReturn(appointmentFilter);
+        when(appointmentsService.search(appointmentFilter)).thenReturn(appointments);
         when(appointmentMapper.constructResponse(appointments)).thenReturn(appointmentDefaultResponses);
         List<AppointmentDefaultResponse> appointmentResponses = appointmentController.searchAppointments(appointmentQuery);
         AppointmentDefaultResponse appointmentResponse = appointmentDefaultResponses.get(0);
         assertEquals("appointmentUuid1", appointmentResponse.getUuid());
     }
 
+    @Test
+    public void shouldReturnAppointmentsChangedSinceWatermarkWithNextWatermark() throws Exception {
+        long since = System.currentTimeMillis() - 60000;
+        List<Appointment> changedAppointments = Collections.singletonList(new Appointment());
+        List<AppointmentDefaultResponse> responses = Collections.singletonList(new AppointmentDefaultResponse());
+        when(appointmentsService.getAppointmentsChangedSince(new Date(since), null, AppointmentController.CHANGES_PAGE_SIZE)).thenReturn(changedAppointments);
+        when(appointmentMapper.constructResponse(changedAppointments)).thenReturn(responses);
+
+        AppointmentChangesResponse changes = appointmentController.getAppointmentChanges(since, null);
+
+        assertEquals(responses, changes.getAppointments());
+        assertTrue(changes.getWatermark() > since);
+        assertTrue(changes.getWatermark() < System.currentTimeMillis());
+        verify(appointmentsService, never()).getAllAppointments(any(Date.class));
+    }
+
+    @Test
+    public void shouldNotMoveWatermarkBackWhenPolledAgainRightAway() throws Exception {
+        long since = System.currentTimeMillis();
+        when(appointmentsService.getAppointmentsChangedSince(new Date(since), null, AppointmentController.CHANGES_PAGE_SIZE)).thenReturn(Collections.emptyList());
+
+        AppointmentChangesResponse changes = appointmentController.getAppointmentChanges(since, null);
+
+        assertEquals(since, changes.getWatermark());
+    }
+
+    @Test
+    public void shouldContinueFromLastAppointmentOfAFullPageOfChanges() throws Exception {
+        long since = System.currentTimeMillis() - 60000;
+        List<Appointment> changedAppointments = new ArrayList<>();
+        for (int i = 1; i <= AppointmentController.CHANGES_PAGE_SIZE; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setAppointmentId(i);
+            appointment.setDateCreated(new Date(since + i));
+            changedAppointments.add(appointment);
+        }
+        changedAppointments.get(changedAppointments.size() - 1).setDateChanged(new Date(since + 1000));
+        when(appointmentsService.getAppointmentsChangedSince(new Date(since), 7, AppointmentController.CHANGES_PAGE_SIZE))
+                .thenReturn(changedAppointments);
+
+        AppointmentChangesResponse changes = appointmentController.getAppointmentChanges(since, 7);
+
+        assertTrue(changes.isHasMore());
+        assertEquals(since + 1000, changes.getWatermark());
+        assertEquals(Integer.valueOf(AppointmentController.CHANGES_PAGE_SIZE), changes.getWatermarkId());
+    }
+
     @Test
     public void shouldSaveAnAppointment() throws Exception{
         AppointmentRequest appointmentRequest = new AppointmentRequest();
@@ -6,21 +6,28 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.openmrs.api.APIException;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
+import org.openmrs.module.appointments.model.AppointmentServiceType;
+import org.openmrs.module.appointments.model.AppointmentSlot;
 import org.openmrs.module.appointments.service.AppointmentServiceDefinitionService;
 import org.openmrs.module.appointments.util.DateUtil;
 import org.openmrs.module.appointments.web.contract.AppointmentServiceFullResponse;
 import org.openmrs.module.appointments.web.contract.AppointmentServiceDescription;
 import org.openmrs.module.appointments.web.mapper.AppointmentServiceMapper;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -108,17 +115,17 @@ public class AppointmentServiceDefinitionControllerTest {
         String uuid = "c36006d4-9fbb-4f20-866b-0ece245615b1";
         AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
         appointmentServiceDefinition.setUuid(uuid);
-        when(appointmentServiceDefinitionService.getAppointmentServiceByUuid(uuid)).thenReturn(appointmentServiceDefinition);
+        when(appointmentServiceDefinitionService.getCachedAppointmentServiceByUuid(uuid)).thenReturn(appointmentServiceDefinition);
         
         appointmentServiceController.getAppointmentServiceByUuid(uuid);
-        verify(appointmentServiceDefinitionService, times(1)).getAppointmentServiceByUuid(uuid);
+        verify(appointmentServiceDefinitionService, times(1)).getCachedAppointmentServiceByUuid(uuid);
         verify(appointmentServiceMapper, times(1)).constructResponse(appointmentServiceDefinition);
     }
     
     @Test(expected = RuntimeException.class)
     public void shouldThrowExceptionIfServiceNotFound() throws Exception {
         appointmentServiceController.getAppointmentServiceByUuid("random");
-        verify(appointmentServiceDefinitionService, times(1)).getAppointmentServiceByUuid("random");
+        verify(appointmentServiceDefinitionService, times(1)).getCachedAppointmentServiceByUuid("random");
     }
 
     @Test
@@ -190,7 +197,7 @@ public class AppointmentServiceDefinitionControllerTest {
         AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
         appointmentServiceDefinition.setUuid(appointmentServiceUuid);
         appointmentServiceDefinition.setName("serviceName");
-        when(appointmentServiceDefinitionService.getAppointmentServiceByUuid(appointmentServiceUuid)).thenReturn(appointmentServiceDefinition);
+        when(appointmentServiceDefinitionService.getCachedAppointmentServiceByUuid(appointmentServiceUuid)).thenReturn(appointmentServiceDefinition);
         String startDateString = "2108-08-14T18:30:00.0Z";
         String endDateString = "2108-08-15T18:30:00.0Z";
         Date startDate = DateUtil.convertToLocalDateFromUTC(startDateString);
@@ -213,4 +220,50 @@ public class AppointmentServiceDefinitionControllerTest {
         verify(appointmentServiceDefinitionService, times(1)).getAllAppointmentServices(false);
         verify(appointmentServiceMapper, times(1)).constructFullResponseForServiceList(appointmentServiceDefinitionList);
     }
+
+    @Test
+    public void shouldGetAvailableSlotsOfServiceAndServiceType() throws Exception {
+        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
+        AppointmentServiceType appointmentServiceType = new AppointmentServiceType();
+        appointmentServiceType.setAppointmentServiceDefinition(appointmentServiceDefinition);
+        when(appointmentServiceDefinitionService.getCachedAppointmentServiceByUuid("serviceUuid")).thenReturn(appointmentServiceDefinition);
+        when(appointmentServiceDefinitionService.getAppointmentServiceTypeByUuid("serviceTypeUuid")).thenReturn(appointmentServiceType);
+        String startDateString = "2108-08-14T18:30:00.0Z";
+        String endDateString = "2108-09-14T18:30:00.0Z";
+        Date startDate = DateUtil.convertToLocalDateFromUTC(startDateString);
+        Date endDate = DateUtil.convertToLocalDateFromUTC(endDateString);
+        List<AppointmentSlot> slots = Collections.singletonList(new AppointmentSlot("serviceUuid", startDate, endDate));
+        when(appointmentServiceDefinitionService.getAvailableSlots(appointmentServiceDefinition, appointmentServiceType, startDate, endDate, 2)).thenReturn(slots);
+
+        ResponseEntity<Object> response = appointmentServiceController.getAvailableSlots("serviceUuid", "serviceTypeUuid",
+                startDateString, endDateString, 2);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(appointmentServiceDefinitionService, times(1)).getAvailableSlots(appointmentServiceDefinition, appointmentServiceType, startDate, endDate, 2);
+        verify(appointmentServiceMapper, times(1)).constructSlotResponse(slots);
+    }
+
+    @Test
+    public void shouldGetAvailableSlotsOfAllServicesWhenNoServiceIsGiven() throws Exception {
+        String startDateString = "2108-08-14T18:30:00.0Z";
+        String endDateString = "2108-09-14T18:30:00.0Z";
+
+        appointmentServiceController.getAvailableSlots(null, null, startDateString, endDateString, 1);
+
+        verify(appointmentServiceDefinitionService, times(1)).getAvailableSlots(null, null,
+                DateUtil.convertToLocalDateFromUTC(startDateString), DateUtil.convertToLocalDateFromUTC(endDateString), 1);
+    }
+
+    @Test
+    public void shouldRejectSlotSearchTheServiceDoesNotAllow() throws Exception {
+        String startDateString = "2108-08-14T18:30:00.0Z";
+        String endDateString = "2109-08-14T18:30:00.0Z";
+        when(appointmentServiceDefinitionService.getAvailableSlots(null, null, DateUtil.convertToLocalDateFromUTC(startDateString),
+                DateUtil.convertToLocalDateFromUTC(endDateString), 1)).thenThrow(new APIException("Slots can be searched over at most 31 days"));
+
+        ResponseEntity<Object> response = appointmentServiceController.getAvailableSlots(null, null, startDateString, endDateString, 1);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(appointmentServiceMapper, never()).constructSlotResponse(anyListOf(AppointmentSlot.class));
+    }
 }
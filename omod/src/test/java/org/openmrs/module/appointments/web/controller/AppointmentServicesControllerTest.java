@@ -35,17 +35,17 @@ public class AppointmentServicesControllerTest {
         String uuid = "randomServiceUuid";
         AppointmentServiceDefinition appointmentServiceDef = new AppointmentServiceDefinition();
         appointmentServiceDef.setUuid(uuid);
-        when(appointmentServiceDefinitionService.getAppointmentServiceByUuid(uuid)).thenReturn(appointmentServiceDef);
+        when(appointmentServiceDefinitionService.getCachedAppointmentServiceByUuid(uuid)).thenReturn(appointmentServiceDef);
 
         appointmentServicesController.getAppointmentServiceByUuid(uuid);
-        verify(appointmentServiceDefinitionService, times(1)).getAppointmentServiceByUuid(uuid);
+        verify(appointmentServiceDefinitionService, times(1)).getCachedAppointmentServiceByUuid(uuid);
         verify(appointmentServiceMapper, times(1)).constructResponse(appointmentServiceDef);
     }
 
     @Test(expected = RuntimeException.class)
     public void shouldThrowErrorIf() {
         AppointmentServiceDefinition appointmentServiceDef = new AppointmentServiceDefinition();
-        when(appointmentServiceDefinitionService.getAppointmentServiceByUuid("randomUuid")).thenReturn(null);
+        when(appointmentServiceDefinitionService.getCachedAppointmentServiceByUuid("randomUuid")).thenReturn(null);
         appointmentServicesController.getAppointmentServiceByUuid("randomUuid");
     }
 
@@ -0,0 +1,50 @@
+package org.openmrs.module.appointments.web.controller;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openmrs.module.appointments.util.DateUtil;
+import org.openmrs.module.appointments.web.service.impl.AppointmentResponseStreamingService;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AppointmentStreamControllerTest {
+
+    @Mock
+    private AppointmentResponseStreamingService appointmentResponseStreamingService;
+
+    @InjectMocks
+    private AppointmentStreamController appointmentStreamController;
+
+    @Test
+    public void shouldStreamAllAppointmentsOfGivenDateAsJson() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appointmentStreamController.streamAllAppointments("2108-08-15T00:00:00.000Z", response);
+
+        assertEquals("application/json", response.getContentType());
+        assertEquals("UTF-8", response.getCharacterEncoding());
+        verify(appointmentResponseStreamingService, times(1)).writeAllAppointments(
+                DateUtil.convertToLocalDateFromUTC("2108-08-15T00:00:00.000Z"), response.getOutputStream());
+    }
+
+    @Test
+    public void shouldStreamAllAppointmentsWhenNoDateIsGiven() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appointmentStreamController.streamAllAppointments(null, response);
+
+        verify(appointmentResponseStreamingService, times(1)).writeAllAppointments(isNull(Date.class),
+                eq(response.getOutputStream()));
+    }
+}
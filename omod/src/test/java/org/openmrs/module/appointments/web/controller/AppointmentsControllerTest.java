@@ -14,6 +14,7 @@ import org.openmrs.Patient;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentSearchRequest;
+import org.openmrs.module.appointments.model.AppointmentSearchToken;
 import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.module.appointments.util.DateUtil;
@@ -23,15 +24,19 @@ import org.openmrs.module.appointments.web.mapper.AppointmentMapper;
 import org.openmrs.module.appointments.web.validators.AppointmentSearchValidator;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.validation.Errors;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.anyList;
 import java.util.Map;
 
@@ -168,13 +173,50 @@ public class AppointmentsControllerTest {
         when(appointmentsService.search(appointmentSearchRequest)).thenReturn(appointments);
         when(appointmentMapper.constructResponse(appointments)).thenReturn(expectedResponse);
 
-        List<AppointmentDefaultResponse> actualResponse = appointmentsController.search(appointmentSearchRequest);
+        List<AppointmentDefaultResponse> actualResponse = appointmentsController.search(appointmentSearchRequest, new MockHttpServletResponse());
 
         verify(appointmentsService, times(1)).search(appointmentSearchRequest);
         verify(appointmentMapper, times(1)).constructResponse(appointments);
         assertEquals(expectedResponse, actualResponse);
     }
 
+    @Test
+    public void shouldReturnContinuationTokenOfLastAppointmentWhenPageIsFull() {
+        AppointmentSearchRequest appointmentSearchRequest = new AppointmentSearchRequest();
+        appointmentSearchRequest.setLimit(2);
+        Appointment firstAppointment = new Appointment();
+        firstAppointment.setAppointmentId(1);
+        firstAppointment.setStartDateTime(new Date(1000));
+        Appointment lastAppointment = new Appointment();
+        lastAppointment.setAppointmentId(2);
+        lastAppointment.setStartDateTime(new Date(2000));
+        when(appointmentsService.search(appointmentSearchRequest)).thenReturn(Arrays.asList(firstAppointment, lastAppointment));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appointmentsController.search(appointmentSearchRequest, response);
+
+        AppointmentSearchToken token = AppointmentSearchToken.decode(response.getHeader("X-Continuation-Token"));
+        assertEquals(new Date(2000), token.getStartDateTime());
+        assertEquals(Integer.valueOf(2), token.getAppointmentId());
+        assertNull(response.getHeader("X-Total-Count"));
+        verify(appointmentsService, never()).getSearchCount(appointmentSearchRequest);
+    }
+
+    @Test
+    public void shouldReturnCountWithoutContinuationTokenWhenPageIsNotFull() {
+        AppointmentSearchRequest appointmentSearchRequest = new AppointmentSearchRequest();
+        appointmentSearchRequest.setLimit(2);
+        appointmentSearchRequest.setIncludeCount(true);
+        when(appointmentsService.search(appointmentSearchRequest)).thenReturn(Collections.singletonList(new Appointment()));
+        when(appointmentsService.getSearchCount(appointmentSearchRequest)).thenReturn(7L);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appointmentsController.search(appointmentSearchRequest, response);
+
+        assertNull(response.getHeader("X-Continuation-Token"));
+        assertEquals("7", response.getHeader("X-Total-Count"));
+    }
+
     @Test(expected = RuntimeException.class)
     public void shouldThrowExceptionWhenAppointmentsServiceSearchMethodReturnsNull() {
         AppointmentSearchRequest appointmentSearchRequest = new AppointmentSearchRequest();
@@ -188,7 +230,7 @@ public class AppointmentsControllerTest {
             }
         }).when(appointmentSearchValidator).validate(any(), any());
 
-        appointmentsController.search(appointmentSearchRequest);
+        appointmentsController.search(appointmentSearchRequest, new MockHttpServletResponse());
 
         verify(appointmentsService, never()).search(appointmentSearchRequest);
         verify(appointmentMapper, never()).constructResponse(anyListOf(Appointment.class));
@@ -222,6 +264,37 @@ public class AppointmentsControllerTest {
         verify(appointmentsService, never()).changeStatus(any(), any(), any());
     }
 
+    @Test
+    public void shouldReturnConflictsOfAppointmentsGroupedByPatient() {
+        AppointmentRequest appointmentRequestOne = mock(AppointmentRequest.class);
+        AppointmentRequest appointmentRequestTwo = mock(AppointmentRequest.class);
+        Appointment appointmentOne = mock(Appointment.class);
+        Appointment appointmentTwo = mock(Appointment.class);
+        Map<Enum, List<Appointment>> conflicts = new HashMap<>();
+        Map<String, Map<Enum, List<Appointment>>> conflictsByPatient = new HashMap<>();
+        conflictsByPatient.put("patientUuid", conflicts);
+        Map<String, List<AppointmentDefaultResponse>> conflictResponse = new HashMap<>();
+        when(appointmentMapper.fromRequestClonedAppointment(appointmentRequestOne)).thenReturn(appointmentOne);
+        when(appointmentMapper.fromRequestClonedAppointment(appointmentRequestTwo)).thenReturn(appointmentTwo);
+        when(appointmentsService.getAppointmentsConflictsForPatients(Arrays.asList(appointmentOne, appointmentTwo))).thenReturn(conflictsByPatient);
+        when(appointmentMapper.constructConflictResponse(conflicts)).thenReturn(conflictResponse);
+
+        ResponseEntity<Object> response = appointmentsController.getConflictsForPatients(Arrays.asList(appointmentRequestOne, appointmentRequestTwo));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(conflictResponse, ((Map) response.getBody()).get("patientUuid"));
+        verify(appointmentsService, times(1)).getAppointmentsConflictsForPatients(Arrays.asList(appointmentOne, appointmentTwo));
+    }
+
+    @Test
+    public void shouldReturnNoContentWhenNoPatientHasConflicts() {
+        when(appointmentsService.getAppointmentsConflictsForPatients(anyList())).thenReturn(new HashMap<>());
+
+        ResponseEntity<Object> response = appointmentsController.getConflictsForPatients(new ArrayList<>());
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+    }
+
     @Test
     public void shouldReturnConflictResponseForAnAppointmentHavingNoConflicts() {
         AppointmentRequest appointmentRequest = mock(AppointmentRequest.class);
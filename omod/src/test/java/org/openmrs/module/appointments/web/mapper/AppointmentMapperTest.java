@@ -17,6 +17,7 @@ import org.openmrs.api.LocationService;
 import org.openmrs.api.PatientService;
 import org.openmrs.api.ProviderService;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentFilter;
 import org.openmrs.module.appointments.model.AppointmentKind;
 import org.openmrs.module.appointments.model.AppointmentProvider;
 import org.openmrs.module.appointments.model.AppointmentProviderResponse;
@@ -34,6 +35,7 @@ import org.openmrs.module.appointments.web.contract.AppointmentQuery;
 import org.openmrs.module.appointments.web.contract.AppointmentRequest;
 import org.openmrs.module.appointments.web.contract.AppointmentServiceDefaultResponse;
 import org.openmrs.module.appointments.web.extension.AppointmentResponseExtension;
+import org.openmrs.module.webservices.rest.web.response.ConversionException;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.text.ParseException;
@@ -135,7 +137,7 @@ public class AppointmentMapperTest {
         serviceTypes.add(serviceType);
         serviceTypes.add(serviceType2);
         service.setServiceTypes(serviceTypes);
-        when(appointmentServiceDefinitionService.getAppointmentServiceByUuid("serviceUuid")).thenReturn(service);
+        when(appointmentServiceDefinitionService.getCachedAppointmentServiceByUuid("serviceUuid")).thenReturn(service);
         provider = new Provider();
         provider.setUuid("providerUuid");
         when(providerService.getProviderByUuid("providerUuid")).thenReturn(provider);
@@ -151,7 +153,7 @@ public class AppointmentMapperTest {
         assertNotNull(appointment);
         verify(patientService, times(1)).getPatientByUuid(appointmentRequest.getPatientUuid());
         assertEquals(patient, appointment.getPatient());
-        verify(appointmentServiceDefinitionService, times(1)).getAppointmentServiceByUuid(appointmentRequest.getServiceUuid());
+        verify(appointmentServiceDefinitionService, times(1)).getCachedAppointmentServiceByUuid(appointmentRequest.getServiceUuid());
         assertEquals(service, appointment.getService());
         assertEquals(serviceType, appointment.getServiceType());
         verify(providerService, times(1)).getProviderByUuid(appointmentRequest.getProviderUuid());
@@ -314,6 +316,7 @@ public class AppointmentMapperTest {
         verify(extension, times(1)).run(appointment);
         assertEquals(2, response.getAdditionalInfo().keySet().size());
         assertEquals(false, response.getExtensions().get("patientEmailDefined"));
+        verify(appointmentsService, times(1)).prefetchAssociations(appointmentList);
     }
 
 
@@ -453,36 +456,54 @@ public class AppointmentMapperTest {
     }
 
     @Test
-    public void shouldMapAppointmentQueryToAppointment() {
+    public void shouldMapAppointmentQueryToFilterWithoutLookingUpEntities() {
         AppointmentQuery appointmentQuery = new AppointmentQuery();
-        appointmentQuery.setServiceUuid("someServiceUuid");
+        appointmentQuery.setServiceUuid("serviceUuid");
+        appointmentQuery.setServiceTypeUuid("serviceTypeUuid");
         appointmentQuery.setProviderUuid("providerUuid");
         appointmentQuery.setPatientUuid("patientUuid");
         appointmentQuery.setLocationUuid("locationUuid");
         appointmentQuery.setStatus("Completed");
         appointmentQuery.setAppointmentKind("Scheduled");
-        appointmentQuery.setServiceTypeUuid("serviceTypeUuid");
-        Appointment appointment = appointmentMapper.mapQueryToAppointment(appointmentQuery);
+        appointmentQuery.setSortBy("dateCreated");
+        appointmentQuery.setSortOrder("DESC");
+        appointmentQuery.setStartIndex(20);
+        appointmentQuery.setLimit(10);
+
+        AppointmentFilter appointmentFilter = appointmentMapper.mapQueryToFilter(appointmentQuery);
+
+        assertEquals("serviceUuid", appointmentFilter.getServiceUuid());
+        assertEquals("serviceTypeUuid", appointmentFilter.getServiceTypeUuid());
+        assertEquals("providerUuid", appointmentFilter.getProviderUuid());
+        assertEquals("patientUuid", appointmentFilter.getPatientUuid());
+        assertEquals("locationUuid", appointmentFilter.getLocationUuid());
+        assertEquals(AppointmentStatus.Completed, appointmentFilter.getStatus());
+        assertEquals(AppointmentKind.Scheduled, appointmentFilter.getAppointmentKind());
+        assertEquals(AppointmentFilter.SortField.DATE_CREATED, appointmentFilter.getSortBy());
+        assertTrue(appointmentFilter.isDescending());
+        assertEquals(20, appointmentFilter.getStartIndex());
+        assertEquals(10, appointmentFilter.getLimit());
+        verify(patientService, never()).getPatientByUuid(anyString());
+        verify(appointmentServiceDefinitionService, never()).getCachedAppointmentServiceByUuid(anyString());
+    }
 
-        AppointmentServiceDefinition appointmentServiceDefinition = new AppointmentServiceDefinition();
-        appointmentServiceDefinition.setUuid("serviceUuid");
-        when(appointmentServiceDefinitionService.getAppointmentServiceByUuid("someServiceUuid")).thenReturn(appointmentServiceDefinition);
-        Patient patient = new Patient();
-        patient.setUuid("patientUuid");
-        when(patientService.getPatientByUuid("patientUuid")).thenReturn(patient);
+    @Test
+    public void shouldSortFilterByStartDateTimeAscendingByDefault() {
+        AppointmentFilter appointmentFilter = appointmentMapper.mapQueryToFilter(new AppointmentQuery());
 
-        Provider provider = new Provider();
-        provider.setUuid("providerUuid");
-        when(providerService.getProviderByUuid("providerUuid")).thenReturn(provider);
+        assertEquals(AppointmentFilter.SortField.START_DATE_TIME, appointmentFilter.getSortBy());
+        assertFalse(appointmentFilter.isDescending());
+        assertNull(appointmentFilter.getStatus());
+    }
 
-        Location location = new Location();
-        location.setUuid("locationUuid");
-        when(locationService.getLocationByUuid("locationUuid")).thenReturn(location);
+    @Test
+    public void shouldThrowExceptionWhenSortingFilterByUnknownField() {
+        AppointmentQuery appointmentQuery = new AppointmentQuery();
+        appointmentQuery.setSortBy("comments");
+        expectedException.expect(ConversionException.class);
+        expectedException.expectMessage("Bad Request. Cannot sort by comments");
 
-        assertEquals("locationUuid", appointment.getLocation().getUuid());
-        assertEquals("patientUuid", appointment.getPatient().getUuid());
-        assertEquals("providerUuid", appointment.getProvider().getUuid());
-        assertEquals("Completed", appointment.getStatus().toString());
+        appointmentMapper.mapQueryToFilter(appointmentQuery);
     }
 
     @Test
@@ -517,7 +538,7 @@ public class AppointmentMapperTest {
         assertNotNull(appointment);
         verify(patientService, times(1)).getPatientByUuid(appointmentRequest.getPatientUuid());
         assertEquals(this.patient, appointment.getPatient());
-        verify(appointmentServiceDefinitionService, times(1)).getAppointmentServiceByUuid(appointmentRequest.getServiceUuid());
+        verify(appointmentServiceDefinitionService, times(1)).getCachedAppointmentServiceByUuid(appointmentRequest.getServiceUuid());
         assertEquals(service, appointment.getService());
         assertEquals(serviceType, appointment.getServiceType());
 
@@ -626,7 +647,7 @@ public class AppointmentMapperTest {
         assertNotNull(appointment);
         verify(patientService, times(1)).getPatientByUuid(appointmentRequest.getPatientUuid());
         assertEquals(patient, appointment.getPatient());
-        verify(appointmentServiceDefinitionService, times(1)).getAppointmentServiceByUuid(appointmentRequest.getServiceUuid());
+        verify(appointmentServiceDefinitionService, times(1)).getCachedAppointmentServiceByUuid(appointmentRequest.getServiceUuid());
         assertEquals(service, appointment.getService());
         assertEquals(serviceType, appointment.getServiceType());
         verify(providerService, times(1)).getProviderByUuid(appointmentRequest.getProviderUuid());
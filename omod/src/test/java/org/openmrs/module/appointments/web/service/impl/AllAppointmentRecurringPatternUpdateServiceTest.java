@@ -14,6 +14,10 @@ import static org.openmrs.module.appointments.model.AppointmentStatus.Requested;
 import static org.openmrs.module.appointments.model.AppointmentStatus.Scheduled;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -21,8 +25,15 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.time.DateUtils;
 import org.junit.Before;
@@ -755,4 +766,75 @@ public class AllAppointmentRecurringPatternUpdateServiceTest {
         assertTrue(providers.stream().anyMatch(provider ->
                 provider.getResponse().equals(AppointmentProviderResponse.CANCELLED) && provider.getVoided()));
     }
+
+    @Test
+    public void shouldUpdatePendingOccurrencesOnEachClientsClockWhenEditedConcurrently() throws Exception {
+        List<String> clientTimeZones = Arrays.asList("Asia/Calcutta", "America/New_York", "UTC", "Australia/Sydney");
+        int editsPerZone = 50;
+        TimeZone serverTimeZone = TimeZone.getDefault();
+        Map<String, Appointment> editedAppointments = new ConcurrentHashMap<>();
+        when(appointmentsService.getAppointmentByUuid(anyString()))
+                .thenAnswer(invocation -> editedAppointments.get(invocation.getArguments()[0]));
+        when(recurringAppointmentsService.getUpdatedSetOfAppointments(any(), any()))
+                .thenAnswer(invocation -> new ArrayList<>(((AppointmentRecurringPattern) invocation.getArguments()[0]).getAppointments()));
+        ExecutorService executor = Executors.newFixedThreadPool(clientTimeZones.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (String clientTimeZone : clientTimeZones) {
+            futures.add(executor.submit((Callable<Void>) () -> {
+                start.await();
+                ZoneId zone = ZoneId.of(clientTimeZone);
+                LocalDate day = LocalDate.now(zone).plusDays(1);
+                for (int i = 0; i < editsPerZone; i++) {
+                    String uuid = clientTimeZone + "-" + i;
+                    Appointment pendingAppointment = new AppointmentBuilder()
+                            .withUuid(uuid + "-pending")
+                            .withPatient(patient)
+                            .withStatus(Scheduled)
+                            .withAppointmentKind(AppointmentKind.Scheduled)
+                            .withStartDateTime(toDate(day.plusDays(2), LocalTime.of(10, 0), zone))
+                            .withEndDateTime(toDate(day.plusDays(2), LocalTime.of(10, 30), zone))
+                            .build();
+                    Appointment editedAppointment = new AppointmentBuilder()
+                            .withUuid(uuid)
+                            .withPatient(patient)
+                            .withStatus(Scheduled)
+                            .withAppointmentKind(AppointmentKind.Scheduled)
+                            .withStartDateTime(toDate(day, LocalTime.of(23, 15), zone))
+                            .withEndDateTime(toDate(day, LocalTime.of(23, 45), zone))
+                            .build();
+                    AppointmentRecurringPattern appointmentRecurringPattern = new AppointmentRecurringPattern();
+                    appointmentRecurringPattern.setType(RecurringAppointmentType.DAY);
+                    appointmentRecurringPattern.setPeriod(2);
+                    appointmentRecurringPattern.setAppointments(new HashSet<>(Arrays.asList(editedAppointment, pendingAppointment)));
+                    editedAppointment.setAppointmentRecurringPattern(appointmentRecurringPattern);
+                    pendingAppointment.setAppointmentRecurringPattern(appointmentRecurringPattern);
+                    editedAppointments.put(uuid, editedAppointment);
+                    RecurringAppointmentRequest recurringAppointmentRequest = new RecurringAppointmentRequest();
+                    recurringAppointmentRequest.setAppointmentRequest(new AppointmentRequest());
+                    recurringAppointmentRequest.getAppointmentRequest().setUuid(uuid);
+                    recurringAppointmentRequest.setRecurringPattern(new RecurringPattern());
+                    recurringAppointmentRequest.setTimeZone(clientTimeZone);
+
+                    allAppointmentRecurringPatternUpdateService.getUpdatedRecurringPattern(recurringAppointmentRequest);
+
+                    assertEquals(toDate(day.plusDays(2), LocalTime.of(23, 15), zone), pendingAppointment.getStartDateTime());
+                    assertEquals(toDate(day.plusDays(2), LocalTime.of(23, 45), zone), pendingAppointment.getEndDateTime());
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(serverTimeZone, TimeZone.getDefault());
+    }
+
+    private static Date toDate(LocalDate date, LocalTime time, ZoneId zone) {
+        return Date.from(LocalDateTime.of(date, time).atZone(zone).toOffsetDateTime().toInstant());
+    }
 }
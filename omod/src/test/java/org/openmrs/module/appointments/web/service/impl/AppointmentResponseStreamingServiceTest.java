@@ -0,0 +1,78 @@
+package org.openmrs.module.appointments.web.service.impl;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.service.AppointmentsService;
+import org.openmrs.module.appointments.web.contract.AppointmentDefaultResponse;
+import org.openmrs.module.appointments.web.mapper.AppointmentMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AppointmentResponseStreamingServiceTest {
+
+    @Mock
+    private AppointmentsService appointmentsService;
+
+    @Mock
+    private AppointmentMapper appointmentMapper;
+
+    @InjectMocks
+    private AppointmentResponseStreamingService appointmentResponseStreamingService;
+
+    @Test
+    public void shouldWriteSameJsonAsMappedListWhileWalkingAppointments() throws Exception {
+        Date forDate = new Date();
+        Appointment firstAppointment = new Appointment();
+        Appointment secondAppointment = new Appointment();
+        AppointmentDefaultResponse firstResponse = response("firstUuid");
+        AppointmentDefaultResponse secondResponse = response("secondUuid");
+        when(appointmentMapper.constructResponse(firstAppointment)).thenReturn(firstResponse);
+        when(appointmentMapper.constructResponse(secondAppointment)).thenReturn(secondResponse);
+        doAnswer(invocation -> {
+            Consumer<Appointment> action = (Consumer<Appointment>) invocation.getArguments()[1];
+            action.accept(firstAppointment);
+            action.accept(secondAppointment);
+            return null;
+        }).when(appointmentsService).forEachAppointment(eq(forDate), any(Consumer.class));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        appointmentResponseStreamingService.writeAllAppointments(forDate, outputStream);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(objectMapper.writeValueAsString(Arrays.asList(firstResponse, secondResponse)), outputStream.toString("UTF-8"));
+        verify(appointmentMapper, never()).constructResponse(any(List.class));
+    }
+
+    @Test
+    public void shouldWriteEmptyArrayWhenThereAreNoAppointments() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        appointmentResponseStreamingService.writeAllAppointments(null, outputStream);
+
+        assertEquals("[]", outputStream.toString("UTF-8"));
+    }
+
+    private AppointmentDefaultResponse response(String uuid) {
+        AppointmentDefaultResponse response = new AppointmentDefaultResponse();
+        response.setUuid(uuid);
+        return response;
+    }
+}
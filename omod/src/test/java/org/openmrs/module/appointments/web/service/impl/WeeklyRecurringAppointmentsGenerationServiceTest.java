@@ -18,8 +18,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.time.DateUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -28,9 +31,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.openmrs.Location;
+import org.openmrs.Patient;
+import org.openmrs.Provider;
 import org.openmrs.api.APIException;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentKind;
+import org.openmrs.module.appointments.model.AppointmentProvider;
+import org.openmrs.module.appointments.model.AppointmentProviderResponse;
 import org.openmrs.module.appointments.model.AppointmentRecurringPattern;
+import org.openmrs.module.appointments.model.AppointmentServiceDefinition;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.openmrs.module.appointments.service.impl.RecurringAppointmentType;
 import org.openmrs.module.appointments.service.impl.TeleconsultationAppointmentService;
@@ -56,6 +66,8 @@ public class WeeklyRecurringAppointmentsGenerationServiceTest {
     @Mock
     TeleconsultationAppointmentService teleconsultationAppointmentService;
 
+    private Log log = LogFactory.getLog(this.getClass());
+
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -92,6 +104,73 @@ public class WeeklyRecurringAppointmentsGenerationServiceTest {
     }
 
 
+    @Test
+    public void shouldResolveRequestOnceAndCopyItIntoEveryOccurrence() {
+        RecurringAppointmentRequest recurringAppointmentRequest = getAppointmentRequest(getDate(2019, Calendar.MAY, 13, 16, 0, 0),
+                getDate(2019, Calendar.MAY, 13, 16, 30, 0));
+        recurringAppointmentRequest.setRecurringPattern(getRecurringPattern(1, 4, null, asList("MONDAY", "THURSDAY")));
+        Appointment prototype = new Appointment();
+        prototype.setPatient(new Patient(1));
+        prototype.setService(new AppointmentServiceDefinition());
+        prototype.setLocation(new Location(1));
+        prototype.setAppointmentKind(AppointmentKind.Virtual);
+        prototype.setComments("comments");
+        AppointmentProvider prototypeProvider = new AppointmentProvider();
+        prototypeProvider.setProvider(new Provider(1));
+        prototypeProvider.setResponse(AppointmentProviderResponse.ACCEPTED);
+        prototypeProvider.setAppointment(prototype);
+        prototype.setProviders(new HashSet<>(singletonList(prototypeProvider)));
+        Mockito.when(appointmentMapper.fromRequest(recurringAppointmentRequest.getAppointmentRequest())).thenReturn(prototype);
+        Mockito.when(teleconsultationAppointmentService.generateTeleconsultationLink(Mockito.any(Appointment.class))).thenReturn("link");
+
+        List<Appointment> appointments = weeklyRecurringAppointmentsGenerationService.generateAppointments(recurringAppointmentRequest);
+
+        assertEquals(4, appointments.size());
+        Mockito.verify(appointmentMapper, Mockito.times(1)).fromRequest(recurringAppointmentRequest.getAppointmentRequest());
+        Mockito.verify(teleconsultationAppointmentService, Mockito.times(4)).generateTeleconsultationLink(Mockito.any(Appointment.class));
+        Set<String> uuids = new HashSet<>();
+        for (Appointment appointment : appointments) {
+            uuids.add(appointment.getUuid());
+            assertEquals(prototype.getPatient(), appointment.getPatient());
+            assertEquals(prototype.getService(), appointment.getService());
+            assertEquals(prototype.getLocation(), appointment.getLocation());
+            assertEquals("comments", appointment.getComments());
+            assertEquals("link", appointment.getTeleHealthVideoLink());
+            assertEquals(1, appointment.getProviders().size());
+            AppointmentProvider appointmentProvider = appointment.getProviders().iterator().next();
+            assertEquals(prototypeProvider.getProvider(), appointmentProvider.getProvider());
+            assertEquals(appointment, appointmentProvider.getAppointment());
+        }
+        assertEquals(4, uuids.size());
+    }
+
+    /**
+     * Generates twice weekly series of growing length, the request is mapped once per series so only
+     * copying the occurrences grows with its length. The timings are logged.
+     */
+    @Test
+    public void shouldReportGenerationTimingsForSeriesOfGrowingLength() {
+        AtomicInteger requestMappings = new AtomicInteger();
+        Mockito.when(appointmentMapper.fromRequest(Mockito.any(AppointmentRequest.class))).thenAnswer(x -> {
+            requestMappings.incrementAndGet();
+            return new Appointment();
+        });
+        for (int occurrences : asList(8, 52, 104, 520)) {
+            RecurringAppointmentRequest recurringAppointmentRequest = getAppointmentRequest(getDate(2019, Calendar.MAY, 13, 16, 0, 0),
+                    getDate(2019, Calendar.MAY, 13, 16, 30, 0));
+            recurringAppointmentRequest.setRecurringPattern(getRecurringPattern(1, occurrences, null, asList("MONDAY", "THURSDAY")));
+            requestMappings.set(0);
+
+            long start = System.nanoTime();
+            List<Appointment> appointments = weeklyRecurringAppointmentsGenerationService.generateAppointments(recurringAppointmentRequest);
+            long micros = (System.nanoTime() - start) / 1000;
+
+            assertEquals(occurrences, appointments.size());
+            assertEquals(1, requestMappings.get());
+            log.info(String.format("%d occurrences generated in %d us with %d request mapping", occurrences, micros, requestMappings.get()));
+        }
+    }
+
     @Test
     public void shouldReturnWeeklyAppointmentsForGivenRecurringPatternAndAppointmentRequestWithMultipleDaysInWeek() {
         Date appointmentStartDateTime = getDate(2019, Calendar.MAY, 13, 16, 00, 00);
@@ -6,6 +6,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.openmrs.module.appointments.model.AppointmentSearchRequest;
+import org.openmrs.module.appointments.model.AppointmentSearchToken;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.Errors;
 import static org.junit.Assert.assertEquals;
@@ -57,4 +58,19 @@ public class AppointmentSearchRequestValidatorTest {
         assertNotNull(errors.getAllErrors().get(0).getCodes()[1]);
     }
 
+    @Test
+    public void shouldAddToErrorsWhenContinuationTokenIsInvalid() {
+        appointmentSearchRequest.setContinuationToken("not a token");
+        appointmentSearchValidator.validate(appointmentSearchRequest, errors);
+        assertEquals(1, errors.getAllErrors().size());
+        assertEquals("Invalid continuation token", errors.getAllErrors().get(0).getDefaultMessage());
+    }
+
+    @Test
+    public void shouldAcceptContinuationTokenOfAnAppointment() {
+        appointmentSearchRequest.setContinuationToken(new AppointmentSearchToken(new Date(), 12).encode());
+        appointmentSearchValidator.validate(appointmentSearchRequest, errors);
+        assertEquals(0, errors.getAllErrors().size());
+    }
+
 }